@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import org.dataconservancy.pass.notification.model.Notification;
+
+/**
+ * The result of dispatching one of the notifications passed to
+ * {@link DispatchService#dispatchAll(java.util.Collection)}: either the identifier that
+ * {@link DispatchService#dispatch(Notification)} would have returned, or the exception it would have thrown.
+ */
+public class DispatchResult {
+
+    private final Notification notification;
+
+    private final String id;
+
+    private final DispatchException failure;
+
+    private DispatchResult(Notification notification, String id, DispatchException failure) {
+        this.notification = notification;
+        this.id = id;
+        this.failure = failure;
+    }
+
+    /**
+     * @param notification the notification that was dispatched
+     * @param id the identifier of the dispatched notification
+     * @return a successful result
+     */
+    public static DispatchResult dispatched(Notification notification, String id) {
+        return new DispatchResult(notification, id, null);
+    }
+
+    /**
+     * @param notification the notification that could not be dispatched
+     * @param failure the reason it could not be dispatched
+     * @return a failed result
+     */
+    public static DispatchResult failed(Notification notification, DispatchException failure) {
+        return new DispatchResult(notification, null,
+                Objects.requireNonNull(failure, "DispatchException must not be null."));
+    }
+
+    public Notification getNotification() {
+        return notification;
+    }
+
+    /**
+     * @return the identifier of the dispatched notification, or {@code null} if it could not be dispatched
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the reason the notification could not be dispatched, or {@code null} if it was dispatched
+     */
+    public DispatchException getFailure() {
+        return failure;
+    }
+
+    public boolean isDispatched() {
+        return failure == null;
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", DispatchResult.class.getSimpleName() + "[", "]")
+                .add("id='" + id + "'")
+                .add("failure=" + failure)
+                .add("notification=" + notification)
+                .toString();
+    }
+
+}
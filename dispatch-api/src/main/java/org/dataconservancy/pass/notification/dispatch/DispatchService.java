@@ -18,6 +18,12 @@
 
 package org.dataconservancy.pass.notification.dispatch;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 import org.dataconservancy.pass.notification.model.Notification;
 
 /**
@@ -28,4 +34,51 @@ public interface DispatchService {
 
     String dispatch(Notification notification);
 
+    /**
+     * Dispatches a notification without waiting for it to be delivered.  The returned stage completes with the
+     * identifier that {@link #dispatch(Notification)} would have returned, or exceptionally with the exception it
+     * would have thrown.
+     * <p>
+     * The default implementation dispatches the notification on the calling thread, and returns a completed stage.
+     * </p>
+     *
+     * @param notification the notification
+     * @return a stage completing once the notification has been dispatched
+     */
+    default CompletionStage<String> dispatchAsync(Notification notification) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        try {
+            result.complete(dispatch(notification));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Dispatches a batch of notifications, such as those replayed in bulk or received together, reporting the result
+     * of each.  A notification that cannot be dispatched does not prevent the others from being dispatched.
+     * <p>
+     * The default implementation dispatches each notification in turn.  Implementations may instead share work
+     * between notifications of the same type, or share a connection to the underlying transport.
+     * </p>
+     *
+     * @param notifications the notifications
+     * @return the result of dispatching each notification, in the iteration order of {@code notifications}
+     */
+    default List<DispatchResult> dispatchAll(Collection<? extends Notification> notifications) {
+        List<DispatchResult> results = new ArrayList<>(notifications.size());
+        for (Notification notification : notifications) {
+            try {
+                results.add(DispatchResult.dispatched(notification, dispatch(notification)));
+            } catch (DispatchException e) {
+                results.add(DispatchResult.failed(notification, e));
+            } catch (RuntimeException e) {
+                results.add(DispatchResult.failed(notification, new DispatchException(e.getMessage(), e,
+                        notification)));
+            }
+        }
+        return results;
+    }
+
 }
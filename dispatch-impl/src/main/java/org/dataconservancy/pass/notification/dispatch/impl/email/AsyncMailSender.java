@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.util.concurrent.CompletionStage;
+
+import org.simplejavamail.email.Email;
+
+/**
+ * Sends a composed {@link Email} without waiting for the mail relay.  The asynchronous counterpart of
+ * {@link MailSender}.
+ */
+@FunctionalInterface
+public interface AsyncMailSender {
+
+    /**
+     * Begins sending the email.
+     *
+     * @param email the email to send
+     * @return a stage completing once the email has been accepted by the mail relay, or exceptionally if it could not
+     *         be sent
+     */
+    CompletionStage<Void> sendAsync(Email email);
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import org.dataconservancy.pass.notification.support.resilience.CircuitBreaker;
+import org.simplejavamail.email.Email;
+
+/**
+ * Sends email through a {@link CircuitBreaker}, so that sends are refused up front while the mail relay is failing.
+ */
+public class CircuitBreakingMailSender implements MailSender {
+
+    private final MailSender delegate;
+
+    private final CircuitBreaker breaker;
+
+    public CircuitBreakingMailSender(MailSender delegate, CircuitBreaker breaker) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate MailSender must not be null.");
+        this.breaker = Objects.requireNonNull(breaker, "CircuitBreaker must not be null.");
+    }
+
+    @Override
+    public void send(Email email) {
+        breaker.run(() -> delegate.send(email));
+    }
+
+    /**
+     * Sends the batch through the circuit breaker as a single call: failing to reach the mail relay counts as one
+     * failure, whereas an email rejected by the relay does not count as a failure.
+     */
+    @Override
+    public void sendAll(List<Email> emails, BiConsumer<Email, RuntimeException> results) {
+        breaker.run(() -> delegate.sendAll(emails, results));
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import org.dataconservancy.pass.notification.support.resilience.ConcurrencyLimiter;
+import org.simplejavamail.email.Email;
+
+/**
+ * Sends email through a {@link ConcurrencyLimiter}, so that the number of concurrent SMTP conversations adapts to the
+ * latency of the mail relay.
+ */
+public class ConcurrencyLimitedMailSender implements MailSender {
+
+    private final MailSender delegate;
+
+    private final ConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedMailSender(MailSender delegate, ConcurrencyLimiter limiter) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate MailSender must not be null.");
+        this.limiter = Objects.requireNonNull(limiter, "ConcurrencyLimiter must not be null.");
+    }
+
+    @Override
+    public void send(Email email) {
+        limiter.run(() -> delegate.send(email));
+    }
+
+    /**
+     * Sends the batch as a single SMTP conversation, occupying one unit of concurrency until every email is sent.
+     */
+    @Override
+    public void sendAll(List<Email> emails, BiConsumer<Email, RuntimeException> results) {
+        limiter.run(() -> delegate.sendAll(emails, results));
+    }
+
+}
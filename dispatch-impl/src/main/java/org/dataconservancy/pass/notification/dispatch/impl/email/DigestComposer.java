@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import static org.dataconservancy.pass.notification.dispatch.impl.email.EmailComposer.NOTIFICATION_TYPE_SMTP_HEADER;
+import static org.dataconservancy.pass.notification.dispatch.impl.email.EmailComposer.SUBMISSION_SMTP_HEADER;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.github.jknack.handlebars.Handlebars;
+import com.github.jknack.handlebars.Template;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
+
+/**
+ * Composes a single digest email from several emails addressed to the same recipients, using Handlebars templates for
+ * the subject and body of the digest.
+ * <p>
+ * The templates are supplied a {@code count} of the emails, and a list of {@code notifications}, each with the
+ * {@code subject}, {@code body}, notification {@code type} and {@code submission} of one email, in the order they
+ * were buffered.  The body is plain text, so the body of each email should be included using a triple-stash, e.g.
+ * <code>{{{body}}}</code>, to avoid it being HTML-escaped.  The digest is sent from the sender, and to the recipients,
+ * of the first email.
+ * </p>
+ */
+public class DigestComposer {
+
+    /**
+     * Header carrying the number of emails a digest combines
+     */
+    public static final String DIGEST_COUNT_SMTP_HEADER = "X-PASS-Digest-Count";
+
+    private final Template subject;
+
+    private final Template body;
+
+    /**
+     * @param handlebars compiles the templates
+     * @param subjectTemplate the template for the subject of the digest
+     * @param bodyTemplate the template for the body of the digest
+     */
+    public DigestComposer(Handlebars handlebars, String subjectTemplate, String bodyTemplate) {
+        Objects.requireNonNull(handlebars, "Handlebars must not be null.");
+        try {
+            this.subject = handlebars.compileInline(
+                    Objects.requireNonNull(subjectTemplate, "Subject template must not be null."));
+            this.body = handlebars.compileInline(
+                    Objects.requireNonNull(bodyTemplate, "Body template must not be null."));
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to compile digest template: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Composes the digest of {@code emails}.
+     *
+     * @param emails the emails to combine, at least one
+     * @return the digest
+     */
+    public Email compose(List<Email> emails) {
+        if (emails.isEmpty()) {
+            throw new IllegalArgumentException("A digest must combine at least one email.");
+        }
+
+        List<Map<String, Object>> notifications = new ArrayList<>(emails.size());
+        for (Email email : emails) {
+            Map<String, Object> notification = new HashMap<>();
+            notification.put("subject", email.getSubject());
+            notification.put("body", email.getPlainText());
+            notification.put("type", email.getHeaders().get(NOTIFICATION_TYPE_SMTP_HEADER));
+            notification.put("submission", email.getHeaders().get(SUBMISSION_SMTP_HEADER));
+            notifications.add(notification);
+        }
+
+        Map<String, Object> model = new HashMap<>();
+        model.put("count", emails.size());
+        model.put("notifications", notifications);
+
+        Email first = emails.get(0);
+        try {
+            return EmailBuilder.startingBlank()
+                    .from(first.getFromRecipient())
+                    .withRecipients(first.getRecipients())
+                    .withSubject(subject.apply(model).trim())
+                    .withPlainText(body.apply(model))
+                    .withHeader(DIGEST_COUNT_SMTP_HEADER, emails.size())
+                    .buildEmail();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to apply digest template: " + e.getMessage(), e);
+        }
+    }
+
+}
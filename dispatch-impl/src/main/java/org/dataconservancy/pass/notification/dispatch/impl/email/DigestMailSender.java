@@ -0,0 +1,497 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import static org.dataconservancy.pass.notification.dispatch.impl.email.EmailComposer.NOTIFICATION_TYPE_SMTP_HEADER;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import javax.mail.Message;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.support.journal.Journal;
+import org.dataconservancy.pass.notification.support.resilience.LimitExceededException;
+import org.simplejavamail.converter.EmailConverter;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.Recipient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces the emails of selected types of notification addressed to the same recipients into a single digest email,
+ * sent once the first of them has waited for the digest window.
+ * <p>
+ * An email of a selected type is appended to a durable {@link Journal} and buffered, rather than sent; {@code send}
+ * returns once it is stored.  Emails are buffered by their sender and recipients, and the buffers are divided between
+ * a number of stripes, each guarded by its own lock, so that emails to different recipients are buffered
+ * concurrently.  When the window of a buffer elapses, or it holds the maximum number of emails, its emails are
+ * combined by a {@link DigestComposer} and sent with the delegate {@link MailSender}; a buffer holding a single email
+ * sends that email unchanged.  Emails are marked complete in the journal once their digest has been sent.  A digest
+ * that fails to send is retried after the retry delay, together with any emails buffered since, divided into digests
+ * of at most the maximum number of emails; a buffer awaiting retry is not sent early when it becomes full.  Emails
+ * buffered before the process stopped are recovered from the journal when the sender is created, and sent after the
+ * window.
+ * </p>
+ * <p>
+ * An email is dead-lettered, that is logged at {@code ERROR} and marked complete in the journal without being sent,
+ * when its digest fails permanently (see {@link MailFailures#isPermanent(Throwable)}), or when it has been in
+ * {@code maxAttempts} digests that failed to send.  A digest refused before it reaches the relay, because a circuit
+ * breaker is open or a rate or concurrency limit is exceeded (see {@link LimitExceededException#isRefusal(Throwable)}),
+ * is retried without counting as an attempt, so that emails are buffered for as long as the relay is unavailable.
+ * </p>
+ * <p>
+ * Emails of other types, or without a {@code To} address, are sent immediately with the delegate.  When the journal
+ * cannot be written, {@code send} is refused with a {@link LimitExceededException}.
+ * </p>
+ * <p>
+ * Metrics: gauge {@code pass.notification.digest.pending}, the number of emails buffered; and counters
+ * {@code pass.notification.digest.sent}, the number of digests sent, {@code pass.notification.digest.coalesced},
+ * the number of emails they combined, {@code pass.notification.digest.retries}, the number of digests that failed to
+ * send and were retried, and {@code pass.notification.digest.dead}, the number of emails dead-lettered.
+ * </p>
+ */
+public class DigestMailSender implements MailSender, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DigestMailSender.class);
+
+    private final Journal journal;
+
+    private final MailSender delegate;
+
+    private final DigestComposer composer;
+
+    /**
+     * The names of the selected types of notification, as found in the notification type header
+     */
+    private final Set<String> types;
+
+    private final long windowMs;
+
+    private final int maxEmails;
+
+    private final long retryMs;
+
+    private final int maxAttempts;
+
+    private final Stripe[] stripes;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Counter sent;
+
+    private final Counter coalesced;
+
+    private final Counter retries;
+
+    private final Counter dead;
+
+    /**
+     * Creates a sender, buffering any emails recovered from the journal.
+     *
+     * @param journal the journal emails are held in until their digest has been sent
+     * @param delegate sends digests, and emails that are not buffered
+     * @param composer combines buffered emails into a digest
+     * @param types the types of notification whose emails are buffered
+     * @param windowMs the time, in milliseconds, the first email of a digest is buffered for
+     * @param maxEmails the number of buffered emails that causes a digest to be sent before its window has elapsed
+     * @param retryMs the delay, in milliseconds, before a digest that failed to send is retried
+     * @param maxAttempts the number of failed digests an email may be in before it is dead-lettered; digests
+     *                    refused before reaching the relay are not counted
+     * @param stripes the number of independently locked stripes the buffers are divided between
+     * @param meterRegistry the registry metrics are recorded to
+     */
+    public DigestMailSender(Journal journal, MailSender delegate, DigestComposer composer,
+                            Collection<Notification.Type> types, long windowMs, int maxEmails, long retryMs,
+                            int maxAttempts, int stripes, MeterRegistry meterRegistry) {
+        if (windowMs < 1 || maxEmails < 1 || retryMs < 1 || maxAttempts < 1 || stripes < 1) {
+            throw new IllegalArgumentException("Window, maximum emails, retry delay, maximum attempts and stripes " +
+                    "must be positive.");
+        }
+        this.journal = Objects.requireNonNull(journal, "Journal must not be null.");
+        this.delegate = Objects.requireNonNull(delegate, "Delegate MailSender must not be null.");
+        this.composer = Objects.requireNonNull(composer, "DigestComposer must not be null.");
+        this.types = types.stream().map(Notification.Type::name).collect(Collectors.toSet());
+        this.windowMs = windowMs;
+        this.maxEmails = maxEmails;
+        this.retryMs = retryMs;
+        this.maxAttempts = maxAttempts;
+
+        // A power of two, so that a stripe is selected by masking the hash of its key
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+
+        Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null.");
+        meterRegistry.gauge("pass.notification.digest.pending", journal, Journal::size);
+        this.sent = meterRegistry.counter("pass.notification.digest.sent");
+        this.coalesced = meterRegistry.counter("pass.notification.digest.coalesced");
+        this.retries = meterRegistry.counter("pass.notification.digest.retries");
+        this.dead = meterRegistry.counter("pass.notification.digest.dead");
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "digest-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        recover();
+    }
+
+    /**
+     * Buffers the email if it is of a selected type, otherwise sends it.
+     *
+     * @param email the email
+     * @throws LimitExceededException if the email could not be stored
+     */
+    @Override
+    public void send(Email email) {
+        String key = key(email);
+        if (key == null) {
+            delegate.send(email);
+            return;
+        }
+        buffer(key, email);
+    }
+
+    /**
+     * Buffers the emails of selected types, and sends the others together.
+     */
+    @Override
+    public void sendAll(List<Email> emails, BiConsumer<Email, RuntimeException> results) {
+        List<Email> unbuffered = new ArrayList<>(emails.size());
+        for (Email email : emails) {
+            String key = key(email);
+            if (key == null) {
+                unbuffered.add(email);
+                continue;
+            }
+            try {
+                buffer(key, email);
+                results.accept(email, null);
+            } catch (RuntimeException e) {
+                results.accept(email, e);
+            }
+        }
+
+        if (!unbuffered.isEmpty()) {
+            delegate.sendAll(unbuffered, results);
+        }
+    }
+
+    /**
+     * @return the number of emails buffered
+     */
+    public int size() {
+        return journal.size();
+    }
+
+    /**
+     * Stops sending digests, and closes the journal.  Buffered emails remain in the journal.
+     *
+     * @throws IOException if the journal cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    private void buffer(String key, Email email) {
+        Notification.Type type = Notification.Type.valueOf(email.getHeaders().get(NOTIFICATION_TYPE_SMTP_HEADER));
+        Journal.Entry entry;
+        try {
+            entry = journal.append(Outbox.encode(type, 0, Outbox.messageId(email), EmailConverter.emailToEML(email)));
+        } catch (IOException e) {
+            throw new LimitExceededException("Unable to store email in the digest buffer: " + e.getMessage(), e);
+        }
+        add(key, new Item(entry.getSequence(), email), windowMs);
+    }
+
+    /**
+     * Adds an email to the buffer for its key, starting a buffer that is sent after {@code delayMs} if there is none.
+     * A full buffer is sent at once, unless it is awaiting retry, in which case it is sent once the retry delay has
+     * elapsed.
+     */
+    private void add(String key, Item item, long delayMs) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Buffer buffer = stripe.buffers.get(key);
+            if (buffer == null) {
+                buffer = new Buffer(key, false);
+                stripe.buffers.put(key, buffer);
+                buffer.schedule(delayMs);
+            }
+            buffer.items.add(item);
+            if (buffer.items.size() >= maxEmails) {
+                stripe.buffers.remove(key);
+                if (!buffer.retry) {
+                    buffer.schedule(0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the digest of a buffer, removing it from its stripe.  On failure its emails are returned to the buffer for
+     * their key, ahead of any emails buffered since, or dead-lettered.  A buffer may be scheduled twice, when it fills
+     * as its window elapses and the window's flush has already started, so it is claimed under the stripe lock and
+     * only sent by the flush that claims it.
+     */
+    private void flush(Buffer buffer) {
+        Stripe stripe = stripe(buffer.key);
+        synchronized (stripe) {
+            if (buffer.flushed) {
+                return;
+            }
+            buffer.flushed = true;
+            stripe.buffers.remove(buffer.key, buffer);
+        }
+
+        List<Email> emails = new ArrayList<>(buffer.items.size());
+        buffer.items.forEach(item -> emails.add(item.email));
+        try {
+            delegate.send(emails.size() == 1 ? emails.get(0) : composer.compose(emails));
+        } catch (RuntimeException e) {
+            requeue(buffer, e);
+            return;
+        }
+
+        sent.increment();
+        coalesced.increment(emails.size());
+        LOG.trace("Sent digest of {} emails", emails.size());
+
+        buffer.items.forEach(this::complete);
+    }
+
+    /**
+     * Schedules the retry of the emails of a digest that failed to send, together with any emails buffered for the
+     * same key since, in digests of at most {@code maxEmails}.  The last of them, if not full, continues to buffer
+     * emails.  Emails that failed permanently, or too many times, are dead-lettered instead; a digest refused before
+     * reaching the relay does not count as an attempt.
+     */
+    private void requeue(Buffer failed, RuntimeException failure) {
+        boolean refused = LimitExceededException.isRefusal(failure);
+        boolean permanent = !refused && MailFailures.isPermanent(failure);
+        List<Item> retry = new ArrayList<>(failed.items.size());
+        for (Item item : failed.items) {
+            if (!refused) {
+                item.attempts++;
+            }
+            if (permanent || item.attempts >= maxAttempts) {
+                dead.increment();
+                LOG.error("Discarding email {} to {} from the digest buffer because {}: {}", item.sequence,
+                        item.email.getRecipients(), permanent ? "it failed permanently" :
+                                "it failed " + item.attempts + " times", failure.getMessage(), failure);
+                complete(item);
+            } else {
+                retry.add(item);
+            }
+        }
+        if (retry.isEmpty()) {
+            return;
+        }
+
+        retries.increment();
+        LOG.warn("Unable to send digest of {} emails, retrying {} in {} ms: {}", failed.items.size(), retry.size(),
+                retryMs, failure.getMessage());
+        Stripe stripe = stripe(failed.key);
+        synchronized (stripe) {
+            Buffer buffer = stripe.buffers.remove(failed.key);
+            if (buffer != null) {
+                buffer.cancel();
+                buffer.flushed = true;
+                retry.addAll(buffer.items);
+            }
+            for (int from = 0; from < retry.size(); from += maxEmails) {
+                Buffer digest = new Buffer(failed.key, true);
+                digest.items.addAll(retry.subList(from, Math.min(retry.size(), from + maxEmails)));
+                if (digest.items.size() < maxEmails) {
+                    stripe.buffers.put(failed.key, digest);
+                }
+                digest.schedule(retryMs);
+            }
+        }
+    }
+
+    private void complete(Item item) {
+        try {
+            journal.complete(item.sequence);
+        } catch (IOException e) {
+            LOG.warn("Unable to mark email {} complete in the digest buffer; it will be sent again after a " +
+                    "restart: {}", item.sequence, e.getMessage());
+        }
+    }
+
+    private void recover() {
+        List<Journal.Entry> recovered = journal.pending();
+        for (Journal.Entry entry : recovered) {
+            Email email;
+            String key;
+            try {
+                email = Outbox.decode(entry.getPayload()).email;
+                key = key(email);
+            } catch (IOException | RuntimeException e) {
+                email = null;
+                key = null;
+                LOG.error("Discarding unreadable email {} from the digest buffer: {}", entry.getSequence(),
+                        e.getMessage(), e);
+            }
+            if (key == null) {
+                try {
+                    if (email != null) {
+                        // No longer a selected type
+                        delegate.send(email);
+                    }
+                    journal.complete(entry.getSequence());
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Unable to send email {} recovered from the digest buffer: {}", entry.getSequence(),
+                            e.getMessage());
+                }
+                continue;
+            }
+            add(key, new Item(entry.getSequence(), email), windowMs);
+        }
+        if (!recovered.isEmpty()) {
+            LOG.info("Recovered {} emails awaiting a digest", recovered.size());
+        }
+    }
+
+    /**
+     * Answers the key an email is buffered by, being its sender and recipients, or {@code null} if it is not to be
+     * buffered.
+     */
+    private String key(Email email) {
+        String type = email.getHeaders().get(NOTIFICATION_TYPE_SMTP_HEADER);
+        if (type == null || !types.contains(type) ||
+                email.getRecipients().stream().noneMatch(r -> r.getType() == Message.RecipientType.TO)) {
+            return null;
+        }
+
+        StringJoiner key = new StringJoiner(",");
+        key.add(email.getFromRecipient() == null ? "" : address(email.getFromRecipient()));
+        email.getRecipients().stream()
+                .map(recipient -> recipient.getType() + ":" + address(recipient))
+                .sorted()
+                .forEach(key::add);
+        return key.toString();
+    }
+
+    private static String address(Recipient recipient) {
+        return recipient.getAddress() == null ? "" : recipient.getAddress().toLowerCase(Locale.ROOT);
+    }
+
+    private Stripe stripe(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ hash >>> 16) & stripes.length - 1];
+    }
+
+    /**
+     * The buffers of the keys hashed to one stripe.
+     */
+    private static final class Stripe {
+
+        private final Map<String, Buffer> buffers = new HashMap<>();
+    }
+
+    /**
+     * The emails buffered for a key, and the scheduled sending of their digest.
+     */
+    private final class Buffer {
+
+        private final String key;
+
+        /**
+         * Whether the buffer holds emails whose digest failed to send, and is scheduled for retry
+         */
+        private final boolean retry;
+
+        private final List<Item> items = new ArrayList<>();
+
+        /**
+         * Whether the buffer has been claimed for sending, or its emails taken into a retry; guarded by the lock of its
+         * stripe
+         */
+        private boolean flushed;
+
+        private ScheduledFuture<?> flush;
+
+        private Buffer(String key, boolean retry) {
+            this.key = key;
+            this.retry = retry;
+        }
+
+        private void schedule(long delayMs) {
+            cancel();
+            try {
+                flush = scheduler.schedule(() -> flush(this), delayMs, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // Shutting down; the emails remain in the journal and are sent after a restart
+                LOG.debug("Digest for '{}' not scheduled: {}", key, e.getMessage());
+            }
+        }
+
+        private void cancel() {
+            if (flush != null) {
+                flush.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * A buffered email, the sequence number of its journal entry, and the number of failed digests it has been in.
+     */
+    private static final class Item {
+
+        private final long sequence;
+
+        private final Email email;
+
+        private int attempts;
+
+        private Item(long sequence, Email email) {
+            this.sequence = sequence;
+            this.email = email;
+        }
+    }
+
+}
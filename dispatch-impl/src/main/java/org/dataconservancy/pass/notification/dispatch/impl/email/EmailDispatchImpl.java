@@ -17,15 +17,32 @@ package org.dataconservancy.pass.notification.dispatch.impl.email;
 
 import static java.lang.String.join;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 import javax.mail.Message;
 
 import org.dataconservancy.pass.notification.dispatch.DispatchException;
+import org.dataconservancy.pass.notification.dispatch.DispatchResult;
 import org.dataconservancy.pass.notification.dispatch.DispatchService;
 import org.dataconservancy.pass.notification.model.Notification;
 import org.dataconservancy.pass.notification.model.config.NotificationConfig;
 import org.dataconservancy.pass.notification.model.config.template.NotificationTemplate;
+import org.dataconservancy.pass.notification.support.jfr.PipelineEvent;
+import org.dataconservancy.pass.notification.support.jfr.PipelineEvents;
+import org.dataconservancy.pass.notification.support.metrics.EndToEndLatency;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Outcome;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Stage;
 import org.simplejavamail.email.Email;
 import org.simplejavamail.mailer.Mailer;
 import org.slf4j.Logger;
@@ -50,6 +67,16 @@ import org.slf4j.LoggerFactory;
  * implementation does <em>not</em> send individual emails to each recipient.  It will send a single email, with both
  * recipients listed in the {@code TO} field of the email.
  * </p>
+ * <p>
+ * If an {@link Outbox} is supplied, the composed email is stored in the outbox rather than sent, and is sent by the
+ * outbox once {@code dispatch} has returned.
+ * </p>
+ * <p>
+ * A batch of notifications passed to {@link #dispatchAll(Collection)} is grouped by type, and the templates for each
+ * type are resolved and compiled once for the group.  The composed emails are then sent together using
+ * {@link MailSender#sendAll(List, java.util.function.BiConsumer)}, which for an {@link SmtpMailSender} shares a single
+ * SMTP connection between them.
+ * </p>
  *
  * @author Elliot Metsger (emetsger@jhu.edu)
  * @see <a href="https://tools.ietf.org/html/rfc6068">RFC 6068</a>
@@ -62,38 +89,123 @@ public class EmailDispatchImpl implements DispatchService {
 
     private Mailer mailer;
 
+    private MailSender mailSender;
+
     private EmailComposer composer;
 
+    private AsyncMailSender asyncMailSender;
+
+    private Outbox outbox;
+
+    private StageMetrics metrics = StageMetrics.noop();
+
+    private EndToEndLatency latency = EndToEndLatency.noop();
+
     public EmailDispatchImpl(Parameterizer parameterizer, Mailer mailer, EmailComposer composer) {
         this.parameterizer = parameterizer;
         this.mailer = mailer;
+        this.mailSender = mailer::sendMail;
         this.composer = composer;
     }
 
-    @Override
-    public String dispatch(Notification notification) {
-        try {
-            Notification.Type notificationType = notification.getType();
+    /**
+     * Creates an instance which sends email using the supplied {@code MailSender}, which is typically a decorated
+     * {@code Mailer}.
+     *
+     * @param parameterizer resolves and parameterizes the templates for a notification
+     * @param mailSender sends the composed email
+     * @param composer composes the email from a notification and its templates
+     */
+    public EmailDispatchImpl(Parameterizer parameterizer, MailSender mailSender, EmailComposer composer) {
+        this.parameterizer = parameterizer;
+        this.mailSender = mailSender;
+        this.composer = composer;
+    }
 
-            // resolve templates for subject, body, footer based on notification type
+    public EmailDispatchImpl(Parameterizer parameterizer, MailSender mailSender, EmailComposer composer,
+                             StageMetrics metrics) {
+        this(parameterizer, mailSender, composer);
+        this.metrics = Objects.requireNonNull(metrics, "StageMetrics must not be null.");
+    }
 
-            Map<NotificationTemplate.Name, String> parameterizedTemplates = parameterizer.
-                    resolveAndParameterize(notification, notificationType);
+    /**
+     * Creates an instance which additionally records the end-to-end latency of each notification once its email has
+     * been accepted for delivery.
+     *
+     * @param parameterizer resolves and parameterizes the templates for a notification
+     * @param mailSender sends the composed email
+     * @param composer composes the email from a notification and its templates
+     * @param metrics records the duration of each stage of dispatch
+     * @param latency records end-to-end latency
+     */
+    public EmailDispatchImpl(Parameterizer parameterizer, MailSender mailSender, EmailComposer composer,
+                             StageMetrics metrics, EndToEndLatency latency) {
+        this(parameterizer, mailSender, composer, metrics);
+        this.latency = Objects.requireNonNull(latency, "EndToEndLatency must not be null.");
+    }
+
+    /**
+     * Creates an instance which additionally sends email asynchronously, for {@link #dispatchAsync(Notification)}.
+     *
+     * @param parameterizer resolves and parameterizes the templates for a notification
+     * @param mailSender sends the composed email, for {@link #dispatch(Notification)}
+     * @param asyncMailSender sends the composed email, for {@link #dispatchAsync(Notification)}
+     * @param composer composes the email from a notification and its templates
+     * @param metrics records the duration of each stage of dispatch
+     * @param latency records end-to-end latency
+     */
+    public EmailDispatchImpl(Parameterizer parameterizer, MailSender mailSender, AsyncMailSender asyncMailSender,
+                             EmailComposer composer, StageMetrics metrics, EndToEndLatency latency) {
+        this(parameterizer, mailSender, composer, metrics, latency);
+        this.asyncMailSender = Objects.requireNonNull(asyncMailSender, "AsyncMailSender must not be null.");
+    }
 
-            // compose email
+    /**
+     * Creates an instance which stores each composed email in an {@code Outbox}, from which it is sent once this
+     * instance has returned its {@code Message-ID}.  The end-to-end latency of the notification is recorded by the
+     * outbox when the email is sent.
+     *
+     * @param parameterizer resolves and parameterizes the templates for a notification
+     * @param outbox stores and sends the composed email
+     * @param composer composes the email from a notification and its templates
+     * @param metrics records the duration of each stage of dispatch
+     * @param latency supplies the origin of the notification being dispatched
+     */
+    public EmailDispatchImpl(Parameterizer parameterizer, Outbox outbox, EmailComposer composer,
+                             StageMetrics metrics, EndToEndLatency latency) {
+        this.parameterizer = parameterizer;
+        this.outbox = Objects.requireNonNull(outbox, "Outbox must not be null.");
+        this.composer = composer;
+        this.metrics = Objects.requireNonNull(metrics, "StageMetrics must not be null.");
+        this.latency = Objects.requireNonNull(latency, "EndToEndLatency must not be null.");
+    }
 
-            Email email = composer.compose(notification, parameterizedTemplates);
+    @Override
+    public String dispatch(Notification notification) {
+        try {
+            Notification.Type notificationType = notification.getType();
+            Email email = prepare(notification, notificationType);
 
-            email.getRecipients().stream()
-                    .filter(r -> Message.RecipientType.TO == r.getType())
-                    .findAny()
-                    .orElseThrow(() -> new DispatchException(
-                        "Cannot dispatch email with an empty To: address for notification tuple [" +
-                        notificationTuple(notification) + "]", notification));
+            if (outbox != null) {
+                return store(email, notificationType);
+            }
 
             // send email
 
-            mailer.sendMail(email);
+            long start = metrics.start();
+            PipelineEvent event = PipelineEvents.begin(PipelineEvents.Kind.SEND)
+                    .eventUri(notification.getEventUri()).resourceUri(notification.getResourceUri())
+                    .notificationType(notificationType);
+            try {
+                mailSender.send(email);
+                metrics.record(Stage.SEND, notificationType, Outcome.SUCCESS, start);
+                event.end(Outcome.SUCCESS);
+                latency.complete(notificationType);
+            } catch (RuntimeException e) {
+                metrics.record(Stage.SEND, notificationType, StageMetrics.outcomeOf(e), start);
+                event.end(StageMetrics.outcomeOf(e));
+                throw e;
+            }
 
             LOG.trace("Dispatched email with id '{}'", email.getId());
 
@@ -105,6 +217,237 @@ public class EmailDispatchImpl implements DispatchService {
         }
     }
 
+    /**
+     * Dispatches a notification without waiting for the mail relay.  The email is composed on the calling thread, and
+     * sent with the {@code AsyncMailSender} this instance was created with; if there is none, it is sent on the
+     * calling thread.  When an {@code Outbox} is in use, the returned stage is complete once the email is stored.
+     * <p>
+     * The end-to-end latency of the notification is measured from the origin of the message being processed on the
+     * calling thread, to when the relay accepts the email.
+     * </p>
+     *
+     * @param notification the notification
+     * @return a stage completing with the {@code Message-ID} of the email, or exceptionally with a
+     *         {@link DispatchException}
+     */
+    @Override
+    public CompletionStage<String> dispatchAsync(Notification notification) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+
+        Notification.Type notificationType;
+        Email email;
+        try {
+            notificationType = notification.getType();
+            email = prepare(notification, notificationType);
+            if (outbox != null) {
+                result.complete(store(email, notificationType));
+                return result;
+            }
+        } catch (Exception e) {
+            result.completeExceptionally(dispatchException(e, notification));
+            return result;
+        }
+
+        // send email; the origin is captured here, as the send completes on another thread
+
+        long originMs = latency.origin();
+        long start = metrics.start();
+        PipelineEvent event = PipelineEvents.begin(PipelineEvents.Kind.SEND)
+                .eventUri(notification.getEventUri()).resourceUri(notification.getResourceUri())
+                .notificationType(notificationType);
+
+        CompletionStage<Void> sent;
+        try {
+            sent = asyncMailSender().sendAsync(email);
+        } catch (RuntimeException e) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            sent = failed;
+        }
+
+        sent.whenComplete((ignored, failure) -> {
+            if (failure == null) {
+                metrics.record(Stage.SEND, notificationType, Outcome.SUCCESS, start);
+                event.end(Outcome.SUCCESS);
+                latency.complete(notificationType, originMs);
+                LOG.trace("Dispatched email with id '{}'", email.getId());
+                result.complete(email.getId());
+            } else {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null ?
+                        failure.getCause() : failure;
+                metrics.record(Stage.SEND, notificationType, StageMetrics.outcomeOf(cause), start);
+                event.end(StageMetrics.outcomeOf(cause));
+                result.completeExceptionally(dispatchException(cause, notification));
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Dispatches a batch of notifications.  The templates for each type of notification in the batch are resolved and
+     * compiled once, and the emails of the batch are sent together; if there is an {@code Outbox}, each email is
+     * instead stored in the outbox.  A failure to resolve the templates for a type fails each notification of that
+     * type, and a failure to reach the mail relay fails each email not yet sent.
+     *
+     * @param notifications the notifications
+     * @return the result of dispatching each notification, in the iteration order of {@code notifications}, carrying
+     *         the {@code Message-ID} of its email if it was dispatched
+     */
+    @Override
+    public List<DispatchResult> dispatchAll(Collection<? extends Notification> notifications) {
+        List<Notification> batch = new ArrayList<>(notifications);
+        DispatchResult[] results = new DispatchResult[batch.size()];
+
+        Map<Notification.Type, List<Integer>> byType = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            byType.computeIfAbsent(batch.get(i).getType(), type -> new ArrayList<>()).add(i);
+        }
+
+        List<Email> emails = new ArrayList<>(batch.size());
+        Map<Email, Integer> indexes = new IdentityHashMap<>();
+        byType.forEach((notificationType, group) -> {
+            Map<NotificationTemplate.Name, Function<Map<Notification.Param, String>, String>> compiled;
+            try {
+                compiled = parameterizer.compile(batch.get(group.get(0)), notificationType);
+            } catch (RuntimeException e) {
+                group.forEach(i -> results[i] = failed(batch.get(i), e));
+                return;
+            }
+
+            for (int i : group) {
+                Notification notification = batch.get(i);
+                try {
+                    Email email = compose(notification, notificationType,
+                            parameterizer.parameterize(notification, notificationType, compiled));
+                    if (outbox != null) {
+                        results[i] = DispatchResult.dispatched(notification, store(email, notificationType));
+                    } else {
+                        emails.add(email);
+                        indexes.put(email, i);
+                    }
+                } catch (RuntimeException e) {
+                    results[i] = failed(notification, e);
+                }
+            }
+        });
+
+        if (!emails.isEmpty()) {
+            sendAll(batch, emails, indexes, results);
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Sends the emails of a batch, recording the result of each against the index of its notification.  Each send is
+     * timed from when the previous one completed, as the emails are sent one after another.
+     */
+    private void sendAll(List<Notification> batch, List<Email> emails, Map<Email, Integer> indexes,
+                         DispatchResult[] results) {
+        long[] start = {metrics.start()};
+        try {
+            mailSender.sendAll(emails, (email, failure) -> {
+                int i = indexes.get(email);
+                Notification notification = batch.get(i);
+                if (failure == null) {
+                    metrics.record(Stage.SEND, notification.getType(), Outcome.SUCCESS, start[0]);
+                    latency.complete(notification.getType());
+                    LOG.trace("Dispatched email with id '{}'", email.getId());
+                    results[i] = DispatchResult.dispatched(notification, email.getId());
+                } else {
+                    metrics.record(Stage.SEND, notification.getType(), StageMetrics.outcomeOf(failure), start[0]);
+                    results[i] = failed(notification, failure);
+                }
+                start[0] = metrics.start();
+            });
+        } catch (RuntimeException e) {
+            for (Email email : emails) {
+                int i = indexes.get(email);
+                if (results[i] == null) {
+                    Notification notification = batch.get(i);
+                    metrics.record(Stage.SEND, notification.getType(), StageMetrics.outcomeOf(e), start[0]);
+                    results[i] = failed(notification, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolves and parameterizes the templates for a notification, and composes its email.
+     */
+    private Email prepare(Notification notification, Notification.Type notificationType) {
+
+        // resolve templates for subject, body, footer based on notification type
+
+        Map<NotificationTemplate.Name, String> parameterizedTemplates = parameterizer.
+                resolveAndParameterize(notification, notificationType);
+
+        return compose(notification, notificationType, parameterizedTemplates);
+    }
+
+    /**
+     * Composes the email for a notification from its parameterized templates.
+     */
+    private Email compose(Notification notification, Notification.Type notificationType,
+                          Map<NotificationTemplate.Name, String> parameterizedTemplates) {
+
+        Email email;
+        long start = metrics.start();
+        try {
+            email = composer.compose(notification, parameterizedTemplates);
+            metrics.record(Stage.EMAIL_COMPOSE, notificationType, Outcome.SUCCESS, start);
+        } catch (RuntimeException e) {
+            metrics.record(Stage.EMAIL_COMPOSE, notificationType, StageMetrics.outcomeOf(e), start);
+            throw e;
+        }
+
+        email.getRecipients().stream()
+                .filter(r -> Message.RecipientType.TO == r.getType())
+                .findAny()
+                .orElseThrow(() -> new DispatchException(
+                    "Cannot dispatch email with an empty To: address for notification tuple [" +
+                    notificationTuple(notification) + "]", notification));
+
+        return email;
+    }
+
+    private AsyncMailSender asyncMailSender() {
+        return asyncMailSender != null ? asyncMailSender : new ExecutorMailSender(mailSender, Runnable::run);
+    }
+
+    /**
+     * A failed result for a notification of a batch.  A {@code DispatchException} shared by several notifications,
+     * such as one thrown resolving the templates for their type, is wrapped so as to identify each notification.
+     */
+    private static DispatchResult failed(Notification notification, RuntimeException failure) {
+        if (failure instanceof DispatchException && ((DispatchException) failure).getNotification() != notification) {
+            return DispatchResult.failed(notification, new DispatchException(failure.getMessage(), failure,
+                    notification));
+        }
+        return DispatchResult.failed(notification, dispatchException(failure, notification));
+    }
+
+    private static DispatchException dispatchException(Throwable failure, Notification notification) {
+        if (failure instanceof DispatchException) {
+            return (DispatchException) failure;
+        }
+        return new DispatchException(failure.getMessage(), failure, notification);
+    }
+
+    private String store(Email email, Notification.Type notificationType) {
+        long start = metrics.start();
+        try {
+            String id = outbox.enqueue(email, notificationType, latency.origin());
+            metrics.record(Stage.OUTBOX, notificationType, Outcome.SUCCESS, start);
+            LOG.trace("Stored email with id '{}' in the outbox", id);
+            return id;
+        } catch (RuntimeException e) {
+            metrics.record(Stage.OUTBOX, notificationType, StageMetrics.outcomeOf(e), start);
+            throw e;
+        }
+    }
+
     private static String notificationTuple(Notification notification) {
         return join(",", Arrays.asList(notification.getResourceUri().toString(),
                 notification.getEventUri().toString()));
@@ -118,7 +461,19 @@ public class EmailDispatchImpl implements DispatchService {
         return mailer;
     }
 
+    MailSender getMailSender() {
+        return mailSender;
+    }
+
+    AsyncMailSender getAsyncMailSender() {
+        return asyncMailSender;
+    }
+
     EmailComposer getComposer() {
         return composer;
     }
+
+    Outbox getOutbox() {
+        return outbox;
+    }
 }
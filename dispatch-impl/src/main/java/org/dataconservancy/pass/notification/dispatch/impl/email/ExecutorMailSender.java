@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.dataconservancy.pass.notification.support.resilience.LimitExceededException;
+import org.simplejavamail.email.Email;
+
+/**
+ * Sends email asynchronously by running a {@link MailSender} on an {@link Executor}.  If the executor refuses the
+ * send, the returned stage completes exceptionally with a {@link LimitExceededException}.
+ */
+public class ExecutorMailSender implements AsyncMailSender {
+
+    private final MailSender delegate;
+
+    private final Executor executor;
+
+    public ExecutorMailSender(MailSender delegate, Executor executor) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate MailSender must not be null.");
+        this.executor = Objects.requireNonNull(executor, "Executor must not be null.");
+    }
+
+    @Override
+    public CompletionStage<Void> sendAsync(Email email) {
+        try {
+            return CompletableFuture.runAsync(() -> delegate.send(email), executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<Void> refused = new CompletableFuture<>();
+            refused.completeExceptionally(new LimitExceededException("Email send was refused: " + e.getMessage(), e));
+            return refused;
+        }
+    }
+
+}
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -33,7 +34,9 @@ import org.slf4j.LoggerFactory;
 /**
  * Parameterizes Mustache templates using Handlebars.
  * <p>
- * <em>Implementation note:</em> performance could be improved by pre-compiling templates.
+ * <em>Implementation note:</em> {@link #parameterize(NotificationTemplate.Name, Map, InputStream) parameterize}
+ * compiles the template each time it is invoked; templates used repeatedly are compiled once by
+ * {@link #compile(NotificationTemplate.Name, InputStream) compile}.
  * </p>
  *
  * @author Elliot Metsger (emetsger@jhu.edu)
@@ -54,8 +57,30 @@ public class HandlebarsParameterizer implements TemplateParameterizer {
     @Override
     public String parameterize(NotificationTemplate.Name templateName, Map<Notification.Param, String> paramMap,
                                InputStream template) {
+        return compile(templateName, template).apply(paramMap);
+    }
+
+    @Override
+    public Function<Map<Notification.Param, String>, String> compile(NotificationTemplate.Name templateName,
+                                                                     InputStream template) {
+        Template t;
+        try {
+            t = handlebars.compileInline(IOUtils.toString(template, "UTF-8"));
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
 
-        Map<String, Object> mustacheModel = paramMap
+        return paramMap -> {
+            try {
+                return t.apply(model(paramMap));
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        };
+    }
+
+    private Map<String, Object> model(Map<Notification.Param, String> paramMap) {
+        return paramMap
                 .entrySet()
                 .stream()
                 .collect(Collectors.toMap(entry -> entry.getKey().paramName(),
@@ -80,15 +105,5 @@ public class HandlebarsParameterizer implements TemplateParameterizer {
 
                             return entry.getValue();
                         }));
-
-        String parameterizedTemplate = null;
-        try {
-            String templateString = IOUtils.toString(template, "UTF-8");
-            Template t = handlebars.compileInline(templateString);
-            parameterizedTemplate = t.apply(mustacheModel);
-        } catch (IOException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
-        return parameterizedTemplate;
     }
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import org.dataconservancy.pass.notification.support.resilience.LoadBalancer;
+import org.simplejavamail.email.Email;
+
+/**
+ * Sends email through one of several mail relays chosen by a {@link LoadBalancer}, so that sending is shared between
+ * the relays according to their health, and an email that a relay fails to send is sent through another.
+ */
+public class LoadBalancingMailSender implements MailSender {
+
+    private final LoadBalancer<MailSender> relays;
+
+    public LoadBalancingMailSender(LoadBalancer<MailSender> relays) {
+        this.relays = Objects.requireNonNull(relays, "LoadBalancer must not be null.");
+    }
+
+    @Override
+    public void send(Email email) {
+        relays.run(relay -> relay.send(email));
+    }
+
+    /**
+     * Sends the batch through a single relay.  A relay that cannot be reached fails before reporting any outcome, so
+     * the batch is then sent through another relay.
+     */
+    @Override
+    public void sendAll(List<Email> emails, BiConsumer<Email, RuntimeException> results) {
+        relays.run(relay -> relay.sendAll(emails, results));
+    }
+
+}
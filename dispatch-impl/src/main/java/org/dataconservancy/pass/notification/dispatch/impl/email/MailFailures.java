@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import javax.mail.internet.AddressException;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+
+/**
+ * Classifies the failures to send an email.
+ * <p>
+ * A <em>permanent</em> failure is one that will recur however often the email is sent: the email was found invalid
+ * before it was sent, for example for a malformed address, or the mail relay rejected it with a permanent
+ * ({@code 5xx}) reply.  Any other failure, such as a failure to connect, a timeout or a transient ({@code 4xx}) reply,
+ * may succeed when retried, and indicates a problem with the relay rather than with the email.
+ * </p>
+ */
+public final class MailFailures {
+
+    /**
+     * The exceptions thrown by simple-java-mail when an email fails validation, which are not public types
+     */
+    private static final Set<String> INVALID_EMAIL = new HashSet<>(Arrays.asList(
+            "org.simplejavamail.mailer.MailerException", "org.simplejavamail.email.EmailException"));
+
+    private MailFailures() {
+    }
+
+    /**
+     * Answers whether {@code t}, or any of its causes, is a permanent failure to send an email.
+     *
+     * @param t the failure
+     * @return true if sending the email again would fail in the same way
+     */
+    public static boolean isPermanent(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (INVALID_EMAIL.contains(cause.getClass().getName()) || cause instanceof AddressException) {
+                return true;
+            }
+            if (cause instanceof SMTPAddressFailedException &&
+                    isPermanent(((SMTPAddressFailedException) cause).getReturnCode())) {
+                return true;
+            }
+            if (cause instanceof SMTPSendFailedException &&
+                    isPermanent(((SMTPSendFailedException) cause).getReturnCode())) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Answers whether {@code t} indicates a problem with the mail relay, such as a failure to connect, a timeout or a
+     * transient reply, rather than a problem with the email being sent.
+     *
+     * @param t the failure
+     * @return true if the failure should count against the relay
+     */
+    public static boolean isRelayFailure(Throwable t) {
+        return !isPermanent(t);
+    }
+
+    private static boolean isPermanent(int returnCode) {
+        return returnCode >= 500 && returnCode < 600;
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.simplejavamail.email.Email;
+import org.simplejavamail.mailer.Mailer;
+
+/**
+ * Sends a composed {@link Email}.  Typically implemented by {@link Mailer#sendMail(Email) Mailer::sendMail}, and
+ * decorated to control how and when the underlying {@code Mailer} is invoked.
+ */
+@FunctionalInterface
+public interface MailSender {
+
+    /**
+     * Sends the email, returning once it has been accepted by the mail relay.
+     *
+     * @param email the email to send
+     * @throws RuntimeException if the email could not be sent
+     */
+    void send(Email email);
+
+    /**
+     * Sends a batch of emails, reporting the outcome of each to {@code results} as it is known: with a {@code null}
+     * exception if the email was accepted by the mail relay, otherwise with the reason it was not.
+     * <p>
+     * The default implementation sends each email in turn.  Implementations may instead send the batch over a single
+     * connection to the mail relay, in which case a failure to reach the relay at all is thrown rather than reported,
+     * before any outcome has been reported.
+     * </p>
+     *
+     * @param emails the emails to send
+     * @param results accepts each email and the exception preventing it from being sent, if any
+     * @throws RuntimeException if none of the emails could be sent
+     */
+    default void sendAll(List<Email> emails, BiConsumer<Email, RuntimeException> results) {
+        for (Email email : emails) {
+            try {
+                send(email);
+            } catch (RuntimeException e) {
+                results.accept(email, e);
+                continue;
+            }
+            results.accept(email, null);
+        }
+    }
+
+}
@@ -0,0 +1,436 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.support.jfr.PipelineEvent;
+import org.dataconservancy.pass.notification.support.jfr.PipelineEvents;
+import org.dataconservancy.pass.notification.support.journal.Journal;
+import org.dataconservancy.pass.notification.support.metrics.EndToEndLatency;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Outcome;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Stage;
+import org.dataconservancy.pass.notification.support.resilience.LimitExceededException;
+import org.simplejavamail.converter.EmailConverter;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds composed emails in a durable {@link Journal} until they have been accepted by the SMTP relay, so that the
+ * JMS message for a notification can be acknowledged as soon as its email is safely on disk rather than once it has
+ * been sent.
+ * <p>
+ * {@link #enqueue(Email, Notification.Type, long)} assigns the email a {@code Message-ID}, serializes it as EML
+ * together with the type and origin of its notification, and appends it to the journal before returning.  A pool of
+ * sender threads, independent of the JMS listener threads, takes queued emails and sends them with the supplied
+ * {@link MailSender}, marking each complete in the journal once it has been sent.  An email that fails to send is
+ * retried after a delay which doubles with each failure, from {@code retryInitialMs} up to {@code retryMaxMs}.
+ * Emails that were not sent before the process stopped are recovered from the journal when the outbox is created.
+ * </p>
+ * <p>
+ * An email is dead-lettered, that is logged at {@code ERROR} and removed from the journal without being sent, when it
+ * fails permanently (see {@link MailFailures#isPermanent(Throwable)}), such as when it is invalid or the relay rejects
+ * its recipients, or when it has failed to send {@code maxAttempts} times.  A send that is refused before it reaches
+ * the relay, because a circuit breaker is open or a rate or concurrency limit is exceeded (see
+ * {@link LimitExceededException#isRefusal(Throwable)}), is retried like a failure but is not counted as an attempt,
+ * so that the outbox holds emails for as long as the relay is unavailable.
+ * </p>
+ * <p>
+ * Delivery is at least once: an email sent just before a crash, but not yet marked complete, is sent again on
+ * recovery.  Because its {@code Message-ID} is fixed when it is enqueued, the copies can be recognized as duplicates.
+ * </p>
+ * <p>
+ * When {@code capacity} emails are awaiting delivery, or the journal cannot be written, {@code enqueue} is refused
+ * with a {@link LimitExceededException}, so that the JMS message is not acknowledged and is redelivered later.
+ * </p>
+ * <p>
+ * Metrics: gauge {@code pass.notification.outbox.pending}, the number of emails awaiting delivery; and counter
+ * {@code pass.notification.outbox.retries}, the number of failed attempts that were scheduled for retry; and counter
+ * {@code pass.notification.outbox.dead}, the number of emails that were dead-lettered.  Sends are
+ * recorded as the {@code send} stage, and the end-to-end latency of a notification is recorded when its email is
+ * sent.
+ * </p>
+ */
+public class Outbox implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Outbox.class);
+
+    /**
+     * The version of the serialized form of an entry
+     */
+    private static final byte FORMAT = 1;
+
+    private static final long POLL_MS = 500;
+
+    private final Journal journal;
+
+    private final MailSender mailSender;
+
+    private final int senders;
+
+    private final int capacity;
+
+    private final long retryInitialMs;
+
+    private final long retryMaxMs;
+
+    private final int maxAttempts;
+
+    private final StageMetrics metrics;
+
+    private final EndToEndLatency latency;
+
+    private final Counter retries;
+
+    private final Counter dead;
+
+    private final BlockingQueue<Delivery> queue = new LinkedBlockingQueue<>();
+
+    private final ScheduledExecutorService retryScheduler;
+
+    private final List<Thread> threads = new ArrayList<>();
+
+    private volatile boolean running;
+
+    /**
+     * Creates an outbox, queueing any emails recovered from the journal.  No emails are sent until it is started.
+     *
+     * @param journal the journal emails are held in until they have been sent
+     * @param mailSender sends email to the SMTP relay
+     * @param senders the number of threads sending email
+     * @param capacity the number of emails that may await delivery before further emails are refused
+     * @param retryInitialMs the delay, in milliseconds, before an email that failed to send is first retried
+     * @param retryMaxMs the maximum delay, in milliseconds, between attempts to send an email
+     * @param maxAttempts the number of times an email may fail to send before it is dead-lettered; sends refused
+     *                    before reaching the relay are not counted
+     * @param metrics records the duration of each send
+     * @param latency records the end-to-end latency of each notification once its email has been sent
+     * @param meterRegistry the registry metrics are recorded to
+     */
+    public Outbox(Journal journal, MailSender mailSender, int senders, int capacity, long retryInitialMs,
+                  long retryMaxMs, int maxAttempts, StageMetrics metrics, EndToEndLatency latency,
+                  MeterRegistry meterRegistry) {
+        if (senders < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Senders and capacity must be at least 1.");
+        }
+        if (retryInitialMs < 1 || retryMaxMs < retryInitialMs) {
+            throw new IllegalArgumentException("Retry delays must be positive, and the maximum no less than the " +
+                    "initial delay.");
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Maximum attempts must be at least 1.");
+        }
+        this.journal = Objects.requireNonNull(journal, "Journal must not be null.");
+        this.mailSender = Objects.requireNonNull(mailSender, "MailSender must not be null.");
+        this.senders = senders;
+        this.capacity = capacity;
+        this.retryInitialMs = retryInitialMs;
+        this.retryMaxMs = retryMaxMs;
+        this.maxAttempts = maxAttempts;
+        this.metrics = Objects.requireNonNull(metrics, "StageMetrics must not be null.");
+        this.latency = Objects.requireNonNull(latency, "EndToEndLatency must not be null.");
+
+        Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null.");
+        this.retries = meterRegistry.counter("pass.notification.outbox.retries");
+        this.dead = meterRegistry.counter("pass.notification.outbox.dead");
+        meterRegistry.gauge("pass.notification.outbox.pending", this, Outbox::size);
+
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Journal.Entry> recovered = journal.pending();
+        recovered.forEach(entry -> queue.add(new Delivery(entry)));
+        if (!recovered.isEmpty()) {
+            LOG.info("Recovered {} emails awaiting delivery from the outbox", recovered.size());
+        }
+    }
+
+    /**
+     * Starts the sender threads.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+
+        for (int i = 1; i <= senders; i++) {
+            Thread thread = new Thread(this::drain, "outbox-sender-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    /**
+     * Durably stores an email for delivery.
+     *
+     * @param email the email
+     * @param type the type of notification the email was composed for
+     * @param originMs the time, in milliseconds since the epoch, of the event that caused the notification; zero or
+     *                 less if unknown
+     * @return the {@code Message-ID} of the email
+     * @throws LimitExceededException if the outbox is full, or the email could not be stored
+     */
+    public String enqueue(Email email, Notification.Type type, long originMs) {
+        if (journal.size() >= capacity) {
+            throw new LimitExceededException("Outbox is full: " + capacity + " emails are awaiting delivery.");
+        }
+
+        String messageId = messageId(email);
+        Email identified = EmailBuilder.copying(email).fixingMessageId(messageId).buildEmail();
+
+        Journal.Entry entry;
+        try {
+            entry = journal.append(encode(type, originMs, messageId, EmailConverter.emailToEML(identified)));
+        } catch (IOException e) {
+            throw new LimitExceededException("Unable to store email in the outbox: " + e.getMessage(), e);
+        }
+
+        queue.add(new Delivery(entry));
+        return messageId;
+    }
+
+    /**
+     * @return the number of emails awaiting delivery
+     */
+    public int size() {
+        return journal.size();
+    }
+
+    /**
+     * Stops the sender threads, and closes the journal.  Emails that have not been sent remain in the journal.
+     *
+     * @throws IOException if the journal cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            running = false;
+        }
+        retryScheduler.shutdownNow();
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        journal.close();
+    }
+
+    private void drain() {
+        while (running) {
+            Delivery delivery;
+            try {
+                delivery = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (delivery != null) {
+                deliver(delivery);
+            }
+        }
+    }
+
+    private void deliver(Delivery delivery) {
+        Message message;
+        try {
+            message = decode(delivery.entry.getPayload());
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Discarding unreadable email {} from the outbox: {}", delivery.entry.getSequence(),
+                    e.getMessage(), e);
+            complete(delivery);
+            return;
+        }
+
+        long start = metrics.start();
+        PipelineEvent event = PipelineEvents.begin(PipelineEvents.Kind.SEND).notificationType(message.type);
+        try {
+            mailSender.send(message.email);
+        } catch (RuntimeException e) {
+            Outcome outcome = StageMetrics.outcomeOf(e);
+            metrics.record(Stage.SEND, message.type, outcome, start);
+            event.end(outcome);
+            if (LimitExceededException.isRefusal(e)) {
+                retry(delivery, message, e);
+            } else if (MailFailures.isPermanent(e)) {
+                deadLetter(delivery, message, "it failed permanently", e);
+            } else if (++delivery.attempts >= maxAttempts) {
+                deadLetter(delivery, message, "it failed " + maxAttempts + " times", e);
+            } else {
+                retry(delivery, message, e);
+            }
+            return;
+        }
+        metrics.record(Stage.SEND, message.type, Outcome.SUCCESS, start);
+        event.end(Outcome.SUCCESS);
+        latency.complete(message.type, message.originMs);
+        complete(delivery);
+        LOG.trace("Dispatched email with id '{}'", message.messageId);
+    }
+
+    private void retry(Delivery delivery, Message message, RuntimeException failure) {
+        long delayMs = retryMaxMs;
+        if (delivery.retries < Long.numberOfLeadingZeros(retryInitialMs) - 1) {
+            delayMs = Math.min(retryMaxMs, retryInitialMs << delivery.retries);
+        }
+        delivery.retries++;
+        retries.increment();
+        LOG.warn("Unable to send email with id '{}' (attempt {} of {}), retrying in {} ms: {}", message.messageId,
+                delivery.attempts, maxAttempts, delayMs, failure.getMessage());
+        if (!running) {
+            return;
+        }
+        try {
+            retryScheduler.schedule(() -> queue.add(delivery), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // Shutting down; the email remains in the journal and is retried on restart
+            LOG.debug("Retry of email with id '{}' not scheduled: {}", message.messageId, e.getMessage());
+        }
+    }
+
+    private void deadLetter(Delivery delivery, Message message, String reason, RuntimeException failure) {
+        dead.increment();
+        LOG.error("Discarding email with id '{}' to {} from the outbox because {}: {}", message.messageId,
+                message.email.getRecipients(), reason, failure.getMessage(), failure);
+        complete(delivery);
+    }
+
+    private void complete(Delivery delivery) {
+        try {
+            journal.complete(delivery.entry.getSequence());
+        } catch (IOException e) {
+            LOG.warn("Unable to mark email {} complete in the outbox; it will be sent again after a restart: {}",
+                    delivery.entry.getSequence(), e.getMessage());
+        }
+    }
+
+    /**
+     * Answers a {@code Message-ID} for the email, qualified by the domain of its sender.
+     */
+    static String messageId(Email email) {
+        String domain = "localhost";
+        if (email.getFromRecipient() != null && email.getFromRecipient().getAddress() != null) {
+            String from = email.getFromRecipient().getAddress();
+            int at = from.lastIndexOf('@');
+            if (at > -1 && at < from.length() - 1) {
+                domain = from.substring(at + 1);
+            }
+        }
+        return "<" + UUID.randomUUID() + "@" + domain + ">";
+    }
+
+    static byte[] encode(Notification.Type type, long originMs, String messageId, String eml) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(eml.length() + 128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            out.writeUTF(type == null ? "" : type.name());
+            out.writeLong(originMs);
+            out.writeUTF(messageId);
+            out.write(eml.getBytes(UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize email: " + e.getMessage(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Message decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte format = in.readByte();
+        if (format != FORMAT) {
+            throw new IOException("Unsupported outbox entry format " + format);
+        }
+        String type = in.readUTF();
+        long originMs = in.readLong();
+        String messageId = in.readUTF();
+        byte[] eml = new byte[in.available()];
+        in.readFully(eml);
+
+        Email email = EmailBuilder.copying(EmailConverter.emlToEmail(new String(eml, UTF_8)))
+                .fixingMessageId(messageId)
+                .buildEmail();
+        return new Message(type.isEmpty() ? null : Notification.Type.valueOf(type), originMs, messageId, email);
+    }
+
+    /**
+     * An email awaiting delivery, the number of times it has failed to send, and the number of times it has been
+     * scheduled for retry, which includes sends that were refused.
+     */
+    private static final class Delivery {
+
+        private final Journal.Entry entry;
+
+        private int attempts;
+
+        private int retries;
+
+        private Delivery(Journal.Entry entry) {
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * The deserialized content of an entry.
+     */
+    static final class Message {
+
+        final Notification.Type type;
+
+        final long originMs;
+
+        final String messageId;
+
+        final Email email;
+
+        private Message(Notification.Type type, long originMs, String messageId, Email email) {
+            this.type = type;
+            this.originMs = originMs;
+            this.messageId = messageId;
+            this.email = email;
+        }
+    }
+
+}
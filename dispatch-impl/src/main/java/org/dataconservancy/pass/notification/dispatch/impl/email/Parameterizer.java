@@ -20,12 +20,19 @@ import static java.util.Optional.ofNullable;
 import java.io.InputStream;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.dataconservancy.pass.notification.dispatch.DispatchException;
 import org.dataconservancy.pass.notification.model.Notification;
 import org.dataconservancy.pass.notification.model.config.NotificationConfig;
 import org.dataconservancy.pass.notification.model.config.template.NotificationTemplate;
+import org.dataconservancy.pass.notification.support.jfr.PipelineEvent;
+import org.dataconservancy.pass.notification.support.jfr.PipelineEvents;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Outcome;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Stage;
 
 /**
  * @author Elliot Metsger (emetsger@jhu.edu)
@@ -38,40 +45,135 @@ public class Parameterizer {
 
     private TemplateParameterizer parameterizer;
 
+    private StageMetrics metrics;
+
     public Parameterizer(
             NotificationConfig notificationConfig,
             TemplateResolver templateResolver,
             TemplateParameterizer parameterizer) {
+        this(notificationConfig, templateResolver, parameterizer, StageMetrics.noop());
+    }
+
+    public Parameterizer(
+            NotificationConfig notificationConfig,
+            TemplateResolver templateResolver,
+            TemplateParameterizer parameterizer,
+            StageMetrics metrics) {
         this.notificationConfig = notificationConfig;
         this.templateResolver = templateResolver;
         this.parameterizer = parameterizer;
+        this.metrics = Objects.requireNonNull(metrics, "StageMetrics must not be null.");
     }
 
     Map<NotificationTemplate.Name, String> resolveAndParameterize(
             Notification notification, Notification.Type notificationType) {
-        NotificationTemplate template = notificationConfig.getTemplates().stream()
+        NotificationTemplate template = template(notification, notificationType);
+
+        Map<NotificationTemplate.Name, InputStream> templates;
+        long start = metrics.start();
+        try {
+            templates = template.getTemplates()
+                    .entrySet()
+                    .stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey,
+                            entry -> templateResolver.resolve(entry.getKey(), entry.getValue())));
+            metrics.record(Stage.TEMPLATE_RESOLVE, notificationType, Outcome.SUCCESS, start);
+        } catch (RuntimeException e) {
+            metrics.record(Stage.TEMPLATE_RESOLVE, notificationType, StageMetrics.outcomeOf(e), start);
+            throw e;
+        }
+
+        // perform pararmeterization on all templates
+
+        start = metrics.start();
+        PipelineEvent event = PipelineEvents.begin(PipelineEvents.Kind.RENDER).eventUri(notification.getEventUri())
+                .resourceUri(notification.getResourceUri()).notificationType(notificationType);
+        try {
+            Map<NotificationTemplate.Name, String> parameterized = templates.entrySet()
+                    .stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey,
+                            entry -> parameterizer.parameterize(
+                                    entry.getKey(),
+                                    ofNullable(notification.getParameters())
+                                        .orElseGet(Collections::emptyMap),
+                                    entry.getValue())));
+            metrics.record(Stage.RENDER, notificationType, Outcome.SUCCESS, start);
+            event.end(Outcome.SUCCESS);
+            return parameterized;
+        } catch (RuntimeException e) {
+            metrics.record(Stage.RENDER, notificationType, StageMetrics.outcomeOf(e), start);
+            event.end(StageMetrics.outcomeOf(e));
+            throw e;
+        }
+    }
+
+    /**
+     * Resolves and compiles the templates for a type of notification, so that they may be used to parameterize each of
+     * a batch of notifications of that type with {@link #parameterize(Notification, Notification.Type, Map)}.
+     * Resolution and compilation are recorded as the {@code TEMPLATE_RESOLVE} stage.
+     *
+     * @param notification a notification of the type, identified by any exception thrown
+     * @param notificationType the type of notification
+     * @return the compiled templates
+     */
+    Map<NotificationTemplate.Name, Function<Map<Notification.Param, String>, String>> compile(
+            Notification notification, Notification.Type notificationType) {
+        NotificationTemplate template = template(notification, notificationType);
+
+        long start = metrics.start();
+        try {
+            Map<NotificationTemplate.Name, Function<Map<Notification.Param, String>, String>> compiled =
+                    template.getTemplates()
+                    .entrySet()
+                    .stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey,
+                            entry -> parameterizer.compile(entry.getKey(),
+                                    templateResolver.resolve(entry.getKey(), entry.getValue()))));
+            metrics.record(Stage.TEMPLATE_RESOLVE, notificationType, Outcome.SUCCESS, start);
+            return compiled;
+        } catch (RuntimeException e) {
+            metrics.record(Stage.TEMPLATE_RESOLVE, notificationType, StageMetrics.outcomeOf(e), start);
+            throw e;
+        }
+    }
+
+    /**
+     * Parameterizes templates compiled by {@link #compile(Notification, Notification.Type)} for a notification.
+     *
+     * @param notification the notification
+     * @param notificationType the type of notification
+     * @param compiled the compiled templates for the type of notification
+     * @return the parameterized templates
+     */
+    Map<NotificationTemplate.Name, String> parameterize(
+            Notification notification, Notification.Type notificationType,
+            Map<NotificationTemplate.Name, Function<Map<Notification.Param, String>, String>> compiled) {
+        Map<Notification.Param, String> params = ofNullable(notification.getParameters())
+                .orElseGet(Collections::emptyMap);
+
+        long start = metrics.start();
+        PipelineEvent event = PipelineEvents.begin(PipelineEvents.Kind.RENDER).eventUri(notification.getEventUri())
+                .resourceUri(notification.getResourceUri()).notificationType(notificationType);
+        try {
+            Map<NotificationTemplate.Name, String> parameterized = compiled.entrySet()
+                    .stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().apply(params)));
+            metrics.record(Stage.RENDER, notificationType, Outcome.SUCCESS, start);
+            event.end(Outcome.SUCCESS);
+            return parameterized;
+        } catch (RuntimeException e) {
+            metrics.record(Stage.RENDER, notificationType, StageMetrics.outcomeOf(e), start);
+            event.end(StageMetrics.outcomeOf(e));
+            throw e;
+        }
+    }
+
+    private NotificationTemplate template(Notification notification, Notification.Type notificationType) {
+        return notificationConfig.getTemplates().stream()
                 .filter(candidate -> candidate.getNotificationType() == notificationType)
                 .findAny()
                 .orElseThrow(() ->
                         new DispatchException("Missing notification template for mode '" + notificationType + "'",
                                 notification));
-
-        Map<NotificationTemplate.Name, InputStream> templates =
-                template.getTemplates()
-                        .entrySet()
-                        .stream()
-                        .collect(Collectors.toMap(Map.Entry::getKey,
-                                entry -> templateResolver.resolve(entry.getKey(), entry.getValue())));
-
-        // perform pararmeterization on all templates
-
-        return templates.entrySet()
-                .stream()
-                .collect(Collectors.toMap(Map.Entry::getKey,
-                        entry -> parameterizer.parameterize(
-                                entry.getKey(),
-                                ofNullable(notification.getParameters())
-                                    .orElseGet(Collections::emptyMap),
-                                entry.getValue())));
     }
 }
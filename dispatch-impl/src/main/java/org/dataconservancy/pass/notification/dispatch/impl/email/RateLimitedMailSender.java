@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.dataconservancy.pass.notification.support.resilience.LimitExceededException;
+import org.dataconservancy.pass.notification.support.resilience.RateLimiter;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.Recipient;
+
+/**
+ * Sends email through a {@link RateLimiter}, delaying sends so that a mail relay, or the mail servers of recipient
+ * domains, do not receive email faster than they will accept it.  Each email takes one permit for each of the keys
+ * it is limited by.
+ */
+public class RateLimitedMailSender implements MailSender {
+
+    private final MailSender delegate;
+
+    private final RateLimiter limiter;
+
+    private final Function<? super Email, ? extends Collection<String>> keys;
+
+    /**
+     * @param delegate sends the email once permitted
+     * @param limiter limits the rate of sends
+     * @param keys answers the keys an email is limited by, e.g. {@link #recipientDomains(Email)}
+     */
+    public RateLimitedMailSender(MailSender delegate, RateLimiter limiter,
+                                 Function<? super Email, ? extends Collection<String>> keys) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate MailSender must not be null.");
+        this.limiter = Objects.requireNonNull(limiter, "RateLimiter must not be null.");
+        this.keys = Objects.requireNonNull(keys, "Key function must not be null.");
+    }
+
+    @Override
+    public void send(Email email) {
+        limiter.acquire(permits(email, new HashMap<>()));
+        delegate.send(email);
+    }
+
+    /**
+     * Takes the permits for each email of the batch in turn, sending the emails in chunks of those whose permits were
+     * available at once, so that the relay receives the emails of the batch no faster than it would receive them if
+     * they were sent one at a time.  The emails already permitted are sent before waiting for the permits of the
+     * next.  An email whose permits are refused is reported with the {@link LimitExceededException} and is not sent.
+     * <p>
+     * A failure to reach the relay is thrown if no outcome has yet been reported; otherwise it is reported for each
+     * email of the batch not yet sent.
+     * </p>
+     */
+    @Override
+    public void sendAll(List<Email> emails, BiConsumer<Email, RuntimeException> results) {
+        boolean[] reported = {false};
+        BiConsumer<Email, RuntimeException> reporting = (email, failure) -> {
+            reported[0] = true;
+            results.accept(email, failure);
+        };
+
+        List<Email> permitted = new ArrayList<>(emails.size());
+        for (int i = 0; i < emails.size(); i++) {
+            Email email = emails.get(i);
+            Map<String, Integer> permits = permits(email, new HashMap<>());
+            if (!limiter.tryAcquire(permits)) {
+                if (!send(permitted, emails.subList(i, emails.size()), reported[0], reporting)) {
+                    return;
+                }
+                permitted = new ArrayList<>(emails.size() - i);
+                try {
+                    limiter.acquire(permits);
+                } catch (LimitExceededException e) {
+                    reporting.accept(email, e);
+                    continue;
+                }
+            }
+            permitted.add(email);
+        }
+        send(permitted, Collections.emptyList(), reported[0], reporting);
+    }
+
+    /**
+     * Answers the distinct domains, in lower case, of the recipients of an email.
+     *
+     * @param email the email
+     * @return the domains of its recipients
+     */
+    public static Set<String> recipientDomains(Email email) {
+        Set<String> domains = new LinkedHashSet<>();
+        for (Recipient recipient : email.getRecipients()) {
+            String address = recipient.getAddress();
+            int at = address == null ? -1 : address.lastIndexOf('@');
+            if (at >= 0) {
+                domains.add(address.substring(at + 1).toLowerCase(Locale.ROOT));
+            }
+        }
+        return domains;
+    }
+
+    /**
+     * Sends a chunk of permitted emails with the delegate.
+     *
+     * @return false if the relay could not be reached, and the failure has been reported for the chunk and the rest of
+     *         the batch
+     */
+    private boolean send(List<Email> chunk, List<Email> rest, boolean reported,
+                         BiConsumer<Email, RuntimeException> results) {
+        if (chunk.isEmpty()) {
+            return true;
+        }
+        try {
+            delegate.sendAll(chunk, results);
+        } catch (RuntimeException e) {
+            if (!reported) {
+                throw e;
+            }
+            chunk.forEach(email -> results.accept(email, e));
+            rest.forEach(email -> results.accept(email, e));
+            return false;
+        }
+        return true;
+    }
+
+    private Map<String, Integer> permits(Email email, Map<String, Integer> permits) {
+        keys.apply(email).forEach(key -> permits.merge(key, 1, Integer::sum));
+        return permits;
+    }
+
+}
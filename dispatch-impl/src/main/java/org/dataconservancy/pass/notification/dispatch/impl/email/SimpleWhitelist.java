@@ -15,9 +15,16 @@
  */
 package org.dataconservancy.pass.notification.dispatch.impl.email;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
 import org.dataconservancy.pass.notification.model.config.RecipientConfig;
@@ -36,6 +43,22 @@ import org.slf4j.LoggerFactory;
  * If the configured whitelist is empty, then all notification recipients are considered to be whitelisted.
  * </p>
  * <p>
+ * Whitelist entries are matched without regard to case, and may be:
+ * </p>
+ * <ul>
+ *     <li>an email address, e.g. {@code preparer@jhu.edu}, whitelisting that address</li>
+ *     <li>a domain wildcard, e.g. {@code *@dept.jhu.edu}, whitelisting every address in that domain</li>
+ *     <li>a regular expression enclosed in slashes, e.g. {@code /staff\..*@jhu\.edu/}, whitelisting every address
+ *         the expression matches in its entirety</li>
+ * </ul>
+ * <p>
+ * The whitelist is compiled into an index the first time it is used: addresses and domains are held in hash sets, and
+ * each regular expression is compiled once, so the cost of filtering a recipient does not grow with the number of
+ * addresses and domains in the whitelist.  Regular expressions are compiled separately, rather than combined into one
+ * pattern, so that the groups and backreferences of each expression are numbered as written.  The index is compiled
+ * again if the configured whitelist is replaced, or its size changes.
+ * </p>
+ * <p>
  * A practical configuration is to use an empty whitelist in production, but provide a whitelist when performing
  * testing or demonstrations, preventing notifications from being sent to recipients who didn't request them.
  * </p>
@@ -46,8 +69,12 @@ public class SimpleWhitelist implements Function<Collection<String>, Collection<
 
     private static final Logger LOG = LoggerFactory.getLogger(SimpleWhitelist.class);
 
+    private static final String DOMAIN_WILDCARD = "*@";
+
     private RecipientConfig recipientConfig;
 
+    private volatile Index index;
+
     public SimpleWhitelist(RecipientConfig recipientConfig) {
         this.recipientConfig = recipientConfig;
     }
@@ -61,26 +88,96 @@ public class SimpleWhitelist implements Function<Collection<String>, Collection<
         }
 
         // an empty or null whitelist is carries the semantics "any recipient is whitelisted"
-        if (recipientConfig.getWhitelist() == null || recipientConfig.getWhitelist().isEmpty()) {
+        Collection<String> whitelist = recipientConfig.getWhitelist();
+        if (whitelist == null || whitelist.isEmpty()) {
             LOG.debug("Any recipient will be whitelisted: the whitelist is empty.");
             return candidates;
         }
 
+        Index whitelisted = index(whitelist);
+
         return candidates.stream()
                 .filter(candidate -> {
-                    boolean isWhitelisted = isWhitelisted(candidate.toLowerCase(), recipientConfig.getWhitelist());
+                    boolean isWhitelisted = whitelisted.test(candidate.toLowerCase(Locale.ROOT));
                     LOG.debug("{} is whitelisted: {}", candidate, isWhitelisted);
                     return isWhitelisted;
                 })
                 .collect(Collectors.toSet());
     }
 
-    private static boolean isWhitelisted(String candidate, Collection<String> whitelist) {
-        // an empty or null whitelist is carries the semantics "any recipient is whitelisted"
-        if (whitelist == null || whitelist.isEmpty()) {
-            return true;
+    /**
+     * Answers the index of the whitelist, compiling it if the whitelist is not the one last compiled.
+     */
+    private Index index(Collection<String> whitelist) {
+        Index current = index;
+        if (current == null || current.whitelist != whitelist || current.size != whitelist.size()) {
+            current = new Index(whitelist);
+            index = current;
+        }
+        return current;
+    }
+
+    /**
+     * The compiled form of a whitelist.
+     */
+    private static final class Index {
+
+        private final Collection<String> whitelist;
+
+        private final int size;
+
+        private final Set<String> addresses = new HashSet<>();
+
+        private final Set<String> domains = new HashSet<>();
+
+        private final List<Pattern> patterns = new ArrayList<>();
+
+        private Index(Collection<String> whitelist) {
+            this.whitelist = whitelist;
+            this.size = whitelist.size();
+
+            for (String entry : whitelist) {
+                if (entry == null) {
+                    continue;
+                }
+                String trimmed = entry.trim();
+                if (trimmed.length() > 2 && trimmed.startsWith("/") && trimmed.endsWith("/")) {
+                    String expression = trimmed.substring(1, trimmed.length() - 1);
+                    try {
+                        patterns.add(Pattern.compile(expression, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+                    } catch (PatternSyntaxException e) {
+                        LOG.warn("Ignoring whitelist entry '{}': not a valid regular expression: {}", entry,
+                                e.getDescription());
+                    }
+                } else if (trimmed.startsWith(DOMAIN_WILDCARD)) {
+                    domains.add(trimmed.substring(DOMAIN_WILDCARD.length()).toLowerCase(Locale.ROOT));
+                } else {
+                    addresses.add(trimmed.toLowerCase(Locale.ROOT));
+                }
+            }
         }
 
-        return whitelist.stream().map(String::toLowerCase).anyMatch(candidate::equals);
+        /**
+         * @param candidate a lower case email address
+         * @return whether the address is whitelisted
+         */
+        private boolean test(String candidate) {
+            if (addresses.contains(candidate)) {
+                return true;
+            }
+
+            int at = candidate.lastIndexOf('@');
+            if (at >= 0 && !domains.isEmpty() && domains.contains(candidate.substring(at + 1))) {
+                return true;
+            }
+
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(candidate).matches()) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
     }
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.function.BiConsumer;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+import org.simplejavamail.converter.EmailConverter;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.mailer.Mailer;
+import org.simplejavamail.mailer.config.TransportStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends email using a {@link Mailer}, sending batches of email over a single SMTP connection.
+ * <p>
+ * {@code Mailer} sends one email at a time: {@link Mailer#sendMail(Email)} is {@code synchronized}, so callers on
+ * several threads would wait for each other.  This implementation instead converts each email to a MIME message as
+ * the {@code Mailer} would, and sends it over a {@link Transport} of its own obtained from the {@code Mailer}'s
+ * session, so that emails sent on different threads are sent concurrently.  A batch is sent over one
+ * {@code Transport}, so that the connection, any TLS negotiation and authentication are paid for once per batch.  If
+ * the connection is lost part way through a batch it is re-opened; if it cannot be, the remaining emails fail with
+ * the reason.
+ * </p>
+ * <p>
+ * Emails are sent by the {@code Mailer} if it only logs emails rather than sending them, or if it sends them through a
+ * proxy, which the {@code Mailer} manages itself.
+ * </p>
+ */
+public class SmtpMailSender implements MailSender {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SmtpMailSender.class);
+
+    private final Mailer mailer;
+
+    public SmtpMailSender(Mailer mailer) {
+        this.mailer = Objects.requireNonNull(mailer, "Mailer must not be null.");
+
+        // The Mailer applies its timeouts to the session when it first sends; apply them before any batch is sent
+        TransportStrategy strategy = mailer.getTransportStrategy();
+        if (strategy != null) {
+            Properties properties = mailer.getSession().getProperties();
+            String timeout = String.valueOf(mailer.getOperationalConfig().getSessionTimeout());
+            properties.put(strategy.propertyNameConnectionTimeout(), timeout);
+            properties.put(strategy.propertyNameTimeout(), timeout);
+            properties.put(strategy.propertyNameWriteTimeout(), timeout);
+        }
+    }
+
+    @Override
+    public void send(Email email) {
+        if (managedByMailer()) {
+            mailer.sendMail(email);
+            return;
+        }
+
+        Session session = mailer.getSession();
+        Transport transport;
+        try {
+            transport = session.getTransport();
+            transport.connect();
+        } catch (MessagingException e) {
+            throw new RuntimeException("Unable to connect to the mail relay: " + e.getMessage(), e);
+        }
+
+        try {
+            send(session, transport, email);
+        } catch (MessagingException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            close(transport);
+        }
+    }
+
+    @Override
+    public void sendAll(List<Email> emails, BiConsumer<Email, RuntimeException> results) {
+        if (emails.isEmpty()) {
+            return;
+        }
+
+        if (managedByMailer()) {
+            MailSender.super.sendAll(emails, results);
+            return;
+        }
+
+        Session session = mailer.getSession();
+        Transport transport;
+        try {
+            transport = session.getTransport();
+            transport.connect();
+        } catch (MessagingException e) {
+            throw new RuntimeException("Unable to connect to the mail relay: " + e.getMessage(), e);
+        }
+
+        RuntimeException unreachable = null;
+        try {
+            for (Email email : emails) {
+                if (unreachable == null && !transport.isConnected()) {
+                    LOG.debug("Connection to the mail relay was lost, reconnecting");
+                    try {
+                        transport.connect();
+                    } catch (MessagingException e) {
+                        unreachable = new RuntimeException("Unable to reconnect to the mail relay: " +
+                                e.getMessage(), e);
+                    }
+                }
+
+                if (unreachable != null) {
+                    results.accept(email, unreachable);
+                    continue;
+                }
+
+                RuntimeException failure = null;
+                try {
+                    send(session, transport, email);
+                } catch (MessagingException e) {
+                    failure = new RuntimeException(e.getMessage(), e);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                results.accept(email, failure);
+            }
+        } finally {
+            close(transport);
+        }
+    }
+
+    /**
+     * Answers whether emails must be sent by the {@code Mailer} itself, as it only logs them or sends them through a
+     * proxy.
+     */
+    private boolean managedByMailer() {
+        return mailer.getOperationalConfig().isTransportModeLoggingOnly() || mailer.getProxyConfig().requiresProxy();
+    }
+
+    private static void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            LOG.debug("Error closing the connection to the mail relay: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sends an email as {@link Mailer#sendMail(Email)} would, over an open transport, without holding the lock of the
+     * {@code Mailer}.  Like the {@code Mailer}, the
+     * {@code Message-ID} of the sent message is assigned to the email, using the method it reserves for the purpose.
+     */
+    @SuppressWarnings("deprecation")
+    private void send(Session session, Transport transport, Email email) throws MessagingException {
+        mailer.validate(email);
+        MimeMessage message = EmailConverter.emailToMimeMessage(email, session);
+        message.saveChanges();
+        email.internalSetId(message.getMessageID());
+        transport.sendMessage(message, message.getAllRecipients());
+    }
+
+}
@@ -15,8 +15,13 @@
  */
 package org.dataconservancy.pass.notification.dispatch.impl.email;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.commons.io.IOUtils;
 
 import org.dataconservancy.pass.notification.model.Notification;
 import org.dataconservancy.pass.notification.model.config.template.NotificationTemplate;
@@ -40,4 +45,24 @@ public interface TemplateParameterizer {
     String parameterize(NotificationTemplate.Name templateName, Map<Notification.Param, String> paramMap,
                         InputStream template);
 
+    /**
+     * Prepares the named template to be parameterized repeatedly, such as for each of a batch of notifications of the
+     * same type.  The default implementation reads the template once, and parameterizes a copy of it each time the
+     * returned function is applied.
+     *
+     * @param templateName the name of {@code template}
+     * @param template the template being prepared
+     * @return a function performing parameterization of the template with the parameters it is applied to
+     */
+    default Function<Map<Notification.Param, String>, String> compile(NotificationTemplate.Name templateName,
+                                                                      InputStream template) {
+        byte[] content;
+        try {
+            content = IOUtils.toByteArray(template);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        return paramMap -> parameterize(templateName, paramMap, new ByteArrayInputStream(content));
+    }
+
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dataconservancy.pass.notification.support.resilience.CircuitBreaker;
+import org.dataconservancy.pass.notification.support.resilience.CircuitOpenException;
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.email.Email;
+
+public class CircuitBreakingMailSenderTest {
+
+    private MailSender delegate;
+
+    private CircuitBreaker breaker;
+
+    private CircuitBreakingMailSender underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = mock(MailSender.class);
+        breaker = new CircuitBreaker("smtp", 2, 60_000, e -> true, null, new SimpleMeterRegistry());
+        underTest = new CircuitBreakingMailSender(delegate, breaker);
+    }
+
+    @Test
+    public void sendsThroughBreaker() {
+        Email email = mock(Email.class);
+
+        underTest.send(email);
+
+        verify(delegate).send(email);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    /**
+     * Once the relay has failed enough times, sends are refused without being attempted
+     */
+    @Test
+    public void refusesWhileOpen() {
+        Email email = mock(Email.class);
+        doThrow(new RuntimeException("Relay unavailable")).when(delegate).send(email);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                underTest.send(email);
+                fail("Expected a RuntimeException");
+            } catch (RuntimeException e) {
+                assertEquals("Relay unavailable", e.getMessage());
+            }
+        }
+
+        try {
+            underTest.send(email);
+            fail("Expected a CircuitOpenException");
+        } catch (CircuitOpenException e) {
+            // expected
+        }
+
+        verify(delegate, times(2)).send(any());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    /**
+     * With the relay failure predicate, emails the relay rejects do not open the breaker, however many there are
+     */
+    @Test
+    public void rejectedEmailsDoNotOpen() throws Exception {
+        breaker = new CircuitBreaker("smtp", 2, 60_000, MailFailures::isRelayFailure, null, new SimpleMeterRegistry());
+        underTest = new CircuitBreakingMailSender(delegate, breaker);
+        SendFailedException rejected = new SendFailedException("Invalid Addresses");
+        rejected.setNextException(new SMTPAddressFailedException(new InternetAddress("user@example.org"), "RCPT TO",
+                550, "550 5.1.1 User unknown"));
+        Email email = mock(Email.class);
+        doThrow(new RuntimeException(rejected.getMessage(), rejected)).when(delegate).send(email);
+
+        for (int i = 0; i < 5; i++) {
+            try {
+                underTest.send(email);
+                fail("Expected a RuntimeException");
+            } catch (CircuitOpenException e) {
+                fail("Breaker opened for a rejected email");
+            } catch (RuntimeException e) {
+                assertEquals("Invalid Addresses", e.getMessage());
+            }
+        }
+
+        verify(delegate, times(5)).send(any());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    /**
+     * Emails rejected by the relay within a batch are reported, but only a failure to reach the relay counts against
+     * the breaker
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void batchFailures() {
+        Email rejected = mock(Email.class);
+        List<Email> batch = Arrays.asList(rejected, mock(Email.class));
+        doAnswer(inv -> {
+            BiConsumer<Email, RuntimeException> results = inv.getArgument(1);
+            for (Email email : batch) {
+                results.accept(email, email == rejected ? new RuntimeException("Mailbox unavailable") : null);
+            }
+            return null;
+        }).when(delegate).sendAll(any(), any());
+
+        List<RuntimeException> failures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            underTest.sendAll(batch, (email, failure) -> failures.add(failure));
+        }
+        assertEquals(6, failures.size());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        doThrow(new RuntimeException("Relay unavailable")).when(delegate).sendAll(any(), any());
+        for (int i = 0; i < 2; i++) {
+            try {
+                underTest.sendAll(batch, (email, failure) -> fail("Unexpected result"));
+                fail("Expected a RuntimeException");
+            } catch (RuntimeException e) {
+                assertEquals("Relay unavailable", e.getMessage());
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+}
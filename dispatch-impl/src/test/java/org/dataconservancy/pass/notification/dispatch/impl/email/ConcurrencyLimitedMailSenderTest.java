@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dataconservancy.pass.notification.support.resilience.ConcurrencyLimiter;
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.email.Email;
+
+public class ConcurrencyLimitedMailSenderTest {
+
+    private MailSender delegate;
+
+    private ConcurrencyLimiter limiter;
+
+    private ConcurrencyLimitedMailSender underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = mock(MailSender.class);
+        limiter = new ConcurrencyLimiter("smtp", 1, 9, 10_000, 0, 0, new SimpleMeterRegistry());
+        underTest = new ConcurrencyLimitedMailSender(delegate, limiter);
+    }
+
+    @Test
+    public void sendsThroughLimiter() {
+        Email email = mock(Email.class);
+
+        underTest.send(email);
+
+        verify(delegate).send(email);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    /**
+     * A failed send is propagated to the caller and backs off the limit
+     */
+    @Test
+    public void failedSendReducesLimit() {
+        Email email = mock(Email.class);
+        doThrow(new RuntimeException("Relay unavailable")).when(delegate).send(email);
+        int limit = limiter.getLimit();
+
+        try {
+            underTest.send(email);
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            assertEquals("Relay unavailable", e.getMessage());
+        }
+
+        assertEquals((int) (limit * 0.9), limiter.getLimit());
+    }
+
+    /**
+     * A batch occupies a single unit of concurrency while it is sent
+     */
+    @Test
+    public void batchOccupiesOneUnit() {
+        List<Email> batch = Arrays.asList(mock(Email.class), mock(Email.class), mock(Email.class));
+        AtomicInteger inFlight = new AtomicInteger();
+        doAnswer(inv -> {
+            inFlight.set(limiter.getInFlight());
+            return null;
+        }).when(delegate).sendAll(same(batch), any());
+
+        underTest.sendAll(batch, (email, failure) -> { });
+
+        assertEquals(1, inFlight.get());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+}
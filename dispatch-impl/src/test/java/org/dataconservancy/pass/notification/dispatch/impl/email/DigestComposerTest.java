@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import static org.dataconservancy.pass.notification.dispatch.impl.email.DigestComposer.DIGEST_COUNT_SMTP_HEADER;
+import static org.dataconservancy.pass.notification.dispatch.impl.email.EmailComposer.NOTIFICATION_TYPE_SMTP_HEADER;
+import static org.dataconservancy.pass.notification.dispatch.impl.email.EmailComposer.SUBMISSION_SMTP_HEADER;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.stream.Collectors;
+
+import com.github.jknack.handlebars.Handlebars;
+import org.junit.Test;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
+import org.simplejavamail.email.Recipient;
+
+public class DigestComposerTest {
+
+    private DigestComposer underTest = new DigestComposer(new Handlebars(),
+            "PASS: {{count}} submission updates",
+            "{{#each notifications}}{{type}} {{submission}}\n{{{body}}}\n{{/each}}");
+
+    @Test
+    public void compose() {
+        Email first = email("Submitted", "Your submission <1> was submitted", "SUBMISSION_SUBMISSION_SUBMITTED", "1");
+        Email second = email("Changes", "Changes & more", "SUBMISSION_CHANGES_REQUESTED", "2");
+
+        Email digest = underTest.compose(Arrays.asList(first, second));
+
+        assertEquals("PASS: 2 submission updates", digest.getSubject());
+        assertEquals("SUBMISSION_SUBMISSION_SUBMITTED 1\nYour submission <1> was submitted\n" +
+                "SUBMISSION_CHANGES_REQUESTED 2\nChanges & more\n", digest.getPlainText());
+        assertEquals("pass-noreply@jhu.edu", digest.getFromRecipient().getAddress());
+        assertEquals(new HashSet<>(Arrays.asList("preparer@jhu.edu", "pass-support@jhu.edu")),
+                digest.getRecipients().stream().map(Recipient::getAddress).collect(Collectors.toSet()));
+        assertEquals("2", digest.getHeaders().get(DIGEST_COUNT_SMTP_HEADER));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void composeNothing() {
+        underTest.compose(Collections.emptyList());
+    }
+
+    private static Email email(String subject, String body, String type, String submission) {
+        return EmailBuilder.startingBlank()
+                .from("pass-noreply@jhu.edu")
+                .to("preparer@jhu.edu")
+                .cc("pass-support@jhu.edu")
+                .withSubject(subject)
+                .withPlainText(body)
+                .withHeader(NOTIFICATION_TYPE_SMTP_HEADER, type)
+                .withHeader(SUBMISSION_SMTP_HEADER, submission)
+                .buildEmail();
+    }
+
+}
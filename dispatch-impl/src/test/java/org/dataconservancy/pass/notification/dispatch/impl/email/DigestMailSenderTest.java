@@ -0,0 +1,370 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import static org.dataconservancy.pass.notification.dispatch.impl.email.DigestComposer.DIGEST_COUNT_SMTP_HEADER;
+import static org.dataconservancy.pass.notification.dispatch.impl.email.EmailComposer.NOTIFICATION_TYPE_SMTP_HEADER;
+import static org.dataconservancy.pass.notification.model.Notification.Type.SUBMISSION_APPROVAL_INVITE;
+import static org.dataconservancy.pass.notification.model.Notification.Type.SUBMISSION_CHANGES_REQUESTED;
+import static org.dataconservancy.pass.notification.model.Notification.Type.SUBMISSION_SUBMISSION_SUBMITTED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+
+import com.github.jknack.handlebars.Handlebars;
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.support.journal.Journal;
+import org.dataconservancy.pass.notification.support.resilience.CircuitOpenException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
+
+public class DigestMailSenderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path dir;
+
+    private MeterRegistry meterRegistry;
+
+    private List<Email> sent;
+
+    private AtomicInteger failures;
+
+    private RuntimeException failure;
+
+    /**
+     * Counts the attempts to send
+     */
+    private AtomicInteger attempts;
+
+    /**
+     * If set, holds attempts to send until it is released
+     */
+    private volatile CountDownLatch hold;
+
+    private DigestMailSender underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = folder.getRoot().toPath();
+        sent = new CopyOnWriteArrayList<>();
+        failures = new AtomicInteger();
+        failure = new RuntimeException("Relay unavailable");
+        attempts = new AtomicInteger();
+        underTest = digest(200, 10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        underTest.close();
+    }
+
+    @Test
+    public void emailsToSameRecipientAreCombined() throws Exception {
+        underTest.send(email("First", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        underTest.send(email("Second", "preparer@jhu.edu", SUBMISSION_CHANGES_REQUESTED));
+        underTest.send(email("Third", "PREPARER@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        assertEquals(0, sent.size());
+        assertEquals(3, underTest.size());
+
+        await(() -> sent.size() == 1 && underTest.size() == 0);
+        Email digest = sent.get(0);
+        assertEquals("3 updates", digest.getSubject());
+        assertEquals("First;Second;Third;", digest.getPlainText());
+        assertEquals("3", digest.getHeaders().get(DIGEST_COUNT_SMTP_HEADER));
+        assertEquals("preparer@jhu.edu", digest.getRecipients().get(0).getAddress());
+        assertEquals(1, meterRegistry.get("pass.notification.digest.sent").counter().count(), 0);
+        assertEquals(3, meterRegistry.get("pass.notification.digest.coalesced").counter().count(), 0);
+    }
+
+    @Test
+    public void emailsToDifferentRecipientsAreNotCombined() throws Exception {
+        underTest.send(email("First", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        underTest.send(email("Second", "submitter@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+
+        await(() -> sent.size() == 2);
+        // a digest of one email is the email itself
+        sent.forEach(email -> assertNull(email.getHeaders().get(DIGEST_COUNT_SMTP_HEADER)));
+    }
+
+    @Test
+    public void otherTypesAreSentImmediately() {
+        underTest.send(email("Invite", "submitter@jhu.edu", SUBMISSION_APPROVAL_INVITE));
+
+        assertEquals(1, sent.size());
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void batchBuffersSelectedTypes() throws Exception {
+        List<Email> batch = Arrays.asList(email("First", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED),
+                email("Invite", "submitter@jhu.edu", SUBMISSION_APPROVAL_INVITE));
+        List<Email> results = new CopyOnWriteArrayList<>();
+
+        underTest.sendAll(batch, (email, failure) -> {
+            assertNull(failure);
+            results.add(email);
+        });
+
+        assertEquals(2, results.size());
+        assertEquals("Invite", sent.get(0).getSubject());
+        await(() -> sent.size() == 2);
+        assertEquals("First", sent.get(1).getSubject());
+    }
+
+    /**
+     * A full buffer is sent without waiting for the window to elapse
+     */
+    @Test
+    public void fullBufferIsSentEarly() throws Exception {
+        underTest.close();
+        underTest = digest(60_000, 2);
+
+        underTest.send(email("First", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        underTest.send(email("Second", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+
+        await(() -> sent.size() == 1 && underTest.size() == 0);
+        assertEquals("2 updates", sent.get(0).getSubject());
+    }
+
+    @Test
+    public void failedDigestIsRetried() throws Exception {
+        failures.set(2);
+
+        underTest.send(email("First", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        underTest.send(email("Second", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+
+        await(() -> sent.size() == 1 && underTest.size() == 0);
+        assertEquals("2 updates", sent.get(0).getSubject());
+    }
+
+    /**
+     * A buffer filled just as its window elapses is sent once, by whichever of the window and the full buffer claims it
+     * first.  The race is timing dependent, so it is run for many recipients, in several rounds.
+     */
+    @Test
+    public void fullBufferRacingItsWindowIsSentOnce() throws Exception {
+        underTest.close();
+        underTest = digest(1, 2);
+        int recipients = 250;
+
+        for (int round = 0; round < 8; round++) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                for (int i = 0; i < recipients; i++) {
+                    String to = "preparer" + round + "." + i + "@jhu.edu";
+                    executor.execute(() -> {
+                        underTest.send(email("First", to, SUBMISSION_SUBMISSION_SUBMITTED));
+                        underTest.send(email("Second", to, SUBMISSION_SUBMISSION_SUBMITTED));
+                    });
+                }
+            } finally {
+                executor.shutdown();
+                assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+            }
+            await(() -> underTest.size() == 0);
+        }
+
+        int delivered = sent.stream()
+                .mapToInt(email -> email.getHeaders().containsKey(DIGEST_COUNT_SMTP_HEADER) ?
+                        Integer.parseInt(email.getHeaders().get(DIGEST_COUNT_SMTP_HEADER)) : 1)
+                .sum();
+        assertEquals(8 * 2 * recipients, delivered);
+    }
+
+    /**
+     * A digest awaiting retry is sent after the retry delay, even once it is full
+     */
+    @Test
+    public void fullRetryIsNotSentEarly() throws Exception {
+        underTest.close();
+        underTest = digest(50, 3, 1000);
+        failures.set(1);
+
+        underTest.send(email("First", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        await(() -> meterRegistry.get("pass.notification.digest.retries").counter().count() == 1);
+        long retried = System.nanoTime();
+        underTest.send(email("Second", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        underTest.send(email("Third", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+
+        await(() -> sent.size() == 1);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - retried) >= 500);
+        assertEquals("3 updates", sent.get(0).getSubject());
+    }
+
+    /**
+     * A failed digest retried together with the emails buffered since is divided into digests of the maximum size
+     */
+    @Test
+    public void retryIsDividedIntoFullDigests() throws Exception {
+        underTest.close();
+        underTest = digest(50, 3, 20);
+        failures.set(1);
+        hold = new CountDownLatch(1);
+
+        underTest.send(email("First", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        underTest.send(email("Second", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        await(() -> attempts.get() == 1);
+        underTest.send(email("Third", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        underTest.send(email("Fourth", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        hold.countDown();
+
+        await(() -> sent.size() == 2 && underTest.size() == 0);
+        Set<String> subjects = sent.stream().map(Email::getSubject).collect(Collectors.toSet());
+        assertEquals(new HashSet<>(Arrays.asList("3 updates", "Fourth")), subjects);
+    }
+
+    @Test
+    public void failedDigestIsDeadLetteredAfterMaxAttempts() throws Exception {
+        failures.set(Integer.MAX_VALUE);
+
+        underTest.send(email("First", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        underTest.send(email("Second", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+
+        await(() -> underTest.size() == 0);
+        assertEquals(0, sent.size());
+        assertEquals(3, attempts.get());
+        assertEquals(2, meterRegistry.get("pass.notification.digest.retries").counter().count(), 0);
+        assertEquals(2, meterRegistry.get("pass.notification.digest.dead").counter().count(), 0);
+    }
+
+    /**
+     * Digests refused before reaching the relay, such as by an open circuit breaker, are retried without counting as
+     * attempts
+     */
+    @Test
+    public void refusedDigestIsNotDeadLettered() throws Exception {
+        failures.set(5);
+        failure = new CircuitOpenException("Circuit 'smtp' is open");
+
+        underTest.send(email("First", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        underTest.send(email("Second", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+
+        await(() -> sent.size() == 1 && underTest.size() == 0);
+        assertEquals("2 updates", sent.get(0).getSubject());
+        assertEquals(5, meterRegistry.get("pass.notification.digest.retries").counter().count(), 0);
+        assertEquals(0, meterRegistry.get("pass.notification.digest.dead").counter().count(), 0);
+    }
+
+    @Test
+    public void permanentlyFailedDigestIsNotRetried() throws Exception {
+        failures.set(Integer.MAX_VALUE);
+        SendFailedException rejected = new SendFailedException("Invalid Addresses");
+        rejected.setNextException(new SMTPAddressFailedException(new InternetAddress("preparer@jhu.edu"),
+                "RCPT TO", 550, "550 5.1.1 User unknown"));
+        failure = new RuntimeException(rejected.getMessage(), rejected);
+
+        underTest.send(email("First", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+
+        await(() -> underTest.size() == 0);
+        assertEquals(1, attempts.get());
+        assertEquals(1, meterRegistry.get("pass.notification.digest.dead").counter().count(), 0);
+    }
+
+    /**
+     * Emails buffered when the sender was closed are sent once it is created again
+     */
+    @Test
+    public void bufferedEmailsAreSentAfterRestart() throws Exception {
+        underTest.close();
+        underTest = digest(60_000, 10);
+        underTest.send(email("First", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        underTest.send(email("Second", "preparer@jhu.edu", SUBMISSION_SUBMISSION_SUBMITTED));
+        underTest.close();
+
+        underTest = digest(50, 10);
+        assertEquals(2, underTest.size());
+
+        await(() -> sent.size() == 1 && underTest.size() == 0);
+        assertEquals("2 updates", sent.get(0).getSubject());
+        assertEquals("First;Second;", sent.get(0).getPlainText());
+    }
+
+    private DigestMailSender digest(long windowMs, int maxEmails) throws Exception {
+        return digest(windowMs, maxEmails, 20);
+    }
+
+    private DigestMailSender digest(long windowMs, int maxEmails, long retryMs) throws Exception {
+        MailSender mailSender = email -> {
+            attempts.incrementAndGet();
+            CountDownLatch latch = hold;
+            if (latch != null) {
+                try {
+                    latch.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+                throw failure;
+            }
+            sent.add(email);
+        };
+        meterRegistry = new SimpleMeterRegistry();
+        DigestComposer composer = new DigestComposer(new Handlebars(), "{{count}} updates",
+                "{{#each notifications}}{{{subject}}};{{/each}}");
+        return new DigestMailSender(Journal.open(dir, "digest", 4096, false), mailSender, composer,
+                Arrays.asList(SUBMISSION_SUBMISSION_SUBMITTED, SUBMISSION_CHANGES_REQUESTED), windowMs, maxEmails,
+                retryMs, 3, 4, meterRegistry);
+    }
+
+    private static Email email(String subject, String to, Notification.Type type) {
+        return EmailBuilder.startingBlank()
+                .from("pass-noreply@jhu.edu")
+                .to(to)
+                .withSubject(subject)
+                .withPlainText("Body")
+                .withHeader(NOTIFICATION_TYPE_SMTP_HEADER, type.name())
+                .buildEmail();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for the digest");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+}
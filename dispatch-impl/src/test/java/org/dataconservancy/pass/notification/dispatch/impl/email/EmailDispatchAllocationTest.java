@@ -0,0 +1,285 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jknack.handlebars.EscapingStrategy;
+import com.github.jknack.handlebars.Handlebars;
+import com.github.jknack.handlebars.helper.ConditionalHelpers;
+import org.apache.commons.io.IOUtils;
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.User;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.model.Notification.Param;
+import org.dataconservancy.pass.notification.model.SimpleNotification;
+import org.dataconservancy.pass.notification.model.config.NotificationConfig;
+import org.dataconservancy.pass.notification.model.config.template.NotificationTemplate;
+import org.dataconservancy.pass.notification.model.config.template.NotificationTemplate.Name;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Asserts that rendering and assembling the email for a notification stays within a budget of allocated bytes, per
+ * stage.  The notification is shaped like those composed in production, with a long abstract, and is rendered with
+ * the templates deployed with Notification Services for {@code SUBMISSION_APPROVAL_REQUESTED}, which the build copies
+ * from {@code notification-integration} onto the test classpath.  Emails are handed to a {@link MailSender} which
+ * discards them.
+ * <p>
+ * Allocation is measured per thread by the JVM, after warming each stage up, so these tests are skipped on JVMs which
+ * do not support it.  Logging is set to the production levels while measuring, apart from the notification log,
+ * which is turned off because the cost of its appender depends on the deployment.
+ * </p>
+ * <p>
+ * The budgets are absolute byte counts with headroom over what was measured on Temurin 17.0.9 (64-bit HotSpot,
+ * compressed oops, default collector).  Other JVMs lay out objects and compile templates differently, so a failure on
+ * a different JVM or major version should be checked against this one before the code is blamed.  If a change
+ * legitimately needs more memory, raise the budget in the same commit and say why.
+ * </p>
+ */
+public class EmailDispatchAllocationTest {
+
+    /**
+     * Allocation budget of {@link HandlebarsParameterizer#parameterize} rendering the body template, in bytes.  About
+     * 530 KB when the budget was set, most of it compiling the template.
+     */
+    private static final long RENDER_BUDGET = 680_000;
+
+    /**
+     * Allocation budget of {@link Parameterizer#resolveAndParameterize} resolving and rendering the subject, body and
+     * footer templates, in bytes.  About 830 KB when the budget was set.
+     */
+    private static final long PARAMETERIZE_BUDGET = 1_050_000;
+
+    /**
+     * Allocation budget of {@link EmailComposer#compose} assembling the email, in bytes.  About 10 KB when the budget
+     * was set.
+     */
+    private static final long COMPOSE_BUDGET = 16_000;
+
+    /**
+     * Allocation budget of {@link EmailDispatchImpl#dispatch}, the stages above, in bytes.  About 835 KB when the
+     * budget was set.
+     */
+    private static final long DISPATCH_BUDGET = 1_060_000;
+
+    private static final int WARMUP = 1000;
+
+    private static final int ITERATIONS = 500;
+
+    private static final String TEMPLATES = "classpath:/templates/";
+
+    private static final String USER_URI = "https://pass.jhu.edu/fcrepo/rest/users/5f/3e/a2/9c/5f3ea29c";
+
+    private final Map<String, Level> levels = new HashMap<>();
+
+    private Notification notification;
+
+    private Map<Name, String> rendered;
+
+    private byte[] bodyTemplate;
+
+    private HandlebarsParameterizer handlebarsParameterizer;
+
+    private Parameterizer parameterizer;
+
+    private EmailComposer composer;
+
+    private EmailDispatchImpl underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue("Thread allocation is not measured by this JVM", isAllocationMeasured());
+
+        setLevel("org.dataconservancy.pass", Level.INFO);
+        setLevel("NOTIFICATION_LOG", Level.OFF);
+
+        ObjectMapper mapper = new ObjectMapper();
+        notification = notification(mapper);
+
+        NotificationTemplate template = new NotificationTemplate();
+        template.setNotificationType(Notification.Type.SUBMISSION_APPROVAL_REQUESTED);
+        Map<Name, String> templates = new EnumMap<>(Name.class);
+        templates.put(Name.SUBJECT, TEMPLATES + "approval-requested-subject.hbr");
+        templates.put(Name.BODY, TEMPLATES + "approval-requested-body.hbr");
+        templates.put(Name.FOOTER, TEMPLATES + "footer.hbr");
+        template.setTemplates(templates);
+        NotificationConfig config = new NotificationConfig();
+        config.setTemplates(Collections.singletonList(template));
+
+        Handlebars handlebars = new Handlebars();
+        handlebars.registerHelper("eq", ConditionalHelpers.eq);
+        handlebarsParameterizer = new HandlebarsParameterizer(handlebars.with(EscapingStrategy.NOOP), mapper);
+        parameterizer = new Parameterizer(config,
+                new CompositeResolver(Arrays.asList(new SpringUriTemplateResolver(), new InlineTemplateResolver())),
+                handlebarsParameterizer);
+
+        User user = new User();
+        user.setId(URI.create(USER_URI));
+        user.setEmail("authorized-submitter@jhu.edu");
+        PassClient passClient = (PassClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {PassClient.class}, (proxy, method, args) -> user);
+        composer = new EmailComposer(passClient, recipients -> recipients);
+
+        MailSender discard = email -> { };
+        underTest = new EmailDispatchImpl(parameterizer, discard, composer);
+
+        rendered = parameterizer.resolveAndParameterize(notification, notification.getType());
+        try (InputStream body = new SpringUriTemplateResolver().resolve(Name.BODY, templates.get(Name.BODY))) {
+            bodyTemplate = IOUtils.toByteArray(body);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        levels.forEach((name, level) -> ((Logger) LoggerFactory.getLogger(name)).setLevel(level));
+    }
+
+    @Test
+    public void renderBody() {
+        assertWithinBudget("HandlebarsParameterizer", RENDER_BUDGET, () ->
+                handlebarsParameterizer.parameterize(Name.BODY, notification.getParameters(),
+                        new ByteArrayInputStream(bodyTemplate)));
+    }
+
+    @Test
+    public void resolveAndParameterize() {
+        assertWithinBudget("Parameterizer", PARAMETERIZE_BUDGET, () ->
+                parameterizer.resolveAndParameterize(notification, notification.getType()));
+    }
+
+    @Test
+    public void compose() {
+        assertWithinBudget("EmailComposer", COMPOSE_BUDGET, () -> composer.compose(notification, rendered));
+    }
+
+    @Test
+    public void dispatch() {
+        assertWithinBudget("EmailDispatchImpl", DISPATCH_BUDGET, () -> underTest.dispatch(notification));
+    }
+
+    private static void assertWithinBudget(String stage, long budget, Runnable operation) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        long perNotification = (threads.getThreadAllocatedBytes(thread) - before) / ITERATIONS;
+
+        assertTrue(String.format("%s allocated %,d bytes per notification, over its budget of %,d bytes", stage,
+                perNotification, budget), perNotification <= budget);
+    }
+
+    private static boolean isAllocationMeasured() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return false;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (threads.isThreadAllocatedMemorySupported() && !threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled();
+    }
+
+    private void setLevel(String name, Level level) {
+        Logger logger = (Logger) LoggerFactory.getLogger(name);
+        levels.put(name, logger.getLevel());
+        logger.setLevel(level);
+    }
+
+    /**
+     * A notification as composed for an {@code APPROVAL_REQUESTED} event on a submission with six authors and a long
+     * abstract.
+     */
+    private static Notification notification(ObjectMapper mapper) throws Exception {
+        StringBuilder abstractText = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            abstractText.append("Differential enhancement of luminal growth factor bioactivity occurs. ");
+        }
+
+        Map<String, Object> resource = new HashMap<>();
+        resource.put("title", "Specific protein supplementation using soya, casein or whey differentially affects " +
+                "regional gut growth and luminal growth factor bioactivity in rats");
+        resource.put("journal-title", "Food & Function");
+        resource.put("abstract", abstractText.toString());
+        resource.put("doi", "10.1039/c7fo01251a");
+        resource.put("authors", Arrays.asList(
+                Collections.singletonMap("author", "Tania Marchbank"),
+                Collections.singletonMap("author", "Nikki Mandir"),
+                Collections.singletonMap("author", "Denis Calnan"),
+                Collections.singletonMap("author", "Robert A. Goodlad"),
+                Collections.singletonMap("author", "Theo Podas"),
+                Collections.singletonMap("author", "Raymond J. Playford")));
+
+        String submission = "https://pass.jhu.edu/fcrepo/rest/submissions/0a/1b/2c/3d/0a1b2c3d";
+        String event = "https://pass.jhu.edu/fcrepo/rest/submissionEvents/4e/5f/6a/7b/4e5f6a7b";
+        Map<String, Object> eventMetadata = new HashMap<>();
+        eventMetadata.put("id", event);
+        eventMetadata.put("comment", "How does this look?");
+        eventMetadata.put("performedDate", "2018-10-01T12:00:00.000Z");
+        eventMetadata.put("performedBy", "https://pass.jhu.edu/fcrepo/rest/users/8c/9d/0e/1f/8c9d0e1f");
+        eventMetadata.put("performerRole", "preparer");
+        eventMetadata.put("eventType", "approval-requested");
+
+        Map<Param, String> params = new EnumMap<>(Param.class);
+        params.put(Param.TO, USER_URI);
+        params.put(Param.FROM, "pass-production-noreply@jhu.edu");
+        params.put(Param.CC, "pass@jhu.edu,pass-prod-cc@jhu.edu");
+        params.put(Param.BCC, "pass-prod-bcc@jhu.edu");
+        params.put(Param.RESOURCE_METADATA, mapper.writeValueAsString(resource));
+        params.put(Param.EVENT_METADATA, mapper.writeValueAsString(eventMetadata));
+        params.put(Param.LINKS, mapper.writeValueAsString(Collections.singletonList(new HashMap<String, String>() {
+            {
+                put("rel", "submission-review");
+                put("href", "https://pass.jhu.edu/app/submissions/" + submission.replace("/", "%2F"));
+            }
+        })));
+
+        SimpleNotification notification = new SimpleNotification();
+        notification.setType(Notification.Type.SUBMISSION_APPROVAL_REQUESTED);
+        notification.setEventUri(URI.create(event));
+        notification.setResourceUri(URI.create(submission));
+        notification.setSender("pass-production-noreply@jhu.edu");
+        notification.setRecipients(Collections.singletonList(USER_URI));
+        notification.setCc(Arrays.asList("pass@jhu.edu", "pass-prod-cc@jhu.edu"));
+        notification.setBcc(Collections.singletonList("pass-prod-bcc@jhu.edu"));
+        notification.setParameters(params);
+        return notification;
+    }
+
+}
@@ -16,32 +16,50 @@
 package org.dataconservancy.pass.notification.dispatch.impl.email;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import javax.mail.Message.RecipientType;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.commons.io.IOUtils;
 import org.dataconservancy.pass.client.PassClient;
 import org.dataconservancy.pass.model.User;
 import org.dataconservancy.pass.notification.dispatch.DispatchException;
+import org.dataconservancy.pass.notification.dispatch.DispatchResult;
 import org.dataconservancy.pass.notification.model.Notification;
 import org.dataconservancy.pass.notification.model.Notification.Param;
 import org.dataconservancy.pass.notification.model.config.NotificationConfig;
 import org.dataconservancy.pass.notification.model.config.template.NotificationTemplate;
 import org.dataconservancy.pass.notification.model.config.template.NotificationTemplate.Name;
+import org.dataconservancy.pass.notification.support.metrics.EndToEndLatency;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics;
+import org.dataconservancy.pass.notification.support.resilience.LimitExceededException;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -126,38 +144,7 @@ public class EmailDispatchImplTest {
 
     @Test
     public void simpleSuccess() throws IOException {
-        when(notification.getType()).thenReturn(Notification.Type.SUBMISSION_APPROVAL_INVITE);
-        when(notification.getParameters()).thenReturn(
-                new HashMap<Param, String>() {
-                    {
-                        put(Param.FROM, from);
-                        put(Param.TO, userUri);
-                        put(Param.CC, cc);
-                        put(Param.RESOURCE_METADATA, metadata);
-                    }
-                });
-        when(notification.getRecipients()).thenReturn(Collections.singleton(userUri));
-        when(notification.getSender()).thenReturn(from);
-        when(notification.getCc()).thenReturn(Collections.singleton(cc));
-
-        when(templateProto.getNotificationType()).thenReturn(Notification.Type.SUBMISSION_APPROVAL_INVITE);
-        when(templateResolver.resolve(any(), any())).thenAnswer(inv ->
-                IOUtils.toInputStream(inv.getArgument(1), "UTF-8"));
-
-        when(templateParameterizer.parameterize(any(), any(), any())).thenAnswer(inv -> {
-            NotificationTemplate.Name name = inv.getArgument(0);
-            switch (name) {
-                case SUBJECT:
-                    return "A Subject";
-                case FOOTER:
-                    return "A Footer";
-                case BODY:
-                    return "A Body";
-                default:
-            }
-
-            throw new RuntimeException("Unknown template name '" + name + "'");
-        });
+        stubNotification();
 
         underTest.dispatch(notification);
 
@@ -215,4 +202,262 @@ public class EmailDispatchImplTest {
         verifyZeroInteractions(mailer);
     }
 
-}
\ No newline at end of file
+    /**
+     * With an outbox, the composed email is stored for sending later rather than sent
+     */
+    @Test
+    public void outboxStoresEmail() throws IOException {
+        stubNotification();
+        Outbox outbox = mock(Outbox.class);
+        when(outbox.enqueue(any(), any(), anyLong())).thenReturn("<id@jhu.edu>");
+        EndToEndLatency latency = new EndToEndLatency(60_000, new SimpleMeterRegistry());
+        underTest = new EmailDispatchImpl(underTest.getParameterizer(), outbox, underTest.getComposer(),
+                StageMetrics.noop(), latency);
+
+        latency.begin(1234);
+        try {
+            assertEquals("<id@jhu.edu>", underTest.dispatch(notification));
+        } finally {
+            latency.end();
+        }
+
+        ArgumentCaptor<Email> emailCaptor = ArgumentCaptor.forClass(Email.class);
+        verify(outbox).enqueue(emailCaptor.capture(), eq(Notification.Type.SUBMISSION_APPROVAL_INVITE), eq(1234L));
+        assertEquals("A Subject", emailCaptor.getValue().getSubject());
+        verifyZeroInteractions(mailer);
+    }
+
+    /**
+     * An outbox that is full refuses the notification, so that its message is not acknowledged
+     */
+    @Test
+    public void fullOutboxRefuses() throws IOException {
+        stubNotification();
+        Outbox outbox = mock(Outbox.class);
+        when(outbox.enqueue(any(), any(), anyLong())).thenThrow(new LimitExceededException("Outbox is full"));
+        underTest = new EmailDispatchImpl(underTest.getParameterizer(), outbox, underTest.getComposer(),
+                StageMetrics.noop(), EndToEndLatency.noop());
+
+        try {
+            underTest.dispatch(notification);
+            fail("Expected Dispatch Exception");
+        } catch (DispatchException expected) {
+            assertTrue(LimitExceededException.isRefusal(expected));
+        }
+    }
+
+    /**
+     * Asynchronous dispatch completes once the email is sent, and records latency from the origin of the message
+     * being processed when it was dispatched
+     */
+    @Test
+    public void asyncDispatchCompletesWhenSent() throws Exception {
+        stubNotification();
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        AsyncMailSender asyncMailSender = email -> {
+            mailer.sendMail(email);
+            return sent;
+        };
+        EndToEndLatency latency = new EndToEndLatency(60_000, new SimpleMeterRegistry());
+        underTest = new EmailDispatchImpl(underTest.getParameterizer(), mailer::sendMail, asyncMailSender,
+                underTest.getComposer(), StageMetrics.noop(), latency);
+
+        latency.begin(System.currentTimeMillis() - 500);
+        CompletableFuture<String> result;
+        try {
+            result = underTest.dispatchAsync(notification).toCompletableFuture();
+        } finally {
+            latency.end();
+        }
+        assertFalse(result.isDone());
+
+        ForkJoinPool.commonPool().submit(() -> sent.complete(null)).get();
+
+        result.get(10, TimeUnit.SECONDS);
+        verify(mailer).sendMail(any());
+        assertEquals(1, latency.snapshot(Notification.Type.SUBMISSION_APPROVAL_INVITE).getCount());
+        assertTrue(latency.snapshot(Notification.Type.SUBMISSION_APPROVAL_INVITE).getMax() >= 500);
+    }
+
+    @Test
+    public void asyncDispatchFailure() throws IOException {
+        stubNotification();
+        RuntimeException failure = new RuntimeException("Relay unavailable");
+        AsyncMailSender asyncMailSender = email -> {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(failure);
+            return failed;
+        };
+        underTest = new EmailDispatchImpl(underTest.getParameterizer(), mailer::sendMail, asyncMailSender,
+                underTest.getComposer(), StageMetrics.noop(), EndToEndLatency.noop());
+
+        try {
+            underTest.dispatchAsync(notification).toCompletableFuture().join();
+            fail("Expected Dispatch Exception");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof DispatchException);
+            assertSame(failure, e.getCause().getCause());
+            assertSame(notification, ((DispatchException) e.getCause()).getNotification());
+        }
+    }
+
+    /**
+     * Failures composing the email complete the stage exceptionally, rather than being thrown
+     */
+    @Test
+    public void asyncDispatchWithEmptyToAddress() {
+        Parameterizer p = mock(Parameterizer.class);
+        EmailComposer c = mock(EmailComposer.class);
+        Email e = mock(Email.class);
+
+        when(notification.getResourceUri()).thenReturn(URI.create(UUID.randomUUID().toString()));
+        when(notification.getEventUri()).thenReturn(URI.create(UUID.randomUUID().toString()));
+        when(p.resolveAndParameterize(any(), any())).thenReturn(Collections.emptyMap());
+        when(c.compose(any(), any())).thenReturn(e);
+        when(e.getRecipients()).thenReturn(Collections.emptyList());
+
+        underTest = new EmailDispatchImpl(p, mailer, c);
+        CompletableFuture<String> result = underTest.dispatchAsync(notification).toCompletableFuture();
+
+        assertTrue(result.isCompletedExceptionally());
+        try {
+            result.join();
+            fail("Expected Dispatch Exception");
+        } catch (CompletionException expected) {
+            assertTrue(expected.getCause() instanceof DispatchException);
+        }
+        verifyZeroInteractions(mailer);
+    }
+
+    /**
+     * The templates for a batch of notifications of the same type are resolved once, and the emails sent together
+     */
+    @Test
+    public void dispatchAllSharesTemplatesAndSend() throws IOException {
+        stubNotification();
+        when(templateParameterizer.compile(any(), any())).thenCallRealMethod();
+        List<List<Email>> batches = new ArrayList<>();
+        MailSender mailSender = new MailSender() {
+            @Override
+            public void send(Email email) {
+                fail("Unexpected send of a single email");
+            }
+
+            @Override
+            public void sendAll(List<Email> emails, BiConsumer<Email, RuntimeException> results) {
+                batches.add(emails);
+                emails.forEach(email -> results.accept(email, null));
+            }
+        };
+        underTest = new EmailDispatchImpl(underTest.getParameterizer(), mailSender, underTest.getComposer());
+
+        List<DispatchResult> results = underTest.dispatchAll(Arrays.asList(notification, notification, notification));
+
+        assertEquals(3, results.size());
+        results.forEach(result -> {
+            assertTrue(result.isDispatched());
+            assertSame(notification, result.getNotification());
+        });
+        assertEquals(1, batches.size());
+        assertEquals(3, batches.get(0).size());
+        assertEquals("A Subject", batches.get(0).get(2).getSubject());
+        verify(templateResolver, times(3)).resolve(any(), any());
+    }
+
+    /**
+     * Notifications without templates, and emails rejected by the relay, fail without affecting the rest of the batch
+     */
+    @Test
+    public void dispatchAllReportsEachFailure() throws IOException {
+        stubNotification();
+        when(templateParameterizer.compile(any(), any())).thenCallRealMethod();
+        Notification untemplated = mock(Notification.class);
+        when(untemplated.getType()).thenReturn(Notification.Type.SUBMISSION_CHANGES_REQUESTED);
+        RuntimeException rejected = new RuntimeException("Mailbox unavailable");
+        MailSender mailSender = new MailSender() {
+            @Override
+            public void send(Email email) {
+                fail("Unexpected send of a single email");
+            }
+
+            @Override
+            public void sendAll(List<Email> emails, BiConsumer<Email, RuntimeException> results) {
+                results.accept(emails.get(0), null);
+                results.accept(emails.get(1), rejected);
+            }
+        };
+        underTest = new EmailDispatchImpl(underTest.getParameterizer(), mailSender, underTest.getComposer());
+
+        List<DispatchResult> results = underTest.dispatchAll(Arrays.asList(notification, untemplated, notification));
+
+        assertTrue(results.get(0).isDispatched());
+        assertFalse(results.get(1).isDispatched());
+        assertSame(untemplated, results.get(1).getFailure().getNotification());
+        assertTrue(results.get(1).getFailure().getMessage().contains("Missing notification template"));
+        assertFalse(results.get(2).isDispatched());
+        assertSame(rejected, results.get(2).getFailure().getCause());
+    }
+
+    /**
+     * Failing to reach the relay fails every email of the batch
+     */
+    @Test
+    public void dispatchAllWithUnreachableRelay() throws IOException {
+        stubNotification();
+        when(templateParameterizer.compile(any(), any())).thenCallRealMethod();
+        RuntimeException unreachable = new RuntimeException("Relay unavailable");
+        MailSender mailSender = new MailSender() {
+            @Override
+            public void send(Email email) {
+                fail("Unexpected send of a single email");
+            }
+
+            @Override
+            public void sendAll(List<Email> emails, BiConsumer<Email, RuntimeException> results) {
+                throw unreachable;
+            }
+        };
+        underTest = new EmailDispatchImpl(underTest.getParameterizer(), mailSender, underTest.getComposer());
+
+        List<DispatchResult> results = underTest.dispatchAll(Arrays.asList(notification, notification));
+
+        assertEquals(2, results.size());
+        results.forEach(result -> assertSame(unreachable, result.getFailure().getCause()));
+    }
+
+    private void stubNotification() throws IOException {
+        when(notification.getType()).thenReturn(Notification.Type.SUBMISSION_APPROVAL_INVITE);
+        when(notification.getParameters()).thenReturn(
+                new HashMap<Param, String>() {
+                    {
+                        put(Param.FROM, from);
+                        put(Param.TO, userUri);
+                        put(Param.CC, cc);
+                        put(Param.RESOURCE_METADATA, metadata);
+                    }
+                });
+        when(notification.getRecipients()).thenReturn(Collections.singleton(userUri));
+        when(notification.getSender()).thenReturn(from);
+        when(notification.getCc()).thenReturn(Collections.singleton(cc));
+
+        when(templateProto.getNotificationType()).thenReturn(Notification.Type.SUBMISSION_APPROVAL_INVITE);
+        when(templateResolver.resolve(any(), any())).thenAnswer(inv ->
+                IOUtils.toInputStream(inv.getArgument(1), "UTF-8"));
+
+        when(templateParameterizer.parameterize(any(), any(), any())).thenAnswer(inv -> {
+            NotificationTemplate.Name name = inv.getArgument(0);
+            switch (name) {
+                case SUBJECT:
+                    return "A Subject";
+                case FOOTER:
+                    return "A Footer";
+                case BODY:
+                    return "A Body";
+                default:
+            }
+
+            throw new RuntimeException("Unknown template name '" + name + "'");
+        });
+    }
+
+}
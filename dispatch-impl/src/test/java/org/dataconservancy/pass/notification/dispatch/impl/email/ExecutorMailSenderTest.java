@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.dataconservancy.pass.notification.support.resilience.LimitExceededException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.email.Email;
+
+public class ExecutorMailSenderTest {
+
+    private MailSender delegate;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = mock(MailSender.class);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void sendsOnExecutor() throws Exception {
+        Email email = mock(Email.class);
+        AtomicReference<Thread> sendingThread = new AtomicReference<>();
+        MailSender recording = e -> {
+            sendingThread.set(Thread.currentThread());
+            delegate.send(e);
+        };
+
+        new ExecutorMailSender(recording, executor).sendAsync(email).toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        verify(delegate).send(email);
+        assertNotEquals(Thread.currentThread(), sendingThread.get());
+    }
+
+    @Test
+    public void failedSendCompletesExceptionally() throws Exception {
+        Email email = mock(Email.class);
+        RuntimeException failure = new RuntimeException("Relay unavailable");
+        doThrow(failure).when(delegate).send(email);
+
+        try {
+            new ExecutorMailSender(delegate, executor).sendAsync(email).toCompletableFuture()
+                    .get(10, TimeUnit.SECONDS);
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    /**
+     * An executor that refuses the send refuses the email, so that its message is not acknowledged
+     */
+    @Test
+    public void rejectedSendIsRefused() {
+        CompletableFuture<Void> result = new ExecutorMailSender(delegate, runnable -> {
+            throw new RejectedExecutionException("Queue full");
+        }).sendAsync(mock(Email.class)).toCompletableFuture();
+
+        assertTrue(result.isCompletedExceptionally());
+        try {
+            result.join();
+            fail("Expected a refusal");
+        } catch (RuntimeException e) {
+            assertTrue(LimitExceededException.isRefusal(e));
+        }
+        verifyZeroInteractions(delegate);
+    }
+
+    @Test
+    public void callingThreadExecutorSendsBeforeReturning() {
+        Email email = mock(Email.class);
+
+        CompletableFuture<Void> result = new ExecutorMailSender(delegate, Runnable::run).sendAsync(email)
+                .toCompletableFuture();
+
+        assertTrue(result.isDone());
+        assertFalse(result.isCompletedExceptionally());
+        verify(delegate).send(email);
+        assertNull(result.join());
+    }
+
+}
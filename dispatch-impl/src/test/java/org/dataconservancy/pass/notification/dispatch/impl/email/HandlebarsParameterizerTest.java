@@ -25,6 +25,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.jknack.handlebars.EscapingStrategy;
@@ -123,4 +124,18 @@ public class HandlebarsParameterizerTest {
 
         assertEquals(href, parameterized);
     }
-}
\ No newline at end of file
+
+    /**
+     * A compiled template is parameterized once for each set of parameters it is applied to
+     */
+    @Test
+    public void compiledTemplateAppliedRepeatedly() throws IOException {
+        Function<Map<Param, String>, String> compiled = underTest.compile(Name.SUBJECT,
+                IOUtils.toInputStream("Dear {{to}}, from {{from}}", "UTF-8"));
+
+        assertEquals("Dear " + TO + ", from " + FROM, compiled.apply(paramMap));
+
+        paramMap.put(Param.TO, "another-submitter@jhu.edu");
+        assertEquals("Dear another-submitter@jhu.edu, from " + FROM, compiled.apply(paramMap));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dataconservancy.pass.notification.support.resilience.LoadBalancer;
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.email.Email;
+
+public class LoadBalancingMailSenderTest {
+
+    private MailSender relay1;
+
+    private MailSender relay2;
+
+    private LoadBalancingMailSender underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        relay1 = mock(MailSender.class);
+        relay2 = mock(MailSender.class);
+        Map<String, MailSender> relays = new LinkedHashMap<>();
+        relays.put("relay1:25", relay1);
+        relays.put("relay2:25", relay2);
+        underTest = new LoadBalancingMailSender(new LoadBalancer<>("smtp", relays, MailFailures::isRelayFailure, 3,
+                60_000, 60_000, new SimpleMeterRegistry()));
+    }
+
+    @Test
+    public void sendsThroughEachRelay() {
+        for (int i = 0; i < 10; i++) {
+            underTest.send(mock(Email.class));
+        }
+
+        verify(relay1, atLeastOnce()).send(any());
+        verify(relay2, atLeastOnce()).send(any());
+        verify(relay1, times(10 - mockingDetails(relay2).getInvocations().size())).send(any());
+    }
+
+    /**
+     * An email a relay rejects permanently would be rejected by any relay, so is not sent through another
+     */
+    @Test
+    public void rejectedSendNotRetriedOnAnotherRelay() throws Exception {
+        Email email = mock(Email.class);
+        SendFailedException rejected = new SendFailedException("Invalid Addresses");
+        rejected.setNextException(new SMTPAddressFailedException(new InternetAddress("user@example.org"), "RCPT TO",
+                550, "550 5.1.1 User unknown"));
+        RuntimeException failure = new RuntimeException(rejected.getMessage(), rejected);
+        doThrow(failure).when(relay1).send(email);
+        doThrow(failure).when(relay2).send(email);
+
+        try {
+            underTest.send(email);
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            assertEquals(failure, e);
+        }
+
+        assertEquals(1, mockingDetails(relay1).getInvocations().size() +
+                mockingDetails(relay2).getInvocations().size());
+    }
+
+    /**
+     * An email a relay fails to send is sent through another relay
+     */
+    @Test
+    public void failedSendRetriedOnAnotherRelay() {
+        Email email = mock(Email.class);
+        doThrow(new RuntimeException("Relay unavailable")).when(relay1).send(email);
+        doThrow(new RuntimeException("Relay unavailable")).when(relay2).send(email);
+
+        try {
+            underTest.send(email);
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            assertEquals("Relay unavailable", e.getMessage());
+        }
+
+        verify(relay1).send(email);
+        verify(relay2).send(email);
+    }
+
+    @Test
+    public void batchSentThroughOneRelay() {
+        List<Email> batch = Arrays.asList(mock(Email.class), mock(Email.class));
+        doThrow(new RuntimeException("Relay unavailable")).when(relay1).sendAll(same(batch), any());
+
+        underTest.sendAll(batch, (email, failure) -> { });
+
+        verify(relay1).sendAll(same(batch), any());
+        verify(relay2).sendAll(same(batch), any());
+        verify(relay2, never()).send(any());
+    }
+
+}
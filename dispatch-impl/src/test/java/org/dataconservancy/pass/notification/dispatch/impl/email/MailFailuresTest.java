@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.SocketTimeoutException;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import org.junit.Test;
+import org.simplejavamail.email.EmailBuilder;
+import org.simplejavamail.mailer.MailerBuilder;
+
+public class MailFailuresTest {
+
+    /**
+     * An email failing validation by the Mailer will fail again
+     */
+    @Test
+    public void invalidEmailIsPermanent() {
+        try {
+            MailerBuilder.withSMTPServer("localhost", 25).buildMailer().validate(EmailBuilder.startingBlank()
+                    .from("pass-noreply@jhu.edu")
+                    .to("not an address")
+                    .withSubject("Subject")
+                    .withPlainText("Body")
+                    .buildEmail());
+            fail("Expected the email to be invalid");
+        } catch (RuntimeException e) {
+            assertTrue(MailFailures.isPermanent(new RuntimeException("Unable to send", e)));
+            assertFalse(MailFailures.isRelayFailure(e));
+        }
+    }
+
+    @Test
+    public void rejectedRecipientIsPermanent() throws Exception {
+        SendFailedException rejected = new SendFailedException("Invalid Addresses");
+        rejected.setNextException(new SMTPAddressFailedException(new InternetAddress("user@example.org"), "RCPT TO",
+                550, "550 5.1.1 User unknown"));
+
+        assertTrue(MailFailures.isPermanent(new RuntimeException(rejected.getMessage(), rejected)));
+    }
+
+    @Test
+    public void transientReplyIsNotPermanent() throws Exception {
+        SendFailedException deferred = new SendFailedException("Invalid Addresses");
+        deferred.setNextException(new SMTPAddressFailedException(new InternetAddress("user@example.org"), "RCPT TO",
+                450, "450 4.2.1 Mailbox busy"));
+
+        assertFalse(MailFailures.isPermanent(deferred));
+        assertTrue(MailFailures.isRelayFailure(deferred));
+        assertFalse(MailFailures.isPermanent(new SMTPSendFailedException("DATA", 421, "421 Service not available",
+                null, null, null, null)));
+        assertTrue(MailFailures.isPermanent(new SMTPSendFailedException("DATA", 554, "554 Transaction failed",
+                null, null, null, null)));
+    }
+
+    @Test
+    public void connectionFailureIsRelayFailure() {
+        MessagingException timeout = new MessagingException("Read timed out", new SocketTimeoutException());
+
+        assertFalse(MailFailures.isPermanent(new RuntimeException("Unable to connect", timeout)));
+        assertTrue(MailFailures.isRelayFailure(new RuntimeException("Unable to connect", timeout)));
+    }
+
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.support.journal.Journal;
+import org.dataconservancy.pass.notification.support.metrics.EndToEndLatency;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics;
+import org.dataconservancy.pass.notification.support.resilience.CircuitOpenException;
+import org.dataconservancy.pass.notification.support.resilience.LimitExceededException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
+
+public class OutboxTest {
+
+    private static final Notification.Type TYPE = Notification.Type.SUBMISSION_APPROVAL_INVITE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path dir;
+
+    private MeterRegistry meterRegistry;
+
+    private EndToEndLatency latency;
+
+    private List<Email> sent;
+
+    private AtomicInteger failures;
+
+    private RuntimeException failure;
+
+    private Outbox underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = folder.getRoot().toPath();
+        latency = new EndToEndLatency(60_000, new SimpleMeterRegistry());
+        sent = new CopyOnWriteArrayList<>();
+        failures = new AtomicInteger();
+        failure = new RuntimeException("Relay unavailable");
+        underTest = outbox(10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        underTest.close();
+    }
+
+    @Test
+    public void enqueuedEmailIsSent() throws Exception {
+        underTest.start();
+
+        String id = underTest.enqueue(email("Subject é"), TYPE, 0);
+
+        await(() -> sent.size() == 1 && underTest.size() == 0);
+        Email email = sent.get(0);
+        assertEquals(id, email.getId());
+        assertEquals("Subject é", email.getSubject());
+        assertEquals("Body", email.getPlainText());
+        assertEquals("user@example.org", email.getRecipients().get(0).getAddress());
+        assertTrue(id.endsWith("@jhu.edu>"));
+    }
+
+    /**
+     * Emails that fail to send are retried until they are sent
+     */
+    @Test
+    public void failedSendIsRetried() throws Exception {
+        failures.set(2);
+        underTest.start();
+
+        underTest.enqueue(email("Subject"), TYPE, 0);
+
+        await(() -> sent.size() == 1 && underTest.size() == 0);
+        assertEquals(2, meterRegistry.get("pass.notification.outbox.retries").counter().count(), 0);
+    }
+
+    /**
+     * Emails that fail permanently are dead-lettered rather than retried
+     */
+    @Test
+    public void permanentFailureIsNotRetried() throws Exception {
+        failures.set(Integer.MAX_VALUE);
+        SendFailedException rejected = new SendFailedException("Invalid Addresses");
+        rejected.setNextException(new SMTPAddressFailedException(new InternetAddress("user@example.org"), "RCPT TO",
+                550, "550 5.1.1 User unknown"));
+        failure = new RuntimeException(rejected.getMessage(), rejected);
+        underTest.start();
+
+        underTest.enqueue(email("Subject"), TYPE, 0);
+
+        await(() -> underTest.size() == 0);
+        assertEquals(0, sent.size());
+        assertEquals(0, meterRegistry.get("pass.notification.outbox.retries").counter().count(), 0);
+        assertEquals(1, meterRegistry.get("pass.notification.outbox.dead").counter().count(), 0);
+    }
+
+    /**
+     * Emails that fail to send are dead-lettered once they have failed the maximum number of times
+     */
+    @Test
+    public void failedSendIsDeadLetteredAfterMaxAttempts() throws Exception {
+        failures.set(Integer.MAX_VALUE);
+        underTest.start();
+
+        underTest.enqueue(email("Subject"), TYPE, 0);
+
+        await(() -> underTest.size() == 0);
+        assertEquals(0, sent.size());
+        assertEquals(2, meterRegistry.get("pass.notification.outbox.retries").counter().count(), 0);
+        assertEquals(1, meterRegistry.get("pass.notification.outbox.dead").counter().count(), 0);
+
+        underTest.close();
+        underTest = outbox(10);
+        assertEquals(0, underTest.size());
+    }
+
+    /**
+     * Sends refused before reaching the relay, such as by an open circuit breaker, are retried without counting as
+     * attempts, so an outage longer than the maximum number of attempts does not dead-letter the email
+     */
+    @Test
+    public void refusedSendIsNotDeadLettered() throws Exception {
+        failures.set(6);
+        failure = new CircuitOpenException("Circuit 'smtp' is open");
+        underTest.start();
+
+        underTest.enqueue(email("Subject"), TYPE, 0);
+
+        await(() -> sent.size() == 1 && underTest.size() == 0);
+        assertEquals(6, meterRegistry.get("pass.notification.outbox.retries").counter().count(), 0);
+        assertEquals(0, meterRegistry.get("pass.notification.outbox.dead").counter().count(), 0);
+    }
+
+    /**
+     * Emails not sent before the outbox was closed are sent once it is opened again
+     */
+    @Test
+    public void pendingEmailsAreSentAfterRestart() throws Exception {
+        String first = underTest.enqueue(email("First"), TYPE, 0);
+        String second = underTest.enqueue(email("Second"), TYPE, 0);
+        underTest.close();
+        assertEquals(0, sent.size());
+
+        underTest = outbox(10);
+        assertEquals(2, underTest.size());
+        underTest.start();
+
+        await(() -> sent.size() == 2 && underTest.size() == 0);
+        assertTrue(sent.stream().anyMatch(email -> email.getId().equals(first)));
+        assertTrue(sent.stream().anyMatch(email -> email.getId().equals(second)));
+
+        underTest.close();
+        underTest = outbox(10);
+        assertEquals(0, underTest.size());
+    }
+
+    /**
+     * Once the outbox is full, further emails are refused so that their messages are not acknowledged
+     */
+    @Test
+    public void enqueueIsRefusedWhenFull() throws Exception {
+        underTest.close();
+        underTest = outbox(1);
+        underTest.enqueue(email("First"), TYPE, 0);
+
+        try {
+            underTest.enqueue(email("Second"), TYPE, 0);
+            fail("Expected a LimitExceededException");
+        } catch (LimitExceededException e) {
+            // expected
+        }
+        assertEquals(1, underTest.size());
+        assertEquals(1, meterRegistry.get("pass.notification.outbox.pending").gauge().value(), 0);
+    }
+
+    @Test
+    public void enqueueIsRefusedWhenJournalCannotBeWritten() throws Exception {
+        underTest.close();
+
+        try {
+            underTest.enqueue(email("Subject"), TYPE, 0);
+            fail("Expected a LimitExceededException");
+        } catch (LimitExceededException e) {
+            assertTrue(LimitExceededException.isRefusal(e));
+        }
+    }
+
+    /**
+     * End-to-end latency is measured to when the email was sent, rather than when it was stored
+     */
+    @Test
+    public void latencyIsRecordedWhenSent() throws Exception {
+        underTest.enqueue(email("Subject"), TYPE, System.currentTimeMillis() - 500);
+        assertEquals(0, latency.snapshot(TYPE).getCount());
+
+        underTest.start();
+
+        await(() -> latency.snapshot(TYPE).getCount() == 1 && underTest.size() == 0);
+        assertTrue(latency.snapshot(TYPE).getMax() >= 500);
+        assertEquals(1, sent.size());
+    }
+
+    private Outbox outbox(int capacity) throws Exception {
+        MailSender mailSender = email -> {
+            if (failures.getAndDecrement() > 0) {
+                throw failure;
+            }
+            sent.add(email);
+        };
+        meterRegistry = new SimpleMeterRegistry();
+        return new Outbox(Journal.open(dir, "outbox", 4096, false), mailSender, 2, capacity, 10, 40, 3,
+                StageMetrics.noop(), latency, meterRegistry);
+    }
+
+    private static Email email(String subject) {
+        return EmailBuilder.startingBlank()
+                .from("pass-noreply@jhu.edu")
+                .to("user@example.org")
+                .withSubject(subject)
+                .withPlainText("Body")
+                .buildEmail();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for the outbox");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dataconservancy.pass.notification.support.resilience.LimitExceededException;
+import org.dataconservancy.pass.notification.support.resilience.RateLimiter;
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
+
+public class RateLimitedMailSenderTest {
+
+    private MailSender delegate;
+
+    private RateLimiter limiter;
+
+    private RateLimitedMailSender underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = mock(MailSender.class);
+        limiter = mock(RateLimiter.class);
+        when(limiter.tryAcquire(anyMap())).thenReturn(true);
+        underTest = new RateLimitedMailSender(delegate, limiter, RateLimitedMailSender::recipientDomains);
+    }
+
+    @Test
+    public void sendTakesPermitForEachRecipientDomain() {
+        Email email = email("user@JHU.edu", "staff@jhu.edu", "user@example.org");
+
+        underTest.send(email);
+
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("jhu.edu", 1);
+        expected.put("example.org", 1);
+        verify(limiter).acquire(expected);
+        verify(delegate).send(email);
+    }
+
+    @Test
+    public void rejectedSendIsNotAttempted() {
+        doThrow(new LimitExceededException("Rate limit exceeded")).when(limiter).acquire(anyMap());
+
+        try {
+            underTest.send(email("user@jhu.edu"));
+            fail("Expected a LimitExceededException");
+        } catch (LimitExceededException e) {
+            // expected
+        }
+
+        verify(delegate, never()).send(any());
+    }
+
+    @Test
+    public void batchTakesPermitsForEveryEmail() {
+        List<Email> batch = Arrays.asList(email("a@jhu.edu"), email("b@jhu.edu", "c@example.org"));
+
+        underTest.sendAll(batch, (email, failure) -> { });
+
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("jhu.edu", 1);
+        verify(limiter).tryAcquire(expected);
+        expected.put("example.org", 1);
+        verify(limiter).tryAcquire(expected);
+        verify(delegate).sendAll(eq(batch), any());
+    }
+
+    /**
+     * A batch needing more permits for a domain than could be taken at once is sent, as its emails would be
+     */
+    @Test
+    public void batchLargerThanBurstIsSent() {
+        List<Email> sent = new ArrayList<>();
+        delegate = sent::add;
+        limiter = new RateLimiter("domain", 1000, 1, 1, new SimpleMeterRegistry());
+        underTest = new RateLimitedMailSender(delegate, limiter, RateLimitedMailSender::recipientDomains);
+        List<Email> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batch.add(email("user" + i + "@jhu.edu"));
+        }
+        List<RuntimeException> failures = new ArrayList<>();
+
+        underTest.sendAll(batch, (email, failure) -> {
+            if (failure != null) {
+                failures.add(failure);
+            }
+        });
+
+        assertEquals(Collections.emptyList(), failures);
+        assertEquals(batch, sent);
+    }
+
+    /**
+     * The emails of a batch beyond the burst are sent as their permits become available, rather than together once
+     * every permit has been taken
+     */
+    @Test
+    public void batchIsSentAtRate() {
+        List<Long> sent = new ArrayList<>();
+        delegate = email -> sent.add(System.nanoTime());
+        limiter = new RateLimiter("domain", 20, 2, 1000, new SimpleMeterRegistry());
+        underTest = new RateLimitedMailSender(delegate, limiter, RateLimitedMailSender::recipientDomains);
+        List<Email> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            batch.add(email("user" + i + "@jhu.edu"));
+        }
+
+        underTest.sendAll(batch, (email, failure) -> { });
+
+        assertEquals(5, sent.size());
+        for (int i = 2; i < sent.size(); i++) {
+            long gapMs = TimeUnit.NANOSECONDS.toMillis(sent.get(i) - sent.get(i - 1));
+            assertTrue("Email " + i + " sent " + gapMs + " ms after the previous one", gapMs >= 40);
+        }
+    }
+
+    /**
+     * Once an outcome has been reported, a relay that cannot be reached is reported for the rest of the batch rather
+     * than thrown, so the batch is not sent again
+     */
+    @Test
+    public void unreachableRelayAfterFirstChunkIsReported() {
+        Email first = email("a@jhu.edu");
+        Email second = email("b@jhu.edu");
+        Email third = email("c@jhu.edu");
+        when(limiter.tryAcquire(Collections.singletonMap("jhu.edu", 1))).thenReturn(true, false);
+        RuntimeException unreachable = new RuntimeException("Relay unavailable");
+        doAnswer(inv -> {
+            List<Email> chunk = inv.getArgument(0);
+            if (chunk.contains(first)) {
+                BiConsumer<Email, RuntimeException> results = inv.getArgument(1);
+                results.accept(first, null);
+                return null;
+            }
+            throw unreachable;
+        }).when(delegate).sendAll(any(), any());
+        Map<Email, RuntimeException> results = new HashMap<>();
+
+        underTest.sendAll(Arrays.asList(first, second, third), results::put);
+
+        assertEquals(3, results.size());
+        assertEquals(null, results.get(first));
+        assertEquals(unreachable, results.get(second));
+        assertEquals(unreachable, results.get(third));
+    }
+
+    @Test
+    public void rejectedEmailOfBatchIsReportedAndNotSent() {
+        Email rejected = email("b@example.org");
+        List<Email> batch = Arrays.asList(email("a@jhu.edu"), rejected, email("c@jhu.edu"));
+        LimitExceededException refusal = new LimitExceededException("Rate limit exceeded");
+        when(limiter.tryAcquire(Collections.singletonMap("example.org", 1))).thenReturn(false);
+        doThrow(refusal).when(limiter).acquire(Collections.singletonMap("example.org", 1));
+        Map<Email, RuntimeException> results = new HashMap<>();
+
+        underTest.sendAll(batch, results::put);
+
+        assertEquals(Collections.singletonMap(rejected, refusal), results);
+        verify(delegate).sendAll(eq(Collections.singletonList(batch.get(0))), any());
+        verify(delegate).sendAll(eq(Collections.singletonList(batch.get(2))), any());
+    }
+
+    @Test
+    public void recipientDomains() {
+        assertEquals(new LinkedHashSet<>(Arrays.asList("jhu.edu", "example.org")),
+                RateLimitedMailSender.recipientDomains(email("user@Jhu.Edu", "user@example.org", "staff@jhu.edu")));
+    }
+
+    private static Email email(String... to) {
+        return EmailBuilder.startingBlank()
+                .from("pass-noreply@jhu.edu")
+                .to(String.join(",", to))
+                .withSubject("Subject")
+                .withPlainText("Body")
+                .buildEmail();
+    }
+
+}
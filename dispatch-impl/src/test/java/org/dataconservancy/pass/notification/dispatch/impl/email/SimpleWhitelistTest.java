@@ -140,6 +140,76 @@ public class SimpleWhitelistTest {
         assertTrue(result.contains(candidate2));
     }
 
+    /**
+     * A domain wildcard whitelists every address in the domain, but not in its subdomains
+     */
+    @Test
+    public void testDomainWildcard() {
+        whitelist.add("*@Dept.JHU.edu");
+
+        Collection<String> result = underTest.apply(Arrays.asList("foo@dept.jhu.edu", "BAR@DEPT.jhu.edu",
+                "foo@jhu.edu", "foo@sub.dept.jhu.edu"));
+        assertEquals(2, result.size());
+        assertTrue(result.contains("foo@dept.jhu.edu"));
+        assertTrue(result.contains("BAR@DEPT.jhu.edu"));
+    }
+
+    /**
+     * A regular expression whitelists every address it matches in its entirety, without regard to case
+     */
+    @Test
+    public void testRegularExpression() {
+        whitelist.add("/staff[0-9]+@jhu\\.edu/");
+        whitelist.add("/.*@example\\.org/");
+
+        Collection<String> result = underTest.apply(Arrays.asList("Staff1@jhu.edu", "staff@jhu.edu",
+                "staff12@jhu.edu.evil.com", "anyone@example.org"));
+        assertEquals(2, result.size());
+        assertTrue(result.contains("Staff1@jhu.edu"));
+        assertTrue(result.contains("anyone@example.org"));
+    }
+
+    /**
+     * Each regular expression is matched on its own, so its backreferences refer to its own groups
+     */
+    @Test
+    public void testRegularExpressionBackreference() {
+        whitelist.add("/(x+)@example\\.org/");
+        whitelist.add("/(a+)@\\1\\.org/");
+
+        Collection<String> result = underTest.apply(Arrays.asList("aa@aa.org", "aa@a.org", "xx@example.org"));
+        assertEquals(2, result.size());
+        assertTrue(result.contains("aa@aa.org"));
+        assertTrue(result.contains("xx@example.org"));
+    }
+
+    /**
+     * An entry that is not a valid regular expression is ignored, and does not affect other entries
+     */
+    @Test
+    public void testInvalidRegularExpression() {
+        whitelist.add("/staff[@jhu.edu/");
+        whitelist.add("foo@bar.baz");
+
+        Collection<String> result = underTest.apply(Arrays.asList("foo@bar.baz", "staff[@jhu.edu"));
+        assertEquals(singletonList("foo@bar.baz"), new ArrayList<>(result));
+    }
+
+    /**
+     * A whitelist replaced in the recipient configuration is used once it has been replaced
+     */
+    @Test
+    public void testReplacedWhitelist() {
+        RecipientConfig recipientConfig = new RecipientConfig();
+        recipientConfig.setWhitelist(singletonList("foo@bar.baz"));
+        underTest = new SimpleWhitelist(recipientConfig);
+        assertEquals(1, underTest.apply(singletonList("foo@bar.baz")).size());
+
+        recipientConfig.setWhitelist(singletonList("biz@bar.com"));
+        assertEquals(0, underTest.apply(singletonList("foo@bar.baz")).size());
+        assertEquals(1, underTest.apply(singletonList("biz@bar.com")).size());
+    }
+
     @Test
     public void testNullCandidate() {
         assertTrue(underTest.apply(null).isEmpty());
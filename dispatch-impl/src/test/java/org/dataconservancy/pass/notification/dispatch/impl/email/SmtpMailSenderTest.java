@@ -0,0 +1,245 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Provider;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.URLName;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
+import org.simplejavamail.mailer.Mailer;
+import org.simplejavamail.mailer.MailerBuilder;
+
+/**
+ * Sends email through a {@link RecordingTransport} installed in the {@code Mailer}'s session in place of SMTP.
+ */
+public class SmtpMailSenderTest {
+
+    private static int connects;
+
+    private static boolean refuseConnections;
+
+    private static List<String> sent;
+
+    /**
+     * Awaited by each message with the subject "Overlap", so that such messages are only sent once two are in flight
+     */
+    private static CyclicBarrier overlap;
+
+    private SmtpMailSender underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        connects = 0;
+        refuseConnections = false;
+        sent = Collections.synchronizedList(new ArrayList<>());
+        overlap = new CyclicBarrier(2);
+
+        Properties properties = new Properties();
+        properties.setProperty("mail.transport.protocol", "smtp");
+        properties.setProperty("mail.smtp.host", "localhost");
+        Session session = Session.getInstance(properties);
+        session.setProvider(new Provider(Provider.Type.TRANSPORT, "smtp", RecordingTransport.class.getName(),
+                "PASS", null));
+        Mailer mailer = MailerBuilder.usingSession(session).buildMailer();
+        underTest = new SmtpMailSender(mailer);
+    }
+
+    @Test
+    public void sendUsesOwnConnection() {
+        Email email = email("One");
+
+        underTest.send(email);
+
+        assertEquals(Arrays.asList("One"), sent);
+        assertEquals(1, connects);
+        assertNotNull(email.getId());
+    }
+
+    /**
+     * Emails sent on different threads are sent at the same time, rather than one after another
+     */
+    @Test
+    public void sendsOverlap() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(() -> underTest.send(email("Overlap")));
+            Future<?> second = executor.submit(() -> underTest.send(email("Overlap")));
+
+            first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(Arrays.asList("Overlap", "Overlap"), sent);
+    }
+
+    @Test
+    public void sendRejectionThrown() {
+        try {
+            underTest.send(email("Reject"));
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof SendFailedException);
+        }
+    }
+
+    /**
+     * Every email in the batch is sent over one connection, and is assigned its Message-ID
+     */
+    @Test
+    public void batchSharesConnection() {
+        List<Email> batch = Arrays.asList(email("One"), email("Two"), email("Three"));
+        List<Email> reported = new ArrayList<>();
+
+        underTest.sendAll(batch, (email, failure) -> {
+            assertNull(failure);
+            reported.add(email);
+        });
+
+        assertEquals(batch, reported);
+        assertEquals(Arrays.asList("One", "Two", "Three"), sent);
+        assertEquals(1, connects);
+        batch.forEach(email -> assertNotNull(email.getId()));
+    }
+
+    /**
+     * An email rejected by the relay is reported without affecting the rest of the batch
+     */
+    @Test
+    public void rejectionReported() {
+        List<Email> batch = Arrays.asList(email("One"), email("Reject"), email("Three"));
+        List<RuntimeException> failures = new ArrayList<>();
+
+        underTest.sendAll(batch, (email, failure) -> failures.add(failure));
+
+        assertEquals(3, failures.size());
+        assertNull(failures.get(0));
+        assertTrue(failures.get(1).getCause() instanceof SendFailedException);
+        assertNull(failures.get(2));
+        assertEquals(Arrays.asList("One", "Three"), sent);
+    }
+
+    /**
+     * A lost connection is re-opened for the rest of the batch
+     */
+    @Test
+    public void reconnectsWhenConnectionLost() {
+        List<Email> batch = Arrays.asList(email("One"), email("Disconnect"), email("Three"));
+        List<RuntimeException> failures = new ArrayList<>();
+
+        underTest.sendAll(batch, (email, failure) -> failures.add(failure));
+
+        assertNull(failures.get(0));
+        assertNotNull(failures.get(1));
+        assertNull(failures.get(2));
+        assertEquals(Arrays.asList("One", "Three"), sent);
+        assertEquals(2, connects);
+    }
+
+    /**
+     * Failing to reach the relay at all is thrown, rather than reported for each email
+     */
+    @Test
+    public void unreachableRelayThrown() {
+        refuseConnections = true;
+
+        try {
+            underTest.sendAll(Arrays.asList(email("One"), email("Two")),
+                    (email, failure) -> fail("Unexpected result"));
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof MessagingException);
+        }
+    }
+
+    private static Email email(String subject) {
+        return EmailBuilder.startingBlank()
+                .from("pass-noreply@jhu.edu")
+                .to("user@example.org")
+                .withSubject(subject)
+                .withPlainText("Body")
+                .buildEmail();
+    }
+
+    /**
+     * Records the subject of each message sent, rejecting messages with the subject "Reject", dropping the connection
+     * on receiving a message with the subject "Disconnect", and waiting for a second message with the subject
+     * "Overlap" to be in flight.
+     */
+    public static class RecordingTransport extends Transport {
+
+        public RecordingTransport(Session session, URLName urlname) {
+            super(session, urlname);
+        }
+
+        @Override
+        protected boolean protocolConnect(String host, int port, String user, String password)
+                throws MessagingException {
+            if (refuseConnections) {
+                throw new MessagingException("Connection refused");
+            }
+            connects++;
+            return true;
+        }
+
+        @Override
+        public void sendMessage(Message message, Address[] addresses) throws MessagingException {
+            String subject = message.getSubject();
+            if ("Reject".equals(subject)) {
+                throw new SendFailedException("Mailbox unavailable");
+            }
+            if ("Overlap".equals(subject)) {
+                try {
+                    overlap.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new MessagingException("Messages were not sent concurrently", e);
+                }
+            }
+            if ("Disconnect".equals(subject)) {
+                setConnected(false);
+                throw new MessagingException("Connection reset");
+            }
+            sent.add(subject);
+        }
+    }
+
+}
@@ -15,95 +15,241 @@
  */
 package org.dataconservancy.pass.notification.aop.logging;
 
-import static java.lang.String.join;
-import static java.util.Optional.ofNullable;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
-import java.util.Collections;
-
-import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.Aspects;
 import org.aspectj.lang.annotation.AfterReturning;
 import org.aspectj.lang.annotation.AfterThrowing;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.annotation.Pointcut;
 import org.dataconservancy.pass.notification.dispatch.DispatchException;
+import org.dataconservancy.pass.notification.dispatch.DispatchResult;
 import org.dataconservancy.pass.notification.model.Notification;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Component;
+import org.springframework.beans.factory.annotation.Value;
 
 /**
+ * Logs each notification dispatched, to the {@code NOTIFICATION_LOG} logger.
+ * <p>
+ * The advice runs around every dispatch, so it does no work unless the statement it would log is enabled: the level
+ * is checked before anything else, and the recipient lists are only joined if the message is actually formatted.
+ * </p>
+ * <p>
+ * Notifications dispatched with {@code DispatchService.dispatchAsync} are logged as dispatched, or as failed, once the
+ * returned stage completes, and those dispatched with {@code DispatchService.dispatchAll} are each logged once the
+ * batch has been dispatched.
+ * </p>
+ * <p>
+ * By default messages are formatted for people to read.  If {@code pass.notification.log.structured} is
+ * {@code true}, messages are instead formatted as space-separated {@code key=value} fields, for example:
+ * </p>
+ * <pre>
+ * notification=dispatched id=&lt;id&gt; type=SUBMISSION_APPROVAL_INVITE to="a@example.org" cc="" bcc=""
+ *     event=&lt;uri&gt; resource=&lt;uri&gt;
+ * </pre>
+ * <p>
+ * The aspect is normally applied by Spring AOP, which proxies the {@code DispatchService}.  When the {@code weave}
+ * build profile is active it is instead woven into the dispatch implementation by the AspectJ compiler, and Spring
+ * AOP ignores it; {@link LoggingAspectConfig} configures whichever instance is in use.
+ * </p>
+ *
  * @author Elliot Metsger (emetsger@jhu.edu)
  */
-@Component
 @Aspect
 public class LoggingAspect {
 
     private static final Logger NOTIFICATION_LOG = LoggerFactory.getLogger("NOTIFICATION_LOG");
 
+    private static final String DISPATCHING = "Dispatching notification to [{}], cc [{}] bcc [{}] (Notification " +
+            "type: {}, Event URI: {}, Resource URI: {})";
+
+    private static final String DISPATCHING_STRUCTURED = "notification=dispatching type={} to=\"{}\" cc=\"{}\" " +
+            "bcc=\"{}\" event={} resource={}";
+
+    private static final String DISPATCHED = "Successfully dispatched notification with id {} to [{}], cc [{}] " +
+            "bcc [{}] (Notification type: {}, Event URI: {}, Resource URI: {})";
+
+    private static final String DISPATCHED_STRUCTURED = "notification=dispatched id={} type={} to=\"{}\" cc=\"{}\" " +
+            "bcc=\"{}\" event={} resource={}";
+
+    private static final String FAILED = "FAILED dispatching notification to [{}], cc [{}] bcc [{}] (Notification " +
+            "type: {}, Event URI: {}, Resource URI: {})";
+
+    private static final String FAILED_STRUCTURED = "notification=failed type={} to=\"{}\" cc=\"{}\" " +
+            "bcc=\"{}\" event={} resource={}";
+
+    private boolean structured;
+
     @Pointcut("execution(public * org.dataconservancy.pass.notification.dispatch.DispatchService.dispatch(..))")
     void dispatchApiMethod() {}
 
-    @Before("dispatchApiMethod()")
-    public void logNotification(JoinPoint jp) {
-        Object[] args = jp.getArgs();
-        if (args == null || args.length == 0) {
+    @Pointcut("execution(public * org.dataconservancy.pass.notification.dispatch.DispatchService.dispatchAsync(..))")
+    void dispatchAsyncApiMethod() {}
+
+    @Pointcut("execution(public * org.dataconservancy.pass.notification.dispatch.DispatchService.dispatchAll(..))")
+    void dispatchAllApiMethod() {}
+
+    @Before(value = "(dispatchApiMethod() || dispatchAsyncApiMethod()) && args(n)", argNames = "n")
+    public void logNotification(Notification n) {
+        logDispatching(n);
+    }
+
+    @Before(value = "dispatchAllApiMethod() && args(notifications)", argNames = "notifications")
+    public void logNotifications(Collection<? extends Notification> notifications) {
+        if (!NOTIFICATION_LOG.isDebugEnabled() || notifications == null) {
+            return;
+        }
+
+        notifications.forEach(this::logDispatching);
+    }
+
+    private void logDispatching(Notification n) {
+        if (!NOTIFICATION_LOG.isDebugEnabled() || n == null) {
+            return;
+        }
+
+        if (structured) {
+            NOTIFICATION_LOG.debug(DISPATCHING_STRUCTURED, n.getType(), addresses(n.getRecipients()),
+                    addresses(n.getCc()), addresses(n.getBcc()), n.getEventUri(), n.getResourceUri());
+        } else {
+            NOTIFICATION_LOG.debug(DISPATCHING, addresses(n.getRecipients()), addresses(n.getCc()),
+                    addresses(n.getBcc()), n.getType(), n.getEventUri(), n.getResourceUri());
+        }
+    }
+
+    @AfterReturning(pointcut = "dispatchApiMethod() && args(n)", returning = "id", argNames = "n,id")
+    public void logNotificationReturn(Notification n, String id) {
+        logDispatched(n, id);
+    }
+
+    @AfterReturning(pointcut = "dispatchAsyncApiMethod() && args(n)", returning = "id", argNames = "n,id")
+    public void logNotificationAsyncReturn(Notification n, CompletionStage<?> id) {
+        if (id == null) {
             return;
         }
 
-        Notification n = (Notification) args[0];
+        id.whenComplete((dispatchedId, ex) -> {
+            if (ex == null) {
+                logDispatched(n, dispatchedId);
+            } else {
+                logNotificationError(ex instanceof CompletionException && ex.getCause() != null ?
+                        ex.getCause() : ex);
+            }
+        });
+    }
 
-        NOTIFICATION_LOG.debug("Dispatching notification to [{}], cc [{}] bcc [{}] (Notification type: {}, Event " +
-                               "URI: {}, Resource URI: {})",
-                join(",", ofNullable(n.getRecipients()).orElseGet(Collections::emptyList)),
-                join(",", ofNullable(n.getCc()).orElseGet(Collections::emptyList)),
-                join(",", ofNullable(n.getBcc()).orElseGet(Collections::emptyList)),
-                n.getType(),
-                n.getEventUri(),
-                n.getResourceUri());
+    @AfterThrowing(pointcut = "dispatchAsyncApiMethod()", throwing = "ex")
+    public void logNotificationAsyncError(Throwable ex) {
+        logNotificationError(ex);
     }
 
-    @AfterReturning(pointcut = "dispatchApiMethod()", returning = "id")
-    public void logNotificationReturn(JoinPoint jp, String id) {
-        Object[] args = jp.getArgs();
-        if (args == null || args.length == 0) {
+    @AfterReturning(pointcut = "dispatchAllApiMethod()", returning = "results")
+    public void logNotificationsReturn(List<DispatchResult> results) {
+        if (results == null) {
             return;
         }
 
-        Notification n = (Notification) args[0];
+        for (DispatchResult result : results) {
+            if (result.isDispatched()) {
+                logDispatched(result.getNotification(), result.getId());
+            } else {
+                logNotificationError(result.getFailure());
+            }
+        }
+    }
 
-        NOTIFICATION_LOG.info(
-            "Successfully dispatched notification with id {} to [{}], cc [{}] bcc [{}] (Notification type: {}, " +
-                "Event URI: {}, Resource URI: {})",
-            id,
-            join(",", ofNullable(n.getRecipients()).orElseGet(Collections::emptyList)),
-            join(",", ofNullable(n.getCc()).orElseGet(Collections::emptyList)),
-            join(",", ofNullable(n.getBcc()).orElseGet(Collections::emptyList)),
-            n.getType(),
-            n.getEventUri(),
-            n.getResourceUri());
+    @AfterThrowing(pointcut = "dispatchAllApiMethod()", throwing = "ex")
+    public void logNotificationsError(Throwable ex) {
+        logNotificationError(ex);
+    }
+
+    private void logDispatched(Notification n, Object id) {
+        if (!NOTIFICATION_LOG.isInfoEnabled() || n == null) {
+            return;
+        }
 
+        if (structured) {
+            NOTIFICATION_LOG.info(DISPATCHED_STRUCTURED, id, n.getType(), addresses(n.getRecipients()),
+                    addresses(n.getCc()), addresses(n.getBcc()), n.getEventUri(), n.getResourceUri());
+        } else {
+            NOTIFICATION_LOG.info(DISPATCHED, id, addresses(n.getRecipients()), addresses(n.getCc()),
+                    addresses(n.getBcc()), n.getType(), n.getEventUri(), n.getResourceUri());
+        }
     }
 
     @AfterThrowing(pointcut = "dispatchApiMethod()", throwing = "ex")
     public void logNotificationError(Throwable ex) {
+        if (!NOTIFICATION_LOG.isWarnEnabled()) {
+            return;
+        }
+
         Notification n;
 
         if (ex instanceof DispatchException && (n = ((DispatchException) ex).getNotification()) != null) {
-            NOTIFICATION_LOG.warn(
-                "FAILED dispatching notification to [{}], cc [{}] bcc [{}] (Notification type: {}, Event URI: {}, " +
-                    "Resource URI: {})",
-                join(",", ofNullable(n.getRecipients()).orElseGet(Collections::emptyList)),
-                join(",", ofNullable(n.getCc()).orElseGet(Collections::emptyList)),
-                join(",", ofNullable(n.getBcc()).orElseGet(Collections::emptyList)),
-                n.getType(),
-                n.getEventUri(),
-                n.getResourceUri(),
-                ex);
+            if (structured) {
+                NOTIFICATION_LOG.warn(FAILED_STRUCTURED, n.getType(), addresses(n.getRecipients()),
+                        addresses(n.getCc()), addresses(n.getBcc()), n.getEventUri(), n.getResourceUri(), ex);
+            } else {
+                NOTIFICATION_LOG.warn(FAILED, addresses(n.getRecipients()), addresses(n.getCc()),
+                        addresses(n.getBcc()), n.getType(), n.getEventUri(), n.getResourceUri(), ex);
+            }
             return;
         }
 
-        NOTIFICATION_LOG.warn("FAILED dispatching notification", ex);
+        NOTIFICATION_LOG.warn(structured ? "notification=failed" : "FAILED dispatching notification", ex);
+    }
+
+    public boolean isStructured() {
+        return structured;
+    }
+
+    @Value("${pass.notification.log.structured:false}")
+    public void setStructured(boolean structured) {
+        this.structured = structured;
+    }
+
+    /**
+     * @return {@code true} if the aspect was woven at build time, rather than being applied by Spring AOP
+     */
+    public static boolean isWoven() {
+        return Aspects.hasAspect(LoggingAspect.class);
+    }
+
+    /**
+     * Defers joining a list of addresses until the log message is formatted.
+     */
+    private static Object addresses(Collection<String> addresses) {
+        return new Addresses(addresses);
+    }
+
+    private static final class Addresses {
+
+        private final Collection<String> addresses;
+
+        private Addresses(Collection<String> addresses) {
+            this.addresses = addresses;
+        }
+
+        @Override
+        public String toString() {
+            if (addresses == null || addresses.isEmpty()) {
+                return "";
+            }
+            StringBuilder joined = new StringBuilder();
+            for (Iterator<String> itr = addresses.iterator(); itr.hasNext(); ) {
+                joined.append(itr.next());
+                if (itr.hasNext()) {
+                    joined.append(',');
+                }
+            }
+            return joined.toString();
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.aop.logging;
+
+import org.aspectj.lang.Aspects;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides the {@link LoggingAspect} bean.
+ * <p>
+ * When the aspect has been woven at build time, the instance invoked by the woven code is created by AspectJ rather
+ * than by Spring.  That instance is exposed as the bean, so that Spring configures the instance actually in use.
+ * Spring AOP does not apply aspects compiled by AspectJ, so the dispatch service is not additionally proxied.
+ * </p>
+ */
+@Configuration
+public class LoggingAspectConfig {
+
+    @Bean
+    public LoggingAspect loggingAspect() {
+        if (LoggingAspect.isWoven()) {
+            return Aspects.aspectOf(LoggingAspect.class);
+        }
+        return new LoggingAspect();
+    }
+
+}
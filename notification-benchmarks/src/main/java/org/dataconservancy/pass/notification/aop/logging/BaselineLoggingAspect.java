@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.aop.logging;
+
+import static java.lang.String.join;
+import static java.util.Optional.ofNullable;
+
+import java.util.Collections;
+
+import org.aspectj.lang.JoinPoint;
+import org.dataconservancy.pass.notification.dispatch.DispatchException;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link LoggingAspect} as it was before level checks and lazy arguments were introduced, kept so that
+ * {@link LoggingAspectBenchmark} can compare the two.  Not an aspect: the advice methods are invoked directly.
+ */
+public class BaselineLoggingAspect {
+
+    private static final Logger NOTIFICATION_LOG = LoggerFactory.getLogger("NOTIFICATION_LOG");
+
+    public void logNotification(JoinPoint jp) {
+        Object[] args = jp.getArgs();
+        if (args == null || args.length == 0) {
+            return;
+        }
+
+        Notification n = (Notification) args[0];
+
+        NOTIFICATION_LOG.debug("Dispatching notification to [{}], cc [{}] bcc [{}] (Notification type: {}, Event " +
+                               "URI: {}, Resource URI: {})",
+                join(",", ofNullable(n.getRecipients()).orElseGet(Collections::emptyList)),
+                join(",", ofNullable(n.getCc()).orElseGet(Collections::emptyList)),
+                join(",", ofNullable(n.getBcc()).orElseGet(Collections::emptyList)),
+                n.getType(),
+                n.getEventUri(),
+                n.getResourceUri());
+    }
+
+    public void logNotificationReturn(JoinPoint jp, String id) {
+        Object[] args = jp.getArgs();
+        if (args == null || args.length == 0) {
+            return;
+        }
+
+        Notification n = (Notification) args[0];
+
+        NOTIFICATION_LOG.info(
+            "Successfully dispatched notification with id {} to [{}], cc [{}] bcc [{}] (Notification type: {}, " +
+                "Event URI: {}, Resource URI: {})",
+            id,
+            join(",", ofNullable(n.getRecipients()).orElseGet(Collections::emptyList)),
+            join(",", ofNullable(n.getCc()).orElseGet(Collections::emptyList)),
+            join(",", ofNullable(n.getBcc()).orElseGet(Collections::emptyList)),
+            n.getType(),
+            n.getEventUri(),
+            n.getResourceUri());
+
+    }
+
+    public void logNotificationError(Throwable ex) {
+        Notification n;
+
+        if (ex instanceof DispatchException && (n = ((DispatchException) ex).getNotification()) != null) {
+            NOTIFICATION_LOG.warn(
+                "FAILED dispatching notification to [{}], cc [{}] bcc [{}] (Notification type: {}, Event URI: {}, " +
+                    "Resource URI: {})",
+                join(",", ofNullable(n.getRecipients()).orElseGet(Collections::emptyList)),
+                join(",", ofNullable(n.getCc()).orElseGet(Collections::emptyList)),
+                join(",", ofNullable(n.getBcc()).orElseGet(Collections::emptyList)),
+                n.getType(),
+                n.getEventUri(),
+                n.getResourceUri(),
+                ex);
+            return;
+        }
+
+        NOTIFICATION_LOG.warn("FAILED dispatching notification", ex);
+    }
+
+}
\ No newline at end of file
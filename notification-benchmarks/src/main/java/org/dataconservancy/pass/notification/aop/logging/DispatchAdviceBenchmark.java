@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.aop.logging;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.notification.benchmarks.FormattingAppender;
+import org.dataconservancy.pass.notification.dispatch.DispatchService;
+import org.dataconservancy.pass.notification.dispatch.impl.email.EmailDispatchFixture;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+/**
+ * Measures the dispatch hot path, from {@code DispatchService.dispatch} to handing the composed email to the
+ * {@code MailSender}, with the logging advice applied in different ways.
+ * <p>
+ * With {@code advice=direct} the dispatch implementation is invoked directly: in a normal build it is not advised at
+ * all, and in a build with the {@code weave} profile the advice has been woven into it.  With {@code advice=proxy} it
+ * is invoked through a Spring AOP proxy, as it is in the application without weaving; this mode cannot be used when
+ * the aspect has been woven.  Comparing {@code direct} in a woven build with {@code proxy} in a normal build shows the
+ * effect of weaving.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchAdviceBenchmark {
+
+    @Param({"direct", "proxy"})
+    public String advice;
+
+    private DispatchService dispatchService;
+
+    private Notification notification;
+
+    @Setup
+    public void setUp() {
+        FormattingAppender.install("NOTIFICATION_LOG", "INFO");
+
+        DispatchService target = EmailDispatchFixture.emailDispatch(email -> { });
+        if ("proxy".equals(advice)) {
+            if (LoggingAspect.isWoven()) {
+                throw new IllegalStateException("The logging aspect has been woven, so it cannot also be applied " +
+                        "by a proxy: run with -p advice=direct");
+            }
+            AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+            // Spring Boot proxies target classes by default
+            proxyFactory.setProxyTargetClass(true);
+            proxyFactory.addAspect(new LoggingAspect());
+            dispatchService = proxyFactory.getProxy();
+        } else {
+            dispatchService = target;
+        }
+
+        notification = EmailDispatchFixture.notification();
+    }
+
+    @Benchmark
+    public String dispatch() {
+        return dispatchService.dispatch(notification);
+    }
+
+}
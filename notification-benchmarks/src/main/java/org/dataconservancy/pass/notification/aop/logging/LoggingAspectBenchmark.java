@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.aop.logging;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.notification.benchmarks.FormattingAppender;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.model.SimpleNotification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the per-dispatch overhead of the logging advice: the {@code @Before} and {@code @AfterReturning} advice
+ * that run around each successful {@code DispatchService.dispatch}.
+ * <p>
+ * {@code baseline} measures the advice as it was before level checks and lazy arguments were introduced
+ * ({@link BaselineLoggingAspect}), and {@code current} measures {@link LoggingAspect}.  The {@code NOTIFICATION_LOG}
+ * level is varied: at {@code WARN} neither statement is enabled, at {@code INFO} the return is logged, and at
+ * {@code DEBUG} both are.  Enabled messages are formatted but not written.  The baseline advice obtains the
+ * notification from the {@code JoinPoint}, as it did then, whereas the current advice has it bound as an argument.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingAspectBenchmark {
+
+    private static final String ID = "<1234.5678@example.org>";
+
+    @Param({"WARN", "INFO", "DEBUG"})
+    public String level;
+
+    @Param({"false", "true"})
+    public boolean structured;
+
+    private FormattingAppender appender;
+
+    private SimpleNotification notification;
+
+    private StubJoinPoint joinPoint;
+
+    private BaselineLoggingAspect baseline;
+
+    private LoggingAspect current;
+
+    @Setup
+    public void setUp() {
+        appender = FormattingAppender.install("NOTIFICATION_LOG", level);
+
+        notification = new SimpleNotification();
+        notification.setType(Notification.Type.SUBMISSION_APPROVAL_INVITE);
+        notification.setRecipients(Arrays.asList("mailto:preparer@example.org", "mailto:submitter@example.org"));
+        notification.setCc(Collections.singletonList("notification-cc@example.org"));
+        notification.setBcc(Collections.singletonList("notification-bcc@example.org"));
+        notification.setEventUri(URI.create("http://example.org/fcrepo/rest/events/a1/b2/c3/d4/a1b2c3d4"));
+        notification.setResourceUri(URI.create("http://example.org/fcrepo/rest/submissions/e5/f6/a7/b8/e5f6a7b8"));
+        joinPoint = new StubJoinPoint(notification);
+
+        baseline = new BaselineLoggingAspect();
+        current = new LoggingAspect();
+        current.setStructured(structured);
+    }
+
+    @TearDown
+    public void tearDown(Blackhole blackhole) {
+        blackhole.consume(appender.getFormattedLength());
+    }
+
+    @Benchmark
+    public void baseline() {
+        baseline.logNotification(joinPoint);
+        baseline.logNotificationReturn(joinPoint, ID);
+    }
+
+    @Benchmark
+    public void current() {
+        current.logNotification(notification);
+        current.logNotificationReturn(notification, ID);
+    }
+
+}
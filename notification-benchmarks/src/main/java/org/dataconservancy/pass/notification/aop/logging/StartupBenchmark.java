@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.aop.logging;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.notification.dispatch.DispatchService;
+import org.dataconservancy.pass.notification.dispatch.impl.email.EmailDispatchFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+
+/**
+ * Measures the cold start of a Spring context containing the dispatch service and the logging aspect, with and
+ * without AspectJ auto-proxying.  Each measurement is the first in a fresh JVM, so class loading and proxy generation
+ * are included.
+ * <p>
+ * The full application cannot be started without a repository and a broker, so this context holds only the beans
+ * involved in advising dispatch.  In a build with the {@code weave} profile {@code autoProxy=false} shows the startup
+ * the application would have if auto-proxying were disabled, and {@code autoProxy=true} the cost of the auto-proxy
+ * infrastructure when it finds nothing to proxy.
+ * </p>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Param({"true", "false"})
+    public boolean autoProxy;
+
+    @Benchmark
+    public DispatchService start() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.register(LoggingAspectConfig.class, DispatchConfig.class);
+            if (autoProxy) {
+                context.register(AutoProxyConfig.class);
+            }
+            context.refresh();
+            return context.getBean(DispatchService.class);
+        }
+    }
+
+    @Configuration
+    static class DispatchConfig {
+
+        @Bean
+        public DispatchService dispatchService() {
+            return EmailDispatchFixture.emailDispatch(email -> { });
+        }
+
+    }
+
+    @Configuration
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    static class AutoProxyConfig {
+
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.aop.logging;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.SourceLocation;
+
+/**
+ * A {@link JoinPoint} that supplies only the arguments of the advised method, which is all the logging advice uses.
+ */
+class StubJoinPoint implements JoinPoint {
+
+    private final Object[] args;
+
+    StubJoinPoint(Object... args) {
+        this.args = args;
+    }
+
+    @Override
+    public Object[] getArgs() {
+        // Spring AOP returns a copy of the arguments on each invocation
+        return args.clone();
+    }
+
+    @Override
+    public String toShortString() {
+        return "dispatch(..)";
+    }
+
+    @Override
+    public String toLongString() {
+        return "execution(public String DispatchService.dispatch(Notification))";
+    }
+
+    @Override
+    public Object getThis() {
+        return null;
+    }
+
+    @Override
+    public Object getTarget() {
+        return null;
+    }
+
+    @Override
+    public Signature getSignature() {
+        return null;
+    }
+
+    @Override
+    public SourceLocation getSourceLocation() {
+        return null;
+    }
+
+    @Override
+    public String getKind() {
+        return JoinPoint.METHOD_EXECUTION;
+    }
+
+    @Override
+    public StaticPart getStaticPart() {
+        return null;
+    }
+
+}
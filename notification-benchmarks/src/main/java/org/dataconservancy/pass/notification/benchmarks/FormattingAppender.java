@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Formats each logging event, as an encoder would, and discards it.  Used so benchmarks account for the cost of
+ * formatting log messages without the cost, and noise, of writing them anywhere.
+ */
+public class FormattingAppender extends AppenderBase<ILoggingEvent> {
+
+    private long formattedLength;
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        formattedLength += event.getFormattedMessage().length();
+    }
+
+    /**
+     * @return the total length of messages formatted, so the formatting cannot be optimized away
+     */
+    public long getFormattedLength() {
+        return formattedLength;
+    }
+
+    /**
+     * Replaces the appenders of the named logger with a {@code FormattingAppender}, and sets its level.
+     *
+     * @param loggerName the logger
+     * @param level the level to log at
+     * @return the appender
+     */
+    public static FormattingAppender install(String loggerName, String level) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        Logger logger = context.getLogger(loggerName);
+        logger.detachAndStopAllAppenders();
+        logger.setAdditive(false);
+        logger.setLevel(Level.toLevel(level));
+
+        FormattingAppender appender = new FormattingAppender();
+        appender.setContext(context);
+        appender.start();
+        logger.addAppender(appender);
+        return appender;
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.net.URI;
+
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.User;
+import org.dataconservancy.pass.notification.impl.client.ForwardingPassClient;
+
+/**
+ * A {@link PassClient} that answers reads of {@link User}s without a repository, so benchmarks that resolve
+ * recipients measure the code under test rather than the network.
+ * <p>
+ * Each read returns a new {@code User}, as a real client would, whose email address is derived from the last segment
+ * of its URI.  All other operations are unsupported.
+ * </p>
+ */
+public class StubPassClient extends ForwardingPassClient {
+
+    public StubPassClient() {
+        super((PassClient) Proxy.newProxyInstance(StubPassClient.class.getClassLoader(),
+                new Class<?>[] {PassClient.class}, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName() + " is not supported by the stub.");
+                }));
+    }
+
+    @Override
+    public <T extends PassEntity> T readResource(URI uri, Class<T> modelClass) {
+        if (modelClass != User.class) {
+            return super.readResource(uri, modelClass);
+        }
+        String path = uri.getPath();
+        User user = new User();
+        user.setId(uri);
+        user.setEmail(path.substring(path.lastIndexOf('/') + 1) + "@jhu.edu");
+        return modelClass.cast(user);
+    }
+
+}
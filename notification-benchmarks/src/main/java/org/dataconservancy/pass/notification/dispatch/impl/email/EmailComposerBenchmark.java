@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.model.SubmissionEvent;
+import org.dataconservancy.pass.notification.benchmarks.StubPassClient;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.model.config.NotificationConfig;
+import org.dataconservancy.pass.notification.model.config.template.NotificationTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simplejavamail.email.Email;
+
+/**
+ * Measures {@link EmailComposer#compose(Notification, Map)}: the resolution of a notification's recipients to email
+ * addresses, by a {@link StubPassClient}, the application of the whitelist, and the assembly of the email from
+ * rendered templates.  The notification is of a submission, addressed to each of its preparers.  Run with
+ * {@code -prof gc} to report {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmailComposerBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int preparers;
+
+    private EmailComposer composer;
+
+    private Notification notification;
+
+    private Map<NotificationTemplate.Name, String> templates;
+
+    @Setup
+    public void setUp() {
+        NotificationConfig config = EmailDispatchFixture.config(EmailDispatchFixture.CLASSPATH_TEMPLATES);
+        notification = EmailDispatchFixture.notification(config, SubmissionEvent.EventType.SUBMITTED, preparers);
+        templates = EmailDispatchFixture.parameterizer(config)
+                .resolveAndParameterize(notification, notification.getType());
+        composer = EmailDispatchFixture.emailComposer(config, new StubPassClient());
+    }
+
+    @Benchmark
+    public Email compose() {
+        return composer.compose(notification, templates);
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.model.SubmissionEvent;
+import org.dataconservancy.pass.notification.benchmarks.StubPassClient;
+import org.dataconservancy.pass.notification.dispatch.DispatchService;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.model.config.NotificationConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the dispatch of a notification, from resolving its templates to handing the composed email to a
+ * {@link MailSender} that discards it, with recipients resolved by a {@link StubPassClient}.  This is the cost of
+ * each email apart from the SMTP exchange.  Run with {@code -prof gc} to report {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmailDispatchBenchmark {
+
+    @Param({"APPROVAL_REQUESTED_NEWUSER", "APPROVAL_REQUESTED", "CHANGES_REQUESTED", "SUBMITTED", "CANCELLED"})
+    public SubmissionEvent.EventType eventType;
+
+    private DispatchService dispatchService;
+
+    private Notification notification;
+
+    @Setup
+    public void setUp() {
+        NotificationConfig config = EmailDispatchFixture.config(EmailDispatchFixture.CLASSPATH_TEMPLATES);
+        dispatchService = EmailDispatchFixture.emailDispatch(config, new StubPassClient(), email -> { });
+        notification = EmailDispatchFixture.notification(config, eventType, 1);
+    }
+
+    @Benchmark
+    public String dispatch() {
+        return dispatchService.dispatch(notification);
+    }
+
+}
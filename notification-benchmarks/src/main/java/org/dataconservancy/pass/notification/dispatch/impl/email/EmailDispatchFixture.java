@@ -0,0 +1,256 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jknack.handlebars.Handlebars;
+import com.github.jknack.handlebars.helper.ConditionalHelpers;
+import org.apache.commons.io.IOUtils;
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.SubmissionEvent;
+import org.dataconservancy.pass.notification.impl.Composer;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.model.SimpleNotification;
+import org.dataconservancy.pass.notification.model.config.NotificationConfig;
+import org.dataconservancy.pass.notification.model.config.RecipientConfig;
+import org.dataconservancy.pass.notification.model.config.template.NotificationTemplate;
+import org.dataconservancy.pass.notification.workload.NotificationConfigs;
+import org.dataconservancy.pass.notification.workload.Scenario;
+import org.dataconservancy.pass.notification.workload.WorkloadGenerator;
+
+/**
+ * Builds an {@link EmailDispatchImpl}, and its parts, configured as they are in production apart from sending email,
+ * and {@link Notification}s for them to dispatch.
+ * <p>
+ * {@link #emailDispatch(MailSender)} uses inline copies of the approval invite templates, and its
+ * {@link #notification()} is addressed to {@code mailto} URIs, so no repository is needed.  The other methods use the
+ * templates deployed with Notification Services, which the build copies to {@code /templates} on the classpath, and
+ * notifications composed from synthetic submissions, whose recipients must be resolved by a {@link PassClient}.
+ * </p>
+ */
+public final class EmailDispatchFixture {
+
+    static final String SUBJECT = "PASS Submission titled \"{{#resource_metadata}}{{title}}{{/resource_metadata}}\" " +
+            "awaiting your approval";
+
+    static final String BODY = "Hello,\n\nA submission titled \"{{#resource_metadata}}{{title}}" +
+            "{{/resource_metadata}}\" been prepared on your behalf{{#event_metadata}}{{#if comment}} with comment " +
+            "\"{{comment}}\"{{else}}.{{/if}}{{/event_metadata}}\n\nPlease review the submission at the following " +
+            "URL: {{#each link_metadata}}{{#eq rel \"submission-review-invite\"}}{{href}}{{else}}{{/eq}}{{/each}}";
+
+    static final String FOOTER = "---\nPublic Access Submission System\nJohns Hopkins University\nhttps://pass.jhu.edu";
+
+    /**
+     * The location of the templates deployed with Notification Services
+     */
+    static final String CLASSPATH_TEMPLATES = "classpath:/templates/%s.hbr";
+
+    private static final Map<Notification.Type, String> TEMPLATE_PREFIXES = new EnumMap<>(Notification.Type.class);
+
+    static {
+        TEMPLATE_PREFIXES.put(Notification.Type.SUBMISSION_APPROVAL_INVITE, "approval-invite");
+        TEMPLATE_PREFIXES.put(Notification.Type.SUBMISSION_APPROVAL_REQUESTED, "approval-requested");
+        TEMPLATE_PREFIXES.put(Notification.Type.SUBMISSION_CHANGES_REQUESTED, "changes-requested");
+        TEMPLATE_PREFIXES.put(Notification.Type.SUBMISSION_SUBMISSION_SUBMITTED, "submission-submitted");
+        TEMPLATE_PREFIXES.put(Notification.Type.SUBMISSION_SUBMISSION_CANCELLED, "submission-cancelled");
+    }
+
+    private EmailDispatchFixture() {
+        // static factory methods only
+    }
+
+    /**
+     * @param mailSender receives each composed email
+     * @return a dispatch service that sends email to {@code mailSender}
+     */
+    public static EmailDispatchImpl emailDispatch(MailSender mailSender) {
+        NotificationTemplate template = new NotificationTemplate();
+        template.setNotificationType(Notification.Type.SUBMISSION_APPROVAL_INVITE);
+        Map<NotificationTemplate.Name, String> templates = new EnumMap<>(NotificationTemplate.Name.class);
+        templates.put(NotificationTemplate.Name.SUBJECT, SUBJECT);
+        templates.put(NotificationTemplate.Name.BODY, BODY);
+        templates.put(NotificationTemplate.Name.FOOTER, FOOTER);
+        template.setTemplates(templates);
+
+        NotificationConfig config = new NotificationConfig();
+        config.setTemplates(Collections.singletonList(template));
+
+        Parameterizer parameterizer = new Parameterizer(config, new InlineTemplateResolver(),
+                new HandlebarsParameterizer(handlebars(), new ObjectMapper()));
+
+        // Recipients are mailto URIs, so the PassClient is never used
+        EmailComposer composer = new EmailComposer(null, Function.identity());
+
+        return new EmailDispatchImpl(parameterizer, mailSender, composer);
+    }
+
+    /**
+     * @param config supplies the templates
+     * @param passClient resolves recipients
+     * @param mailSender receives each composed email
+     * @return a dispatch service that sends email to {@code mailSender}
+     */
+    public static EmailDispatchImpl emailDispatch(NotificationConfig config, PassClient passClient,
+                                                  MailSender mailSender) {
+        return new EmailDispatchImpl(parameterizer(config), mailSender, emailComposer(config, passClient));
+    }
+
+    /**
+     * @param config supplies the whitelist, of the current mode
+     * @param passClient resolves recipients
+     * @return an email composer applying the whitelist as in production
+     */
+    public static EmailComposer emailComposer(NotificationConfig config, PassClient passClient) {
+        RecipientConfig recipientConfig = config.getRecipientConfigs().stream()
+                .filter(candidate -> candidate.getMode() == config.getMode())
+                .findAny()
+                .orElseThrow(() -> new IllegalArgumentException("Missing recipient configuration"));
+        return new EmailComposer(passClient, new SimpleWhitelist(recipientConfig));
+    }
+
+    /**
+     * @param config supplies the templates
+     * @return a parameterizer resolving and rendering templates as in production
+     */
+    public static Parameterizer parameterizer(NotificationConfig config) {
+        return new Parameterizer(config, resolver(), new HandlebarsParameterizer(handlebars(), new ObjectMapper()));
+    }
+
+    /**
+     * @return the resolver used in production, trying each template as a Spring resource and then as inline text
+     */
+    public static CompositeResolver resolver() {
+        return new CompositeResolver(Arrays.asList(new SpringUriTemplateResolver(), new InlineTemplateResolver()));
+    }
+
+    /**
+     * Answers the configuration of a synthetic submission's notifications, with templates for each type of
+     * notification.  {@code location} is a format string, into which the name of the template (e.g.
+     * {@code approval-requested-body}) is substituted.  Passing {@link #CLASSPATH_TEMPLATES} configures the templates
+     * as they are deployed.
+     *
+     * @param location the format of template locations
+     * @return the configuration
+     */
+    public static NotificationConfig config(String location) {
+        List<NotificationTemplate> templates = new ArrayList<>();
+        TEMPLATE_PREFIXES.forEach((type, prefix) -> {
+            Map<NotificationTemplate.Name, String> locations = new EnumMap<>(NotificationTemplate.Name.class);
+            locations.put(NotificationTemplate.Name.SUBJECT, String.format(location, prefix + "-subject"));
+            locations.put(NotificationTemplate.Name.BODY, String.format(location, prefix + "-body"));
+            locations.put(NotificationTemplate.Name.FOOTER, String.format(location, "footer"));
+            NotificationTemplate template = new NotificationTemplate();
+            template.setNotificationType(type);
+            template.setTemplates(locations);
+            templates.add(template);
+        });
+
+        NotificationConfig config = NotificationConfigs.production();
+        config.setTemplates(templates);
+        return config;
+    }
+
+    /**
+     * @param type the type of notification
+     * @param name the template
+     * @return the name of the template deployed for {@code type}, e.g. {@code approval-requested-body}
+     */
+    public static String templateName(Notification.Type type, NotificationTemplate.Name name) {
+        return name == NotificationTemplate.Name.FOOTER ? "footer" :
+                TEMPLATE_PREFIXES.get(type) + "-" + name.name().toLowerCase();
+    }
+
+    /**
+     * @param templateName the name of a deployed template, e.g. {@code approval-requested-body}
+     * @return its content
+     */
+    public static String template(String templateName) {
+        try (InputStream in = EmailDispatchFixture.class.getResourceAsStream("/templates/" + templateName + ".hbr")) {
+            if (in == null) {
+                throw new IllegalStateException("Missing template '" + templateName + "': the templates are " +
+                        "copied to the classpath by the build");
+            }
+            return IOUtils.toString(in, "UTF-8");
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Composes a notification for a synthetic submission, as {@code Composer} does in production.  Its recipients are
+     * the URIs of repository {@code User}s, apart from those of approval requests of new users, which are addressed to
+     * the {@code mailto} URI of the submitter.
+     *
+     * @param config the configuration, as returned by {@link #config(String)}
+     * @param eventType the type of event to notify of
+     * @param preparers the number of preparers, who receive notifications of changes, submission and cancellation
+     * @return the notification
+     */
+    public static Notification notification(NotificationConfig config, SubmissionEvent.EventType eventType,
+                                            int preparers) {
+        Scenario scenario = new WorkloadGenerator(WorkloadGenerator.SEED).scenario(eventType, preparers, 6);
+        return new Composer(config, new ObjectMapper()).apply(scenario.getSubmission(), scenario.getEvent());
+    }
+
+    /**
+     * @return a {@code Handlebars} with the helpers registered in production
+     */
+    public static Handlebars handlebars() {
+        Handlebars handlebars = new Handlebars();
+        handlebars.registerHelper("eq", ConditionalHelpers.eq);
+        return handlebars;
+    }
+
+    /**
+     * @return an approval invite addressed to one recipient, with a cc and a bcc
+     */
+    public static SimpleNotification notification() {
+        SimpleNotification notification = new SimpleNotification();
+        notification.setType(Notification.Type.SUBMISSION_APPROVAL_INVITE);
+        notification.setSender("pass-noreply@example.org");
+        notification.setRecipients(Collections.singletonList("mailto:authorized-submitter@example.org"));
+        notification.setCc(Collections.singletonList("notification-cc@example.org"));
+        notification.setBcc(Collections.singletonList("notification-bcc@example.org"));
+        notification.setEventUri(URI.create("http://example.org/fcrepo/rest/events/a1/b2/c3/d4/a1b2c3d4"));
+        notification.setResourceUri(URI.create("http://example.org/fcrepo/rest/submissions/e5/f6/a7/b8/e5f6a7b8"));
+
+        Map<Notification.Param, String> params = new EnumMap<>(Notification.Param.class);
+        params.put(Notification.Param.TO, "authorized-submitter@example.org");
+        params.put(Notification.Param.FROM, "pass-noreply@example.org");
+        params.put(Notification.Param.RESOURCE_METADATA,
+                "{\"title\":\"Quantum entanglement in coupled oscillators\",\"journal-title\":\"Physical Review\"}");
+        params.put(Notification.Param.EVENT_METADATA,
+                "{\"id\":\"http://example.org/fcrepo/rest/events/a1/b2/c3/d4/a1b2c3d4\"," +
+                "\"comment\":\"Please review by Friday\",\"eventType\":\"approval-requested-newuser\"}");
+        params.put(Notification.Param.LINKS,
+                "[{\"rel\":\"submission-review-invite\",\"href\":\"https://pass.example.org/app/submissions/" +
+                "e5f6a7b8?userToken=ABCDEFGH\"}]");
+        notification.setParameters(params);
+        return notification;
+    }
+
+}
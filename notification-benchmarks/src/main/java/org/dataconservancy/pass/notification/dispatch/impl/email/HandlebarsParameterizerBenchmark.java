@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dataconservancy.pass.model.SubmissionEvent;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.model.config.NotificationConfig;
+import org.dataconservancy.pass.notification.model.config.template.NotificationTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the rendering of a single deployed template by {@link HandlebarsParameterizer}, including the conversion
+ * of the notification's JSON parameters to a model and the compilation of the template.  Run with {@code -prof gc}
+ * to report {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HandlebarsParameterizerBenchmark {
+
+    @Param({"APPROVAL_REQUESTED_NEWUSER", "APPROVAL_REQUESTED", "SUBMITTED"})
+    public SubmissionEvent.EventType eventType;
+
+    @Param({"SUBJECT", "BODY", "FOOTER"})
+    public NotificationTemplate.Name template;
+
+    private HandlebarsParameterizer parameterizer;
+
+    private Map<Notification.Param, String> parameters;
+
+    private byte[] templateBytes;
+
+    @Setup
+    public void setUp() {
+        parameterizer = new HandlebarsParameterizer(EmailDispatchFixture.handlebars(), new ObjectMapper());
+
+        NotificationConfig config = EmailDispatchFixture.config(EmailDispatchFixture.CLASSPATH_TEMPLATES);
+        Notification notification = EmailDispatchFixture.notification(config, eventType, 1);
+        parameters = notification.getParameters();
+        templateBytes = EmailDispatchFixture.template(
+                EmailDispatchFixture.templateName(notification.getType(), template))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String parameterize() {
+        return parameterizer.parameterize(template, parameters, new ByteArrayInputStream(templateBytes));
+    }
+
+}
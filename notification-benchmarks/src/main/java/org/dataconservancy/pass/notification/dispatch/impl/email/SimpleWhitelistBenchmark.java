@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.notification.model.config.RecipientConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the filtering of recipients by {@link SimpleWhitelist}.  An empty whitelist, as used in production,
+ * admits every recipient; otherwise half of the recipients are whitelisted, with addresses that differ from the
+ * whitelist only in case.  With {@code patterns}, a tenth of the whitelist is instead domain wildcards, plus one
+ * regular expression that no recipient matches, so that every recipient not whitelisted by address is also tested
+ * against both.  Run with {@code -prof gc} to report {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimpleWhitelistBenchmark {
+
+    @Param({"0", "10", "1000"})
+    public int whitelist;
+
+    @Param({"1", "50"})
+    public int recipients;
+
+    @Param({"false", "true"})
+    public boolean patterns;
+
+    private SimpleWhitelist underTest;
+
+    private Collection<String> candidates;
+
+    @Setup
+    public void setUp() {
+        List<String> entries = new ArrayList<>(whitelist);
+        for (int i = 0; i < whitelist; i++) {
+            entries.add(patterns && i % 10 == 9 ? "*@Dept" + i + ".JHU.edu" : "Staff.Member" + i + "@JHU.edu");
+        }
+        if (patterns && whitelist > 0) {
+            entries.add("/visitor[0-9]+@jhu\\.edu/");
+        }
+        RecipientConfig recipientConfig = new RecipientConfig();
+        recipientConfig.setWhitelist(entries);
+        underTest = new SimpleWhitelist(recipientConfig);
+
+        candidates = new ArrayList<>(recipients);
+        for (int i = 0; i < recipients; i++) {
+            int entry = whitelist > 0 ? i * 7919 % whitelist : 0;
+            if (i % 2 != 0 || whitelist == 0) {
+                candidates.add("someone.else" + i + "@example.org");
+            } else if (patterns && entry % 10 == 9) {
+                candidates.add("staff.member@dept" + entry + ".jhu.edu");
+            } else {
+                candidates.add("staff.member" + entry + "@jhu.edu");
+            }
+        }
+    }
+
+    @Benchmark
+    public Collection<String> apply() {
+        return underTest.apply(candidates);
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.dispatch.impl.email;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.model.config.template.NotificationTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the resolution, and reading, of a deployed template by the {@link CompositeResolver} used in production,
+ * for each way a template may be configured: as inline text (which the {@link SpringUriTemplateResolver} declines
+ * before the {@link InlineTemplateResolver} accepts it), as a {@code classpath:} resource, as a {@code file:} URL, and
+ * as a file system path.  Run with {@code -prof gc} to report {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateResolverBenchmark {
+
+    private static final String TEMPLATE = EmailDispatchFixture.templateName(
+            Notification.Type.SUBMISSION_APPROVAL_REQUESTED, NotificationTemplate.Name.BODY);
+
+    @Param({"inline", "classpath", "file", "path"})
+    public String location;
+
+    private CompositeResolver resolver;
+
+    private String template;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        resolver = EmailDispatchFixture.resolver();
+
+        String content = EmailDispatchFixture.template(TEMPLATE);
+        file = Files.createTempFile(TEMPLATE, ".hbr");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+
+        switch (location) {
+            case "inline":
+                template = content;
+                break;
+            case "classpath":
+                template = String.format(EmailDispatchFixture.CLASSPATH_TEMPLATES, TEMPLATE);
+                break;
+            case "file":
+                template = file.toUri().toString();
+                break;
+            case "path":
+                template = file.toString();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown template location '" + location + "'");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public String resolve() throws IOException {
+        try (InputStream in = resolver.resolve(NotificationTemplate.Name.BODY, template)) {
+            return IOUtils.toString(in, "UTF-8");
+        }
+    }
+
+}
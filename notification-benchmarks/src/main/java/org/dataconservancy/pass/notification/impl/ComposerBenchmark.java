@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dataconservancy.pass.model.Submission;
+import org.dataconservancy.pass.model.SubmissionEvent;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.workload.NotificationConfigs;
+import org.dataconservancy.pass.notification.workload.Scenario;
+import org.dataconservancy.pass.notification.workload.WorkloadGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Composer#apply(Submission, SubmissionEvent)}, the composition of a {@link Notification} from a
+ * submission and event, for each type of event.
+ * <p>
+ * The composer is configured as it is in production, with the default recipient analyzer, link analyzer (generating
+ * user tokens for invitations) and link validator.  Run with {@code -prof gc} to report
+ * {@code gc.alloc.rate.norm}, the bytes allocated per composition.
+ * </p>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ComposerBenchmark {
+
+    @Param({"APPROVAL_REQUESTED_NEWUSER", "APPROVAL_REQUESTED", "CHANGES_REQUESTED", "SUBMITTED", "CANCELLED"})
+    public SubmissionEvent.EventType eventType;
+
+    @Param({"1", "50"})
+    public int preparers;
+
+    @Param({"6", "100"})
+    public int authors;
+
+    private Composer composer;
+
+    private Submission submission;
+
+    private SubmissionEvent event;
+
+    @Setup
+    public void setUp() {
+        composer = new Composer(NotificationConfigs.production(), new ObjectMapper());
+
+        Scenario scenario = new WorkloadGenerator(WorkloadGenerator.SEED).scenario(eventType, preparers, authors);
+        submission = scenario.getSubmission();
+        event = scenario.getEvent();
+    }
+
+    @Benchmark
+    public Notification apply() {
+        return composer.apply(submission, event);
+    }
+
+}
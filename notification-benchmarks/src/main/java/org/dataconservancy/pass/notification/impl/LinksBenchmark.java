@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.notification.model.Link;
+import org.dataconservancy.pass.notification.workload.NotificationConfigs;
+import org.dataconservancy.pass.notification.workload.WorkloadGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the validation of links by {@link LinkValidator}, and their serialization to the {@code LINKS} parameter
+ * by {@link Links#serialized()}.  A notification normally carries a single link; larger counts show how the costs
+ * scale.  Run with {@code -prof gc} to report {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LinksBenchmark {
+
+    @Param({"1", "16"})
+    public int links;
+
+    private LinkValidator validator;
+
+    private List<Link> toProcess;
+
+    @Setup
+    public void setUp() {
+        validator = new LinkValidator(NotificationConfigs.production());
+        toProcess = new WorkloadGenerator(WorkloadGenerator.SEED).links(links);
+    }
+
+    @Benchmark
+    public void validate(Blackhole blackhole) {
+        for (Link link : toProcess) {
+            blackhole.consume(validator.test(link));
+        }
+    }
+
+    @Benchmark
+    public String serialize() {
+        return toProcess.stream().collect(Links.serialized());
+    }
+
+    /**
+     * Validation and serialization as performed by the {@code Composer}.
+     */
+    @Benchmark
+    public String validateAndSerialize() {
+        return toProcess.stream().filter(validator).collect(Links.serialized());
+    }
+
+}
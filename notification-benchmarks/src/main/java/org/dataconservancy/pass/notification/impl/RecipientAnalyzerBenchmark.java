@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.model.Submission;
+import org.dataconservancy.pass.model.SubmissionEvent;
+import org.dataconservancy.pass.notification.workload.Scenario;
+import org.dataconservancy.pass.notification.workload.WorkloadGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the resolution of recipients by {@link RecipientAnalyzer}, which for some types of event is proportional
+ * to the number of preparers of the submission.  Run with {@code -prof gc} to report {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipientAnalyzerBenchmark {
+
+    @Param({"APPROVAL_REQUESTED", "CHANGES_REQUESTED", "CANCELLED"})
+    public SubmissionEvent.EventType eventType;
+
+    @Param({"1", "10", "100"})
+    public int preparers;
+
+    private RecipientAnalyzer analyzer;
+
+    private Submission submission;
+
+    private SubmissionEvent event;
+
+    @Setup
+    public void setUp() {
+        analyzer = new RecipientAnalyzer();
+
+        Scenario scenario = new WorkloadGenerator(WorkloadGenerator.SEED).scenario(eventType, preparers, 6);
+        submission = scenario.getSubmission();
+        event = scenario.getEvent();
+    }
+
+    @Benchmark
+    public Collection<String> apply() {
+        return analyzer.apply(submission, event);
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.model.Submission;
+import org.dataconservancy.pass.model.SubmissionEvent;
+import org.dataconservancy.pass.notification.workload.NotificationConfigs;
+import org.dataconservancy.pass.notification.workload.Scenario;
+import org.dataconservancy.pass.notification.workload.WorkloadGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the analysis of submission links by {@link SubmissionLinkAnalyzer}.  For
+ * {@code APPROVAL_REQUESTED_NEWUSER} events this includes the encryption of a user token by
+ * {@link UserTokenGenerator}; other types of event only wrap the event's link.  Run with {@code -prof gc} to report
+ * {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubmissionLinkAnalyzerBenchmark {
+
+    @Param({"APPROVAL_REQUESTED_NEWUSER", "APPROVAL_REQUESTED", "SUBMITTED"})
+    public SubmissionEvent.EventType eventType;
+
+    private SubmissionLinkAnalyzer analyzer;
+
+    private Submission submission;
+
+    private SubmissionEvent event;
+
+    @Setup
+    public void setUp() {
+        analyzer = new SubmissionLinkAnalyzer(new UserTokenGenerator(NotificationConfigs.production()));
+
+        Scenario scenario = new WorkloadGenerator(WorkloadGenerator.SEED).scenario(eventType, 1, 6);
+        submission = scenario.getSubmission();
+        event = scenario.getEvent();
+    }
+
+    @Benchmark
+    public void apply(Blackhole blackhole) {
+        analyzer.apply(submission, event).forEach(blackhole::consume);
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.app.config;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.dataconservancy.pass.notification.support.resilience.CircuitBreaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
+import org.springframework.jms.listener.MessageListenerContainer;
+
+/**
+ * Pauses JMS message consumption while any {@link CircuitBreaker} is open.
+ * <p>
+ * When a breaker opens, running listener containers are stopped, leaving undelivered messages in the broker.  When
+ * no breaker remains open (that is, each breaker has half-opened or closed), the containers stopped by this class are
+ * started again; containers that were stopped for other reasons are left alone.  Messages consumed while a breaker is
+ * half-open provide the breaker's trial call.
+ * </p>
+ */
+public class CircuitBreakerListenerControl implements CircuitBreaker.Listener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreakerListenerControl.class);
+
+    private final JmsListenerEndpointRegistry registry;
+
+    private final Set<String> openBreakers = new HashSet<>();
+
+    private final List<MessageListenerContainer> paused = new ArrayList<>();
+
+    public CircuitBreakerListenerControl(JmsListenerEndpointRegistry registry) {
+        this.registry = Objects.requireNonNull(registry, "JmsListenerEndpointRegistry must not be null.");
+    }
+
+    @Override
+    public synchronized void onStateChange(CircuitBreaker breaker, CircuitBreaker.State from,
+                                           CircuitBreaker.State to) {
+        if (to == CircuitBreaker.State.OPEN) {
+            openBreakers.add(breaker.getName());
+            if (paused.isEmpty()) {
+                pause(breaker.getName());
+            }
+        } else {
+            openBreakers.remove(breaker.getName());
+            if (openBreakers.isEmpty() && !paused.isEmpty()) {
+                resume(breaker.getName());
+            }
+        }
+    }
+
+    synchronized boolean isPaused() {
+        return !paused.isEmpty();
+    }
+
+    private void pause(String breaker) {
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            if (container.isRunning()) {
+                container.stop();
+                paused.add(container);
+            }
+        }
+        LOG.warn("Paused {} JMS listener container(s): circuit breaker for '{}' is open", paused.size(), breaker);
+    }
+
+    private void resume(String breaker) {
+        LOG.info("Resuming {} JMS listener container(s): circuit breaker for '{}' is no longer open", paused.size(),
+                breaker);
+        paused.forEach(MessageListenerContainer::start);
+        paused.clear();
+    }
+
+}
@@ -18,24 +18,47 @@
 
 package org.dataconservancy.pass.notification.app.config;
 
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import javax.jms.ConnectionFactory;
 import javax.jms.JMSException;
 import javax.jms.Session;
 
+import org.apache.activemq.ActiveMQSession;
+import org.apache.activemq.RedeliveryPolicy;
 import org.dataconservancy.pass.notification.impl.NotificationService;
 import org.dataconservancy.pass.notification.impl.NotificationServiceErrorHandler;
+import org.dataconservancy.pass.notification.impl.SubmissionCache;
 import org.dataconservancy.pass.notification.model.config.Mode;
 import org.dataconservancy.pass.notification.model.config.NotificationConfig;
+import org.dataconservancy.pass.notification.support.jfr.PipelineEvent;
+import org.dataconservancy.pass.notification.support.jfr.PipelineEvents;
+import org.dataconservancy.pass.notification.support.metrics.EndToEndLatency;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Outcome;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Stage;
+import org.dataconservancy.pass.notification.support.resilience.CircuitBreaker;
+import org.dataconservancy.pass.notification.support.resilience.LimitExceededException;
 import org.dataconservancy.pass.support.messaging.constants.Constants;
 import org.dataconservancy.pass.support.messaging.json.JsonParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jms.activemq.ActiveMQConnectionFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.jms.annotation.EnableJms;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
 import org.springframework.jms.support.JmsHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.handler.annotation.Header;
@@ -47,6 +70,25 @@ import org.springframework.messaging.handler.annotation.Header;
  * If {@link Mode} is equal to {@link Mode#DISABLED}, then Notification Services will drain any JMS messages in the
  * queue, and acknowledge (and immediately discard) any new messages it receives.
  * </p>
+ * <p>
+ * Modification and deletion messages for {@code Submission} resources are used to invalidate the
+ * {@link SubmissionCache}, and are otherwise discarded.
+ * </p>
+ * <p>
+ * Messages whose processing was refused by a circuit breaker or concurrency limit are not acknowledged, and will be
+ * redelivered.  While a circuit breaker is open, consumption of messages is paused.  Redelivery follows the
+ * {@link #redeliveryPolicy(int, long, long) redelivery policy}, whose delay grows exponentially, rather than ActiveMQ's
+ * default of six immediate redeliveries, after which a refused message would be moved to the dead letter queue.
+ * </p>
+ * <p>
+ * If {@code pass.notification.dispatch.async} is {@code true}, notifications are dispatched with
+ * {@link NotificationService#notifyAsync(String)}, and each message is acknowledged individually once its notification
+ * has been dispatched, so that a listener thread may have many notifications in flight.  Messages are then consumed
+ * in ActiveMQ's {@link ActiveMQSession#INDIVIDUAL_ACKNOWLEDGE individual acknowledgement} mode, in which
+ * acknowledging one message does not acknowledge those received before it.  Because the broker only redelivers
+ * unacknowledged messages when their consumer is closed, a refused notification is instead retried after
+ * {@code pass.notification.dispatch.retry} milliseconds, and its message acknowledged once it has been dispatched.
+ * </p>
  *
  * @author Elliot Metsger (emetsger@jhu.edu)
  */
@@ -55,6 +97,11 @@ public class JmsConfig {
 
     private static final Logger LOG = LoggerFactory.getLogger(JmsConfig.class);
 
+    /**
+     * Fedora's timestamp of the operation described by a message, in milliseconds since the epoch
+     */
+    static final String FCREPO_TIMESTAMP = "org.fcrepo.jms.timestamp";
+
     @Autowired
     private JsonParser jsonParser;
 
@@ -64,6 +111,26 @@ public class JmsConfig {
     @Autowired
     private NotificationConfig config;
 
+    @Autowired
+    private SubmissionCache submissionCache;
+
+    @Autowired
+    private StageMetrics metrics;
+
+    @Autowired
+    private EndToEndLatency latency;
+
+    @Autowired
+    private NotificationServiceErrorHandler errorHandler;
+
+    @Value("${pass.notification.dispatch.async}")
+    private boolean asyncDispatch;
+
+    @Value("${pass.notification.dispatch.retry}")
+    private long asyncRetryMs;
+
+    private ScheduledExecutorService retryScheduler;
+
     @Bean
     public DefaultJmsListenerContainerFactory jmsListenerContainerFactory(
             @Value("${spring.jms.listener.concurrency}")
@@ -73,7 +140,8 @@ public class JmsConfig {
             ConnectionFactory connectionFactory,
             NotificationServiceErrorHandler errorHandler) {
         DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
-        factory.setSessionAcknowledgeMode(Session.CLIENT_ACKNOWLEDGE);
+        factory.setSessionAcknowledgeMode(asyncDispatch ? ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE :
+                Session.CLIENT_ACKNOWLEDGE);
         factory.setErrorHandler(errorHandler);
         factory.setConcurrency(concurrency);
         factory.setConnectionFactory(connectionFactory);
@@ -81,55 +149,239 @@ public class JmsConfig {
         return factory;
     }
 
+    /**
+     * Redelivers messages that were not acknowledged, such as those whose processing was refused, after a delay that
+     * doubles with each redelivery from {@code pass.notification.redelivery.initial} up to
+     * {@code pass.notification.redelivery.max} milliseconds.  A message is moved to the broker's dead letter queue once
+     * it has been redelivered {@code pass.notification.redelivery.attempts} times; by default, {@code -1}, it never is,
+     * so that messages refused during a long outage of a dependency are not lost.
+     *
+     * @param attempts the number of times a message is redelivered, or {@code -1} for no limit
+     * @param initialMs the delay, in milliseconds, before a message is first redelivered
+     * @param maxMs the maximum delay, in milliseconds, between redeliveries
+     * @return customizes the connection factory created by Spring Boot
+     */
+    @Bean
+    public ActiveMQConnectionFactoryCustomizer redeliveryPolicy(
+            @Value("${pass.notification.redelivery.attempts}") int attempts,
+            @Value("${pass.notification.redelivery.initial}") long initialMs,
+            @Value("${pass.notification.redelivery.max}") long maxMs) {
+        return connectionFactory -> {
+            RedeliveryPolicy policy = connectionFactory.getRedeliveryPolicy();
+            policy.setMaximumRedeliveries(attempts);
+            policy.setInitialRedeliveryDelay(initialMs);
+            policy.setRedeliveryDelay(initialMs);
+            policy.setUseExponentialBackOff(true);
+            policy.setBackOffMultiplier(2);
+            policy.setMaximumRedeliveryDelay(maxMs);
+        };
+    }
+
     @JmsListener(destination = "${pass.notification.queue.event.name}", containerFactory =
         "jmsListenerContainerFactory")
     public void processMessage(@Header(Constants.JmsFcrepoHeader.FCREPO_RESOURCE_TYPE) String resourceType,
                                          @Header(Constants.JmsFcrepoHeader.FCREPO_EVENT_TYPE) String eventType,
                                          @Header(JmsHeaders.MESSAGE_ID) String id,
+                                         @Header(name = FCREPO_TIMESTAMP, required = false) Long fcrepoTimestamp,
                                          Message<String> message,
                                          javax.jms.Message jmsMessage) {
 
         LOG.trace("Receiving message: {}", id);
 
+        long start = metrics.start();
+        PipelineEvent event = PipelineEvents.begin(PipelineEvents.Kind.RECEIVE);
+        CompletionStage<Outcome> outcome;
+        latency.begin(origin(fcrepoTimestamp, jmsMessage));
+        try {
+            outcome = receive(resourceType, eventType, id, message, jmsMessage, event);
+        } catch (RuntimeException e) {
+            metrics.record(Stage.RECEIVE, null, StageMetrics.outcomeOf(e), start);
+            event.end(StageMetrics.outcomeOf(e));
+            throw e;
+        } finally {
+            latency.end();
+        }
+
+        // Completes on this thread unless the notification is dispatched asynchronously
+        outcome.thenAccept(o -> {
+            metrics.record(Stage.RECEIVE, null, o, start);
+            event.end(o);
+        });
+    }
+
+    /**
+     * The origin of a message is the time the repository performed the operation it describes, or if the repository
+     * did not supply that, the time the message was sent.
+     *
+     * @return the origin, in milliseconds since the epoch, or zero if unknown
+     */
+    private static long origin(Long fcrepoTimestamp, javax.jms.Message jmsMessage) {
+        if (fcrepoTimestamp != null && fcrepoTimestamp > 0) {
+            return fcrepoTimestamp;
+        }
+        try {
+            return jmsMessage.getJMSTimestamp();
+        } catch (JMSException e) {
+            return 0;
+        }
+    }
+
+    private CompletionStage<Outcome> receive(String resourceType, String eventType, String id,
+                                             Message<String> message, javax.jms.Message jmsMessage,
+                                             PipelineEvent event) {
         if (Mode.DISABLED == config.getMode()) {
+            LOG.trace("Discarding message {}, mode is {}", id, config.getMode());
+            acknowledge(id, jmsMessage);
+            return CompletableFuture.completedFuture(Outcome.DISCARDED);
+        }
+
+        if (isSubmission(resourceType) && (eventType.contains(Constants.JmsFcrepoEvent.RESOURCE_MODIFICATION) ||
+                eventType.contains(Constants.JmsFcrepoEvent.RESOURCE_DELETION))) {
             try {
-                LOG.trace("Discarding message {}, mode is {}", id, config.getMode());
-                jmsMessage.acknowledge();
-            } catch (JMSException e) {
-                LOG.warn("Error acknowledging JMS message {}: {}", id, e.getMessage(), e);
+                String submissionUri = jsonParser.parseId(message.getPayload().getBytes());
+                LOG.trace("Invalidating cached Submission {}, message {}, event type {}", submissionUri, id,
+                        eventType);
+                submissionCache.invalidate(URI.create(submissionUri));
+            } finally {
+                acknowledge(id, jmsMessage);
             }
-            return;
+            return CompletableFuture.completedFuture(Outcome.DISCARDED);
         }
 
         if (!resourceType.contains(Constants.PassType.SUBMISSION_EVENT_RESOURCE) ||
                 !eventType.contains(Constants.JmsFcrepoEvent.RESOURCE_CREATION)) {
-            try {
-                LOG.trace("Discarding message {}, resource type {}, event type {}", id,
-                        resourceType, eventType);
-                jmsMessage.acknowledge();
-            } catch (JMSException e) {
-                LOG.warn("Error acknowledging JMS message {}: {}", id, e.getMessage(), e);
-            }
-            return;
+            LOG.trace("Discarding message {}, resource type {}, event type {}", id,
+                    resourceType, eventType);
+            acknowledge(id, jmsMessage);
+            return CompletableFuture.completedFuture(Outcome.DISCARDED);
         }
 
         LOG.trace("Processing message {}, resource type {}, event type {}", id,
                 resourceType, eventType);
 
         String eventUri = jsonParser.parseId(message.getPayload().getBytes());
+        event.eventUri(eventUri);
 
         LOG.trace("Processing notification for {}", eventUri);
 
+        if (asyncDispatch) {
+            CompletableFuture<Outcome> outcome = new CompletableFuture<>();
+            notifyAsync(id, eventUri, jmsMessage, latency.origin(), outcome);
+            return outcome;
+        }
+
+        boolean refused = false;
         try {
             notificationService.notify(eventUri);
+        } catch (RuntimeException e) {
+            // A dependency was not called at all; leave the message unacknowledged so the broker redelivers it
+            refused = LimitExceededException.isRefusal(e);
+            throw e;
         } finally {
-            try {
+            if (refused) {
+                LOG.debug("Not acknowledging message {}, processing {} was refused", id, eventUri);
+            } else {
                 // todo: maybe retry in the case of a transient email failure, otherwise we loose the message
-                jmsMessage.acknowledge();
-            } catch (JMSException e) {
-                LOG.warn("Error acknowledging JMS message {}: {}", id, e.getMessage(), e);
+                acknowledge(id, jmsMessage);
             }
         }
+
+        return CompletableFuture.completedFuture(Outcome.SUCCESS);
+    }
+
+    /**
+     * Dispatches the notification for an event asynchronously, acknowledging its message once dispatch completes.  A
+     * refused dispatch is retried, with the origin of the message restored on the retrying thread.
+     *
+     * @param outcome completed with the outcome of processing the message, once it has been acknowledged
+     */
+    private void notifyAsync(String id, String eventUri, javax.jms.Message jmsMessage, long originMs,
+                             CompletableFuture<Outcome> outcome) {
+        notificationService.notifyAsync(eventUri).whenComplete((ignored, failure) -> {
+            if (failure == null) {
+                acknowledge(id, jmsMessage);
+                outcome.complete(Outcome.SUCCESS);
+                return;
+            }
+
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ?
+                    failure.getCause() : failure;
+            if (LimitExceededException.isRefusal(cause)) {
+                LOG.debug("Processing {} for message {} was refused, retrying in {} ms", eventUri, id,
+                        asyncRetryMs);
+                retryScheduler().schedule(() -> {
+                    latency.begin(originMs);
+                    try {
+                        notifyAsync(id, eventUri, jmsMessage, originMs, outcome);
+                    } finally {
+                        latency.end();
+                    }
+                }, asyncRetryMs, TimeUnit.MILLISECONDS);
+                return;
+            }
+
+            // As when processing synchronously, failures other than refusals are acknowledged
+            errorHandler.handleError(cause);
+            acknowledge(id, jmsMessage);
+            outcome.complete(StageMetrics.outcomeOf(cause));
+        });
+    }
+
+    private synchronized ScheduledExecutorService retryScheduler() {
+        if (retryScheduler == null) {
+            retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "dispatch-retry");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return retryScheduler;
+    }
+
+    private void acknowledge(String id, javax.jms.Message jmsMessage) {
+        long start = metrics.start();
+        try {
+            jmsMessage.acknowledge();
+            metrics.record(Stage.ACK, null, Outcome.SUCCESS, start);
+        } catch (JMSException e) {
+            metrics.record(Stage.ACK, null, Outcome.FAILURE, start);
+            LOG.warn("Error acknowledging JMS message {}: {}", id, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stops the JMS listener containers while a circuit breaker is open, so that messages remain queued in the broker
+     * rather than being consumed and refused.  When email is sent through the outbox, messages do not wait on the SMTP
+     * relay, so consumption continues while its breaker is open.
+     *
+     * @param registry the registry of listener containers
+     * @param breakers the circuit breakers protecting dependencies
+     * @param outboxEnabled whether email is sent through the outbox
+     * @return the listener pausing consumption
+     */
+    @Bean
+    public CircuitBreakerListenerControl circuitBreakerListenerControl(JmsListenerEndpointRegistry registry,
+                                                                       List<CircuitBreaker> breakers,
+                                                                       @Value("${pass.notification.outbox.enabled}")
+                                                                       boolean outboxEnabled) {
+        CircuitBreakerListenerControl control = new CircuitBreakerListenerControl(registry);
+        breakers.stream()
+                .filter(breaker -> !(outboxEnabled && "smtp".equals(breaker.getName())))
+                .forEach(breaker -> breaker.addListener(control));
+        return control;
+    }
+
+    /**
+     * The resource type header is a comma-separated list of types.  The {@code SubmissionEvent} type URI shares the
+     * {@code Submission} type URI as a prefix, so each type is compared exactly.
+     *
+     * @param resourceType the value of the resource type header
+     * @return true if the resource is a {@code Submission}
+     */
+    private static boolean isSubmission(String resourceType) {
+        return Arrays.stream(resourceType.split(","))
+                .map(String::trim)
+                .anyMatch(Constants.PassType.SUBMISSION_RESOURCE::equals);
     }
 
 }
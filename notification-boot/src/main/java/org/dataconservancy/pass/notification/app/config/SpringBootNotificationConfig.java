@@ -15,27 +15,58 @@
  */
 package org.dataconservancy.pass.notification.app.config;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.github.jknack.handlebars.EscapingStrategy;
 import com.github.jknack.handlebars.Handlebars;
 import com.github.jknack.handlebars.helper.ConditionalHelpers;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.io.IOUtils;
 import org.dataconservancy.pass.client.PassClient;
 import org.dataconservancy.pass.client.PassClientDefault;
+import org.dataconservancy.pass.client.adapter.PassJsonAdapterBasic;
 import org.dataconservancy.pass.notification.dispatch.DispatchService;
+import org.dataconservancy.pass.notification.dispatch.impl.email.CircuitBreakingMailSender;
 import org.dataconservancy.pass.notification.dispatch.impl.email.CompositeResolver;
+import org.dataconservancy.pass.notification.dispatch.impl.email.ConcurrencyLimitedMailSender;
+import org.dataconservancy.pass.notification.dispatch.impl.email.DigestComposer;
+import org.dataconservancy.pass.notification.dispatch.impl.email.DigestMailSender;
 import org.dataconservancy.pass.notification.dispatch.impl.email.EmailComposer;
 import org.dataconservancy.pass.notification.dispatch.impl.email.EmailDispatchImpl;
+import org.dataconservancy.pass.notification.dispatch.impl.email.ExecutorMailSender;
 import org.dataconservancy.pass.notification.dispatch.impl.email.HandlebarsParameterizer;
 import org.dataconservancy.pass.notification.dispatch.impl.email.InlineTemplateResolver;
+import org.dataconservancy.pass.notification.dispatch.impl.email.LoadBalancingMailSender;
+import org.dataconservancy.pass.notification.dispatch.impl.email.MailFailures;
+import org.dataconservancy.pass.notification.dispatch.impl.email.MailSender;
+import org.dataconservancy.pass.notification.dispatch.impl.email.Outbox;
 import org.dataconservancy.pass.notification.dispatch.impl.email.Parameterizer;
+import org.dataconservancy.pass.notification.dispatch.impl.email.RateLimitedMailSender;
 import org.dataconservancy.pass.notification.dispatch.impl.email.SimpleWhitelist;
+import org.dataconservancy.pass.notification.dispatch.impl.email.SmtpMailSender;
 import org.dataconservancy.pass.notification.dispatch.impl.email.SpringUriTemplateResolver;
 import org.dataconservancy.pass.notification.dispatch.impl.email.TemplateParameterizer;
 import org.dataconservancy.pass.notification.dispatch.impl.email.TemplateResolver;
@@ -43,19 +74,42 @@ import org.dataconservancy.pass.notification.impl.Composer;
 import org.dataconservancy.pass.notification.impl.DefaultNotificationService;
 import org.dataconservancy.pass.notification.impl.LinkValidator;
 import org.dataconservancy.pass.notification.impl.RecipientAnalyzer;
+import org.dataconservancy.pass.notification.impl.SubmissionCache;
 import org.dataconservancy.pass.notification.impl.SubmissionLinkAnalyzer;
 import org.dataconservancy.pass.notification.impl.UserTokenGenerator;
+import org.dataconservancy.pass.notification.impl.client.CircuitBreakingPassClient;
+import org.dataconservancy.pass.notification.impl.client.ConcurrencyLimitedPassClient;
+import org.dataconservancy.pass.notification.impl.client.ConditionalGetPassClient;
+import org.dataconservancy.pass.notification.impl.client.FlightRecordingPassClient;
+import org.dataconservancy.pass.notification.impl.client.HedgingPassClient;
+import org.dataconservancy.pass.notification.impl.client.NotFoundCachingPassClient;
+import org.dataconservancy.pass.notification.impl.client.ProjectionJsonAdapter;
+import org.dataconservancy.pass.notification.model.Notification;
 import org.dataconservancy.pass.notification.model.config.Mode;
 import org.dataconservancy.pass.notification.model.config.NotificationConfig;
 import org.dataconservancy.pass.notification.model.config.RecipientConfig;
 import org.dataconservancy.pass.notification.model.config.smtp.SmtpServerConfig;
+import org.dataconservancy.pass.notification.model.config.template.NotificationTemplate;
+import org.dataconservancy.pass.notification.support.jfr.PipelineEvents;
+import org.dataconservancy.pass.notification.support.journal.Journal;
+import org.dataconservancy.pass.notification.support.metrics.EndToEndLatency;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics;
+import org.dataconservancy.pass.notification.support.resilience.CircuitBreaker;
+import org.dataconservancy.pass.notification.support.resilience.ConcurrencyLimiter;
+import org.dataconservancy.pass.notification.support.resilience.Hedger;
+import org.dataconservancy.pass.notification.support.resilience.LoadBalancer;
+import org.dataconservancy.pass.notification.support.resilience.RateLimiter;
+import org.fcrepo.client.FcrepoClient;
 import org.simplejavamail.mailer.Mailer;
 import org.simplejavamail.mailer.MailerBuilder;
 import org.simplejavamail.mailer.config.TransportStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
@@ -96,6 +150,147 @@ public class SpringBootNotificationConfig {
     @Value("${pass.notification.mailer.debug}")
     private boolean mailerDebug;
 
+    @Value("${pass.notification.cache.submission.ttl}")
+    private long submissionCacheTtl;
+
+    @Value("${pass.notification.cache.etag.size}")
+    private int etagCacheSize;
+
+    @Value("${pass.notification.cache.notfound.ttl}")
+    private long notFoundCacheTtl;
+
+    @Value("${pass.notification.limit.fedora.max}")
+    private int fedoraLimitMax;
+
+    @Value("${pass.notification.limit.fedora.latency}")
+    private long fedoraLimitLatency;
+
+    @Value("${pass.notification.limit.fedora.queue}")
+    private int fedoraLimitQueue;
+
+    @Value("${pass.notification.limit.fedora.wait}")
+    private long fedoraLimitWait;
+
+    @Value("${pass.notification.limit.smtp.max}")
+    private int smtpLimitMax;
+
+    @Value("${pass.notification.limit.smtp.latency}")
+    private long smtpLimitLatency;
+
+    @Value("${pass.notification.limit.smtp.queue}")
+    private int smtpLimitQueue;
+
+    @Value("${pass.notification.limit.smtp.wait}")
+    private long smtpLimitWait;
+
+    @Value("${pass.notification.breaker.fedora.failures}")
+    private int fedoraBreakerFailures;
+
+    @Value("${pass.notification.breaker.fedora.open}")
+    private long fedoraBreakerOpen;
+
+    @Value("${pass.notification.breaker.smtp.failures}")
+    private int smtpBreakerFailures;
+
+    @Value("${pass.notification.breaker.smtp.open}")
+    private long smtpBreakerOpen;
+
+    @Value("${pass.notification.balancer.smtp.failures}")
+    private int smtpBalancerFailures;
+
+    @Value("${pass.notification.balancer.smtp.eject}")
+    private long smtpBalancerEject;
+
+    @Value("${pass.notification.balancer.smtp.eject.max}")
+    private long smtpBalancerEjectMax;
+
+    @Value("${pass.notification.ratelimit.smtp.rate}")
+    private double smtpRateLimit;
+
+    @Value("${pass.notification.ratelimit.smtp.burst}")
+    private int smtpRateBurst;
+
+    @Value("${pass.notification.ratelimit.domain.rate}")
+    private double domainRateLimit;
+
+    @Value("${pass.notification.ratelimit.domain.burst}")
+    private int domainRateBurst;
+
+    @Value("${pass.notification.ratelimit.wait}")
+    private long rateLimitWait;
+
+    @Value("${pass.notification.digest.enabled}")
+    private boolean digestEnabled;
+
+    @Value("${pass.notification.digest.types}")
+    private String[] digestTypes;
+
+    @Value("${pass.notification.digest.window}")
+    private long digestWindow;
+
+    @Value("${pass.notification.digest.max}")
+    private int digestMax;
+
+    @Value("${pass.notification.digest.retry}")
+    private long digestRetry;
+
+    @Value("${pass.notification.digest.attempts}")
+    private int digestAttempts;
+
+    @Value("${pass.notification.digest.stripes}")
+    private int digestStripes;
+
+    @Value("${pass.notification.digest.dir}")
+    private String digestDir;
+
+    @Value("${pass.notification.digest.subject}")
+    private String digestSubject;
+
+    @Value("${pass.notification.digest.body}")
+    private String digestBody;
+
+    @Value("${pass.notification.hedge.budget}")
+    private double hedgeBudget;
+
+    @Value("${pass.notification.hedge.threads}")
+    private int hedgeThreads;
+
+    @Value("${pass.notification.metrics.stages}")
+    private boolean stageMetricsEnabled;
+
+    @Value("${pass.notification.metrics.latency.window}")
+    private long latencyWindow;
+
+    @Value("${pass.notification.outbox.dir}")
+    private String outboxDir;
+
+    @Value("${pass.notification.outbox.segment.size}")
+    private int outboxSegmentSize;
+
+    @Value("${pass.notification.outbox.sync}")
+    private boolean outboxSync;
+
+    @Value("${pass.notification.outbox.senders}")
+    private int outboxSenders;
+
+    @Value("${pass.notification.outbox.capacity}")
+    private int outboxCapacity;
+
+    @Value("${pass.notification.outbox.retry.initial}")
+    private long outboxRetryInitial;
+
+    @Value("${pass.notification.outbox.retry.max}")
+    private long outboxRetryMax;
+
+    @Value("${pass.notification.outbox.attempts}")
+    private int outboxAttempts;
+
+    @Value("${pass.notification.dispatch.async}")
+    private boolean asyncDispatch;
+
+    @Value("${pass.notification.dispatch.threads}")
+    private int dispatchThreads;
+
     @Bean
     @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public ObjectMapper objectMapper() {
@@ -125,7 +320,9 @@ public class SpringBootNotificationConfig {
     }
 
     @Bean
-    public PassClientDefault passClient() {
+    public PassClient passClient(MeterRegistry meterRegistry,
+                                 @Qualifier("fedoraCircuitBreaker") CircuitBreaker fedoraCircuitBreaker,
+                                 @Qualifier("hedgeExecutor") ExecutorService hedgeExecutor) {
 
         // PassClientDefault can't be injected with configuration; requires system properties be set.
         // If a system property is already set, allow it to override what is resolved by the Spring environment.
@@ -153,7 +350,41 @@ public class SpringBootNotificationConfig {
             System.setProperty("http.agent", passHttpAgent);
         }
 
-        return new PassClientDefault();
+        PassClient passClient = new PassClientDefault();
+
+        if (etagCacheSize > 0) {
+            FcrepoClient fcrepoClient = FcrepoClient.client()
+                    .credentials(System.getProperty("pass.fedora.user"), System.getProperty("pass.fedora.password"))
+                    .build();
+            passClient = new ConditionalGetPassClient(passClient, fcrepoClient,
+                    new ProjectionJsonAdapter(new PassJsonAdapterBasic()), etagCacheSize);
+        }
+
+        if (fedoraLimitMax > 0) {
+            passClient = new ConcurrencyLimitedPassClient(passClient, new ConcurrencyLimiter("fedora", 1,
+                    fedoraLimitMax, fedoraLimitLatency, fedoraLimitQueue, fedoraLimitWait,
+                    CircuitBreakingPassClient::isRepositoryFailure, meterRegistry));
+        }
+
+        if (hedgeBudget > 0) {
+            passClient = new HedgingPassClient(passClient,
+                    new Hedger("fedora", hedgeBudget, hedgeExecutor, meterRegistry));
+        }
+
+        if (fedoraBreakerFailures > 0) {
+            passClient = new CircuitBreakingPassClient(passClient, fedoraCircuitBreaker);
+        }
+
+        if (notFoundCacheTtl > 0) {
+            passClient = new NotFoundCachingPassClient(passClient, notFoundCacheTtl, meterRegistry);
+        }
+
+        // Outermost, so that recorded reads include time spent waiting on the limiter and hedged reads
+        if (PipelineEvents.isAvailable()) {
+            passClient = new FlightRecordingPassClient(passClient);
+        }
+
+        return passClient;
     }
 
     @Bean
@@ -164,15 +395,201 @@ public class SpringBootNotificationConfig {
     @Bean
     public Parameterizer parameterizer(NotificationConfig config,
                                        TemplateResolver compositeResolver,
-                                       TemplateParameterizer templateParameterizer) {
-        return new Parameterizer(config, compositeResolver, templateParameterizer);
+                                       TemplateParameterizer templateParameterizer,
+                                       StageMetrics stageMetrics) {
+        return new Parameterizer(config, compositeResolver, templateParameterizer, stageMetrics);
     }
 
     @Bean
     public EmailDispatchImpl emailDispatchService(Parameterizer parameterizer,
-                                                  Mailer mailer,
-                                                  EmailComposer emailComposer) {
-        return new EmailDispatchImpl(parameterizer, mailer, emailComposer);
+                                                  MailSender mailSender,
+                                                  ObjectProvider<Outbox> outbox,
+                                                  EmailComposer emailComposer,
+                                                  StageMetrics stageMetrics,
+                                                  EndToEndLatency endToEndLatency,
+                                                  @Qualifier("mailSenderExecutor") ExecutorService mailSenderExecutor) {
+        Outbox enabledOutbox = outbox.getIfAvailable();
+        if (enabledOutbox != null) {
+            return new EmailDispatchImpl(parameterizer, enabledOutbox, emailComposer, stageMetrics, endToEndLatency);
+        }
+        if (asyncDispatch) {
+            return new EmailDispatchImpl(parameterizer, mailSender,
+                    new ExecutorMailSender(mailSender, mailSenderExecutor), emailComposer, stageMetrics,
+                    endToEndLatency);
+        }
+        return new EmailDispatchImpl(parameterizer, mailSender, emailComposer, stageMetrics, endToEndLatency);
+    }
+
+    /**
+     * Holds composed emails in a journal under {@code pass.notification.outbox.dir} until they have been sent, so that
+     * JMS messages are acknowledged once their email is stored rather than once it is sent.  Only created if
+     * {@code pass.notification.outbox.enabled} is {@code true}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "pass.notification.outbox.enabled", havingValue = "true")
+    public Outbox outbox(MailSender mailSender, StageMetrics stageMetrics, EndToEndLatency endToEndLatency,
+                         MeterRegistry meterRegistry) throws IOException {
+        Journal journal = Journal.open(Paths.get(outboxDir), "outbox", outboxSegmentSize, outboxSync);
+        Outbox outbox = new Outbox(journal, mailSender, outboxSenders, outboxCapacity, outboxRetryInitial,
+                outboxRetryMax, outboxAttempts, stageMetrics, endToEndLatency, meterRegistry);
+        outbox.start();
+        LOG.info("Sending email through the outbox in '{}' ({} emails awaiting delivery)", outboxDir, outbox.size());
+        return outbox;
+    }
+
+    /**
+     * Sends email through the global SMTP server.  If additional {@code smtp-relays} are configured, email is instead
+     * shared between the global SMTP server and each relay by a {@link LoadBalancer}, and each relay has its own
+     * concurrency limit.  Sends are delayed to respect the rate limit of each relay, and of each recipient domain
+     * across all relays, if enabled.  The SMTP circuit breaker, if enabled, protects the relays as a whole.
+     * <p>
+     * If {@code pass.notification.digest.enabled} is {@code true}, emails of the {@code pass.notification.digest.types}
+     * are buffered in a journal under {@code pass.notification.digest.dir}, and combined into digests before they
+     * reach the relays.
+     * </p>
+     */
+    @Bean
+    public MailSender mailSender(Mailer mailer, NotificationConfig config, MeterRegistry meterRegistry,
+                                 @Qualifier("smtpCircuitBreaker") CircuitBreaker smtpCircuitBreaker,
+                                 TemplateResolver compositeResolver, Handlebars handlebars) throws IOException {
+        MailSender mailSender;
+        List<SmtpServerConfig> relays = config.getSmtpRelays();
+
+        if (relays == null || relays.isEmpty()) {
+            mailSender = relay("smtp", mailer, meterRegistry);
+        } else {
+            Map<String, MailSender> members = new LinkedHashMap<>();
+            String name = relayName(config.getSmtpConfig());
+            members.put(name, relay("smtp-" + name, mailer, meterRegistry));
+            for (SmtpServerConfig relay : relays) {
+                name = relayName(relay);
+                members.put(name, relay("smtp-" + name, mailer(relay), meterRegistry));
+            }
+            LOG.info("Sending email through SMTP relays {}", members.keySet());
+            mailSender = new LoadBalancingMailSender(new LoadBalancer<>("smtp", members, MailFailures::isRelayFailure,
+                    Math.max(1, smtpBalancerFailures), smtpBalancerEject, smtpBalancerEjectMax, meterRegistry));
+        }
+
+        if (domainRateLimit > 0) {
+            mailSender = new RateLimitedMailSender(mailSender, new RateLimiter("domain", domainRateLimit,
+                    domainRateBurst, rateLimitWait, meterRegistry), RateLimitedMailSender::recipientDomains);
+        }
+
+        if (smtpBreakerFailures > 0) {
+            mailSender = new CircuitBreakingMailSender(mailSender, smtpCircuitBreaker);
+        }
+
+        if (digestEnabled) {
+            mailSender = digest(mailSender, compositeResolver, handlebars, meterRegistry);
+        }
+
+        return mailSender;
+    }
+
+    private DigestMailSender digest(MailSender mailSender, TemplateResolver resolver, Handlebars handlebars,
+                                    MeterRegistry meterRegistry) throws IOException {
+        DigestComposer composer = new DigestComposer(handlebars,
+                IOUtils.toString(resolver.resolve(NotificationTemplate.Name.SUBJECT, digestSubject), UTF_8),
+                IOUtils.toString(resolver.resolve(NotificationTemplate.Name.BODY, digestBody), UTF_8));
+        List<Notification.Type> types = Arrays.stream(digestTypes)
+                .map(String::trim)
+                .filter(type -> !type.isEmpty())
+                .map(Notification.Type::valueOf)
+                .collect(Collectors.toList());
+        Journal journal = Journal.open(Paths.get(digestDir), "digest", outboxSegmentSize, outboxSync);
+        DigestMailSender digest = new DigestMailSender(journal, mailSender, composer, types, digestWindow,
+                digestMax, digestRetry, digestAttempts, digestStripes, meterRegistry);
+        LOG.info("Sending digests of {} notifications every {} ms ({} emails awaiting a digest)", types,
+                digestWindow, digest.size());
+        return digest;
+    }
+
+    /**
+     * Sends email through a single relay, within its concurrency and rate limits.  Sends wait for the rate limit
+     * before occupying the concurrency limit, so that the delay does not count towards the latency of the relay.
+     */
+    private MailSender relay(String name, Mailer mailer, MeterRegistry meterRegistry) {
+        MailSender mailSender = new SmtpMailSender(mailer);
+        if (smtpLimitMax > 0) {
+            mailSender = new ConcurrencyLimitedMailSender(mailSender, new ConcurrencyLimiter(name, 1, smtpLimitMax,
+                    smtpLimitLatency, smtpLimitQueue, smtpLimitWait, MailFailures::isRelayFailure, meterRegistry));
+        }
+        if (smtpRateLimit > 0) {
+            Set<String> key = Collections.singleton(name);
+            mailSender = new RateLimitedMailSender(mailSender, new RateLimiter(name, smtpRateLimit, smtpRateBurst,
+                    rateLimitWait, meterRegistry), email -> key);
+        }
+        return mailSender;
+    }
+
+    private static String relayName(SmtpServerConfig relay) {
+        return relay.getHost() + ":" + relay.getPort();
+    }
+
+    /**
+     * Opens after {@code pass.notification.breaker.fedora.failures} consecutive repository failures; reads of missing
+     * resources are not failures.  Only consulted if the failure threshold is greater than zero.
+     */
+    @Bean
+    public CircuitBreaker fedoraCircuitBreaker(ScheduledExecutorService circuitBreakerScheduler,
+                                               MeterRegistry meterRegistry) {
+        return new CircuitBreaker("fedora", Math.max(1, fedoraBreakerFailures), fedoraBreakerOpen,
+                CircuitBreakingPassClient::isRepositoryFailure, circuitBreakerScheduler, meterRegistry);
+    }
+
+    /**
+     * Opens after {@code pass.notification.breaker.smtp.failures} consecutive failures of the mail relay; emails the
+     * relay rejects, or which are not valid, are not failures.  Only consulted if the failure threshold is greater
+     * than zero.
+     */
+    @Bean
+    public CircuitBreaker smtpCircuitBreaker(ScheduledExecutorService circuitBreakerScheduler,
+                                             MeterRegistry meterRegistry) {
+        return new CircuitBreaker("smtp", Math.max(1, smtpBreakerFailures), smtpBreakerOpen,
+                MailFailures::isRelayFailure, circuitBreakerScheduler, meterRegistry);
+    }
+
+    /**
+     * Performs hedged repository reads.  Threads are created on demand, up to {@code pass.notification.hedge.threads};
+     * reads that find every thread busy are performed on the calling thread without hedging.
+     */
+    @Bean
+    public ExecutorService hedgeExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(0, Math.max(1, hedgeThreads), 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "hedge-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Sends email dispatched asynchronously, using up to {@code pass.notification.dispatch.threads} threads.  Once
+     * every thread is busy and as many emails again are waiting, an email is sent on the dispatching thread, which
+     * stops it from receiving further messages until the send completes.
+     */
+    @Bean
+    public ExecutorService mailSenderExecutor() {
+        int threads = Math.max(1, dispatchThreads);
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads), runnable -> {
+                    Thread thread = new Thread(runnable, "smtp-sender-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Bean
+    public ScheduledExecutorService circuitBreakerScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "circuit-breaker");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     @Bean
@@ -208,6 +625,10 @@ public class SpringBootNotificationConfig {
         SmtpServerConfig smtpConfig = config.getSmtpConfig();
         Objects.requireNonNull(smtpConfig,
                                "Missing SMTP server configuration from '" + notificationConfiguration + "'");
+        return mailer(smtpConfig);
+    }
+
+    private Mailer mailer(SmtpServerConfig smtpConfig) {
         MailerBuilder.MailerRegularBuilder builder = MailerBuilder
                 .withSMTPServerHost(smtpConfig.getHost())
                 .withSMTPServerPort(Integer.parseInt(smtpConfig.getPort()))
@@ -254,15 +675,40 @@ public class SpringBootNotificationConfig {
 
     @Bean
     public Composer composer(NotificationConfig notificationConfig, RecipientAnalyzer recipientAnalyzer,
-            SubmissionLinkAnalyzer sla, LinkValidator lv, ObjectMapper objectMapper) {
-        return new Composer(notificationConfig, recipientAnalyzer, sla, lv, objectMapper);
+            SubmissionLinkAnalyzer sla, LinkValidator lv, ObjectMapper objectMapper, StageMetrics stageMetrics) {
+        return new Composer(notificationConfig, recipientAnalyzer, sla, lv, objectMapper, stageMetrics);
+    }
+
+    @Bean
+    public SubmissionCache submissionCache(PassClient passClient) {
+        return new SubmissionCache(passClient, submissionCacheTtl);
     }
 
     @Bean
     public DefaultNotificationService notificationService(
             PassClient passClient,
             Composer composer,
-            DispatchService dispatchService) {
-        return new DefaultNotificationService(passClient, dispatchService, composer);
+            DispatchService dispatchService,
+            SubmissionCache submissionCache,
+            StageMetrics stageMetrics) {
+        return new DefaultNotificationService(passClient, dispatchService, composer, submissionCache, stageMetrics);
+    }
+
+    /**
+     * Records the duration and outcome of each stage of processing a notification, unless
+     * {@code pass.notification.metrics.stages} is {@code false}.
+     */
+    @Bean
+    public StageMetrics stageMetrics(MeterRegistry meterRegistry) {
+        return stageMetricsEnabled ? new StageMetrics(meterRegistry) : StageMetrics.noop();
+    }
+
+    /**
+     * Records the latency from the repository event to acceptance of the email by the SMTP relay, reporting
+     * percentiles over a rolling window of {@code pass.notification.metrics.latency.window} milliseconds.
+     */
+    @Bean
+    public EndToEndLatency endToEndLatency(MeterRegistry meterRegistry) {
+        return new EndToEndLatency(latencyWindow, meterRegistry);
     }
 }
@@ -16,6 +16,7 @@
 package org.dataconservancy.pass.notification.impl;
 
 import org.dataconservancy.pass.notification.dispatch.DispatchException;
+import org.dataconservancy.pass.notification.support.resilience.LimitExceededException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -33,7 +34,10 @@ public class NotificationServiceErrorHandler implements ErrorHandler {
 
     @Override
     public void handleError(Throwable throwable) {
-        if (!(throwable instanceof DispatchException)) {
+        if (LimitExceededException.isRefusal(throwable)) {
+            LOG.warn("Processing was refused, and will be retried when the message is redelivered: {}",
+                    throwable.getMessage());
+        } else if (!(throwable instanceof DispatchException)) {
             LOG.error("Encountered an unrecoverable error: {}", throwable.getMessage(), throwable);
         }
     }
@@ -15,9 +15,12 @@
  */
 package org.dataconservancy.pass.notification.aop.logging;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import org.aspectj.lang.Aspects;
 import org.dataconservancy.pass.notification.NotificationApp;
 import org.dataconservancy.pass.notification.dispatch.DispatchService;
 import org.junit.Test;
@@ -28,7 +31,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
 /**
- * Simply checks to see that the Dispatch implementation is an Advised instance.
+ * Simply checks to see that the Dispatch implementation is an Advised instance, unless the aspect was woven at build
+ * time.
  *
  * @author Elliot Metsger (emetsger@jhu.edu)
  */
@@ -39,10 +43,29 @@ public class LoggingAspectIT {
     @Autowired
     private DispatchService dispatchService;
 
+    @Autowired
+    private LoggingAspect loggingAspect;
+
     @Test
     public void dispatchIsAdvised() {
         assertNotNull("DispatchService was not autowired.", dispatchService);
-        assertTrue("DispatchService is not an instance of an Advised class.",
-                dispatchService instanceof Advised);
+        if (LoggingAspect.isWoven()) {
+            assertFalse("Woven DispatchService should not also be proxied.", dispatchService instanceof Advised);
+        } else {
+            assertTrue("DispatchService is not an instance of an Advised class.",
+                    dispatchService instanceof Advised);
+        }
+    }
+
+    /**
+     * The aspect bean must be the instance that advises dispatch, so that it is the one Spring configures.
+     */
+    @Test
+    public void aspectBeanIsInUse() {
+        if (LoggingAspect.isWoven()) {
+            assertSame(Aspects.aspectOf(LoggingAspect.class), loggingAspect);
+        } else {
+            assertNotNull(loggingAspect);
+        }
     }
 }
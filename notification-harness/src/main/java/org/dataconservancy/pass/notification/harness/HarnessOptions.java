@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.harness;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+
+/**
+ * The options of a harness run, parsed from {@code --harness.<name>=<value>} command line arguments.  Any other
+ * {@code --<name>=<value>} argument is a property of Notification Services, overriding the property set by the
+ * harness or by {@code application.properties}.
+ */
+public class HarnessOptions {
+
+    static final String PREFIX = "harness.";
+
+    private final List<String> concurrency;
+
+    private final int messages;
+
+    private final int warmup;
+
+    private final int rate;
+
+    private final int preparers;
+
+    private final long fedoraLatency;
+
+    private final long smtpLatency;
+
+    private final long timeout;
+
+    private final long seed;
+
+    private final String output;
+
+    private final Map<String, String> properties = new LinkedHashMap<>();
+
+    HarnessOptions(String... args) {
+        SimpleCommandLinePropertySource source = new SimpleCommandLinePropertySource(args);
+        concurrency = Arrays.stream(value(source, "concurrency", "1,2,4,8").split(","))
+                .map(String::trim).filter(value -> !value.isEmpty()).collect(Collectors.toList());
+        messages = positive(source, "messages", 2000);
+        warmup = atLeastZero(source, "warmup", 500);
+        rate = atLeastZero(source, "rate", 0);
+        preparers = positive(source, "preparers", 1);
+        fedoraLatency = atLeastZero(source, "fedora.latency", 0);
+        smtpLatency = atLeastZero(source, "smtp.latency", 0);
+        timeout = positive(source, "timeout", 300);
+        seed = Long.decode(value(source, "seed", "0x5EED"));
+        output = value(source, "output", "");
+
+        if (concurrency.isEmpty()) {
+            throw new IllegalArgumentException("At least one value of " + PREFIX + "concurrency is required.");
+        }
+
+        for (String name : source.getPropertyNames()) {
+            if (!name.startsWith(PREFIX)) {
+                properties.put(name, source.getProperty(name));
+            }
+        }
+    }
+
+    /**
+     * @return the values of {@code spring.jms.listener.concurrency} to run with, in order; a value may be a range
+     */
+    public List<String> getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @return the number of messages measured by each run
+     */
+    public int getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return the number of messages sent, and delivered, before measurement begins
+     */
+    public int getWarmup() {
+        return warmup;
+    }
+
+    /**
+     * @return the rate messages are sent at, per second, or zero to send them as quickly as possible
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * @return the number of preparers of each submission
+     */
+    public int getPreparers() {
+        return preparers;
+    }
+
+    /**
+     * @return the time taken by each read of the repository, in milliseconds
+     */
+    public long getFedoraLatency() {
+        return fedoraLatency;
+    }
+
+    /**
+     * @return the time taken by the SMTP relay to accept each message, in milliseconds
+     */
+    public long getSmtpLatency() {
+        return smtpLatency;
+    }
+
+    /**
+     * @return the time allowed for the messages of each phase of a run to be delivered, in seconds
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return the seed of the workload
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the file the results are written to as JSON, or an empty string if they are not written
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * @return properties of Notification Services supplied on the command line
+     */
+    Map<String, String> getProperties() {
+        return properties;
+    }
+
+    private static int positive(SimpleCommandLinePropertySource source, String name, int defaultValue) {
+        int value = atLeastZero(source, name, defaultValue);
+        if (value == 0) {
+            throw new IllegalArgumentException(PREFIX + name + " must be greater than zero.");
+        }
+        return value;
+    }
+
+    private static int atLeastZero(SimpleCommandLinePropertySource source, String name, int defaultValue) {
+        int value = Integer.parseInt(value(source, name, String.valueOf(defaultValue)));
+        if (value < 0) {
+            throw new IllegalArgumentException(PREFIX + name + " must not be negative.");
+        }
+        return value;
+    }
+
+    private static String value(SimpleCommandLinePropertySource source, String name, String defaultValue) {
+        String value = source.getProperty(PREFIX + name);
+        return value == null ? defaultValue : value;
+    }
+
+}
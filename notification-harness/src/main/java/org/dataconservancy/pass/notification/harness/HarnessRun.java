@@ -0,0 +1,268 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.harness;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.TextMessage;
+
+import org.HdrHistogram.Recorder;
+import org.dataconservancy.pass.authz.usertoken.Key;
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.notification.NotificationApp;
+import org.dataconservancy.pass.notification.app.config.JmsConfig;
+import org.dataconservancy.pass.notification.dispatch.impl.email.EmailComposer;
+import org.dataconservancy.pass.notification.workload.FedoraMessage;
+import org.dataconservancy.pass.notification.workload.Scenario;
+import org.dataconservancy.pass.notification.workload.WorkloadGenerator;
+import org.dataconservancy.pass.notification.workload.WorkloadProfile;
+import org.dataconservancy.pass.support.messaging.constants.Constants;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.core.JmsTemplate;
+
+/**
+ * A single run of the harness: Notification Services is started with an embedded broker, an
+ * {@link InMemoryPassClient} and an {@link SmtpSink}, warmed up, and then sent the measured messages.
+ * <p>
+ * Notification Services is started from {@link NotificationApp} and {@link JmsConfig}, as it is in production, with
+ * its {@code application.properties}.  Only the repository, the broker and the mail relay are replaced.
+ * </p>
+ */
+class HarnessRun {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HarnessRun.class);
+
+    static final String PASS_BASE_URI = "https://pass.local";
+
+    static final String FEDORA_BASE_URI = "http://localhost:8080/fcrepo/rest";
+
+    private static final String SUBMISSION_HEADER = EmailComposer.SUBMISSION_SMTP_HEADER.toLowerCase(Locale.ROOT);
+
+    private final HarnessOptions options;
+
+    private final String concurrency;
+
+    private final int index;
+
+    private final WorkloadGenerator workload;
+
+    /**
+     * Messages sent but not yet delivered, keyed by submission URI, with the time each was sent
+     */
+    private final ConcurrentMap<String, Long> pending = new ConcurrentHashMap<>();
+
+    private final Semaphore delivered = new Semaphore(0);
+
+    private final AtomicLong lastDelivery = new AtomicLong();
+
+    private final Recorder latencyMicros = new Recorder(3);
+
+    /**
+     * @param options the options of the harness
+     * @param concurrency the value of {@code spring.jms.listener.concurrency}
+     * @param index the index of the run, which distinguishes its broker from those of other runs
+     */
+    HarnessRun(HarnessOptions options, String concurrency, int index) {
+        this.options = options;
+        this.concurrency = concurrency;
+        this.index = index;
+        this.workload = new WorkloadGenerator(options.getSeed(), profile(options));
+    }
+
+    /**
+     * Only proxy submissions are generated, so that each message results in exactly one email.
+     */
+    private static WorkloadProfile profile(HarnessOptions options) {
+        WorkloadProfile profile = WorkloadProfile.proxied();
+        profile.setPassBaseUri(PASS_BASE_URI);
+        profile.setFedoraBaseUri(FEDORA_BASE_URI);
+        profile.setPreparers(options.getPreparers(), options.getPreparers());
+        profile.setStartDate(DateTime.now(DateTimeZone.UTC));
+        return profile;
+    }
+
+    RunResult run() throws Exception {
+        InMemoryPassClient repository = new InMemoryPassClient(options.getFedoraLatency());
+
+        try (SmtpSink sink = new SmtpSink(options.getSmtpLatency(), this::accepted);
+             ConfigurableApplicationContext context = start(repository, sink.getPort())) {
+
+            CachingConnectionFactory connectionFactory =
+                    new CachingConnectionFactory(context.getBean(ConnectionFactory.class));
+            try {
+                JmsTemplate jms = new JmsTemplate(connectionFactory);
+                String queue = context.getEnvironment().getRequiredProperty("pass.notification.queue.event.name");
+
+                if (options.getWarmup() > 0) {
+                    LOG.info("Warming up with {} messages, concurrency {}", options.getWarmup(), concurrency);
+                    send(jms, queue, generate(repository, options.getWarmup()));
+                    await(options.getWarmup());
+                    pending.clear();
+                    delivered.drainPermits();
+                    latencyMicros.reset();
+                }
+
+                List<Scenario> scenarios = generate(repository, options.getMessages());
+                LOG.info("Sending {} messages, concurrency {}", scenarios.size(), concurrency);
+
+                ResourceUsage resources = new ResourceUsage();
+                resources.start();
+                long start = System.nanoTime();
+                send(jms, queue, scenarios);
+                int count = await(scenarios.size());
+                resources.stop();
+
+                long duration = count == 0 ? System.nanoTime() - start : lastDelivery.get() - start;
+                return new RunResult(concurrency, scenarios.size(), count, duration,
+                        latencyMicros.getIntervalHistogram(), resources);
+            } finally {
+                connectionFactory.destroy();
+            }
+        }
+    }
+
+    /**
+     * Starts Notification Services.  The {@code passClient} bean is registered before the configuration classes of
+     * Notification Services are processed, and so takes precedence over the {@code @Bean} method of the same name.
+     */
+    private ConfigurableApplicationContext start(InMemoryPassClient repository, int smtpPort) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.activemq.broker-url",
+                "vm://notification-harness-" + index + "?broker.persistent=false&broker.useJmx=false");
+        properties.put("spring.jms.listener.concurrency", concurrency);
+        properties.put("spring.jmx.enabled", "false");
+        properties.put("pass.notification.mode", "PRODUCTION");
+        properties.put("pass.notification.production.from.address", "pass-noreply@example.edu");
+        properties.put("pass.notification.demo.from.address", "pass-demo-noreply@example.edu");
+        properties.put("pass.notification.demo.global.cc.address", "pass-demo-cc@example.edu");
+        properties.put("pass.notification.demo.global.bcc.address", "pass-demo-bcc@example.edu");
+        properties.put("pass.notification.smtp.host", "localhost");
+        properties.put("pass.notification.smtp.port", String.valueOf(smtpPort));
+        properties.put("pass.notification.smtp.transport", "SMTP");
+        properties.put("pass.link.scheme", "https");
+        properties.put("pass.link.host", "pass.local");
+        properties.put("pass.link.usertoken.generator.key", Key.generate().toString());
+        properties.putAll(options.getProperties());
+
+        ApplicationContextInitializer<GenericApplicationContext> inMemoryRepository =
+                context -> context.registerBean("passClient", PassClient.class, () -> repository);
+
+        return new SpringApplicationBuilder(NotificationApp.class, JmsConfig.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .initializers(inMemoryRepository)
+                .run(properties.entrySet().stream()
+                        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                        .toArray(String[]::new));
+    }
+
+    /**
+     * Generates {@code count} scenarios, storing their resources in the repository.
+     */
+    private List<Scenario> generate(InMemoryPassClient repository, int count) {
+        List<Scenario> scenarios = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Scenario scenario = workload.next();
+            scenario.getResources().forEach(repository::put);
+            scenarios.add(scenario);
+        }
+        return scenarios;
+    }
+
+    private void send(JmsTemplate jms, String queue, List<Scenario> scenarios) {
+        long intervalNanos = options.getRate() > 0 ? TimeUnit.SECONDS.toNanos(1) / options.getRate() : 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < scenarios.size(); i++) {
+            Scenario scenario = scenarios.get(i);
+            FedoraMessage message = scenario.getMessage();
+            long sent = System.nanoTime();
+            if (intervalNanos > 0) {
+                long due = start + i * intervalNanos;
+                while (sent < due) {
+                    LockSupport.parkNanos(due - sent);
+                    sent = System.nanoTime();
+                }
+                sent = due;
+            }
+            pending.put(scenario.getSubmission().getId().toString(), sent);
+            jms.send(queue, session -> {
+                TextMessage jmsMessage = session.createTextMessage(message.getBody());
+                jmsMessage.setStringProperty(Constants.JmsFcrepoHeader.FCREPO_RESOURCE_TYPE,
+                        message.getResourceType());
+                jmsMessage.setStringProperty(Constants.JmsFcrepoHeader.FCREPO_EVENT_TYPE, message.getEventType());
+                jmsMessage.setLongProperty(FedoraMessage.FCREPO_TIMESTAMP, System.currentTimeMillis());
+                return jmsMessage;
+            });
+        }
+    }
+
+    /**
+     * Waits for the emails resulting from {@code count} messages to be accepted by the sink.
+     *
+     * @return the number of emails accepted before the timeout elapsed
+     */
+    private int await(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.getTimeout());
+        int accepted = 0;
+        while (accepted < count) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !delivered.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                LOG.warn("Timed out after {}s: {} of {} emails were delivered, concurrency {}", options.getTimeout(),
+                        accepted, count, concurrency);
+                break;
+            }
+            accepted++;
+        }
+        return accepted;
+    }
+
+    /**
+     * Records the latency of an email accepted by the sink, if it results from a message sent by this run.
+     */
+    private void accepted(Map<String, String> headers) {
+        String submission = headers.get(SUBMISSION_HEADER);
+        Long sent = submission == null ? null : pending.remove(submission);
+        if (sent == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        latencyMicros.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(now - sent)));
+        lastDelivery.accumulateAndGet(now, Math::max);
+        delivered.release();
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.harness;
+
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.notification.impl.client.ForwardingPassClient;
+
+/**
+ * A {@link PassClient} backed by a map rather than Fedora, standing in for the repository when Notification Services
+ * is run by the harness.
+ * <p>
+ * Resources are added with {@link #put(PassEntity)} before messages referring to them are sent.  Each read may be
+ * delayed by a fixed latency, so that the effect of a slow repository on throughput can be observed.  Operations other
+ * than reads are unsupported.
+ * </p>
+ */
+public class InMemoryPassClient extends ForwardingPassClient {
+
+    private final ConcurrentMap<URI, PassEntity> resources = new ConcurrentHashMap<>();
+
+    private final long readLatencyMillis;
+
+    private final LongAdder reads = new LongAdder();
+
+    /**
+     * @param readLatencyMillis the time taken by each read, in milliseconds
+     */
+    public InMemoryPassClient(long readLatencyMillis) {
+        super((PassClient) Proxy.newProxyInstance(InMemoryPassClient.class.getClassLoader(),
+                new Class<?>[] {PassClient.class}, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName() + " is not supported in memory.");
+                }));
+        if (readLatencyMillis < 0) {
+            throw new IllegalArgumentException("Read latency must not be negative.");
+        }
+        this.readLatencyMillis = readLatencyMillis;
+    }
+
+    /**
+     * Stores a resource, replacing any resource with the same id.
+     *
+     * @param entity the resource, which must have an id
+     */
+    public void put(PassEntity entity) {
+        Objects.requireNonNull(entity, "Entity must not be null.");
+        resources.put(Objects.requireNonNull(entity.getId(), "Entity id must not be null."), entity);
+    }
+
+    /**
+     * @return the number of reads performed
+     */
+    public long getReads() {
+        return reads.sum();
+    }
+
+    @Override
+    public <T extends PassEntity> T readResource(URI uri, Class<T> modelClass) {
+        reads.increment();
+        if (readLatencyMillis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(readLatencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted reading " + uri, e);
+            }
+        }
+
+        PassEntity entity = resources.get(uri);
+        if (entity == null) {
+            throw new RuntimeException("Resource " + uri + " does not exist.");
+        }
+        if (!modelClass.isInstance(entity)) {
+            throw new RuntimeException("Resource " + uri + " is a " + entity.getClass().getSimpleName() +
+                    ", not a " + modelClass.getSimpleName());
+        }
+        return modelClass.cast(entity);
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.harness;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the sustained throughput, latency and resource usage of Notification Services end to end, without Fedora,
+ * a JMS broker or a mail relay.
+ * <p>
+ * For each value of {@code spring.jms.listener.concurrency}, Notification Services is started with an embedded
+ * ActiveMQ broker, an {@link InMemoryPassClient} and an {@link SmtpSink}.  Messages announcing the creation of
+ * {@code SubmissionEvent}s are sent to its queue, and the emails they result in are counted by the sink.  The results
+ * of the runs are printed as a table, and optionally written as JSON.  See {@link HarnessOptions} for the options.
+ * </p>
+ * <p>
+ * The process exits with status 1 if any run timed out before all of its emails were delivered.
+ * </p>
+ */
+public class NotificationHarness {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NotificationHarness.class);
+
+    private NotificationHarness() {
+        // main only
+    }
+
+    /**
+     * @param args {@code --harness.<name>=<value>} options, and properties of Notification Services
+     * @throws Exception if a run cannot be completed
+     */
+    public static void main(String[] args) throws Exception {
+        HarnessOptions options = new HarnessOptions(args);
+
+        List<RunResult> results = new ArrayList<>();
+        for (int i = 0; i < options.getConcurrency().size(); i++) {
+            String concurrency = options.getConcurrency().get(i);
+            LOG.info("Starting run {} of {}, concurrency {}", i + 1, options.getConcurrency().size(), concurrency);
+            results.add(new HarnessRun(options, concurrency, i).run());
+        }
+
+        print(options, results, System.out);
+
+        if (!options.getOutput().isEmpty()) {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("options", options);
+            report.put("runs", results);
+            File output = new File(options.getOutput());
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output, report);
+            LOG.info("Wrote results to {}", output.getAbsolutePath());
+        }
+
+        System.exit(results.stream().allMatch(RunResult::isComplete) ? 0 : 1);
+    }
+
+    static void print(HarnessOptions options, List<RunResult> results, PrintStream out) {
+        out.printf("%nMessages: %d (warmup %d), rate: %s, preparers: %d, repository latency: %d ms, " +
+                        "SMTP latency: %d ms%n%n", options.getMessages(), options.getWarmup(),
+                options.getRate() > 0 ? options.getRate() + "/s" : "unlimited", options.getPreparers(),
+                options.getFedoraLatency(), options.getSmtpLatency());
+        out.printf("%-11s %9s %9s %10s %10s %10s %10s %10s %6s %8s %9s %7s%n", "concurrency", "delivered",
+                "msgs/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "cpu %", "heap MB", "gc n/ms",
+                "threads");
+        for (RunResult result : results) {
+            Map<String, Double> latency = result.getLatencyMillis();
+            ResourceUsage resources = result.getResources();
+            out.printf("%-11s %9s %9.1f %10.1f %10.1f %10.1f %10.1f %10.1f %6.0f %8d %9s %7d%n",
+                    result.getConcurrency(), result.getDelivered() + (result.isComplete() ? "" : "*"),
+                    result.getThroughput(), latency.get("p50"), latency.get("p90"), latency.get("p99"),
+                    latency.get("p99.9"), latency.get("max"), resources.getCpuPercent(), resources.getPeakHeapMb(),
+                    resources.getGcCount() + "/" + resources.getGcMillis(), resources.getPeakThreads());
+        }
+        if (results.stream().anyMatch(result -> !result.isComplete())) {
+            out.printf("%n* timed out before all emails were delivered%n");
+        }
+    }
+
+}
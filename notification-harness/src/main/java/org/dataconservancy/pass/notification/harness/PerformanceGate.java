@@ -0,0 +1,266 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.core.env.CommandLinePropertySource;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+
+/**
+ * Compares the results of the JMH benchmarks and of the harness with a baseline, and fails if throughput has fallen,
+ * or allocation per operation has risen, by more than a tolerance.
+ * <p>
+ * Results are read from JMH's JSON output ({@code -rf json}) and from the JSON output of {@link NotificationHarness}.
+ * Each result is named after its benchmark and parameters, or its value of concurrency, and suffixed with
+ * {@code :throughput} or {@code :allocation}; allocation is JMH's {@code gc.alloc.rate.norm}, so benchmarks must be
+ * run with {@code -prof gc} for it to be compared.  Only JMH results measured in throughput mode are read.
+ * </p>
+ * <p>
+ * The baseline is a JSON object whose {@code metrics} map names to values.  A result missing from the baseline is
+ * reported, and with {@code --require-baseline=true} fails the gate, so that once a complete baseline has been
+ * recorded a benchmark is not left ungated for want of a baseline.  Baseline values that were not measured, for
+ * example those of benchmarks that were not run, are reported but do not fail the gate.  With {@code --update=true},
+ * the measured results are written to the baseline instead of being compared.
+ * </p>
+ * <p>
+ * Usage: {@code PerformanceGate --baseline=<file> [--throughput-tolerance=0.10] [--allocation-tolerance=0.05]
+ * [--require-baseline=false] [--update=false] <results>...}.  The process exits with status 1 if any result has
+ * regressed, or has no baseline when one is required.
+ * </p>
+ */
+public class PerformanceGate {
+
+    static final String THROUGHPUT = ":throughput";
+
+    static final String ALLOCATION = ":allocation";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Map<String, Double> baseline;
+
+    private final double throughputTolerance;
+
+    private final double allocationTolerance;
+
+    private final boolean requireBaseline;
+
+    /**
+     * @param baseline the baseline values, keyed by name
+     * @param throughputTolerance the fraction by which throughput may fall below its baseline
+     * @param allocationTolerance the fraction by which allocation may rise above its baseline
+     * @param requireBaseline whether a result missing from the baseline fails the gate
+     */
+    PerformanceGate(Map<String, Double> baseline, double throughputTolerance, double allocationTolerance,
+                    boolean requireBaseline) {
+        this.baseline = Objects.requireNonNull(baseline, "Baseline must not be null.");
+        if (throughputTolerance < 0 || allocationTolerance < 0) {
+            throw new IllegalArgumentException("Tolerances must not be negative.");
+        }
+        this.throughputTolerance = throughputTolerance;
+        this.allocationTolerance = allocationTolerance;
+        this.requireBaseline = requireBaseline;
+    }
+
+    /**
+     * @param args options, followed by the files of results
+     * @throws IOException if the baseline or results cannot be read, or the baseline cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleCommandLinePropertySource options = new SimpleCommandLinePropertySource(args);
+        File baselineFile = new File(Objects.requireNonNull(options.getProperty("baseline"),
+                "--baseline is required."));
+        boolean update = Boolean.parseBoolean(options.getProperty("update"));
+        boolean requireBaseline = Boolean.parseBoolean(options.getProperty("require-baseline"));
+        double throughputTolerance = tolerance(options, "throughput-tolerance", 0.10);
+        double allocationTolerance = tolerance(options, "allocation-tolerance", 0.05);
+
+        SortedMap<String, Double> results = new TreeMap<>();
+        String files = options.getProperty(CommandLinePropertySource.DEFAULT_NON_OPTION_ARGS_PROPERTY_NAME);
+        if (files == null) {
+            throw new IllegalArgumentException("At least one file of results is required.");
+        }
+        for (String file : files.split(",")) {
+            results.putAll(read(new File(file.trim())));
+        }
+
+        SortedMap<String, Double> baseline = new TreeMap<>();
+        if (baselineFile.exists()) {
+            baseline.putAll(readBaseline(baselineFile));
+        } else if (!update) {
+            throw new IllegalArgumentException("Baseline " + baselineFile + " does not exist.");
+        }
+
+        if (update) {
+            baseline.putAll(results);
+            ObjectNode root = MAPPER.createObjectNode();
+            ObjectNode metrics = root.putObject("metrics");
+            baseline.forEach(metrics::put);
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(baselineFile, root);
+            System.out.printf("Wrote %d results to %s%n", results.size(), baselineFile);
+            return;
+        }
+
+        List<String> regressions = new PerformanceGate(baseline, throughputTolerance, allocationTolerance,
+                requireBaseline).compare(results, System.out);
+        if (!regressions.isEmpty()) {
+            System.out.printf("%n%d results regressed beyond tolerance, or have no baseline:%n", regressions.size());
+            regressions.forEach(regression -> System.out.printf("  %s%n", regression));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares results with the baseline, printing the comparison.
+     *
+     * @param results the measured results, keyed by name
+     * @param out receives the comparison
+     * @return the names of the results which regressed beyond tolerance, or have no baseline when one is required
+     */
+    List<String> compare(Map<String, Double> results, PrintStream out) {
+        SortedMap<String, Double> names = new TreeMap<>(baseline);
+        names.putAll(results);
+
+        List<String> regressions = new ArrayList<>();
+        out.printf("%-100s %14s %14s %9s  %s%n", "result", "baseline", "measured", "change", "status");
+        for (String name : names.keySet()) {
+            Double expected = baseline.get(name);
+            Double measured = results.get(name);
+            String status;
+            if (expected == null && requireBaseline) {
+                status = "NOT IN BASELINE";
+                regressions.add(name);
+            } else if (expected == null) {
+                status = "not in baseline";
+            } else if (measured == null) {
+                status = "not measured";
+            } else if (regressed(name, expected, measured)) {
+                status = "REGRESSED";
+                regressions.add(name);
+            } else {
+                status = "ok";
+            }
+            out.printf("%-100s %14s %14s %9s  %s%n", name, format(expected), format(measured),
+                    expected == null || measured == null || expected == 0 ? "" :
+                            String.format("%+.1f%%", 100 * (measured - expected) / expected), status);
+        }
+        return regressions;
+    }
+
+    boolean regressed(String name, double expected, double measured) {
+        if (name.endsWith(THROUGHPUT)) {
+            return measured < expected * (1 - throughputTolerance);
+        }
+        if (name.endsWith(ALLOCATION)) {
+            return measured > expected * (1 + allocationTolerance);
+        }
+        return false;
+    }
+
+    /**
+     * Reads results from JMH's JSON output, or the JSON output of the harness.
+     *
+     * @param file the file of results
+     * @return the results, keyed by name
+     * @throws IOException if the file cannot be read
+     */
+    static Map<String, Double> read(File file) throws IOException {
+        JsonNode root = MAPPER.readTree(file);
+        if (root.isArray()) {
+            return jmh(root);
+        }
+        if (root.has("runs")) {
+            return harness(root);
+        }
+        throw new IllegalArgumentException("Unrecognized results in " + file);
+    }
+
+    private static Map<String, Double> jmh(JsonNode root) {
+        Map<String, Double> results = new TreeMap<>();
+        for (JsonNode benchmark : root) {
+            if (!"thrpt".equals(benchmark.path("mode").asText())) {
+                continue;
+            }
+            String name = jmhName(benchmark);
+            results.put(name + THROUGHPUT, benchmark.path("primaryMetric").path("score").asDouble());
+            Iterator<Map.Entry<String, JsonNode>> secondary = benchmark.path("secondaryMetrics").fields();
+            while (secondary.hasNext()) {
+                Map.Entry<String, JsonNode> metric = secondary.next();
+                if (metric.getKey().endsWith("gc.alloc.rate.norm")) {
+                    results.put(name + ALLOCATION, metric.getValue().path("score").asDouble());
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return the simple name of the benchmark's class and its method, followed by its parameters
+     */
+    static String jmhName(JsonNode benchmark) {
+        String method = benchmark.path("benchmark").asText();
+        int dot = method.lastIndexOf('.', method.lastIndexOf('.') - 1);
+        StringBuilder name = new StringBuilder(method.substring(dot + 1));
+        Iterator<Map.Entry<String, JsonNode>> params = benchmark.path("params").fields();
+        if (params.hasNext()) {
+            name.append('(');
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                name.append(param.getKey()).append('=').append(param.getValue().asText());
+                name.append(params.hasNext() ? "," : ")");
+            }
+        }
+        return name.toString();
+    }
+
+    private static Map<String, Double> harness(JsonNode root) {
+        Map<String, Double> results = new TreeMap<>();
+        for (JsonNode run : root.path("runs")) {
+            results.put("NotificationHarness(concurrency=" + run.path("concurrency").asText() + ")" + THROUGHPUT,
+                    run.path("throughput").asDouble());
+        }
+        return results;
+    }
+
+    private static Map<String, Double> readBaseline(File file) throws IOException {
+        Map<String, Double> baseline = new TreeMap<>();
+        MAPPER.readTree(file).path("metrics").fields()
+                .forEachRemaining(metric -> baseline.put(metric.getKey(), metric.getValue().asDouble()));
+        return baseline;
+    }
+
+    private static double tolerance(SimpleCommandLinePropertySource options, String name, double defaultValue) {
+        String value = options.getProperty(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    private static String format(Double value) {
+        return value == null ? "" : String.format("%.3f", value);
+    }
+
+}
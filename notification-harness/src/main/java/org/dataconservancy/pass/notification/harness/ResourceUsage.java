@@ -0,0 +1,163 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.harness;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The resources used by the JVM over the measured phase of a run.  The harness shares the JVM with Notification
+ * Services, so the broker, the SMTP sink and the sending of messages are included.
+ * <p>
+ * Usage is measured between {@link #start()} and {@link #stop()}; the peak of heap usage is sampled every
+ * {@value #SAMPLE_INTERVAL_MILLIS} ms in between.
+ * </p>
+ */
+public class ResourceUsage {
+
+    static final long SAMPLE_INTERVAL_MILLIS = 100;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private final AtomicLong peakHeap = new AtomicLong();
+
+    private ScheduledExecutorService sampler;
+
+    private long startNanos;
+
+    private long startCpu;
+
+    private long startGcCount;
+
+    private long startGcMillis;
+
+    private long elapsedNanos;
+
+    private long cpuNanos;
+
+    private long gcCount;
+
+    private long gcMillis;
+
+    private int peakThreads;
+
+    /**
+     * Begins measurement.
+     */
+    public void start() {
+        threads.resetPeakThreadCount();
+        peakHeap.set(memory.getHeapMemoryUsage().getUsed());
+        startGcCount = gcCount();
+        startGcMillis = gcMillis();
+        startCpu = processCpuNanos();
+        startNanos = System.nanoTime();
+
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "harness-resource-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+        sampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                SAMPLE_INTERVAL_MILLIS, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ends measurement.
+     */
+    public void stop() {
+        sampler.shutdownNow();
+        elapsedNanos = System.nanoTime() - startNanos;
+        long cpu = processCpuNanos();
+        cpuNanos = cpu < 0 || startCpu < 0 ? -1 : cpu - startCpu;
+        gcCount = gcCount() - startGcCount;
+        gcMillis = gcMillis() - startGcMillis;
+        peakThreads = threads.getPeakThreadCount();
+    }
+
+    /**
+     * @return the CPU time used by the process, in milliseconds, or -1 if the JVM does not report it
+     */
+    public long getCpuMillis() {
+        return cpuNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(cpuNanos);
+    }
+
+    /**
+     * @return the CPU time used as a percentage of the time available on all processors, or -1 if the JVM does not
+     *         report it
+     */
+    public double getCpuPercent() {
+        if (cpuNanos < 0 || elapsedNanos == 0) {
+            return -1;
+        }
+        return 100.0 * cpuNanos / elapsedNanos / Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return the peak heap usage sampled, in megabytes
+     */
+    public long getPeakHeapMb() {
+        return peakHeap.get() / (1024 * 1024);
+    }
+
+    /**
+     * @return the number of garbage collections
+     */
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * @return the time taken by garbage collections, in milliseconds
+     */
+    public long getGcMillis() {
+        return gcMillis;
+    }
+
+    /**
+     * @return the peak number of live threads
+     */
+    public int getPeakThreads() {
+        return peakThreads;
+    }
+
+    private static long processCpuNanos() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(count -> count > 0).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(time -> time > 0).sum();
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.harness;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * The measurements of a single run of the harness, at one value of {@code spring.jms.listener.concurrency}.
+ * <p>
+ * Latency is the time from the sending of a message to the acceptance of the resulting email by the SMTP sink.  When
+ * messages are sent at a fixed rate, latency is measured from the time a message was due to be sent, so that a
+ * stalled sender does not hide queueing delay.
+ * </p>
+ */
+public class RunResult {
+
+    private final String concurrency;
+
+    private final int messages;
+
+    private final int delivered;
+
+    private final long durationMillis;
+
+    private final Map<String, Double> latencyMillis = new LinkedHashMap<>();
+
+    private final ResourceUsage resources;
+
+    /**
+     * @param concurrency the value of {@code spring.jms.listener.concurrency}
+     * @param messages the number of messages sent
+     * @param delivered the number of emails accepted by the SMTP sink
+     * @param durationNanos the time from the sending of the first message to the acceptance of the last email
+     * @param latencyMicros the latency of each message, in microseconds
+     * @param resources the resources used while the messages were processed
+     */
+    RunResult(String concurrency, int messages, int delivered, long durationNanos, Histogram latencyMicros,
+              ResourceUsage resources) {
+        this.concurrency = concurrency;
+        this.messages = messages;
+        this.delivered = delivered;
+        this.durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        this.resources = resources;
+        latencyMillis.put("p50", latencyMicros.getValueAtPercentile(50) / 1000.0);
+        latencyMillis.put("p90", latencyMicros.getValueAtPercentile(90) / 1000.0);
+        latencyMillis.put("p99", latencyMicros.getValueAtPercentile(99) / 1000.0);
+        latencyMillis.put("p99.9", latencyMicros.getValueAtPercentile(99.9) / 1000.0);
+        latencyMillis.put("max", latencyMicros.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * @return the value of {@code spring.jms.listener.concurrency}
+     */
+    public String getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @return the number of messages sent
+     */
+    public int getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return the number of emails accepted by the SMTP sink before the run timed out
+     */
+    public int getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * @return true if an email was accepted for every message sent
+     */
+    public boolean isComplete() {
+        return delivered == messages;
+    }
+
+    /**
+     * @return the time from the sending of the first message to the acceptance of the last email, in milliseconds
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return the sustained throughput, in emails per second
+     */
+    public double getThroughput() {
+        return durationMillis == 0 ? 0 : delivered * 1000.0 / durationMillis;
+    }
+
+    /**
+     * @return percentiles of latency, in milliseconds, keyed by {@code p50}, {@code p90}, {@code p99},
+     *         {@code p99.9} and {@code max}
+     */
+    public Map<String, Double> getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    /**
+     * @return the resources used while the messages were processed
+     */
+    public ResourceUsage getResources() {
+        return resources;
+    }
+
+}
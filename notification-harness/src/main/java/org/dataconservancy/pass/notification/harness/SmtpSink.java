@@ -0,0 +1,206 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.harness;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A minimal SMTP server which accepts, and discards, every message it is sent.  It stands in for the mail relay when
+ * Notification Services is run by the harness.
+ * <p>
+ * The sink implements only the commands needed by a plain SMTP client: it does not offer {@code STARTTLS} or
+ * authentication.  The headers of each accepted message are passed to a listener, after an optional delay which
+ * simulates the time taken by a relay to accept a message.  Each connection is served by its own thread.
+ * </p>
+ */
+public class SmtpSink implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SmtpSink.class);
+
+    private static final String CRLF = "\r\n";
+
+    private final long latencyMillis;
+
+    private final Consumer<Map<String, String>> listener;
+
+    private final LongAdder messages = new LongAdder();
+
+    private final ServerSocket serverSocket;
+
+    private final ExecutorService connections;
+
+    /**
+     * Starts a sink listening on an ephemeral port of the loopback interface.
+     *
+     * @param latencyMillis the time taken to accept each message, in milliseconds
+     * @param listener receives the headers of each accepted message, keyed by lower-cased name
+     * @throws IOException if the server socket cannot be opened
+     */
+    public SmtpSink(long latencyMillis, Consumer<Map<String, String>> listener) throws IOException {
+        if (latencyMillis < 0) {
+            throw new IllegalArgumentException("Latency must not be negative.");
+        }
+        this.latencyMillis = latencyMillis;
+        this.listener = Objects.requireNonNull(listener, "Listener must not be null.");
+        this.serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+
+        AtomicInteger threads = new AtomicInteger();
+        this.connections = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "smtp-sink-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.connections.execute(this::accept);
+    }
+
+    /**
+     * @return the port the sink is listening on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the number of messages accepted
+     */
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                // closed
+            } catch (IOException e) {
+                LOG.warn("Error accepting SMTP connection: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(s.getInputStream(), StandardCharsets.ISO_8859_1));
+             Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.ISO_8859_1)) {
+            reply(out, "220 localhost SMTP sink ready");
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = (line.length() < 4 ? line : line.substring(0, 4)).toUpperCase(Locale.ROOT);
+                switch (command) {
+                    case "EHLO":
+                    case "HELO":
+                        reply(out, "250 localhost");
+                        break;
+                    case "MAIL":
+                    case "RCPT":
+                    case "RSET":
+                    case "NOOP":
+                        reply(out, "250 OK");
+                        break;
+                    case "DATA":
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        Map<String, String> headers = readMessage(in);
+                        delay();
+                        messages.increment();
+                        reply(out, "250 OK");
+                        listener.accept(headers);
+                        break;
+                    case "QUIT":
+                        reply(out, "221 Bye");
+                        return;
+                    default:
+                        reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            LOG.debug("SMTP connection closed: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            LOG.warn("Error serving SMTP connection: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a message up to the terminating line, retaining only its headers.  Folded header lines are unfolded.
+     */
+    private static Map<String, String> readMessage(BufferedReader in) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        boolean inHeaders = true;
+        String name = null;
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(".")) {
+            if (!inHeaders) {
+                continue;
+            }
+            if (line.isEmpty()) {
+                inHeaders = false;
+            } else if ((line.charAt(0) == ' ' || line.charAt(0) == '\t') && name != null) {
+                headers.merge(name, line.trim(), (value, folded) -> value + " " + folded);
+            } else if (line.indexOf(':') > 0) {
+                name = line.substring(0, line.indexOf(':')).trim().toLowerCase(Locale.ROOT);
+                headers.put(name, line.substring(line.indexOf(':') + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    private void delay() {
+        if (latencyMillis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void reply(Writer out, String reply) throws IOException {
+        out.write(reply + CRLF);
+        out.flush();
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.harness;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.dataconservancy.pass.notification.harness.PerformanceGate.ALLOCATION;
+import static org.dataconservancy.pass.notification.harness.PerformanceGate.THROUGHPUT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PerformanceGateTest {
+
+    private static final String COMPOSE = "ComposerBenchmark.compose(recipients=10,whitelist=true)";
+
+    private static final String DISPATCH = "EmailDispatchBenchmark.dispatch";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Map<String, Double> baseline;
+
+    private PerformanceGate underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        baseline = new HashMap<>();
+        underTest = new PerformanceGate(baseline, 0.10, 0.05, true);
+    }
+
+    @Test
+    public void throughputRegressesWhenItFallsBeyondTolerance() {
+        assertFalse(underTest.regressed(DISPATCH + THROUGHPUT, 1000, 1200));
+        assertFalse(underTest.regressed(DISPATCH + THROUGHPUT, 1000, 901));
+        assertTrue(underTest.regressed(DISPATCH + THROUGHPUT, 1000, 899));
+    }
+
+    @Test
+    public void allocationRegressesWhenItRisesBeyondTolerance() {
+        assertFalse(underTest.regressed(DISPATCH + ALLOCATION, 1000, 800));
+        assertFalse(underTest.regressed(DISPATCH + ALLOCATION, 1000, 1049));
+        assertTrue(underTest.regressed(DISPATCH + ALLOCATION, 1000, 1051));
+    }
+
+    @Test
+    public void jmhNameIncludesClassMethodAndParameters() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+
+        assertEquals(COMPOSE, PerformanceGate.jmhName(mapper.readTree("{\"benchmark\": " +
+                "\"org.dataconservancy.pass.notification.benchmarks.ComposerBenchmark.compose\", " +
+                "\"params\": {\"recipients\": \"10\", \"whitelist\": \"true\"}}")));
+        assertEquals(DISPATCH, PerformanceGate.jmhName(mapper.readTree("{\"benchmark\": " +
+                "\"org.dataconservancy.pass.notification.benchmarks.EmailDispatchBenchmark.dispatch\"}")));
+    }
+
+    /**
+     * Throughput-mode results and their normalized allocation rates are read; other modes are ignored
+     */
+    @Test
+    public void readJmhResults() throws Exception {
+        Map<String, Double> results = PerformanceGate.read(resource("jmh.json"));
+
+        Map<String, Double> expected = new HashMap<>();
+        expected.put(COMPOSE + THROUGHPUT, 51234.5);
+        expected.put(COMPOSE + ALLOCATION, 24632.0);
+        expected.put(DISPATCH + THROUGHPUT, 3120.25);
+        assertEquals(expected, results);
+    }
+
+    @Test
+    public void readHarnessResults() throws Exception {
+        Map<String, Double> results = PerformanceGate.read(resource("harness.json"));
+
+        Map<String, Double> expected = new HashMap<>();
+        expected.put("NotificationHarness(concurrency=1)" + THROUGHPUT, 93.5);
+        expected.put("NotificationHarness(concurrency=4)" + THROUGHPUT, 176.25);
+        assertEquals(expected, results);
+    }
+
+    @Test
+    public void readUnrecognizedResults() throws Exception {
+        File file = folder.newFile("results.json");
+        new ObjectMapper().writeValue(file, new HashMap<>());
+
+        try {
+            PerformanceGate.read(file);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains(file.toString()));
+        }
+    }
+
+    @Test
+    public void compareReportsRegressions() throws Exception {
+        baseline.put(COMPOSE + THROUGHPUT, 50000.0);
+        baseline.put(COMPOSE + ALLOCATION, 20000.0);
+        baseline.put(DISPATCH + THROUGHPUT, 3000.0);
+
+        assertEquals(singletonList(COMPOSE + ALLOCATION), underTest.compare(PerformanceGate.read(resource("jmh.json")),
+                quiet()));
+    }
+
+    /**
+     * When a baseline is required, a result with no baseline fails the gate, so that it is not silently left ungated
+     */
+    @Test
+    public void resultMissingFromBaselineFails() throws Exception {
+        baseline.put(COMPOSE + THROUGHPUT, 50000.0);
+        baseline.put(DISPATCH + THROUGHPUT, 3000.0);
+
+        assertEquals(singletonList(COMPOSE + ALLOCATION), underTest.compare(PerformanceGate.read(resource("jmh.json")),
+                quiet()));
+    }
+
+    /**
+     * Until a baseline is required, a result with no baseline is reported but does not fail the gate
+     */
+    @Test
+    public void resultMissingFromBaselineIsReportedUnlessRequired() throws Exception {
+        baseline.put(COMPOSE + THROUGHPUT, 50000.0);
+        baseline.put(DISPATCH + THROUGHPUT, 3000.0);
+        underTest = new PerformanceGate(baseline, 0.10, 0.05, false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(emptyList(), underTest.compare(PerformanceGate.read(resource("jmh.json")), new PrintStream(out)));
+        assertTrue(out.toString().contains("not in baseline"));
+    }
+
+    /**
+     * A baseline value that was not measured, such as that of a benchmark that was not selected, does not fail
+     */
+    @Test
+    public void baselineNotMeasuredDoesNotFail() throws Exception {
+        baseline.put("NotificationHarness(concurrency=1)" + THROUGHPUT, 90.0);
+        baseline.put("NotificationHarness(concurrency=4)" + THROUGHPUT, 170.0);
+        baseline.put(DISPATCH + THROUGHPUT, 3000.0);
+
+        assertEquals(emptyList(), underTest.compare(PerformanceGate.read(resource("harness.json")), quiet()));
+    }
+
+    private static File resource(String name) throws Exception {
+        return new File(PerformanceGateTest.class.getResource(name).toURI());
+    }
+
+    private static PrintStream quiet() {
+        return new PrintStream(new ByteArrayOutputStream());
+    }
+
+}
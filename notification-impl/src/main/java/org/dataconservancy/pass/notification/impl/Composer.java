@@ -38,6 +38,9 @@ import org.dataconservancy.pass.notification.model.Notification;
 import org.dataconservancy.pass.notification.model.SimpleNotification;
 import org.dataconservancy.pass.notification.model.config.NotificationConfig;
 import org.dataconservancy.pass.notification.model.config.RecipientConfig;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Outcome;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.ReflectionUtils;
@@ -74,6 +77,8 @@ public class Composer implements BiFunction<Submission, SubmissionEvent, Notific
 
     private ObjectMapper mapper;
 
+    private StageMetrics metrics = StageMetrics.noop();
+
     public Composer(NotificationConfig config, ObjectMapper mapper) {
         this.mapper = mapper;
         Objects.requireNonNull(config, "NotificationConfig must not be null.");
@@ -92,6 +97,13 @@ public class Composer implements BiFunction<Submission, SubmissionEvent, Notific
         this.linkValidator = linkValidator;
     }
 
+    public Composer(NotificationConfig config, RecipientAnalyzer recipientAnalyzer,
+            SubmissionLinkAnalyzer submissionLinkAnalyzer, LinkValidator linkValidator, ObjectMapper mapper,
+            StageMetrics metrics) {
+        this(config, recipientAnalyzer, submissionLinkAnalyzer, linkValidator, mapper);
+        this.metrics = Objects.requireNonNull(metrics, "StageMetrics must not be null.");
+    }
+
     /**
      * Composes a {@code Notification} from a {@code Submission} and {@code SubmissionEvent}.
      *
@@ -110,6 +122,8 @@ public class Composer implements BiFunction<Submission, SubmissionEvent, Notific
                     submission.getId(), event.getId(), event.getId(), event.getSubmission());
         }
 
+        Notification.Type type = typeOf(event.getEventType());
+
         SimpleNotification notification = new SimpleNotification();
         HashMap<Notification.Param, String> params = new HashMap<>();
         notification.setParameters(params);
@@ -136,7 +150,15 @@ public class Composer implements BiFunction<Submission, SubmissionEvent, Notific
         notification.setSender(from);
         params.put(Notification.Param.FROM, from);
 
-        Collection<String> recipients = recipientAnalyzer.apply(submission, event);
+        Collection<String> recipients;
+        long start = metrics.start();
+        try {
+            recipients = recipientAnalyzer.apply(submission, event);
+            metrics.record(Stage.RECIPIENT_RESOLUTION, type, Outcome.SUCCESS, start);
+        } catch (RuntimeException e) {
+            metrics.record(Stage.RECIPIENT_RESOLUTION, type, StageMetrics.outcomeOf(e), start);
+            throw e;
+        }
         notification.setRecipients(recipients);
         params.put(Notification.Param.TO, join(",", recipients));
 
@@ -144,40 +166,46 @@ public class Composer implements BiFunction<Submission, SubmissionEvent, Notific
                 .filter(linkValidator)
                 .collect(serialized()));
 
-        switch (event.getEventType()) {
-            case APPROVAL_REQUESTED_NEWUSER: {
-                notification.setType(Notification.Type.SUBMISSION_APPROVAL_INVITE);
-                break;
-            }
-
-            case APPROVAL_REQUESTED: {
-                notification.setType(Notification.Type.SUBMISSION_APPROVAL_REQUESTED);
-                break;
-            }
-
-            case CHANGES_REQUESTED: {
-                notification.setType(Notification.Type.SUBMISSION_CHANGES_REQUESTED);
-                break;
-            }
-
-            case SUBMITTED: {
-                notification.setType(Notification.Type.SUBMISSION_SUBMISSION_SUBMITTED);
-                break;
-            }
-
-            case CANCELLED: {
-                notification.setType(Notification.Type.SUBMISSION_SUBMISSION_CANCELLED);
-                break;
-            }
-
-            default: {
-                throw new RuntimeException("Unknown SubmissionEvent type '" + event.getEventType() + "'");
-            }
+        if (type == null) {
+            throw new RuntimeException("Unknown SubmissionEvent type '" + event.getEventType() + "'");
         }
+        notification.setType(type);
 
         return notification;
     }
 
+    /**
+     * Answers the type of notification produced for a type of {@code SubmissionEvent}.
+     *
+     * @param eventType the type of event
+     * @return the type of notification, or {@code null} if the event type does not produce notifications
+     */
+    static Notification.Type typeOf(SubmissionEvent.EventType eventType) {
+        if (eventType == null) {
+            return null;
+        }
+
+        switch (eventType) {
+            case APPROVAL_REQUESTED_NEWUSER:
+                return Notification.Type.SUBMISSION_APPROVAL_INVITE;
+
+            case APPROVAL_REQUESTED:
+                return Notification.Type.SUBMISSION_APPROVAL_REQUESTED;
+
+            case CHANGES_REQUESTED:
+                return Notification.Type.SUBMISSION_CHANGES_REQUESTED;
+
+            case SUBMITTED:
+                return Notification.Type.SUBMISSION_SUBMISSION_SUBMITTED;
+
+            case CANCELLED:
+                return Notification.Type.SUBMISSION_SUBMISSION_CANCELLED;
+
+            default:
+                return null;
+        }
+    }
+
     RecipientConfig getRecipientConfig() {
         return recipientConfig;
     }
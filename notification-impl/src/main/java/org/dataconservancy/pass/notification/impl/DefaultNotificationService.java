@@ -16,12 +16,20 @@
 package org.dataconservancy.pass.notification.impl;
 
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.dataconservancy.pass.client.PassClient;
 import org.dataconservancy.pass.model.Submission;
 import org.dataconservancy.pass.model.SubmissionEvent;
 import org.dataconservancy.pass.notification.dispatch.DispatchService;
 import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.support.jfr.PipelineEvent;
+import org.dataconservancy.pass.notification.support.jfr.PipelineEvents;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Outcome;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Stage;
+import org.dataconservancy.pass.notification.support.resilience.LimitExceededException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -43,33 +51,104 @@ public class DefaultNotificationService implements NotificationService {
 
     private Composer composer;
 
-    @Autowired
+    private SubmissionCache submissionCache;
+
+    private StageMetrics metrics;
+
     public DefaultNotificationService(PassClient passClient, DispatchService dispatchService, Composer composer) {
+        this(passClient, dispatchService, composer, new SubmissionCache(passClient, 0));
+    }
+
+    public DefaultNotificationService(PassClient passClient, DispatchService dispatchService, Composer composer,
+                                      SubmissionCache submissionCache) {
+        this(passClient, dispatchService, composer, submissionCache, StageMetrics.noop());
+    }
+
+    @Autowired
+    public DefaultNotificationService(PassClient passClient, DispatchService dispatchService, Composer composer,
+                                      SubmissionCache submissionCache, StageMetrics metrics) {
         this.passClient = passClient;
         this.dispatchService = dispatchService;
         this.composer = composer;
+        this.submissionCache = submissionCache;
+        this.metrics = metrics;
     }
 
     @Override
     public void notify(String eventUri) {
+        Notification notification = compose(eventUri);
+        if (notification == null) {
+            return;
+        }
+
+        // Invoke Dispatch
+        dispatchService.dispatch(notification);
+    }
+
+    /**
+     * Composes the notification on the calling thread, and dispatches it with
+     * {@link DispatchService#dispatchAsync(Notification)}.
+     *
+     * @param eventUri the URI of the {@code SubmissionEvent}
+     * @return a stage completing once the notification has been dispatched, or immediately if there is none
+     */
+    @Override
+    public CompletionStage<Void> notifyAsync(String eventUri) {
+        Notification notification;
+        try {
+            notification = compose(eventUri);
+        } catch (RuntimeException e) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        if (notification == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Invoke Dispatch
+        return dispatchService.dispatchAsync(notification).thenApply(id -> null);
+    }
+
+    /**
+     * Retrieves the {@code SubmissionEvent} and its {@code Submission}, and composes the notification.
+     *
+     * @return the notification, or {@code null} if there is none to dispatch
+     */
+    private Notification compose(String eventUri) {
 
         // Retrieve SubmissionEvent
         SubmissionEvent event = null;
+        long start = metrics.start();
         try {
             event = passClient.readResource(URI.create(eventUri), SubmissionEvent.class);
+            metrics.record(Stage.EVENT_FETCH, null, Outcome.SUCCESS, start);
+        } catch (LimitExceededException e) {
+            // the repository was not asked; let the caller decide whether to retry
+            metrics.record(Stage.EVENT_FETCH, null, Outcome.REFUSED, start);
+            throw e;
         } catch (Exception e) {
+            metrics.record(Stage.EVENT_FETCH, null, Outcome.FAILURE, start);
             LOG.error("Unable to retrieve SubmissionEvent '{}': {}", eventUri, e);
-            return;
+            return null;
         }
 
+        Notification.Type type = Composer.typeOf(event.getEventType());
+
         // Retrieve Submission
         Submission submission = null;
+        start = metrics.start();
         try {
-            submission = passClient.readResource(event.getSubmission(), Submission.class);
+            submission = submissionCache.get(event.getSubmission(), event.getPerformedDate());
+            metrics.record(Stage.SUBMISSION_FETCH, type, Outcome.SUCCESS, start);
+        } catch (LimitExceededException e) {
+            metrics.record(Stage.SUBMISSION_FETCH, type, Outcome.REFUSED, start);
+            throw e;
         } catch (Exception e) {
+            metrics.record(Stage.SUBMISSION_FETCH, type, Outcome.FAILURE, start);
             LOG.error("Unable to retrieve Submission '{}' for SubmissionEvent '{}': {}",
                     event.getSubmission(), eventUri, e);
-            return;
+            return null;
         }
 
         // todo: abstract into a policy of some kind
@@ -82,15 +161,26 @@ public class DefaultNotificationService implements NotificationService {
             LOG.debug("Dropping self-submission SubmissionEvent (Event URI: {}, Resource URI: {})",
                     event.getId(),
                     submission.getId());
-            return;
+            metrics.count(Stage.SELF_SUBMISSION_DROP, type, Outcome.DISCARDED);
+            return null;
         }
 
         // Compose Notification
-        Notification notification = composer.apply(submission, event);
-
-        // Invoke Dispatch
-        dispatchService.dispatch(notification);
+        Notification notification;
+        start = metrics.start();
+        PipelineEvent composeEvent = PipelineEvents.begin(PipelineEvents.Kind.COMPOSE).eventUri(event.getId())
+                .resourceUri(submission.getId()).notificationType(type);
+        try {
+            notification = composer.apply(submission, event);
+            metrics.record(Stage.COMPOSE, type, Outcome.SUCCESS, start);
+            composeEvent.end(Outcome.SUCCESS);
+        } catch (RuntimeException e) {
+            metrics.record(Stage.COMPOSE, type, StageMetrics.outcomeOf(e), start);
+            composeEvent.end(StageMetrics.outcomeOf(e));
+            throw e;
+        }
 
+        return notification;
     }
 
 }
@@ -15,6 +15,9 @@
  */
 package org.dataconservancy.pass.notification.impl;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * @author Elliot Metsger (emetsger@jhu.edu)
  */
@@ -22,4 +25,26 @@ public interface NotificationService {
 
     void notify(String eventUri);
 
+    /**
+     * Processes the {@code SubmissionEvent} without waiting for the resulting notification to be delivered.  The
+     * returned stage completes once {@link #notify(String)} would have returned, or exceptionally with the exception
+     * it would have thrown.
+     * <p>
+     * The default implementation processes the event on the calling thread, and returns a completed stage.
+     * </p>
+     *
+     * @param eventUri the URI of the {@code SubmissionEvent}
+     * @return a stage completing once the event has been processed
+     */
+    default CompletionStage<Void> notifyAsync(String eventUri) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+            notify(eventUri);
+            result.complete(null);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
 }
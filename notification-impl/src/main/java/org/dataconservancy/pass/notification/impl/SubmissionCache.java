@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl;
+
+import java.net.URI;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.Submission;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches {@link Submission}s read from the repository, keyed by URI.  Several {@code SubmissionEvent}s for the same
+ * {@code Submission} commonly arrive close together, and each would otherwise re-read the {@code Submission}.
+ * <p>
+ * Entries are invalidated when the repository emits a modification or deletion message for the {@code Submission}
+ * (see {@link #invalidate(URI)}).  A time-to-live acts as a safety net in case a message is missed.  A cached
+ * {@code Submission} is only returned if it was read from the repository <em>after</em> the event being processed was
+ * performed; otherwise the {@code Submission} is re-read.  An entry read concurrently with an invalidation is never
+ * cached.
+ * </p>
+ * <p>
+ * A time-to-live less than or equal to zero disables caching: every request is read through to the repository.
+ * </p>
+ */
+public class SubmissionCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SubmissionCache.class);
+
+    static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final PassClient passClient;
+
+    private final long ttlMs;
+
+    private final int maxEntries;
+
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<URI, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a cache that reads through to the supplied client.
+     *
+     * @param passClient the client used to read {@code Submission}s on a cache miss
+     * @param ttlMs the maximum time, in milliseconds, an entry may be served from the cache; values less than or
+     *              equal to zero disable caching
+     */
+    public SubmissionCache(PassClient passClient, long ttlMs) {
+        this(passClient, ttlMs, DEFAULT_MAX_ENTRIES, System::currentTimeMillis);
+    }
+
+    SubmissionCache(PassClient passClient, long ttlMs, int maxEntries, LongSupplier clock) {
+        this.passClient = Objects.requireNonNull(passClient, "PassClient must not be null.");
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null.");
+    }
+
+    /**
+     * Answers the {@code Submission} identified by {@code submissionUri}, serving it from the cache if the cached
+     * copy was read after {@code notBefore} and has not expired or been invalidated.
+     *
+     * @param submissionUri the URI of the {@code Submission}
+     * @param notBefore the time the event being processed was performed; a cached copy read before this time is not
+     *                  served.  May be {@code null}, in which case the {@code Submission} is always re-read.
+     * @return the {@code Submission}
+     */
+    public Submission get(URI submissionUri, DateTime notBefore) {
+        if (ttlMs <= 0) {
+            return passClient.readResource(submissionUri, Submission.class);
+        }
+
+        long now = clock.getAsLong();
+        Entry cached = entries.get(submissionUri);
+        if (cached != null && cached.submission != null && now - cached.readAt < ttlMs &&
+                notBefore != null && cached.readAt >= notBefore.getMillis()) {
+            LOG.trace("Serving Submission {} from cache", submissionUri);
+            return cached.submission;
+        }
+
+        Submission submission = passClient.readResource(submissionUri, Submission.class);
+
+        // Only cache what was read if nothing newer (including an invalidation) was recorded while reading
+        Entry loaded = new Entry(submission, now);
+        entries.merge(submissionUri, loaded, (current, candidate) ->
+                (current.submission == null ? current.readAt < now : current.readAt <= now) ? candidate : current);
+
+        if (entries.size() > maxEntries) {
+            evict();
+        }
+
+        return submission;
+    }
+
+    /**
+     * Invalidates any cached copy of the {@code Submission} identified by {@code submissionUri}.  A read that is in
+     * progress when the invalidation arrives will not be cached.
+     *
+     * @param submissionUri the URI of the modified or deleted {@code Submission}
+     */
+    public void invalidate(URI submissionUri) {
+        if (ttlMs <= 0) {
+            return;
+        }
+
+        LOG.trace("Invalidating cached Submission {}", submissionUri);
+        entries.put(submissionUri, new Entry(null, clock.getAsLong()));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes expired entries and invalidation markers, and if the cache is still over capacity, removes arbitrary
+     * cached {@code Submission}s until it is not.  Unexpired invalidation markers are retained so that a read in
+     * progress is not cached.
+     */
+    private void evict() {
+        long now = clock.getAsLong();
+        entries.values().removeIf(entry -> now - entry.readAt >= ttlMs);
+        Iterator<Map.Entry<URI, Entry>> itr = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && itr.hasNext()) {
+            if (itr.next().getValue().submission != null) {
+                itr.remove();
+            }
+        }
+    }
+
+    /**
+     * A cached {@code Submission}, or an invalidation marker if {@code submission} is {@code null}.
+     */
+    private static class Entry {
+
+        private final Submission submission;
+
+        private final long readAt;
+
+        private Entry(Submission submission, long readAt) {
+            this.submission = submission;
+            this.readAt = readAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import java.net.URI;
+import java.util.Objects;
+
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.notification.support.resilience.CircuitBreaker;
+
+/**
+ * Performs repository reads through a {@link CircuitBreaker}, so that reads are refused up front while the repository
+ * is failing.  All other operations are forwarded to the delegate unchanged.
+ * <p>
+ * The breaker should be created with {@link #isRepositoryFailure(Throwable)} as its failure predicate, so that reads
+ * of missing resources, which show the repository is responding, do not open it.
+ * </p>
+ */
+public class CircuitBreakingPassClient extends ForwardingPassClient {
+
+    private final CircuitBreaker breaker;
+
+    public CircuitBreakingPassClient(PassClient delegate, CircuitBreaker breaker) {
+        super(delegate);
+        this.breaker = Objects.requireNonNull(breaker, "CircuitBreaker must not be null.");
+    }
+
+    @Override
+    public <T extends PassEntity> T readResource(URI uri, Class<T> modelClass) {
+        return breaker.execute(() -> super.readResource(uri, modelClass));
+    }
+
+    /**
+     * Answers whether a failed read indicates the repository is failing, as opposed to the resource being missing.
+     *
+     * @param e the failure
+     * @return true if the failure should count against the repository
+     */
+    public static boolean isRepositoryFailure(Throwable e) {
+        return NotFoundCachingPassClient.missingStatus(e) == 0;
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import java.net.URI;
+import java.util.Objects;
+
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.notification.support.resilience.ConcurrencyLimiter;
+
+/**
+ * Performs repository reads through a {@link ConcurrencyLimiter}, so that the number of concurrent reads adapts to the
+ * latency of the repository.  All other operations are forwarded to the delegate unchanged.
+ */
+public class ConcurrencyLimitedPassClient extends ForwardingPassClient {
+
+    private final ConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedPassClient(PassClient delegate, ConcurrencyLimiter limiter) {
+        super(delegate);
+        this.limiter = Objects.requireNonNull(limiter, "ConcurrencyLimiter must not be null.");
+    }
+
+    @Override
+    public <T extends PassEntity> T readResource(URI uri, Class<T> modelClass) {
+        return limiter.execute(() -> super.readResource(uri, modelClass));
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import static java.util.Collections.singletonList;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.client.PassJsonAdapter;
+import org.dataconservancy.pass.model.PassEntity;
+import org.fcrepo.client.FcrepoClient;
+import org.fcrepo.client.FcrepoOperationFailedException;
+import org.fcrepo.client.FcrepoResponse;
+import org.fcrepo.client.GetBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Revalidates repository reads using conditional GET requests.  The last representation read for a URI is retained
+ * along with its {@code ETag}, and subsequent reads of the URI send {@code If-None-Match}.  If the repository answers
+ * {@code 304 Not Modified}, the retained object is returned without re-downloading or re-deserializing the resource.
+ * <p>
+ * Objects returned by {@link #readResource(URI, Class)} may be shared between callers, and must be treated as
+ * read-only.  Updates and deletions made through this client discard the retained representation; all other
+ * operations are forwarded to the delegate {@code PassClient} unchanged.
+ * </p>
+ */
+public class ConditionalGetPassClient extends ForwardingPassClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConditionalGetPassClient.class);
+
+    private static final String JSONLD_CONTENTTYPE = "application/ld+json";
+
+    private static final String ETAG_HEADER = "ETag";
+
+    private static final String ETAG_WEAK_PREFIX = "W/";
+
+    private static final List<URI> OMIT_SERVER_MANAGED =
+            singletonList(URI.create("http://fedora.info/definitions/v4/repository#ServerManaged"));
+
+    private final FcrepoClient fcrepoClient;
+
+    private final PassJsonAdapter adapter;
+
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<URI, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a client which retains at most {@code maxEntries} representations.
+     *
+     * @param delegate the client all other operations are forwarded to
+     * @param fcrepoClient the client used to perform reads; it must <em>not</em> be configured to throw exceptions on
+     *                     failure, because a {@code 304} is an expected response
+     * @param adapter deserializes representations into model objects
+     * @param maxEntries the maximum number of representations retained
+     */
+    public ConditionalGetPassClient(PassClient delegate, FcrepoClient fcrepoClient, PassJsonAdapter adapter,
+                                    int maxEntries) {
+        super(delegate);
+        this.fcrepoClient = Objects.requireNonNull(fcrepoClient, "FcrepoClient must not be null.");
+        this.adapter = Objects.requireNonNull(adapter, "PassJsonAdapter must not be null.");
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Maximum number of entries must be a positive integer.");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public <T extends PassEntity> T readResource(URI uri, Class<T> modelClass) {
+        Objects.requireNonNull(uri, "URI must not be null.");
+        Objects.requireNonNull(modelClass, "Model class must not be null.");
+
+        Entry cached = entries.get(uri);
+        if (cached != null && !modelClass.isInstance(cached.entity)) {
+            cached = null;
+        }
+
+        GetBuilder get = new GetBuilder(uri, fcrepoClient)
+                .accept(JSONLD_CONTENTTYPE)
+                .preferRepresentation(null, OMIT_SERVER_MANAGED);
+        if (cached != null) {
+            get.ifNoneMatch(cached.etag);
+        }
+
+        try (FcrepoResponse response = get.perform()) {
+            int status = response.getStatusCode();
+
+            if (status == 304 && cached != null) {
+                LOG.trace("Resource {} not modified, answering retained representation", uri);
+                return modelClass.cast(cached.entity);
+            }
+
+            if (status < 200 || status > 299) {
+                throw new FcrepoOperationFailedException(uri, status, "Unexpected response reading resource");
+            }
+
+            T entity = adapter.toModel(response.getBody(), modelClass);
+            String etag = response.getHeaderValue(ETAG_HEADER);
+            if (etag != null) {
+                entity.setVersionTag(etag.replace(ETAG_WEAK_PREFIX, ""));
+                retain(uri, new Entry(etag, entity));
+            } else {
+                entries.remove(uri);
+            }
+
+            return entity;
+        } catch (FcrepoOperationFailedException | IOException | RuntimeException e) {
+            throw new RuntimeException("A problem occurred while attempting to read a Resource", e);
+        }
+    }
+
+    @Override
+    public void updateResource(PassEntity modelObj) {
+        discard(modelObj);
+        super.updateResource(modelObj);
+    }
+
+    @Override
+    public <T extends PassEntity> T updateAndReadResource(T modelObj, Class<T> modelClass) {
+        discard(modelObj);
+        return super.updateAndReadResource(modelObj, modelClass);
+    }
+
+    @Override
+    public void deleteResource(URI uri) {
+        if (uri != null) {
+            entries.remove(uri);
+        }
+        super.deleteResource(uri);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void discard(PassEntity modelObj) {
+        if (modelObj != null && modelObj.getId() != null) {
+            entries.remove(modelObj.getId());
+        }
+    }
+
+    private void retain(URI uri, Entry entry) {
+        entries.put(uri, entry);
+        Iterator<URI> itr = entries.keySet().iterator();
+        while (entries.size() > maxEntries && itr.hasNext()) {
+            URI candidate = itr.next();
+            if (!candidate.equals(uri)) {
+                itr.remove();
+            }
+        }
+    }
+
+    /**
+     * A retained representation and the {@code ETag} it was served with.
+     */
+    private static class Entry {
+
+        private final String etag;
+
+        private final PassEntity entity;
+
+        private Entry(String etag, PassEntity entity) {
+            this.etag = etag;
+            this.entity = entity;
+        }
+
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import java.net.URI;
+
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.notification.support.jfr.PipelineEvent;
+import org.dataconservancy.pass.notification.support.jfr.PipelineEvents;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Outcome;
+
+/**
+ * Records each repository read as a {@code PassFetch} flight recorder event, carrying the URI and type of the resource
+ * read.  All other operations are forwarded to the delegate unchanged.
+ *
+ * @see PipelineEvents
+ */
+public class FlightRecordingPassClient extends ForwardingPassClient {
+
+    public FlightRecordingPassClient(PassClient delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public <T extends PassEntity> T readResource(URI uri, Class<T> modelClass) {
+        PipelineEvent event = PipelineEvents.begin(PipelineEvents.Kind.FETCH).resourceUri(uri)
+                .resourceType(modelClass);
+        try {
+            T resource = super.readResource(uri, modelClass);
+            event.end(Outcome.SUCCESS);
+            return resource;
+        } catch (RuntimeException e) {
+            event.end(StageMetrics.outcomeOf(e));
+            throw e;
+        }
+    }
+
+}
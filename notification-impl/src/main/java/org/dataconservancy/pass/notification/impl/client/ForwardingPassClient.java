@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.PassEntity;
+
+/**
+ * A {@link PassClient} which forwards every call to a delegate.  Decorators extend this class and override only the
+ * methods they are interested in.
+ */
+public abstract class ForwardingPassClient implements PassClient {
+
+    private final PassClient delegate;
+
+    protected ForwardingPassClient(PassClient delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate PassClient must not be null.");
+    }
+
+    protected PassClient delegate() {
+        return delegate;
+    }
+
+    @Override
+    public URI createResource(PassEntity modelObj) {
+        return delegate.createResource(modelObj);
+    }
+
+    @Override
+    public <T extends PassEntity> T createAndReadResource(T modelObj, Class<T> modelClass) {
+        return delegate.createAndReadResource(modelObj, modelClass);
+    }
+
+    @Override
+    public void updateResource(PassEntity modelObj) {
+        delegate.updateResource(modelObj);
+    }
+
+    @Override
+    public <T extends PassEntity> T updateAndReadResource(T modelObj, Class<T> modelClass) {
+        return delegate.updateAndReadResource(modelObj, modelClass);
+    }
+
+    @Override
+    public void deleteResource(URI uri) {
+        delegate.deleteResource(uri);
+    }
+
+    @Override
+    public <T extends PassEntity> T readResource(URI uri, Class<T> modelClass) {
+        return delegate.readResource(uri, modelClass);
+    }
+
+    @Override
+    public <T extends PassEntity> URI findByAttribute(Class<T> modelClass, String attribute, Object value) {
+        return delegate.findByAttribute(modelClass, attribute, value);
+    }
+
+    @Override
+    public <T extends PassEntity> Set<URI> findAllByAttribute(Class<T> modelClass, String attribute, Object value) {
+        return delegate.findAllByAttribute(modelClass, attribute, value);
+    }
+
+    @Override
+    public <T extends PassEntity> Set<URI> findAllByAttribute(Class<T> modelClass, String attribute, Object value,
+                                                             int limit, int offset) {
+        return delegate.findAllByAttribute(modelClass, attribute, value, limit, offset);
+    }
+
+    @Override
+    public <T extends PassEntity> Set<URI> findAllByAttributes(Class<T> modelClass,
+                                                              Map<String, Object> valueAttributesMap) {
+        return delegate.findAllByAttributes(modelClass, valueAttributesMap);
+    }
+
+    @Override
+    public <T extends PassEntity> Set<URI> findAllByAttributes(Class<T> modelClass,
+                                                              Map<String, Object> valueAttributesMap,
+                                                              int limit, int offset) {
+        return delegate.findAllByAttributes(modelClass, valueAttributesMap, limit, offset);
+    }
+
+    @Override
+    public Map<String, Collection<URI>> getIncoming(URI passEntity) {
+        return delegate.getIncoming(passEntity);
+    }
+
+    @Override
+    public URI upload(URI entityUri, InputStream content) {
+        return delegate.upload(entityUri, content);
+    }
+
+    @Override
+    public URI upload(URI entityUri, InputStream content, Map<String, ?> params) {
+        return delegate.upload(entityUri, content, params);
+    }
+
+    @Override
+    public <T extends PassEntity> int processAllEntities(Consumer<URI> processor, Class<T> modelClass) {
+        return delegate.processAllEntities(processor, modelClass);
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import java.net.URI;
+import java.util.Objects;
+
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.notification.support.resilience.Hedger;
+
+/**
+ * Performs repository reads through a {@link Hedger}, so that a read which is slower than most is raced against a
+ * second, identical read.  All other operations are forwarded to the delegate unchanged.
+ */
+public class HedgingPassClient extends ForwardingPassClient {
+
+    private final Hedger hedger;
+
+    public HedgingPassClient(PassClient delegate, Hedger hedger) {
+        super(delegate);
+        this.hedger = Objects.requireNonNull(hedger, "Hedger must not be null.");
+    }
+
+    @Override
+    public <T extends PassEntity> T readResource(URI uri, Class<T> modelClass) {
+        return hedger.execute(() -> super.readResource(uri, modelClass));
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import java.net.URI;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.PassEntity;
+import org.fcrepo.client.FcrepoOperationFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers, for a short time, URIs that the repository reported as missing ({@code 404 Not Found} or
+ * {@code 410 Gone}).  Reads of a remembered URI fail immediately, without contacting the repository, so that
+ * redeliveries of an event referencing a deleted resource do not repeat the same doomed requests.
+ * <p>
+ * A remembered URI is forgotten when its time-to-live elapses, or when a resource is created, updated or deleted at
+ * that URI through this client.  The failure thrown for a remembered URI carries a
+ * {@link FcrepoOperationFailedException} with the original status code as its cause, just as a read that reached the
+ * repository would.
+ * </p>
+ * <p>
+ * Metrics: {@code pass.client.notfound} counts reads answered from the cache ({@code result=hit}) and missing URIs
+ * added to the cache ({@code result=stored}); the gauge {@code pass.client.notfound.size} reports the number of
+ * remembered URIs.
+ * </p>
+ */
+public class NotFoundCachingPassClient extends ForwardingPassClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NotFoundCachingPassClient.class);
+
+    static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final long ttlMs;
+
+    private final int maxEntries;
+
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<URI, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+
+    private final Counter stored;
+
+    /**
+     * Creates a client which remembers missing URIs for {@code ttlMs} milliseconds.
+     *
+     * @param delegate the client all operations are forwarded to
+     * @param ttlMs the time, in milliseconds, a missing URI is remembered
+     * @param meterRegistry the registry metrics are recorded to
+     */
+    public NotFoundCachingPassClient(PassClient delegate, long ttlMs, MeterRegistry meterRegistry) {
+        this(delegate, ttlMs, DEFAULT_MAX_ENTRIES, System::currentTimeMillis, meterRegistry);
+    }
+
+    NotFoundCachingPassClient(PassClient delegate, long ttlMs, int maxEntries, LongSupplier clock,
+                              MeterRegistry meterRegistry) {
+        super(delegate);
+        if (ttlMs < 1) {
+            throw new IllegalArgumentException("Time-to-live must be a positive integer.");
+        }
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null.");
+        Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null.");
+        this.hits = meterRegistry.counter("pass.client.notfound", "result", "hit");
+        this.stored = meterRegistry.counter("pass.client.notfound", "result", "stored");
+        meterRegistry.gauge("pass.client.notfound.size", entries, ConcurrentHashMap::size);
+    }
+
+    @Override
+    public <T extends PassEntity> T readResource(URI uri, Class<T> modelClass) {
+        Entry missing = uri == null ? null : entries.get(uri);
+        if (missing != null) {
+            if (clock.getAsLong() - missing.storedAt < ttlMs) {
+                hits.increment();
+                LOG.debug("Resource {} was recently reported missing ({}), not reading it again", uri,
+                        missing.status);
+                throw new RuntimeException("A problem occurred while attempting to read a Resource",
+                        new FcrepoOperationFailedException(uri, missing.status, "Resource recently reported missing"));
+            }
+            entries.remove(uri, missing);
+        }
+
+        try {
+            return super.readResource(uri, modelClass);
+        } catch (RuntimeException e) {
+            int status = missingStatus(e);
+            if (status > 0 && uri != null) {
+                remember(uri, status);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public URI createResource(PassEntity modelObj) {
+        URI uri = super.createResource(modelObj);
+        forget(uri);
+        return uri;
+    }
+
+    @Override
+    public <T extends PassEntity> T createAndReadResource(T modelObj, Class<T> modelClass) {
+        T created = super.createAndReadResource(modelObj, modelClass);
+        if (created != null) {
+            forget(created.getId());
+        }
+        return created;
+    }
+
+    @Override
+    public void updateResource(PassEntity modelObj) {
+        if (modelObj != null) {
+            forget(modelObj.getId());
+        }
+        super.updateResource(modelObj);
+    }
+
+    @Override
+    public <T extends PassEntity> T updateAndReadResource(T modelObj, Class<T> modelClass) {
+        if (modelObj != null) {
+            forget(modelObj.getId());
+        }
+        return super.updateAndReadResource(modelObj, modelClass);
+    }
+
+    @Override
+    public void deleteResource(URI uri) {
+        forget(uri);
+        super.deleteResource(uri);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Answers the status code if {@code e} was caused by the repository reporting a resource as missing.
+     *
+     * @param e the failure
+     * @return {@code 404} or {@code 410} if the resource is missing, otherwise {@code 0}
+     */
+    static int missingStatus(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof FcrepoOperationFailedException) {
+                int status = ((FcrepoOperationFailedException) cause).getStatusCode();
+                return status == 404 || status == 410 ? status : 0;
+            }
+        }
+        return 0;
+    }
+
+    private void remember(URI uri, int status) {
+        LOG.debug("Remembering missing resource {} ({}) for {} ms", uri, status, ttlMs);
+        entries.put(uri, new Entry(status, clock.getAsLong()));
+        stored.increment();
+
+        if (entries.size() > maxEntries) {
+            long now = clock.getAsLong();
+            entries.values().removeIf(entry -> now - entry.storedAt >= ttlMs);
+            Iterator<URI> itr = entries.keySet().iterator();
+            while (entries.size() > maxEntries && itr.hasNext()) {
+                itr.next();
+                itr.remove();
+            }
+        }
+    }
+
+    private void forget(URI uri) {
+        if (uri != null) {
+            entries.remove(uri);
+        }
+    }
+
+    /**
+     * The status a missing URI was reported with, and when.
+     */
+    private static class Entry {
+
+        private final int status;
+
+        private final long storedAt;
+
+        private Entry(int status, long storedAt) {
+            this.status = status;
+            this.storedAt = storedAt;
+        }
+
+    }
+
+}
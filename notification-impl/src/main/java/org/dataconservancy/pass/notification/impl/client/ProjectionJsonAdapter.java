@@ -0,0 +1,240 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.dataconservancy.pass.client.PassJsonAdapter;
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.Submission;
+import org.dataconservancy.pass.model.SubmissionEvent;
+import org.dataconservancy.pass.model.SubmissionEvent.EventType;
+import org.dataconservancy.pass.model.SubmissionEvent.PerformerRole;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+/**
+ * Deserializes {@link Submission}s and {@link SubmissionEvent}s by streaming over their JSON and retaining only the
+ * fields used to compose notifications.  No intermediate tree or data-binding machinery is created, and fields that
+ * are not needed are skipped without being materialized.
+ * <p>
+ * Only the following fields are populated:
+ * </p>
+ * <ul>
+ *     <li>{@code Submission}: id, submitter, submitterEmail, preparers, metadata</li>
+ *     <li>{@code SubmissionEvent}: id, eventType, link, performedBy, performerRole, performedDate, comment,
+ *         submission</li>
+ * </ul>
+ * <p>
+ * The resulting objects are projections: they must be treated as read-only, and must never be used to update the
+ * repository, because the fields that were not read would be removed.  Other model types, and serialization to JSON,
+ * are handled by the delegate adapter.
+ * </p>
+ */
+public class ProjectionJsonAdapter implements PassJsonAdapter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final DateTimeFormatter DATE_FORMAT = ISODateTimeFormat.dateTime().withZoneUTC();
+
+    private final PassJsonAdapter delegate;
+
+    /**
+     * @param delegate handles model types other than {@code Submission} and {@code SubmissionEvent}, and all
+     *                 serialization
+     */
+    public ProjectionJsonAdapter(PassJsonAdapter delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate PassJsonAdapter must not be null.");
+    }
+
+    @Override
+    public byte[] toJson(PassEntity passObject, boolean includeContext) {
+        return delegate.toJson(passObject, includeContext);
+    }
+
+    @Override
+    public <T extends PassEntity> T toModel(byte[] json, Class<T> valueType) {
+        if (!isProjected(valueType)) {
+            return delegate.toModel(json, valueType);
+        }
+
+        if (json == null || json.length == 0) {
+            throw new IllegalArgumentException("json cannot be empty");
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return read(parser, valueType);
+        } catch (IOException | RuntimeException e) {
+            throw new RuntimeException("Could not map JSON to " + valueType.getSimpleName(), e);
+        }
+    }
+
+    @Override
+    public <T extends PassEntity> T toModel(InputStream json, Class<T> valueType) {
+        if (!isProjected(valueType)) {
+            return delegate.toModel(json, valueType);
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return read(parser, valueType);
+        } catch (IOException | RuntimeException e) {
+            throw new RuntimeException("Could not map JSON to " + valueType.getSimpleName(), e);
+        }
+    }
+
+    private static boolean isProjected(Class<?> valueType) {
+        return valueType == Submission.class || valueType == SubmissionEvent.class;
+    }
+
+    private static <T extends PassEntity> T read(JsonParser parser, Class<T> valueType) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object");
+        }
+
+        if (valueType == Submission.class) {
+            return valueType.cast(readSubmission(parser));
+        }
+
+        return valueType.cast(readEvent(parser));
+    }
+
+    private static Submission readSubmission(JsonParser parser) throws IOException {
+        Submission submission = new Submission();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "@id":
+                    submission.setId(uri(parser));
+                    break;
+                case "submitter":
+                    submission.setSubmitter(uri(parser));
+                    break;
+                case "submitterEmail":
+                    submission.setSubmitterEmail(uri(parser));
+                    break;
+                case "preparers":
+                    submission.setPreparers(uris(parser));
+                    break;
+                case "metadata":
+                    submission.setMetadata(text(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        return submission;
+    }
+
+    private static SubmissionEvent readEvent(JsonParser parser) throws IOException {
+        SubmissionEvent event = new SubmissionEvent();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "@id":
+                    event.setId(uri(parser));
+                    break;
+                case "eventType":
+                    String eventType = text(parser);
+                    event.setEventType(eventType == null ? null : EventType.of(eventType));
+                    break;
+                case "link":
+                    event.setLink(uri(parser));
+                    break;
+                case "performedBy":
+                    event.setPerformedBy(uri(parser));
+                    break;
+                case "performerRole":
+                    event.setPerformerRole(performerRole(text(parser)));
+                    break;
+                case "performedDate":
+                    String performedDate = text(parser);
+                    event.setPerformedDate(performedDate == null ? null : DATE_FORMAT.parseDateTime(performedDate));
+                    break;
+                case "comment":
+                    event.setComment(text(parser));
+                    break;
+                case "submission":
+                    event.setSubmission(uri(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        return event;
+    }
+
+    private static String text(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!parser.currentToken().isScalarValue()) {
+            throw new IOException("Expected a scalar value for '" + parser.getCurrentName() + "'");
+        }
+        return parser.getText();
+    }
+
+    private static URI uri(JsonParser parser) throws IOException {
+        String value = text(parser);
+        return value == null ? null : URI.create(value);
+    }
+
+    /**
+     * Compacted JSON-LD may represent a single-valued list as a scalar, so both forms are accepted.
+     */
+    private static List<URI> uris(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            URI value = uri(parser);
+            return value == null ? new ArrayList<>() : new ArrayList<>(Collections.singletonList(value));
+        }
+
+        List<URI> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            URI value = uri(parser);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    private static PerformerRole performerRole(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (PerformerRole role : PerformerRole.values()) {
+            if (role.toString().equals(value)) {
+                return role;
+            }
+        }
+        throw new IllegalArgumentException("Unknown performerRole '" + value + "'");
+    }
+
+}
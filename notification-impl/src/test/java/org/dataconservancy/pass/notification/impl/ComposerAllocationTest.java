@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dataconservancy.pass.model.SubmissionEvent.EventType;
+import org.dataconservancy.pass.notification.model.config.NotificationConfig;
+import org.dataconservancy.pass.notification.workload.NotificationConfigs;
+import org.dataconservancy.pass.notification.workload.Scenario;
+import org.dataconservancy.pass.notification.workload.WorkloadGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Asserts that composing a notification stays within a budget of allocated bytes.  The submission is shaped like
+ * those seen in production, with six authors and a long abstract, and the {@link Composer} is configured as it is in
+ * production.
+ * <p>
+ * Allocation is measured per thread by the JVM, after warming the {@code Composer} up, so these tests are skipped on
+ * JVMs which do not support it.  If a change legitimately needs more memory, raise the budget in the same commit and
+ * say why.
+ * </p>
+ */
+public class ComposerAllocationTest {
+
+    /**
+     * Allocation budget of composing an {@code APPROVAL_REQUESTED} notification, in bytes.  About 52 KB when the
+     * budget was set.
+     */
+    private static final long APPROVAL_REQUESTED_BUDGET = 65_000;
+
+    /**
+     * Allocation budget of composing an {@code APPROVAL_REQUESTED_NEWUSER} notification, which includes encrypting and
+     * logging a user token, in bytes.  About 105 KB when the budget was set.
+     */
+    private static final long APPROVAL_REQUESTED_NEWUSER_BUDGET = 130_000;
+
+    private static final int WARMUP = 5000;
+
+    private static final int ITERATIONS = 2000;
+
+    private Composer underTest;
+
+    private WorkloadGenerator workload;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue("Thread allocation is not measured by this JVM", isAllocationMeasured());
+
+        NotificationConfig config = NotificationConfigs.production();
+        underTest = new Composer(config, new RecipientAnalyzer(),
+                new SubmissionLinkAnalyzer(new UserTokenGenerator(config)), new LinkValidator(config),
+                new ObjectMapper());
+        workload = new WorkloadGenerator(WorkloadGenerator.SEED);
+    }
+
+    @Test
+    public void approvalRequested() {
+        Scenario scenario = workload.scenario(EventType.APPROVAL_REQUESTED, 1, 6);
+        assertWithinBudget("APPROVAL_REQUESTED", APPROVAL_REQUESTED_BUDGET, () ->
+                underTest.apply(scenario.getSubmission(), scenario.getEvent()));
+    }
+
+    @Test
+    public void approvalRequestedNewUser() {
+        Scenario scenario = workload.scenario(EventType.APPROVAL_REQUESTED_NEWUSER, 1, 6);
+        assertWithinBudget("APPROVAL_REQUESTED_NEWUSER", APPROVAL_REQUESTED_NEWUSER_BUDGET, () ->
+                underTest.apply(scenario.getSubmission(), scenario.getEvent()));
+    }
+
+    private static void assertWithinBudget(String type, long budget, Runnable operation) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        long perNotification = (threads.getThreadAllocatedBytes(thread) - before) / ITERATIONS;
+
+        assertTrue(String.format("Composing %s allocated %,d bytes per notification, over its budget of %,d bytes",
+                type, perNotification, budget), perNotification <= budget);
+    }
+
+    private static boolean isAllocationMeasured() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return false;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (threads.isThreadAllocatedMemorySupported() && !threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled();
+    }
+
+}
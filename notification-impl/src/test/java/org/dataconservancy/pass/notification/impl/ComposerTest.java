@@ -35,9 +35,9 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 import java.util.function.Function;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.text.StringEscapeUtils;
 import org.dataconservancy.pass.authz.usertoken.Key;
@@ -51,6 +51,8 @@ import org.dataconservancy.pass.notification.model.config.Mode;
 import org.dataconservancy.pass.notification.model.config.NotificationConfig;
 import org.dataconservancy.pass.notification.model.config.RecipientConfig;
 import org.dataconservancy.pass.notification.model.config.UserTokenGeneratorConfig;
+import org.dataconservancy.pass.notification.workload.Scenario;
+import org.dataconservancy.pass.notification.workload.WorkloadGenerator;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -59,8 +61,6 @@ import org.junit.Test;
  */
 public class ComposerTest {
 
-    private static final String RESOURCE_METADATA = "{\"title\":\"Specific protein supplementation using soya, casein or whey differentially affects regional gut growth and luminal growth factor bioactivity in rats; implications for the treatment of gut injury and stimulating repair\",\"journal-title\":\"Food & Function\",\"volume\":\"9\",\"issue\":\"1\",\"abstract\":\"Differential enhancement of luminal growth factor bioactivity and targeted regional gut growth occurs dependent on dietary protein supplement.\",\"doi\":\"10.1039/c7fo01251a\",\"publisher\":\"Royal Society of Chemistry (RSC)\",\"authors\":\"[{\\\"author\\\":\\\"Tania Marchbank\\\",\\\"orcid\\\":\\\"http://orcid.org/0000-0003-2076-9098\\\"},{\\\"author\\\":\\\"Nikki Mandir\\\"},{\\\"author\\\":\\\"Denis Calnan\\\"},{\\\"author\\\":\\\"Robert A. Goodlad\\\"},{\\\"author\\\":\\\"Theo Podas\\\"},{\\\"author\\\":\\\"Raymond J. Playford\\\",\\\"orcid\\\":\\\"http://orcid.org/0000-0003-1235-8504\\\"}]\"}";
-
     private static final String NOTIFICATION_FROM_ADDRESS = "pass-production-noreply@jhu.edu";
 
     private static final List<String> NOTIFICATION_GLOBAL_CC_ADDRESS =
@@ -76,6 +76,8 @@ public class ComposerTest {
 
     private SubmissionLinkAnalyzer submissionLinkAnalyzer;
 
+    private WorkloadGenerator workload;
+
     private static final List<Link> generatedSubmissionLinks = asList(
             new Link(randomUri(), "rel1"),
             new Link(randomUri(), "rel2"));
@@ -112,6 +114,8 @@ public class ComposerTest {
 
         underTest = new Composer(notificationConfig,
                                  new RecipientAnalyzer(), submissionLinkAnalyzer, linkValidator, mapper);
+
+        workload = new WorkloadGenerator(WorkloadGenerator.SEED);
     }
 
     /**
@@ -120,19 +124,10 @@ public class ComposerTest {
      */
     @Test
     public void approvalRequestedNewUser() {
-        SubmissionEvent event = new SubmissionEvent();
-        URI eventUri = URI.create("uri:" + UUID.randomUUID().toString());
-        event.setEventType(EventType.APPROVAL_REQUESTED_NEWUSER);
-        event.setId(eventUri);
-
-        Submission submission = new Submission();
-        URI submissionUri = URI.create("uri:" + UUID.randomUUID().toString());
-        String userUri = "mailto:jane_professor@jhu.edu";
-        URI mailtoUri = URI.create(userUri);
-        submission.setMetadata(RESOURCE_METADATA);
-        submission.setId(submissionUri);
-        submission.setSubmitter(mailtoUri);
-        event.setSubmission(submissionUri);
+        Scenario scenario = workload.scenario(EventType.APPROVAL_REQUESTED_NEWUSER, 1, 6);
+        Submission submission = scenario.getSubmission();
+        SubmissionEvent event = scenario.getEvent();
+        String userUri = submission.getSubmitterEmail().toString();
 
         Notification notification = underTest.apply(submission, event);
 
@@ -146,7 +141,7 @@ public class ComposerTest {
         assertEquals(NOTIFICATION_FROM_ADDRESS, params.get(Param.FROM));
         assertEquals(String.join(",", NOTIFICATION_GLOBAL_CC_ADDRESS), params.get(Param.CC));
         assertEquals(String.join(",", NOTIFICATION_GLOBAL_BCC_ADDRESS), params.get(Param.BCC));
-        assertEquals(RESOURCE_METADATA, params.get(Param.RESOURCE_METADATA));
+        assertResourceMetadata(submission, params.get(Param.RESOURCE_METADATA));
         assertEquals(Notification.Type.SUBMISSION_APPROVAL_INVITE, notification.getType());
 
         // todo: test event metadata?
@@ -156,19 +151,10 @@ public class ComposerTest {
 
     @Test
     public void approvalRequested() {
-        SubmissionEvent event = new SubmissionEvent();
-        URI eventUri = URI.create("uri:" + UUID.randomUUID().toString());
-        event.setEventType(EventType.APPROVAL_REQUESTED);
-        event.setId(eventUri);
-
-        Submission submission = new Submission();
-        URI submissionUri = URI.create("uri:" + UUID.randomUUID().toString());
-        String userUri = "http://pass.jhu.edu/fcrepo/users/abc123";
-        URI mailtoUri = URI.create(userUri);
-        submission.setMetadata(RESOURCE_METADATA);
-        submission.setId(submissionUri);
-        submission.setSubmitter(mailtoUri);
-        event.setSubmission(submissionUri);
+        Scenario scenario = workload.scenario(EventType.APPROVAL_REQUESTED, 1, 6);
+        Submission submission = scenario.getSubmission();
+        SubmissionEvent event = scenario.getEvent();
+        String userUri = submission.getSubmitter().toString();
 
         Notification notification = underTest.apply(submission, event);
 
@@ -182,7 +168,7 @@ public class ComposerTest {
         assertEquals(NOTIFICATION_FROM_ADDRESS, params.get(Param.FROM));
         assertEquals(String.join(",", NOTIFICATION_GLOBAL_CC_ADDRESS), params.get(Param.CC));
         assertEquals(String.join(",", NOTIFICATION_GLOBAL_BCC_ADDRESS), params.get(Param.BCC));
-        assertEquals(RESOURCE_METADATA, params.get(Param.RESOURCE_METADATA));
+        assertResourceMetadata(submission, params.get(Param.RESOURCE_METADATA));
         assertEquals(Notification.Type.SUBMISSION_APPROVAL_REQUESTED, notification.getType());
 
         // todo: test event metadata?
@@ -192,18 +178,10 @@ public class ComposerTest {
 
     @Test
     public void changesRequested() {
-        SubmissionEvent event = new SubmissionEvent();
-        URI eventUri = URI.create("uri:" + UUID.randomUUID().toString());
-        event.setEventType(EventType.CHANGES_REQUESTED);
-        event.setId(eventUri);
-
-        Submission submission = new Submission();
-        URI submissionUri = URI.create("uri:" + UUID.randomUUID().toString());
-        String preparersUri = "http://pass.jhu.edu/fcrepo/users/abc123";
-        submission.setMetadata(RESOURCE_METADATA);
-        submission.setId(submissionUri);
-        submission.setPreparers(singletonList(URI.create(preparersUri)));
-        event.setSubmission(submissionUri);
+        Scenario scenario = workload.scenario(EventType.CHANGES_REQUESTED, 1, 6);
+        Submission submission = scenario.getSubmission();
+        SubmissionEvent event = scenario.getEvent();
+        String preparersUri = submission.getPreparers().get(0).toString();
 
         Notification notification = underTest.apply(submission, event);
 
@@ -217,7 +195,7 @@ public class ComposerTest {
         assertEquals(NOTIFICATION_FROM_ADDRESS, params.get(Param.FROM));
         assertEquals(String.join(",", NOTIFICATION_GLOBAL_CC_ADDRESS), params.get(Param.CC));
         assertEquals(String.join(",", NOTIFICATION_GLOBAL_BCC_ADDRESS), params.get(Param.BCC));
-        assertEquals(RESOURCE_METADATA, params.get(Param.RESOURCE_METADATA));
+        assertResourceMetadata(submission, params.get(Param.RESOURCE_METADATA));
         assertEquals(Notification.Type.SUBMISSION_CHANGES_REQUESTED, notification.getType());
 
         // todo: test event metadata?
@@ -227,18 +205,10 @@ public class ComposerTest {
 
     @Test
     public void submitted() {
-        SubmissionEvent event = new SubmissionEvent();
-        URI eventUri = URI.create("uri:" + UUID.randomUUID().toString());
-        event.setEventType(EventType.SUBMITTED);
-        event.setId(eventUri);
-
-        Submission submission = new Submission();
-        URI submissionUri = URI.create("uri:" + UUID.randomUUID().toString());
-        String preparersUri = "http://pass.jhu.edu/fcrepo/users/abc123";
-        submission.setMetadata(RESOURCE_METADATA);
-        submission.setId(submissionUri);
-        submission.setPreparers(singletonList(URI.create(preparersUri)));
-        event.setSubmission(submissionUri);
+        Scenario scenario = workload.scenario(EventType.SUBMITTED, 1, 6);
+        Submission submission = scenario.getSubmission();
+        SubmissionEvent event = scenario.getEvent();
+        String preparersUri = submission.getPreparers().get(0).toString();
 
         Notification notification = underTest.apply(submission, event);
 
@@ -252,7 +222,7 @@ public class ComposerTest {
         assertEquals(NOTIFICATION_FROM_ADDRESS, params.get(Param.FROM));
         assertEquals(String.join(",", NOTIFICATION_GLOBAL_CC_ADDRESS), params.get(Param.CC));
         assertEquals(String.join(",", NOTIFICATION_GLOBAL_BCC_ADDRESS), params.get(Param.BCC));
-        assertEquals(RESOURCE_METADATA, params.get(Param.RESOURCE_METADATA));
+        assertResourceMetadata(submission, params.get(Param.RESOURCE_METADATA));
         assertEquals(Notification.Type.SUBMISSION_SUBMISSION_SUBMITTED, notification.getType());
 
         // todo: test event metadata?
@@ -262,21 +232,12 @@ public class ComposerTest {
 
     @Test
     public void cancelledByPreparer() {
-        SubmissionEvent event = new SubmissionEvent();
-        URI eventUri = URI.create("uri:" + UUID.randomUUID().toString());
-        event.setEventType(EventType.CANCELLED);
-        event.setId(eventUri);
-
-        Submission submission = new Submission();
-        URI submissionUri = URI.create("uri:" + UUID.randomUUID().toString());
-        String preparersUri = "http://pass.jhu.edu/fcrepo/users/abc123";
-        String submitterUri = "http://pass.jhu.edu/fcrepo/users/xyz789";
-        submission.setMetadata(RESOURCE_METADATA);
-        submission.setId(submissionUri);
-        submission.setPreparers(singletonList(URI.create(preparersUri)));
-        submission.setSubmitter(URI.create(submitterUri));
+        Scenario scenario = workload.scenario(EventType.CANCELLED, 1, 6);
+        Submission submission = scenario.getSubmission();
+        SubmissionEvent event = scenario.getEvent();
+        String preparersUri = submission.getPreparers().get(0).toString();
+        String submitterUri = submission.getSubmitter().toString();
         event.setPerformedBy(URI.create(preparersUri));
-        event.setSubmission(submissionUri);
 
         Notification notification = underTest.apply(submission, event);
 
@@ -290,7 +251,7 @@ public class ComposerTest {
         assertEquals(NOTIFICATION_FROM_ADDRESS, params.get(Param.FROM));
         assertEquals(String.join(",", NOTIFICATION_GLOBAL_CC_ADDRESS), params.get(Param.CC));
         assertEquals(String.join(",", NOTIFICATION_GLOBAL_BCC_ADDRESS), params.get(Param.BCC));
-        assertEquals(RESOURCE_METADATA, params.get(Param.RESOURCE_METADATA));
+        assertResourceMetadata(submission, params.get(Param.RESOURCE_METADATA));
         assertEquals(Notification.Type.SUBMISSION_SUBMISSION_CANCELLED, notification.getType());
 
         // todo: test event metadata?
@@ -300,21 +261,12 @@ public class ComposerTest {
 
     @Test
     public void cancelledBySubmitter() {
-        SubmissionEvent event = new SubmissionEvent();
-        URI eventUri = URI.create("uri:" + UUID.randomUUID().toString());
-        event.setEventType(EventType.CANCELLED);
-        event.setId(eventUri);
-
-        Submission submission = new Submission();
-        URI submissionUri = URI.create("uri:" + UUID.randomUUID().toString());
-        String preparersUri = "http://pass.jhu.edu/fcrepo/users/abc123";
-        String submitterUri = "http://pass.jhu.edu/fcrepo/users/xyz789";
-        submission.setMetadata(RESOURCE_METADATA);
-        submission.setId(submissionUri);
-        submission.setPreparers(singletonList(URI.create(preparersUri)));
-        submission.setSubmitter(URI.create(submitterUri));
+        Scenario scenario = workload.scenario(EventType.CANCELLED, 1, 6);
+        Submission submission = scenario.getSubmission();
+        SubmissionEvent event = scenario.getEvent();
+        String preparersUri = submission.getPreparers().get(0).toString();
+        String submitterUri = submission.getSubmitter().toString();
         event.setPerformedBy(URI.create(submitterUri));
-        event.setSubmission(submissionUri);
 
         Notification notification = underTest.apply(submission, event);
 
@@ -328,7 +280,7 @@ public class ComposerTest {
         assertEquals(NOTIFICATION_FROM_ADDRESS, params.get(Param.FROM));
         assertEquals(String.join(",", NOTIFICATION_GLOBAL_CC_ADDRESS), params.get(Param.CC));
         assertEquals(String.join(",", NOTIFICATION_GLOBAL_BCC_ADDRESS), params.get(Param.BCC));
-        assertEquals(RESOURCE_METADATA, params.get(Param.RESOURCE_METADATA));
+        assertResourceMetadata(submission, params.get(Param.RESOURCE_METADATA));
         assertEquals(Notification.Type.SUBMISSION_SUBMISSION_CANCELLED, notification.getType());
 
         // todo: test event metadata?
@@ -339,21 +291,12 @@ public class ComposerTest {
     @Test
     public void jsonMappingOfParams() throws IOException {
         ObjectMapper mapper = new ObjectMapper();
-        SubmissionEvent event = new SubmissionEvent();
-        URI eventUri = URI.create("uri:" + UUID.randomUUID().toString());
-        event.setEventType(EventType.CANCELLED);
-        event.setId(eventUri);
-
-        Submission submission = new Submission();
-        URI submissionUri = URI.create("uri:" + UUID.randomUUID().toString());
-        String preparersUri = "http://pass.jhu.edu/fcrepo/users/abc123";
-        String submitterUri = "http://pass.jhu.edu/fcrepo/users/xyz789";
-        submission.setMetadata(RESOURCE_METADATA);
-        submission.setId(submissionUri);
-        submission.setPreparers(singletonList(URI.create(preparersUri)));
-        submission.setSubmitter(URI.create(submitterUri));
+        Scenario scenario = workload.scenario(EventType.CANCELLED, 1, 6);
+        Submission submission = scenario.getSubmission();
+        SubmissionEvent event = scenario.getEvent();
+        String preparersUri = submission.getPreparers().get(0).toString();
+        String submitterUri = submission.getSubmitter().toString();
         event.setPerformedBy(URI.create(submitterUri));
-        event.setSubmission(submissionUri);
 
         Notification notification = underTest.apply(submission, event);
 
@@ -399,6 +342,27 @@ public class ComposerTest {
         assertFalse(Composer.RecipientConfigFilter.modeFilter(config).test(disabled));
     }
 
+    /**
+     * Asserts that the resource metadata of a notification carries the fields of the submission's metadata used by
+     * the templates, with arrays serialized as JSON.
+     */
+    static void assertResourceMetadata(Submission submission, String resourceMetadata) {
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+            JsonNode expected = mapper.readTree(submission.getMetadata());
+            JsonNode actual = mapper.readTree(resourceMetadata);
+            for (String field : asList("title", "journal-title", "volume", "issue", "abstract", "doi", "publisher",
+                    "authors")) {
+                JsonNode value = expected.get(field);
+                assertNotNull("Missing " + field + " in " + resourceMetadata, actual.get(field));
+                assertEquals(value == null ? "" : value.isArray() ? value.toString() : value.asText(),
+                        actual.get(field).asText());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     void assertLinksPresent(Notification notification, Submission submission, SubmissionEvent event) {
 
         // Make sure the submission link analyzer was called with the appropriate arguments
@@ -22,7 +22,13 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.singletonList;
 import static java.util.UUID.randomUUID;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -30,7 +36,11 @@ import static org.mockito.Mockito.when;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.dataconservancy.pass.client.PassClient;
 import org.dataconservancy.pass.client.PassJsonAdapter;
 import org.dataconservancy.pass.client.adapter.PassJsonAdapterBasic;
@@ -38,6 +48,8 @@ import org.dataconservancy.pass.model.Submission;
 import org.dataconservancy.pass.model.SubmissionEvent;
 import org.dataconservancy.pass.notification.dispatch.DispatchService;
 import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics;
+import org.dataconservancy.pass.notification.support.resilience.LimitExceededException;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -83,6 +95,61 @@ public class DefaultNotificationServiceTest {
         verify(dispatchService).dispatch(n);
     }
 
+    /**
+     * Asynchronous processing completes when the dispatch of the notification completes
+     */
+    @Test
+    public void successAsync() {
+        SubmissionPreparer sp = new SubmissionPreparer().invoke(passClient);
+
+        Notification n = mock(Notification.class);
+        when(composer.apply(sp.submission, sp.event)).thenReturn(n);
+        when(sp.submission.getSubmitter()).thenReturn(URI.create(randomUUID().toString()));
+        when(sp.submission.getPreparers()).thenReturn(singletonList(URI.create(randomUUID().toString())));
+        CompletableFuture<String> dispatched = new CompletableFuture<>();
+        when(dispatchService.dispatchAsync(n)).thenReturn(dispatched);
+
+        CompletableFuture<Void> result = underTest.notifyAsync(sp.eventId).toCompletableFuture();
+
+        assertFalse(result.isDone());
+        dispatched.complete("id");
+        assertTrue(result.isDone());
+        assertFalse(result.isCompletedExceptionally());
+        verify(dispatchService, never()).dispatch(n);
+    }
+
+    /**
+     * Failures before dispatch, such as a refusal to read the repository, complete the stage exceptionally
+     */
+    @Test
+    public void refusalAsync() {
+        when(passClient.readResource(any(), eq(SubmissionEvent.class)))
+                .thenThrow(new LimitExceededException("Limit exceeded"));
+
+        CompletableFuture<Void> result = underTest.notifyAsync("http://example.org/event").toCompletableFuture();
+
+        assertTrue(result.isCompletedExceptionally());
+        try {
+            result.join();
+            fail("Expected a refusal");
+        } catch (CompletionException e) {
+            assertTrue(LimitExceededException.isRefusal(e));
+        }
+        verifyZeroInteractions(dispatchService);
+    }
+
+    @Test
+    public void selfSubmissionAsync() {
+        SubmissionPreparer sp = new SubmissionPreparer().invoke(passClient);
+        when(sp.getSubmission().getPreparers()).thenReturn(null);
+
+        CompletableFuture<Void> result = underTest.notifyAsync(sp.eventId).toCompletableFuture();
+
+        assertTrue(result.isDone());
+        assertFalse(result.isCompletedExceptionally());
+        verifyZeroInteractions(dispatchService);
+    }
+
     /**
      * A self-submission is where the authorized submitter prepares and submits their own submission (i.e.
      * self-submission).  Notification services should not respond to self-submission SubmissionEvents
@@ -106,6 +173,28 @@ public class DefaultNotificationServiceTest {
 
     }
 
+    /**
+     * Fetches are timed, and dropped self-submissions counted, by the type of notification they would produce
+     */
+    @Test
+    public void stageMetrics() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        underTest = new DefaultNotificationService(passClient, dispatchService, composer,
+                new SubmissionCache(passClient, 0), new StageMetrics(meterRegistry));
+        SubmissionPreparer sp = new SubmissionPreparer().invoke(passClient);
+        when(sp.getEvent().getEventType()).thenReturn(SubmissionEvent.EventType.APPROVAL_REQUESTED);
+        when(sp.getSubmission().getPreparers()).thenReturn(null);
+
+        underTest.notify(sp.eventId);
+
+        assertEquals(1, meterRegistry.get("pass.notification.stage").tag("stage", "event.fetch")
+                .tag("type", "none").tag("outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("pass.notification.stage").tag("stage", "submission.fetch")
+                .tag("type", "SUBMISSION_APPROVAL_REQUESTED").tag("outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("pass.notification.stage.count").tag("stage", "self-submission.drop")
+                .tag("type", "SUBMISSION_APPROVAL_REQUESTED").tag("outcome", "discarded").counter().count(), 0);
+    }
+
     /**
      * A self-submission is where the authorized submitter prepares and submits their own submission (i.e.
      * self-submission).  Notification services should not respond to self-submission SubmissionEvents
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.Submission;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SubmissionCacheTest {
+
+    private static final long TTL = 1000;
+
+    private static final URI SUBMISSION_URI = URI.create("http://example.org/fcrepo/submissions/1");
+
+    private PassClient passClient;
+
+    private AtomicLong clock;
+
+    private Submission submission;
+
+    private SubmissionCache underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        passClient = mock(PassClient.class);
+        submission = mock(Submission.class);
+        clock = new AtomicLong(10_000);
+        when(passClient.readResource(SUBMISSION_URI, Submission.class)).thenReturn(submission);
+
+        underTest = new SubmissionCache(passClient, TTL, SubmissionCache.DEFAULT_MAX_ENTRIES, clock::get);
+    }
+
+    /**
+     * A Submission read after the event was performed is served from the cache
+     */
+    @Test
+    public void cacheHit() {
+        DateTime performed = new DateTime(clock.get() - 10);
+
+        assertSame(submission, underTest.get(SUBMISSION_URI, performed));
+        clock.addAndGet(10);
+        assertSame(submission, underTest.get(SUBMISSION_URI, performed));
+
+        verify(passClient, times(1)).readResource(SUBMISSION_URI, Submission.class);
+    }
+
+    /**
+     * A Submission read before the event was performed is re-read, because it may not reflect the event
+     */
+    @Test
+    public void cachedCopyOlderThanEvent() {
+        underTest.get(SUBMISSION_URI, new DateTime(clock.get()));
+        clock.addAndGet(10);
+        underTest.get(SUBMISSION_URI, new DateTime(clock.get()));
+
+        verify(passClient, times(2)).readResource(SUBMISSION_URI, Submission.class);
+    }
+
+    /**
+     * Without a performed date, the Submission is always re-read
+     */
+    @Test
+    public void nullPerformedDate() {
+        underTest.get(SUBMISSION_URI, null);
+        underTest.get(SUBMISSION_URI, null);
+
+        verify(passClient, times(2)).readResource(SUBMISSION_URI, Submission.class);
+    }
+
+    @Test
+    public void invalidation() {
+        DateTime performed = new DateTime(clock.get());
+
+        underTest.get(SUBMISSION_URI, performed);
+        underTest.invalidate(SUBMISSION_URI);
+        underTest.get(SUBMISSION_URI, performed);
+
+        verify(passClient, times(2)).readResource(SUBMISSION_URI, Submission.class);
+    }
+
+    /**
+     * A read that is in progress when an invalidation arrives must not be cached
+     */
+    @Test
+    public void invalidationDuringRead() {
+        DateTime performed = new DateTime(clock.get());
+        when(passClient.readResource(SUBMISSION_URI, Submission.class)).thenAnswer(inv -> {
+            clock.addAndGet(5);
+            underTest.invalidate(SUBMISSION_URI);
+            return submission;
+        });
+
+        underTest.get(SUBMISSION_URI, performed);
+        underTest.get(SUBMISSION_URI, performed);
+
+        verify(passClient, times(2)).readResource(SUBMISSION_URI, Submission.class);
+    }
+
+    @Test
+    public void expiry() {
+        DateTime performed = new DateTime(clock.get());
+
+        underTest.get(SUBMISSION_URI, performed);
+        clock.addAndGet(TTL);
+        underTest.get(SUBMISSION_URI, performed);
+
+        verify(passClient, times(2)).readResource(SUBMISSION_URI, Submission.class);
+    }
+
+    @Test
+    public void disabled() {
+        underTest = new SubmissionCache(passClient, 0);
+        DateTime performed = new DateTime(0);
+
+        underTest.get(SUBMISSION_URI, performed);
+        underTest.get(SUBMISSION_URI, performed);
+
+        verify(passClient, times(2)).readResource(SUBMISSION_URI, Submission.class);
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void capacity() {
+        underTest = new SubmissionCache(passClient, TTL, 2, clock::get);
+        DateTime performed = new DateTime(clock.get());
+
+        for (int i = 0; i < 5; i++) {
+            URI uri = URI.create(SUBMISSION_URI + "/" + i);
+            when(passClient.readResource(uri, Submission.class)).thenReturn(submission);
+            underTest.get(uri, performed);
+        }
+
+        assertEquals(2, underTest.size());
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.User;
+import org.dataconservancy.pass.notification.support.resilience.CircuitBreaker;
+import org.dataconservancy.pass.notification.support.resilience.CircuitOpenException;
+import org.fcrepo.client.FcrepoOperationFailedException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CircuitBreakingPassClientTest {
+
+    private static final URI USER_URI = URI.create("http://example.org/fcrepo/users/1");
+
+    private PassClient delegate;
+
+    private CircuitBreaker breaker;
+
+    private CircuitBreakingPassClient underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = mock(PassClient.class);
+        breaker = new CircuitBreaker("fedora", 2, 60_000, CircuitBreakingPassClient::isRepositoryFailure, null,
+                new SimpleMeterRegistry());
+        underTest = new CircuitBreakingPassClient(delegate, breaker);
+    }
+
+    @Test
+    public void readThroughBreaker() {
+        User user = new User();
+        when(delegate.readResource(USER_URI, User.class)).thenReturn(user);
+
+        assertSame(user, underTest.readResource(USER_URI, User.class));
+    }
+
+    @Test
+    public void repositoryFailuresOpenBreaker() {
+        when(delegate.readResource(USER_URI, User.class)).thenThrow(failure(503));
+
+        read(2);
+
+        try {
+            underTest.readResource(USER_URI, User.class);
+            fail("Expected a CircuitOpenException");
+        } catch (CircuitOpenException e) {
+            // expected
+        }
+        verify(delegate, times(2)).readResource(USER_URI, User.class);
+    }
+
+    /**
+     * A missing resource shows the repository is responding
+     */
+    @Test
+    public void missingResourcesDoNotOpenBreaker() {
+        when(delegate.readResource(USER_URI, User.class)).thenThrow(failure(404));
+
+        read(3);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void otherOperationsNotProtected() {
+        underTest.deleteResource(USER_URI);
+
+        verify(delegate).deleteResource(USER_URI);
+    }
+
+    private void read(int times) {
+        for (int i = 0; i < times; i++) {
+            try {
+                underTest.readResource(USER_URI, User.class);
+                fail("Expected a RuntimeException");
+            } catch (CircuitOpenException e) {
+                fail("Unexpected CircuitOpenException");
+            } catch (RuntimeException e) {
+                assertEquals("A problem occurred while attempting to read a Resource", e.getMessage());
+            }
+        }
+    }
+
+    private static RuntimeException failure(int status) {
+        return new RuntimeException("A problem occurred while attempting to read a Resource",
+                new FcrepoOperationFailedException(USER_URI, status, "Failed"));
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.User;
+import org.dataconservancy.pass.notification.support.resilience.ConcurrencyLimiter;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConcurrencyLimitedPassClientTest {
+
+    private static final URI USER_URI = URI.create("http://example.org/fcrepo/users/1");
+
+    private PassClient delegate;
+
+    private ConcurrencyLimiter limiter;
+
+    private ConcurrencyLimitedPassClient underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = mock(PassClient.class);
+        limiter = new ConcurrencyLimiter("fedora", 1, 4, 10_000, 0, 0, new SimpleMeterRegistry());
+        underTest = new ConcurrencyLimitedPassClient(delegate, limiter);
+    }
+
+    @Test
+    public void readThroughLimiter() {
+        User user = new User();
+        when(delegate.readResource(USER_URI, User.class)).thenAnswer(inv -> {
+            assertEquals(1, limiter.getInFlight());
+            return user;
+        });
+
+        assertSame(user, underTest.readResource(USER_URI, User.class));
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void otherOperationsNotLimited() {
+        underTest.deleteResource(USER_URI);
+
+        verify(delegate).deleteResource(USER_URI);
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.client.methods.HttpRequestBase;
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.client.PassJsonAdapter;
+import org.dataconservancy.pass.client.adapter.PassJsonAdapterBasic;
+import org.dataconservancy.pass.model.User;
+import org.fcrepo.client.FcrepoClient;
+import org.fcrepo.client.FcrepoOperationFailedException;
+import org.fcrepo.client.FcrepoResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class ConditionalGetPassClientTest {
+
+    private static final URI USER_URI = URI.create("http://example.org/fcrepo/users/1");
+
+    private static final String ETAG = "W/\"abc123\"";
+
+    private PassClient delegate;
+
+    private FcrepoClient fcrepoClient;
+
+    private PassJsonAdapter adapter;
+
+    private ConditionalGetPassClient underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = mock(PassClient.class);
+        fcrepoClient = mock(FcrepoClient.class);
+        adapter = new PassJsonAdapterBasic();
+
+        underTest = new ConditionalGetPassClient(delegate, fcrepoClient, adapter, 10);
+    }
+
+    @Test
+    public void notModifiedAnswersRetainedObject() throws Exception {
+        when(fcrepoClient.executeRequest(eq(USER_URI), any()))
+                .thenReturn(ok(user(), ETAG))
+                .thenReturn(response(304, singletonMap("ETag", singletonList(ETAG)), new byte[0]));
+
+        User first = underTest.readResource(USER_URI, User.class);
+        User second = underTest.readResource(USER_URI, User.class);
+
+        assertSame(first, second);
+        assertEquals("\"abc123\"", first.getVersionTag());
+
+        ArgumentCaptor<HttpRequestBase> requests = ArgumentCaptor.forClass(HttpRequestBase.class);
+        verify(fcrepoClient, times(2)).executeRequest(eq(USER_URI), requests.capture());
+        assertNull(requests.getAllValues().get(0).getFirstHeader("If-None-Match"));
+        assertEquals(ETAG, requests.getAllValues().get(1).getFirstHeader("If-None-Match").getValue());
+    }
+
+    @Test
+    public void modifiedAnswersNewObject() throws Exception {
+        User modified = user();
+        modified.setEmail("moo@example.org");
+        when(fcrepoClient.executeRequest(eq(USER_URI), any()))
+                .thenReturn(ok(user(), ETAG))
+                .thenReturn(ok(modified, "W/\"def456\""));
+
+        underTest.readResource(USER_URI, User.class);
+        User second = underTest.readResource(USER_URI, User.class);
+
+        assertEquals("moo@example.org", second.getEmail());
+        assertEquals("\"def456\"", second.getVersionTag());
+    }
+
+    /**
+     * Without an ETag there is nothing to revalidate against, so nothing is retained
+     */
+    @Test
+    public void noEtag() throws Exception {
+        when(fcrepoClient.executeRequest(eq(USER_URI), any())).thenReturn(ok(user(), null));
+
+        underTest.readResource(USER_URI, User.class);
+
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void notFound() throws Exception {
+        when(fcrepoClient.executeRequest(eq(USER_URI), any())).thenReturn(response(404, emptyMap(), new byte[0]));
+
+        try {
+            underTest.readResource(USER_URI, User.class);
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof FcrepoOperationFailedException);
+            assertEquals(404, ((FcrepoOperationFailedException) e.getCause()).getStatusCode());
+        }
+    }
+
+    @Test
+    public void deleteDiscardsRetainedObject() throws Exception {
+        when(fcrepoClient.executeRequest(eq(USER_URI), any())).thenReturn(ok(user(), ETAG));
+
+        underTest.readResource(USER_URI, User.class);
+        assertEquals(1, underTest.size());
+
+        underTest.deleteResource(USER_URI);
+
+        assertEquals(0, underTest.size());
+        verify(delegate).deleteResource(USER_URI);
+    }
+
+    @Test
+    public void capacity() throws Exception {
+        underTest = new ConditionalGetPassClient(delegate, fcrepoClient, adapter, 2);
+        when(fcrepoClient.executeRequest(any(), any())).thenAnswer(inv -> ok(user(), ETAG));
+
+        for (int i = 0; i < 5; i++) {
+            underTest.readResource(URI.create(USER_URI + "/" + i), User.class);
+        }
+
+        assertEquals(2, underTest.size());
+    }
+
+    @Test
+    public void otherOperationsForwarded() {
+        underTest.findByAttribute(User.class, "email", "moo@example.org");
+
+        verify(delegate).findByAttribute(User.class, "email", "moo@example.org");
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(USER_URI);
+        user.setEmail("user@example.org");
+        return user;
+    }
+
+    private FcrepoResponse ok(User user, String etag) {
+        Map<String, List<String>> headers = etag == null ? emptyMap() : singletonMap("ETag", singletonList(etag));
+        return response(200, headers, adapter.toJson(user, true));
+    }
+
+    private static FcrepoResponse response(int status, Map<String, List<String>> headers, byte[] body) {
+        return new FcrepoResponse(USER_URI, status, headers, new ByteArrayInputStream(body));
+    }
+
+}
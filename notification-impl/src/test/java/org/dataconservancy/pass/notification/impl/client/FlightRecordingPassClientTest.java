@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.User;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FlightRecordingPassClientTest {
+
+    private static final URI USER_URI = URI.create("http://example.org/fcrepo/users/1");
+
+    private PassClient delegate;
+
+    private FlightRecordingPassClient underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = mock(PassClient.class);
+        underTest = new FlightRecordingPassClient(delegate);
+    }
+
+    @Test
+    public void readForwarded() {
+        User user = new User();
+        when(delegate.readResource(USER_URI, User.class)).thenReturn(user);
+
+        assertSame(user, underTest.readResource(USER_URI, User.class));
+    }
+
+    @Test
+    public void readFailurePropagated() {
+        RuntimeException failure = new RuntimeException("Expected");
+        when(delegate.readResource(USER_URI, User.class)).thenThrow(failure);
+
+        try {
+            underTest.readResource(USER_URI, User.class);
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            assertSame(failure, e);
+        }
+    }
+
+}
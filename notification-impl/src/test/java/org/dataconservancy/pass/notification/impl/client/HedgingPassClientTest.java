@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.User;
+import org.dataconservancy.pass.notification.support.resilience.Hedger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HedgingPassClientTest {
+
+    private static final URI USER_URI = URI.create("http://example.org/fcrepo/users/1");
+
+    private PassClient delegate;
+
+    private ExecutorService executor;
+
+    private HedgingPassClient underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = mock(PassClient.class);
+        executor = Executors.newCachedThreadPool();
+        underTest = new HedgingPassClient(delegate, new Hedger("fedora", 5, executor, new SimpleMeterRegistry()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void readThroughHedger() {
+        User user = new User();
+        when(delegate.readResource(USER_URI, User.class)).thenReturn(user);
+
+        assertSame(user, underTest.readResource(USER_URI, User.class));
+    }
+
+    @Test
+    public void otherOperationsNotHedged() {
+        underTest.deleteResource(USER_URI);
+
+        verify(delegate).deleteResource(USER_URI);
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dataconservancy.pass.client.PassClient;
+import org.dataconservancy.pass.model.SubmissionEvent;
+import org.dataconservancy.pass.model.User;
+import org.fcrepo.client.FcrepoOperationFailedException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NotFoundCachingPassClientTest {
+
+    private static final long TTL = 1000;
+
+    private static final URI MISSING_URI = URI.create("http://example.org/fcrepo/events/missing");
+
+    private PassClient delegate;
+
+    private AtomicLong clock;
+
+    private MeterRegistry meterRegistry;
+
+    private NotFoundCachingPassClient underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = mock(PassClient.class);
+        clock = new AtomicLong(10_000);
+        meterRegistry = new SimpleMeterRegistry();
+        when(delegate.readResource(MISSING_URI, SubmissionEvent.class)).thenThrow(notFound(404));
+
+        underTest = new NotFoundCachingPassClient(delegate, TTL, NotFoundCachingPassClient.DEFAULT_MAX_ENTRIES,
+                clock::get, meterRegistry);
+    }
+
+    @Test
+    public void missingResourceFailsFast() {
+        assertMissing(404);
+        assertMissing(404);
+
+        verify(delegate, times(1)).readResource(MISSING_URI, SubmissionEvent.class);
+        assertEquals(1, counter("hit"), 0);
+        assertEquals(1, counter("stored"), 0);
+        assertEquals(1, meterRegistry.get("pass.client.notfound.size").gauge().value(), 0);
+    }
+
+    @Test
+    public void goneResourceFailsFast() {
+        when(delegate.readResource(MISSING_URI, User.class)).thenThrow(notFound(410));
+
+        try {
+            underTest.readResource(MISSING_URI, User.class);
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        try {
+            underTest.readResource(MISSING_URI, User.class);
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            assertEquals(410, NotFoundCachingPassClient.missingStatus(e));
+        }
+
+        verify(delegate, times(1)).readResource(MISSING_URI, User.class);
+    }
+
+    @Test
+    public void expiry() {
+        assertMissing(404);
+        clock.addAndGet(TTL);
+        assertMissing(404);
+
+        verify(delegate, times(2)).readResource(MISSING_URI, SubmissionEvent.class);
+    }
+
+    /**
+     * Failures other than a missing resource, e.g. a server error, are not cached
+     */
+    @Test
+    public void otherFailuresNotCached() {
+        URI uri = URI.create("http://example.org/fcrepo/events/broken");
+        when(delegate.readResource(uri, SubmissionEvent.class)).thenThrow(notFound(500));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                underTest.readResource(uri, SubmissionEvent.class);
+                fail("Expected a RuntimeException");
+            } catch (RuntimeException e) {
+                // expected
+            }
+        }
+
+        verify(delegate, times(2)).readResource(uri, SubmissionEvent.class);
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void deleteForgetsMissingResource() {
+        assertMissing(404);
+
+        underTest.deleteResource(MISSING_URI);
+
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void foundResourcePassesThrough() {
+        URI uri = URI.create("http://example.org/fcrepo/users/1");
+        User user = new User();
+        when(delegate.readResource(uri, User.class)).thenReturn(user);
+
+        assertSame(user, underTest.readResource(uri, User.class));
+        assertEquals(0, underTest.size());
+    }
+
+    private void assertMissing(int expectedStatus) {
+        try {
+            underTest.readResource(MISSING_URI, SubmissionEvent.class);
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            assertEquals(expectedStatus, NotFoundCachingPassClient.missingStatus(e));
+        }
+    }
+
+    private double counter(String result) {
+        return meterRegistry.get("pass.client.notfound").tag("result", result).counter().count();
+    }
+
+    private static RuntimeException notFound(int status) {
+        return new RuntimeException("A problem occurred while attempting to read a Resource",
+                new FcrepoOperationFailedException(MISSING_URI, status, "Not Found"));
+    }
+
+}
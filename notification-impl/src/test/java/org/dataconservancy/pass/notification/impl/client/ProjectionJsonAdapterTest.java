@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.impl.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.dataconservancy.pass.client.PassJsonAdapter;
+import org.dataconservancy.pass.client.adapter.PassJsonAdapterBasic;
+import org.dataconservancy.pass.model.Submission;
+import org.dataconservancy.pass.model.SubmissionEvent;
+import org.dataconservancy.pass.model.User;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProjectionJsonAdapterTest {
+
+    private PassJsonAdapter basic;
+
+    private ProjectionJsonAdapter underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        basic = new PassJsonAdapterBasic();
+        underTest = new ProjectionJsonAdapter(basic);
+    }
+
+    /**
+     * Projected Submission fields match those produced by the full adapter; all other fields are left unset
+     */
+    @Test
+    public void submission() {
+        Submission submission = new Submission();
+        submission.setId(URI.create("http://example.org/fcrepo/submissions/1"));
+        submission.setSubmitter(URI.create("http://example.org/fcrepo/users/1"));
+        submission.setSubmitterEmail(URI.create("mailto:submitter@example.org"));
+        submission.setPreparers(Arrays.asList(URI.create("http://example.org/fcrepo/users/2"),
+                URI.create("http://example.org/fcrepo/users/3")));
+        submission.setMetadata("{\"title\": \"A \\\"quoted\\\" title\", \"authors\": [{\"author\": \"Moo\"}]}");
+        submission.setSubmitterName("Not Projected");
+        submission.setGrants(Collections.singletonList(URI.create("http://example.org/fcrepo/grants/1")));
+        submission.setSubmitted(true);
+        submission.setSubmittedDate(DateTime.now(DateTimeZone.UTC));
+        byte[] json = basic.toJson(submission, true);
+
+        Submission expected = basic.toModel(json, Submission.class);
+        Submission projected = underTest.toModel(json, Submission.class);
+
+        assertEquals(expected.getId(), projected.getId());
+        assertEquals(expected.getSubmitter(), projected.getSubmitter());
+        assertEquals(expected.getSubmitterEmail(), projected.getSubmitterEmail());
+        assertEquals(expected.getPreparers(), projected.getPreparers());
+        assertEquals(expected.getMetadata(), projected.getMetadata());
+
+        assertNull(projected.getSubmitterName());
+        assertNull(projected.getSubmittedDate());
+        assertNull(projected.getSubmitted());
+    }
+
+    @Test
+    public void submissionEvent() {
+        SubmissionEvent event = new SubmissionEvent();
+        event.setId(URI.create("http://example.org/fcrepo/events/1"));
+        event.setEventType(SubmissionEvent.EventType.APPROVAL_REQUESTED_NEWUSER);
+        event.setLink(URI.create("http://example.org/app/submissions/1"));
+        event.setPerformedBy(URI.create("http://example.org/fcrepo/users/2"));
+        event.setPerformerRole(SubmissionEvent.PerformerRole.PREPARER);
+        event.setPerformedDate(DateTime.now(DateTimeZone.UTC));
+        event.setComment("Please review");
+        event.setSubmission(URI.create("http://example.org/fcrepo/submissions/1"));
+        byte[] json = basic.toJson(event, true);
+
+        SubmissionEvent expected = basic.toModel(json, SubmissionEvent.class);
+        SubmissionEvent projected = underTest.toModel(new ByteArrayInputStream(json), SubmissionEvent.class);
+
+        assertEquals(expected, projected);
+    }
+
+    /**
+     * Compacted JSON-LD may express a single-valued list as a scalar
+     */
+    @Test
+    public void scalarPreparers() {
+        String json = "{\"@id\": \"http://example.org/s/1\", \"@type\": \"Submission\", " +
+                "\"preparers\": \"http://example.org/u/1\", \"repositories\": [\"http://example.org/r/1\"], " +
+                "\"@context\": {\"nested\": {\"ignored\": true}}}";
+
+        Submission projected = underTest.toModel(json.getBytes(UTF_8), Submission.class);
+
+        assertEquals(URI.create("http://example.org/s/1"), projected.getId());
+        assertEquals(Collections.singletonList(URI.create("http://example.org/u/1")), projected.getPreparers());
+    }
+
+    @Test
+    public void otherTypesDelegated() {
+        User user = new User();
+        user.setId(URI.create("http://example.org/fcrepo/users/1"));
+        user.setEmail("user@example.org");
+        user.setFirstName("Moo");
+
+        assertEquals(basic.toModel(basic.toJson(user, true), User.class),
+                underTest.toModel(basic.toJson(user, true), User.class));
+    }
+
+    @Test
+    public void malformedJson() {
+        try {
+            underTest.toModel("[]".getBytes(UTF_8), Submission.class);
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            assertEquals("Could not map JSON to Submission", e.getMessage());
+        }
+    }
+
+}
@@ -16,6 +16,7 @@
 package org.dataconservancy.pass.notification.model.config;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -59,6 +60,12 @@ public class NotificationConfig {
     @JsonProperty("smtp")
     private SmtpServerConfig smtpConfig;
 
+    /**
+     * Additional SMTP relays, sharing the sending of email with the global SMTP server
+     */
+    @JsonProperty("smtp-relays")
+    private List<SmtpServerConfig> smtpRelays;
+
     /** 
      * User invitation token encryption key.
      */
@@ -126,6 +133,21 @@ public class NotificationConfig {
         this.smtpConfig = smtpConfig;
     }
 
+    /**
+     * Additional SMTP relays, configured like {@link #getSmtpConfig() the global SMTP server}.  Email is sent through
+     * the global SMTP server and each of these relays, routed according to the health of each.  Like the global SMTP
+     * server configuration, the relays are <em>not</em> a function of {@link #getMode() the runtime mode}.
+     *
+     * @return the additional SMTP relays, may be {@code null} or empty
+     */
+    public List<SmtpServerConfig> getSmtpRelays() {
+        return smtpRelays;
+    }
+
+    public void setSmtpRelays(List<SmtpServerConfig> smtpRelays) {
+        this.smtpRelays = smtpRelays;
+    }
+
     public UserTokenGeneratorConfig getUserTokenGeneratorConfig() {
         return tokenConfig;
     }
@@ -155,13 +177,15 @@ public class NotificationConfig {
                 Objects.equals(templates, that.templates) &&
                 Objects.equals(recipientConfigs, that.recipientConfigs) &&
                 Objects.equals(smtpConfig, that.smtpConfig) &&
+                Objects.equals(smtpRelays, that.smtpRelays) &&
                 Objects.equals(tokenConfig, that.tokenConfig) &&
                 Objects.equals(linkValidatorConfig, that.linkValidatorConfig);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(mode, templates, recipientConfigs, smtpConfig, tokenConfig, linkValidatorConfig);
+        return Objects.hash(mode, templates, recipientConfigs, smtpConfig, smtpRelays, tokenConfig,
+                linkValidatorConfig);
     }
 
     @Override
@@ -171,6 +195,7 @@ public class NotificationConfig {
                 ", templates=" + templates +
                 ", recipientConfigs=" + recipientConfigs +
                 ", smtpConfig=" + smtpConfig +
+                ", smtpRelays=" + smtpRelays +
                 ", tokenConfig=" + tokenConfig +
                 ", linkValidatorCOnfig=" + linkValidatorConfig +
                 '}';
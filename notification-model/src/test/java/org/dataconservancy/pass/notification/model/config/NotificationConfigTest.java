@@ -92,4 +92,31 @@ public class NotificationConfigTest extends AbstractJacksonMappingTest {
         assertEquals("smtp.gmail.com", config.getSmtpConfig().getHost());
         assertRoundTrip(config, NotificationConfig.class);
     }
+
+    @Test
+    public void parseSmtpRelays() throws IOException {
+        String json = MINIMAL_NOTIFICATION_CONFIG.substring(0, MINIMAL_NOTIFICATION_CONFIG.lastIndexOf('}')) +
+                "," +
+                "    \"smtp-relays\": [\n" +
+                "      {\n" +
+                "        \"host\": \"relay1.jhu.edu\",\n" +
+                "        \"port\": \"25\",\n" +
+                "        \"smtpTransport\": \"SMTP\"\n" +
+                "      },\n" +
+                "      {\n" +
+                "        \"host\": \"relay2.jhu.edu\",\n" +
+                "        \"port\": \"25\",\n" +
+                "        \"smtpTransport\": \"SMTP\"\n" +
+                "      }\n" +
+                "    ]\n" +
+                "}";
+
+        NotificationConfig config = mapper.readValue(json, NotificationConfig.class);
+
+        assertEquals("smtp.gmail.com", config.getSmtpConfig().getHost());
+        assertEquals(2, config.getSmtpRelays().size());
+        assertEquals("relay1.jhu.edu", config.getSmtpRelays().get(0).getHost());
+        assertEquals("relay2.jhu.edu", config.getSmtpRelays().get(1).getHost());
+        assertRoundTrip(config, NotificationConfig.class);
+    }
 }
\ No newline at end of file
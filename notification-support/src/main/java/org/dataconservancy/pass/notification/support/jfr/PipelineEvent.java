@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.jfr;
+
+import java.net.URI;
+
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Outcome;
+
+/**
+ * A stage of the notification pipeline, recorded as a Java Flight Recorder event.  The event begins when it is
+ * obtained from {@link PipelineEvents#begin(PipelineEvents.Kind)}, and is committed, with its duration, by
+ * {@link #end(Outcome)}.
+ * <p>
+ * When no recording is in progress the event is a shared instance on which every method does nothing, so attributes
+ * should be supplied as they are, without formatting them first.
+ * </p>
+ */
+public interface PipelineEvent {
+
+    /**
+     * @param eventUri the URI of the {@code SubmissionEvent} being processed
+     * @return this event
+     */
+    PipelineEvent eventUri(String eventUri);
+
+    /**
+     * @param eventUri the URI of the {@code SubmissionEvent} being processed
+     * @return this event
+     */
+    PipelineEvent eventUri(URI eventUri);
+
+    /**
+     * @param resourceUri the URI of the resource the stage concerns, for example the resource fetched
+     * @return this event
+     */
+    PipelineEvent resourceUri(URI resourceUri);
+
+    /**
+     * @param resourceType the type of the resource the stage concerns
+     * @return this event
+     */
+    PipelineEvent resourceType(Class<?> resourceType);
+
+    /**
+     * @param type the type of notification being processed
+     * @return this event
+     */
+    PipelineEvent notificationType(Notification.Type type);
+
+    /**
+     * Ends the event and commits it to the recording.
+     *
+     * @param outcome how the stage ended
+     */
+    void end(Outcome outcome);
+
+}
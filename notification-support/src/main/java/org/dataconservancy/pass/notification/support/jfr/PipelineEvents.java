@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.jfr;
+
+import java.net.URI;
+
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Outcome;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the stages of the notification pipeline as custom Java Flight Recorder (JFR) events, so that they can be
+ * correlated with garbage collection, I/O and other JVM events in a recording.
+ * <p>
+ * Events are recorded only while a flight recording is in progress; otherwise {@link #begin(Kind)} returns a shared
+ * event that does nothing, at the cost of a single check.  Events are enabled and given thresholds by the recording
+ * settings, like any other JFR event, under the names {@code org.dataconservancy.pass.notification.*}.
+ * </p>
+ * <p>
+ * The {@code jdk.jfr} API is not part of Java 8, so the classes that use it are compiled separately, by a JDK 11
+ * toolchain, and loaded only when the runtime provides {@code jdk.jfr}.  On Java 8 no events are recorded.
+ * </p>
+ * <p>
+ * Typical use:
+ * </p>
+ * <pre>
+ * PipelineEvent event = PipelineEvents.begin(Kind.RENDER).eventUri(uri).notificationType(type);
+ * try {
+ *     render();
+ *     event.end(Outcome.SUCCESS);
+ * } catch (RuntimeException e) {
+ *     event.end(StageMetrics.outcomeOf(e));
+ *     throw e;
+ * }
+ * </pre>
+ */
+public final class PipelineEvents {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PipelineEvents.class);
+
+    static final String JFR_FACTORY = "org.dataconservancy.pass.notification.support.jfr.JfrPipelineEventFactory";
+
+    private static final PipelineEvent NOOP = new NoopEvent();
+
+    private static final PipelineEventFactory FACTORY = load();
+
+    /**
+     * The kinds of pipeline event.
+     */
+    public enum Kind {
+
+        /**
+         * Receipt and processing of a JMS message
+         */
+        RECEIVE,
+
+        /**
+         * A read of a resource from the PASS repository
+         */
+        FETCH,
+
+        /**
+         * Composition of a notification from a {@code SubmissionEvent}
+         */
+        COMPOSE,
+
+        /**
+         * Rendering of the templates of a notification
+         */
+        RENDER,
+
+        /**
+         * Sending a notification email to the SMTP relay
+         */
+        SEND
+    }
+
+    private PipelineEvents() {
+        // static methods only
+    }
+
+    /**
+     * Begins an event.
+     *
+     * @param kind the kind of event
+     * @return the event, which must be ended by the caller
+     */
+    public static PipelineEvent begin(Kind kind) {
+        return FACTORY.begin(kind);
+    }
+
+    /**
+     * @return {@code true} if the runtime supports recording events, whether or not a recording is in progress
+     */
+    public static boolean isAvailable() {
+        return !(FACTORY instanceof NoopFactory);
+    }
+
+    static PipelineEvent noop() {
+        return NOOP;
+    }
+
+    private static PipelineEventFactory load() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (PipelineEventFactory) Class.forName(JFR_FACTORY).getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException | LinkageError e) {
+            LOG.debug("Java Flight Recorder events are not available: {}", e.toString());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.warn("Unable to load Java Flight Recorder events, no events will be recorded: {}", e.getMessage(), e);
+        }
+        return new NoopFactory();
+    }
+
+    private static final class NoopFactory implements PipelineEventFactory {
+
+        @Override
+        public PipelineEvent begin(Kind kind) {
+            return NOOP;
+        }
+
+    }
+
+    private static final class NoopEvent implements PipelineEvent {
+
+        @Override
+        public PipelineEvent eventUri(String eventUri) {
+            return this;
+        }
+
+        @Override
+        public PipelineEvent eventUri(URI eventUri) {
+            return this;
+        }
+
+        @Override
+        public PipelineEvent resourceUri(URI resourceUri) {
+            return this;
+        }
+
+        @Override
+        public PipelineEvent resourceType(Class<?> resourceType) {
+            return this;
+        }
+
+        @Override
+        public PipelineEvent notificationType(Notification.Type type) {
+            return this;
+        }
+
+        @Override
+        public void end(Outcome outcome) {
+            // nothing to record
+        }
+
+    }
+
+}
@@ -0,0 +1,455 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A durable, append-only journal of opaque entries, each of which is pending until it is marked complete.
+ * <p>
+ * Entries are appended to memory-mapped segment files named {@code <name>-<first sequence>.journal} in a directory.
+ * Each record is framed by its length and a CRC32 checksum, and is either an entry, carrying a payload and the
+ * sequence number it was assigned when appended, or a completion, carrying the sequence number of a completed
+ * entry.  When the active segment is full a new one is started; a segment is deleted once every entry it holds has
+ * been completed and every older segment has been deleted.
+ * </p>
+ * <p>
+ * {@link #open(Path, String, int, boolean)} replays the segments in order to rebuild the set of pending entries, so
+ * that entries appended before a crash can be completed afterwards.  A record that is incomplete or fails its
+ * checksum, as left by a crash part way through a write, ends the replay of its segment and is overwritten by the
+ * next append.  Records written to a mapped file survive the crash of the process; when {@code sync} is
+ * {@code true} each write is also forced to the storage device before it returns, so that it survives the crash of
+ * the operating system, at the cost of a write to the device per record.
+ * </p>
+ * <p>
+ * Instances are thread safe; writes are serialized.
+ * </p>
+ */
+public class Journal implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Journal.class);
+
+    static final String SUFFIX = ".journal";
+
+    /**
+     * Record length, checksum, type and sequence number
+     */
+    static final int HEADER = 4 + 4 + 1 + 8;
+
+    private static final byte ENTRY = 1;
+
+    private static final byte COMPLETE = 2;
+
+    private final Path dir;
+
+    private final String name;
+
+    private final int segmentSize;
+
+    private final boolean sync;
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    private final Map<Long, Entry> pending = new LinkedHashMap<>();
+
+    private final CRC32 crc = new CRC32();
+
+    private Segment active;
+
+    private long nextSequence;
+
+    private boolean closed;
+
+    private Journal(Path dir, String name, int segmentSize, boolean sync) {
+        this.dir = dir;
+        this.name = name;
+        this.segmentSize = segmentSize;
+        this.sync = sync;
+    }
+
+    /**
+     * Opens the journal {@code name} in {@code dir}, creating the directory if necessary, and recovers its pending
+     * entries.
+     *
+     * @param dir the directory holding the segment files
+     * @param name the name of the journal, which prefixes the names of its segment files
+     * @param segmentSize the size, in bytes, of each segment file; an entry larger than this is written to a segment
+     *                    of its own
+     * @param sync whether each write is forced to the storage device before it returns
+     * @return the journal
+     * @throws IOException if the journal cannot be read or created
+     */
+    public static Journal open(Path dir, String name, int segmentSize, boolean sync) throws IOException {
+        Objects.requireNonNull(dir, "Directory must not be null.");
+        Objects.requireNonNull(name, "Name must not be null.");
+        if (segmentSize <= HEADER) {
+            throw new IllegalArgumentException("Segment size must be greater than " + HEADER + " bytes.");
+        }
+        Journal journal = new Journal(dir, name, segmentSize, sync);
+        try {
+            journal.recover();
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    /**
+     * Durably appends an entry.
+     *
+     * @param payload the content of the entry
+     * @return the entry, whose sequence number is to be passed to {@link #complete(long)}
+     * @throws IOException if the entry cannot be written
+     */
+    public synchronized Entry append(byte[] payload) throws IOException {
+        Objects.requireNonNull(payload, "Payload must not be null.");
+        ensureOpen();
+        Segment segment = segmentFor(HEADER + payload.length);
+        long sequence = nextSequence++;
+        int offset = segment.write(ENTRY, sequence, payload);
+        if (sync) {
+            segment.force();
+        }
+        segment.live++;
+        Entry entry = new Entry(this, segment, sequence, offset + HEADER, payload.length);
+        pending.put(sequence, entry);
+        return entry;
+    }
+
+    /**
+     * Durably marks an entry complete, so that it is no longer pending and its segment may be deleted.  Completing an
+     * entry that is not pending has no effect.
+     *
+     * @param sequence the sequence number of the entry
+     * @throws IOException if the completion cannot be written
+     */
+    public synchronized void complete(long sequence) throws IOException {
+        ensureOpen();
+        Entry entry = pending.get(sequence);
+        if (entry == null) {
+            return;
+        }
+        Segment segment = segmentFor(HEADER);
+        segment.write(COMPLETE, sequence, new byte[0]);
+        if (sync) {
+            segment.force();
+        }
+        pending.remove(sequence);
+        entry.segment.live--;
+        trim();
+    }
+
+    /**
+     * @return the entries that have been appended but not completed, in the order they were appended
+     */
+    public synchronized List<Entry> pending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * @return the number of entries that have been appended but not completed
+     */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * @return the number of segment files
+     */
+    synchronized int segments() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOException failure = null;
+        for (Segment segment : segments) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Journal '" + name + "' is closed.");
+        }
+    }
+
+    /**
+     * Answers the segment a record of {@code length} bytes is written to, starting a new one if the active segment
+     * does not have room.  A segment is named for the first sequence number it may hold, which is never less than the
+     * sequence number of any entry in an older segment.
+     */
+    private Segment segmentFor(int length) throws IOException {
+        if (active != null && active.remaining() >= length) {
+            return active;
+        }
+        if (active != null) {
+            active.force();
+            nextSequence = Math.max(nextSequence, active.first + 1);
+        }
+        Path file = dir.resolve(String.format("%s-%020d%s", name, nextSequence, SUFFIX));
+        active = Segment.create(file, nextSequence, Math.max(segmentSize, length));
+        segments.addLast(active);
+        trim();
+        return active;
+    }
+
+    /**
+     * Deletes segments from the head of the journal that hold no pending entries.  The active segment is retained.
+     */
+    private void trim() throws IOException {
+        while (segments.size() > 1 && segments.peekFirst().live == 0) {
+            Segment head = segments.removeFirst();
+            head.close();
+            Files.deleteIfExists(head.file);
+            LOG.debug("Deleted journal segment '{}'", head.file);
+        }
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(dir);
+        TreeMap<Long, Path> files = new TreeMap<>();
+        String prefix = name + "-";
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, prefix + "*" + SUFFIX)) {
+            for (Path file : stream) {
+                String fileName = file.getFileName().toString();
+                String first = fileName.substring(prefix.length(), fileName.length() - SUFFIX.length());
+                try {
+                    files.put(Long.parseLong(first), file);
+                } catch (NumberFormatException e) {
+                    LOG.warn("Ignoring unexpected file '{}' in journal directory '{}'", file, dir);
+                }
+            }
+        }
+
+        for (Map.Entry<Long, Path> file : files.entrySet()) {
+            Segment segment = Segment.open(file.getValue(), file.getKey());
+            segments.addLast(segment);
+            nextSequence = Math.max(nextSequence, file.getKey());
+            replay(segment);
+        }
+        active = segments.peekLast();
+        trim();
+
+        if (!pending.isEmpty()) {
+            LOG.info("Recovered {} pending entries from journal '{}' in '{}'", pending.size(), name, dir);
+        }
+    }
+
+    /**
+     * Replays the records of a segment, leaving its write position after the last intact record.
+     */
+    private void replay(Segment segment) throws IOException {
+        ByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (buffer.capacity() - position >= HEADER) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < HEADER || length > buffer.capacity() - position || !intact(buffer, position, length)) {
+                LOG.warn("Discarding a torn record at offset {} of journal segment '{}'", position, segment.file);
+                segment.clear(position);
+                break;
+            }
+            byte type = buffer.get(position + 8);
+            long sequence = buffer.getLong(position + 9);
+            if (type == ENTRY) {
+                segment.live++;
+                pending.put(sequence, new Entry(this, segment, sequence, position + HEADER, length - HEADER));
+                nextSequence = Math.max(nextSequence, sequence + 1);
+            } else if (type == COMPLETE) {
+                Entry entry = pending.remove(sequence);
+                if (entry != null) {
+                    entry.segment.live--;
+                }
+            }
+            position += length;
+        }
+        segment.position = position;
+    }
+
+    private boolean intact(ByteBuffer buffer, int position, int length) {
+        ByteBuffer record = buffer.duplicate();
+        record.limit(position + length).position(position + 8);
+        crc.reset();
+        crc.update(record);
+        return (int) crc.getValue() == buffer.getInt(position + 4);
+    }
+
+    private synchronized byte[] read(Segment segment, int offset, int length) {
+        byte[] payload = new byte[length];
+        ByteBuffer record = segment.buffer.duplicate();
+        record.position(offset);
+        record.get(payload);
+        return payload;
+    }
+
+    /**
+     * A pending entry.
+     */
+    public static final class Entry {
+
+        private final Journal journal;
+
+        private final Segment segment;
+
+        private final long sequence;
+
+        private final int offset;
+
+        private final int length;
+
+        private Entry(Journal journal, Segment segment, long sequence, int offset, int length) {
+            this.journal = journal;
+            this.segment = segment;
+            this.sequence = sequence;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Reads the payload of the entry from its segment.  The payload is not retained in memory, so each call reads
+         * it again.
+         *
+         * @return the payload
+         */
+        public byte[] getPayload() {
+            return journal.read(segment, offset, length);
+        }
+    }
+
+    /**
+     * A segment file and its mapping.  The mapping is released when it is garbage collected, as Java provides no
+     * means of unmapping a file explicitly.
+     */
+    private static final class Segment {
+
+        private final Path file;
+
+        private final long first;
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer buffer;
+
+        private final CRC32 crc = new CRC32();
+
+        private int position;
+
+        private int live;
+
+        private Segment(Path file, long first, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.first = first;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private static Segment create(Path file, long first, int size) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            return new Segment(file, first, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        private static Segment open(Path file, long first) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(file, first, channel,
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+
+        private int remaining() {
+            return buffer.capacity() - position;
+        }
+
+        /**
+         * Writes a record at the current position.  The length is written last, so that a reader never observes the
+         * length of a record whose content is yet to be written.
+         */
+        private int write(byte type, long sequence, byte[] payload) {
+            int offset = position;
+            int length = HEADER + payload.length;
+            buffer.put(offset + 8, type);
+            buffer.putLong(offset + 9, sequence);
+            ByteBuffer content = buffer.duplicate();
+            content.position(offset + HEADER);
+            content.put(payload);
+
+            content.limit(offset + length).position(offset + 8);
+            crc.reset();
+            crc.update(content);
+            buffer.putInt(offset + 4, (int) crc.getValue());
+            buffer.putInt(offset, length);
+            position += length;
+            return offset;
+        }
+
+        /**
+         * Zeroes the segment from {@code offset}, so that remnants of a torn record are not mistaken for records once
+         * the space is reused.
+         */
+        private void clear(int offset) {
+            for (int i = offset; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+
+        private void force() {
+            buffer.force();
+        }
+
+        private void close() throws IOException {
+            channel.close();
+        }
+    }
+
+}
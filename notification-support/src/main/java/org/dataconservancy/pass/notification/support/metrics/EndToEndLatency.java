@@ -0,0 +1,293 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+import java.util.function.ToDoubleFunction;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.dataconservancy.pass.notification.model.Notification;
+
+/**
+ * Tracks the end-to-end latency of notifications: the time from the event that caused a notification, as
+ * timestamped by the repository or the JMS broker, until the notification was accepted by the SMTP relay.
+ * <p>
+ * The origin of the message being processed is supplied by {@link #begin(long)} on the thread that receives the
+ * message, and the latency recorded by {@link #complete(Notification.Type)} on the same thread once the notification
+ * has been sent.  A notification sent on another thread captures the origin with {@link #origin()} before handing
+ * off, and records its latency with {@link #complete(Notification.Type, long)}.  Latencies are recorded, in
+ * milliseconds, to an HdrHistogram {@link Recorder} per {@link Notification.Type}; recording is wait-free.
+ * </p>
+ * <p>
+ * Percentiles are reported over a rolling window, made up of a number of slices.  Slices are rotated when the latency
+ * is read rather than on a timer, so latencies recorded since the previous read are attributed to the most recent
+ * slice; readers such as a metrics registry that poll regularly keep the window accurate.
+ * </p>
+ * <p>
+ * Metrics, tagged with {@code type}: gauge {@code pass.notification.latency}, additionally tagged with
+ * {@code quantile} ({@code 0.5}, {@code 0.99}, {@code 0.999} or {@code max}), in milliseconds; and gauge
+ * {@code pass.notification.latency.count}, the number of notifications in the window.
+ * </p>
+ */
+public class EndToEndLatency {
+
+    static final int DEFAULT_SLICES = 5;
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private static final EndToEndLatency NOOP = new EndToEndLatency();
+
+    private final ThreadLocal<long[]> origin = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final Map<Notification.Type, Window> windows;
+
+    private final LongSupplier clock;
+
+    private final long sliceMs;
+
+    /**
+     * Creates a latency tracker.
+     *
+     * @param windowMs the duration, in milliseconds, of the window percentiles are reported over
+     * @param meterRegistry the registry metrics are recorded to
+     */
+    public EndToEndLatency(long windowMs, MeterRegistry meterRegistry) {
+        this(windowMs, DEFAULT_SLICES, System::currentTimeMillis, meterRegistry);
+    }
+
+    EndToEndLatency(long windowMs, int slices, LongSupplier clock, MeterRegistry meterRegistry) {
+        if (slices < 1 || windowMs < slices) {
+            throw new IllegalArgumentException("Window must be at least one millisecond per slice.");
+        }
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null.");
+        this.sliceMs = windowMs / slices;
+        this.windows = new EnumMap<>(Notification.Type.class);
+
+        Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null.");
+        for (Notification.Type type : Notification.Type.values()) {
+            Window window = new Window(slices, clock.getAsLong());
+            windows.put(type, window);
+            gauge(meterRegistry, type, "0.5", snapshot -> snapshot.getP50());
+            gauge(meterRegistry, type, "0.99", snapshot -> snapshot.getP99());
+            gauge(meterRegistry, type, "0.999", snapshot -> snapshot.getP999());
+            gauge(meterRegistry, type, "max", snapshot -> snapshot.getMax());
+            meterRegistry.gauge("pass.notification.latency.count", Tags.of("type", type.name()), this,
+                    latency -> latency.snapshot(type).getCount());
+        }
+    }
+
+    private EndToEndLatency() {
+        this.windows = null;
+        this.clock = null;
+        this.sliceMs = 0;
+    }
+
+    /**
+     * @return an instance which records nothing
+     */
+    public static EndToEndLatency noop() {
+        return NOOP;
+    }
+
+    /**
+     * Marks the start of processing a message on the current thread.
+     *
+     * @param originMs the time, in milliseconds since the epoch, of the event the message describes; zero or less if
+     *                 unknown
+     */
+    public void begin(long originMs) {
+        origin.get()[0] = originMs;
+    }
+
+    /**
+     * Marks the end of processing a message on the current thread.
+     */
+    public void end() {
+        origin.get()[0] = 0;
+    }
+
+    /**
+     * @return the origin, in milliseconds since the epoch, of the message being processed on the current thread; zero
+     *         if unknown.  Work that completes on another thread records its latency with
+     *         {@link #complete(Notification.Type, long)} relative to this origin.
+     */
+    public long origin() {
+        return origin.get()[0];
+    }
+
+    /**
+     * Records the latency of a notification sent on the current thread, if the origin of the message being processed
+     * is known.
+     *
+     * @param type the type of notification
+     */
+    public void complete(Notification.Type type) {
+        complete(type, origin.get()[0]);
+    }
+
+    /**
+     * Records the latency of a notification whose message had the supplied origin.  Used where a notification is
+     * sent on a thread other than the one that received its message, with the origin obtained from {@link #origin()}
+     * on the receiving thread.
+     *
+     * @param type the type of notification
+     * @param originMs the origin of the message, in milliseconds since the epoch; nothing is recorded if zero or less
+     */
+    public void complete(Notification.Type type, long originMs) {
+        if (windows == null || type == null || originMs <= 0) {
+            return;
+        }
+        record(type, clock.getAsLong() - originMs);
+    }
+
+    /**
+     * Records a latency directly.
+     *
+     * @param type the type of notification
+     * @param latencyMs the end-to-end latency in milliseconds; negative values, caused by clock skew, are recorded
+     *                  as zero
+     */
+    public void record(Notification.Type type, long latencyMs) {
+        if (windows == null) {
+            return;
+        }
+        windows.get(type).recorder.recordValue(Math.max(0, latencyMs));
+    }
+
+    /**
+     * @param type the type of notification
+     * @return the latencies of notifications of {@code type} over the current window
+     */
+    public Snapshot snapshot(Notification.Type type) {
+        if (windows == null) {
+            return Snapshot.EMPTY;
+        }
+        return windows.get(type).snapshot(clock.getAsLong(), sliceMs);
+    }
+
+    private void gauge(MeterRegistry meterRegistry, Notification.Type type, String quantile,
+                       ToDoubleFunction<Snapshot> value) {
+        meterRegistry.gauge("pass.notification.latency", Tags.of("type", type.name(), "quantile", quantile), this,
+                latency -> value.applyAsDouble(latency.snapshot(type)));
+    }
+
+    /**
+     * Latency percentiles, in milliseconds, over a window.
+     */
+    public static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(new Histogram(SIGNIFICANT_DIGITS));
+
+        private final long count;
+
+        private final long p50;
+
+        private final long p99;
+
+        private final long p999;
+
+        private final long max;
+
+        private Snapshot(Histogram histogram) {
+            this.count = histogram.getTotalCount();
+            this.p50 = histogram.getValueAtPercentile(50);
+            this.p99 = histogram.getValueAtPercentile(99);
+            this.p999 = histogram.getValueAtPercentile(99.9);
+            this.max = histogram.getMaxValue();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + ", p50=" + p50 + "ms, p99=" + p99 + "ms, p99.9=" + p999 + "ms, max=" + max +
+                    "ms";
+        }
+    }
+
+    /**
+     * The recorder for one type of notification, and the slices of its window.  Recording is wait-free; reading and
+     * rotating slices is synchronized.
+     */
+    private static final class Window {
+
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+        private final Histogram[] slices;
+
+        private int current;
+
+        private long sliceStart;
+
+        private Snapshot snapshot = Snapshot.EMPTY;
+
+        private Window(int slices, long now) {
+            this.slices = new Histogram[slices];
+            for (int i = 0; i < slices; i++) {
+                this.slices[i] = new Histogram(SIGNIFICANT_DIGITS);
+            }
+            this.sliceStart = now;
+        }
+
+        private synchronized Snapshot snapshot(long now, long sliceMs) {
+            // Retire the slices that have fallen out of the window since the last read
+            long elapsedSlices = (now - sliceStart) / sliceMs;
+            for (long i = 0; i < Math.min(elapsedSlices, slices.length); i++) {
+                current = (current + 1) % slices.length;
+                slices[current].reset();
+            }
+            sliceStart += elapsedSlices * sliceMs;
+
+            Histogram interval = recorder.getIntervalHistogram();
+            if (interval.getTotalCount() == 0 && elapsedSlices == 0) {
+                return snapshot;
+            }
+            slices[current].add(interval);
+
+            Histogram aggregate = new Histogram(SIGNIFICANT_DIGITS);
+            for (Histogram slice : slices) {
+                aggregate.add(slice);
+            }
+            snapshot = new Snapshot(aggregate);
+            return snapshot;
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.metrics;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.support.resilience.LimitExceededException;
+
+/**
+ * Records how long each stage of processing a notification takes, and how it ended.
+ * <p>
+ * Timed stages are recorded to the timer {@code pass.notification.stage}, and untimed stages (such as dropping a
+ * self-submission) to the counter {@code pass.notification.stage.count}.  Both are tagged with {@code stage},
+ * {@code type} (the {@link Notification.Type}, or {@code none} where the type is not yet known) and {@code outcome}.
+ * Meters are recorded to a Micrometer {@link MeterRegistry}, so they may be exported in any format for which a
+ * registry implementation is available.
+ * </p>
+ * <p>
+ * Recording is on the path of every message, so it is kept cheap: each meter is looked up in the registry once, the
+ * first time its combination of tags is recorded, and cached by index thereafter.  Recording a stage costs two reads
+ * of {@link System#nanoTime()}, an array lookup and the update of the meter itself.  {@link #noop()} returns an
+ * instance that records nothing and does not read the clock.
+ * </p>
+ * <p>
+ * Typical use:
+ * </p>
+ * <pre>
+ * long start = metrics.start();
+ * try {
+ *     doStage();
+ *     metrics.record(Stage.RENDER, type, Outcome.SUCCESS, start);
+ * } catch (RuntimeException e) {
+ *     metrics.record(Stage.RENDER, type, StageMetrics.outcomeOf(e), start);
+ *     throw e;
+ * }
+ * </pre>
+ */
+public class StageMetrics {
+
+    static final String TIMER = "pass.notification.stage";
+
+    static final String COUNTER = "pass.notification.stage.count";
+
+    private static final String NO_TYPE = "none";
+
+    private static final int TYPES = Notification.Type.values().length + 1;
+
+    private static final int OUTCOMES = Outcome.values().length;
+
+    private static final StageMetrics NOOP = new StageMetrics();
+
+    /**
+     * The stages of processing a notification, from receipt of the JMS message to its acknowledgement.
+     */
+    public enum Stage {
+        RECEIVE("jms.receive"),
+        EVENT_FETCH("event.fetch"),
+        SUBMISSION_FETCH("submission.fetch"),
+        SELF_SUBMISSION_DROP("self-submission.drop"),
+        COMPOSE("compose"),
+        RECIPIENT_RESOLUTION("recipient.resolution"),
+        TEMPLATE_RESOLVE("template.resolve"),
+        RENDER("render"),
+        EMAIL_COMPOSE("email.compose"),
+        OUTBOX("outbox.append"),
+        SEND("send"),
+        ACK("jms.ack");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    /**
+     * How a stage ended.
+     */
+    public enum Outcome {
+
+        /**
+         * The stage completed normally
+         */
+        SUCCESS,
+
+        /**
+         * The stage failed
+         */
+        FAILURE,
+
+        /**
+         * A dependency of the stage refused to be called, for example because its circuit breaker was open
+         */
+        REFUSED,
+
+        /**
+         * The stage determined there was nothing to do, for example a JMS message for an unrelated resource
+         */
+        DISCARDED;
+
+        private final String tag = name().toLowerCase(Locale.ENGLISH);
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicReferenceArray<Timer> timers;
+
+    private final AtomicReferenceArray<Counter> counters;
+
+    public StageMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null.");
+        int size = Stage.values().length * TYPES * OUTCOMES;
+        this.timers = new AtomicReferenceArray<>(size);
+        this.counters = new AtomicReferenceArray<>(size);
+    }
+
+    private StageMetrics() {
+        this.meterRegistry = null;
+        this.timers = null;
+        this.counters = null;
+    }
+
+    /**
+     * @return an instance which records nothing
+     */
+    public static StageMetrics noop() {
+        return NOOP;
+    }
+
+    /**
+     * Answers the outcome of a stage that ended with {@code failure}.
+     *
+     * @param failure the exception that ended the stage
+     * @return {@link Outcome#REFUSED} if the failure was a refusal to call a dependency, otherwise
+     *         {@link Outcome#FAILURE}
+     */
+    public static Outcome outcomeOf(Throwable failure) {
+        return LimitExceededException.isRefusal(failure) ? Outcome.REFUSED : Outcome.FAILURE;
+    }
+
+    /**
+     * @return the time a stage starts, to be passed to {@link #record(Stage, Notification.Type, Outcome, long)}
+     */
+    public long start() {
+        return meterRegistry == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Records the time elapsed since {@code start} for a stage.
+     *
+     * @param stage the stage
+     * @param type the type of notification being processed, or {@code null} if it is not yet known
+     * @param outcome how the stage ended
+     * @param start the value returned by {@link #start()} when the stage began
+     */
+    public void record(Stage stage, Notification.Type type, Outcome outcome, long start) {
+        if (meterRegistry == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        int index = index(stage, type, outcome);
+        Timer timer = timers.get(index);
+        if (timer == null) {
+            timer = meterRegistry.timer(TIMER, "stage", stage.tag(), "type", typeTag(type), "outcome", outcome.tag());
+            timers.set(index, timer);
+        }
+        timer.record(elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts an untimed stage.
+     *
+     * @param stage the stage
+     * @param type the type of notification being processed, or {@code null} if it is not yet known
+     * @param outcome how the stage ended
+     */
+    public void count(Stage stage, Notification.Type type, Outcome outcome) {
+        if (meterRegistry == null) {
+            return;
+        }
+        int index = index(stage, type, outcome);
+        Counter counter = counters.get(index);
+        if (counter == null) {
+            counter = meterRegistry.counter(COUNTER, "stage", stage.tag(), "type", typeTag(type),
+                    "outcome", outcome.tag());
+            counters.set(index, counter);
+        }
+        counter.increment();
+    }
+
+    private static int index(Stage stage, Notification.Type type, Outcome outcome) {
+        int typeIndex = type == null ? 0 : type.ordinal() + 1;
+        return (stage.ordinal() * TYPES + typeIndex) * OUTCOMES + outcome.ordinal();
+    }
+
+    private static String typeTag(Notification.Type type) {
+        return type == null ? NO_TYPE : type.name();
+    }
+
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.resilience;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stops calling a dependency that is failing, so that work which is bound to fail is refused up front.
+ * <p>
+ * The breaker starts {@link State#CLOSED}: calls are permitted, and consecutive failures are counted.  When the
+ * number of consecutive failures reaches the threshold the breaker becomes {@link State#OPEN}, and calls are refused
+ * with a {@link CircuitOpenException}.  Once the open duration has elapsed the breaker becomes
+ * {@link State#HALF_OPEN}, and a single trial call is permitted: if it succeeds the breaker closes, and if it fails
+ * the breaker opens again.
+ * </p>
+ * <p>
+ * Exceptions that do not satisfy the failure predicate (for example, a resource that does not exist) indicate that
+ * the dependency is responding, and are counted as successes.  Calls refused by another protection, signalled by a
+ * {@link LimitExceededException}, are counted as neither.
+ * </p>
+ * <p>
+ * If a scheduler is supplied, the transition from {@code OPEN} to {@code HALF_OPEN} happens when the open duration
+ * elapses, even if no calls are being made; otherwise it happens on the first call after the open duration.
+ * {@link Listener}s are notified of each transition.
+ * </p>
+ * <p>
+ * Metrics, tagged with {@code name}: gauge {@code pass.breaker.state} (0 closed, 1 half-open, 2 open); counter
+ * {@code pass.breaker.rejected}; and counter {@code pass.breaker.transitions}, additionally tagged with the
+ * {@code state} transitioned to.
+ * </p>
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    /**
+     * Notified when a breaker changes state.  Listeners are invoked on the thread that caused the transition, after
+     * the transition has taken place.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        void onStateChange(CircuitBreaker breaker, State from, State to);
+
+    }
+
+    private final String name;
+
+    private final int failureThreshold;
+
+    private final long openMs;
+
+    private final Predicate<Throwable> isFailure;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final LongSupplier clock;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter rejected;
+
+    private volatile State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private long openedAt;
+
+    private boolean trialInFlight;
+
+    /**
+     * Creates a breaker.
+     *
+     * @param name names the dependency being protected; used in metrics and log messages
+     * @param failureThreshold the number of consecutive failures that opens the breaker
+     * @param openMs the time, in milliseconds, the breaker stays open before permitting a trial call
+     * @param isFailure answers whether an exception thrown by a call indicates the dependency is failing
+     * @param scheduler used to half-open the breaker when the open duration elapses; may be {@code null}
+     * @param meterRegistry the registry metrics are recorded to
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openMs, Predicate<Throwable> isFailure,
+                          ScheduledExecutorService scheduler, MeterRegistry meterRegistry) {
+        this(name, failureThreshold, openMs, isFailure, scheduler, System::currentTimeMillis, meterRegistry);
+    }
+
+    CircuitBreaker(String name, int failureThreshold, long openMs, Predicate<Throwable> isFailure,
+                   ScheduledExecutorService scheduler, LongSupplier clock, MeterRegistry meterRegistry) {
+        this.name = Objects.requireNonNull(name, "Name must not be null.");
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be a positive integer.");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        this.isFailure = Objects.requireNonNull(isFailure, "Failure predicate must not be null.");
+        this.scheduler = scheduler;
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null.");
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null.");
+
+        Tags tags = Tags.of("name", name);
+        meterRegistry.gauge("pass.breaker.state", tags, this, breaker -> breaker.getState().ordinal());
+        this.rejected = meterRegistry.counter("pass.breaker.rejected", tags);
+    }
+
+    /**
+     * Performs {@code call} if the breaker permits it, and records its outcome.
+     *
+     * @param call the call to the protected dependency
+     * @param <T> the type returned by the call
+     * @return the value returned by the call
+     * @throws CircuitOpenException if the breaker refused the call
+     */
+    public <T> T execute(Supplier<T> call) {
+        acquire();
+        try {
+            T result = call.get();
+            onSuccess();
+            return result;
+        } catch (LimitExceededException e) {
+            onIgnored();
+            throw e;
+        } catch (RuntimeException | Error e) {
+            if (isFailure.test(e)) {
+                onFailure(e);
+            } else {
+                onSuccess();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Performs {@code call} if the breaker permits it, and records its outcome.
+     *
+     * @param call the call to the protected dependency
+     * @throws CircuitOpenException if the breaker refused the call
+     */
+    public void run(Runnable call) {
+        execute(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(Objects.requireNonNull(listener, "Listener must not be null."));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    private void acquire() {
+        State from = null;
+        State current;
+        boolean permitted;
+        synchronized (this) {
+            if (state == State.OPEN && clock.getAsLong() - openedAt >= openMs) {
+                from = transition(State.HALF_OPEN);
+            }
+            current = state;
+            permitted = current == State.CLOSED || (current == State.HALF_OPEN && !trialInFlight);
+            if (permitted && current == State.HALF_OPEN) {
+                trialInFlight = true;
+            }
+        }
+        notifyListeners(from, State.HALF_OPEN);
+
+        if (!permitted) {
+            rejected.increment();
+            throw new CircuitOpenException("Circuit breaker for '" + name + "' is " + current);
+        }
+    }
+
+    private void onSuccess() {
+        State from = null;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            if (state == State.HALF_OPEN) {
+                trialInFlight = false;
+                from = transition(State.CLOSED);
+            }
+        }
+        notifyListeners(from, State.CLOSED);
+    }
+
+    private void onFailure(Throwable e) {
+        State from = null;
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                trialInFlight = false;
+                from = open();
+            } else if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+                from = open();
+            }
+        }
+        if (from != null) {
+            LOG.warn("Circuit breaker for '{}' opened after failure: {}", name, e.getMessage());
+        }
+        notifyListeners(from, State.OPEN);
+    }
+
+    private synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    private State open() {
+        openedAt = clock.getAsLong();
+        consecutiveFailures = 0;
+        State from = transition(State.OPEN);
+        if (scheduler != null) {
+            scheduler.schedule(this::halfOpenIfDue, openMs, TimeUnit.MILLISECONDS);
+        }
+        return from;
+    }
+
+    void halfOpenIfDue() {
+        State from = null;
+        synchronized (this) {
+            if (state == State.OPEN && clock.getAsLong() - openedAt >= openMs) {
+                from = transition(State.HALF_OPEN);
+            }
+        }
+        notifyListeners(from, State.HALF_OPEN);
+    }
+
+    /**
+     * Must be called while holding the lock.
+     *
+     * @return the previous state, or {@code null} if the state did not change
+     */
+    private State transition(State to) {
+        State from = state;
+        if (from == to) {
+            return null;
+        }
+        state = to;
+        meterRegistry.counter("pass.breaker.transitions", "name", name, "state", to.name()).increment();
+        LOG.info("Circuit breaker for '{}' changed from {} to {}", name, from, to);
+        return from;
+    }
+
+    private void notifyListeners(State from, State to) {
+        if (from == null) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.onStateChange(this, from, to);
+            } catch (RuntimeException e) {
+                LOG.warn("Circuit breaker listener for '{}' failed: {}", name, e.getMessage(), e);
+            }
+        }
+    }
+
+}
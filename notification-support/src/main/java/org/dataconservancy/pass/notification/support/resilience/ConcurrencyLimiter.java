@@ -0,0 +1,276 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.resilience;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the number of concurrent calls to a dependency, adapting the limit to the latency the dependency exhibits.
+ * <p>
+ * The limit is adjusted using additive-increase/multiplicative-decrease (AIMD): each call that completes within the
+ * latency threshold while the limit is being used raises the limit by one, up to the maximum.  Each call that fails,
+ * or takes longer than the latency threshold, multiplies the limit by the backoff ratio, down to the minimum.  A slow
+ * dependency therefore sees fewer concurrent callers, and a healthy one is allowed more.
+ * </p>
+ * <p>
+ * Whether an exception thrown by a call is a failure is answered by a predicate, so that errors which say nothing of
+ * the dependency's capacity, such as a missing resource or a rejected email address, do not reduce the limit.  A call
+ * throwing any other exception within the latency threshold leaves the limit unchanged.
+ * </p>
+ * <p>
+ * Callers that arrive when the limit is reached wait in a bounded queue for up to the maximum wait time.  Callers that
+ * find the queue full, or that wait too long, are rejected with a {@link LimitExceededException}.
+ * </p>
+ * <p>
+ * Metrics, tagged with {@code name}: gauges {@code pass.limiter.limit}, {@code pass.limiter.inflight} and
+ * {@code pass.limiter.queued}; timer {@code pass.limiter.wait} recording time spent queued; and counter
+ * {@code pass.limiter.rejected}.
+ * </p>
+ */
+public class ConcurrencyLimiter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+    private final String name;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private final int maxQueued;
+
+    private final long maxWaitNanos;
+
+    private final double backoffRatio;
+
+    private final Predicate<Throwable> isFailure;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    private volatile double limit;
+
+    private volatile int inFlight;
+
+    private volatile int queued;
+
+    private final Timer waitTimer;
+
+    private final Counter rejected;
+
+    /**
+     * Creates a limiter for which every exception thrown by a call is a failure.
+     *
+     * @param name names the dependency being protected; used in metrics and log messages
+     * @param minLimit the smallest the limit may become, at least one
+     * @param maxLimit the largest the limit may become
+     * @param latencyThresholdMs calls taking longer than this many milliseconds reduce the limit
+     * @param maxQueued the maximum number of callers that may wait for a permit
+     * @param maxWaitMs the maximum time, in milliseconds, a caller may wait for a permit
+     * @param meterRegistry the registry metrics are recorded to
+     */
+    public ConcurrencyLimiter(String name, int minLimit, int maxLimit, long latencyThresholdMs, int maxQueued,
+                              long maxWaitMs, MeterRegistry meterRegistry) {
+        this(name, minLimit, maxLimit, latencyThresholdMs, maxQueued, maxWaitMs, e -> true, meterRegistry);
+    }
+
+    /**
+     * Creates a limiter.
+     *
+     * @param name names the dependency being protected; used in metrics and log messages
+     * @param minLimit the smallest the limit may become, at least one
+     * @param maxLimit the largest the limit may become
+     * @param latencyThresholdMs calls taking longer than this many milliseconds reduce the limit
+     * @param maxQueued the maximum number of callers that may wait for a permit
+     * @param maxWaitMs the maximum time, in milliseconds, a caller may wait for a permit
+     * @param isFailure answers whether an exception thrown by a call indicates the dependency is overloaded or failing
+     * @param meterRegistry the registry metrics are recorded to
+     */
+    public ConcurrencyLimiter(String name, int minLimit, int maxLimit, long latencyThresholdMs, int maxQueued,
+                              long maxWaitMs, Predicate<Throwable> isFailure, MeterRegistry meterRegistry) {
+        this(name, minLimit, maxLimit, latencyThresholdMs, maxQueued, maxWaitMs, DEFAULT_BACKOFF_RATIO, isFailure,
+                meterRegistry);
+    }
+
+    ConcurrencyLimiter(String name, int minLimit, int maxLimit, long latencyThresholdMs, int maxQueued,
+                       long maxWaitMs, double backoffRatio, Predicate<Throwable> isFailure,
+                       MeterRegistry meterRegistry) {
+        this.name = Objects.requireNonNull(name, "Name must not be null.");
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= minimum <= maximum.");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1, exclusive.");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        this.backoffRatio = backoffRatio;
+        this.isFailure = Objects.requireNonNull(isFailure, "Failure predicate must not be null.");
+        this.limit = minLimit + (maxLimit - minLimit) / 2;
+
+        Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null.");
+        Tags tags = Tags.of("name", name);
+        meterRegistry.gauge("pass.limiter.limit", tags, this, ConcurrencyLimiter::getLimit);
+        meterRegistry.gauge("pass.limiter.inflight", tags, this, ConcurrencyLimiter::getInFlight);
+        meterRegistry.gauge("pass.limiter.queued", tags, this, ConcurrencyLimiter::getQueued);
+        this.waitTimer = meterRegistry.timer("pass.limiter.wait", tags);
+        this.rejected = meterRegistry.counter("pass.limiter.rejected", tags);
+    }
+
+    /**
+     * Performs {@code call} once a permit is available, and adjusts the limit according to how the call completed.
+     *
+     * @param call the call to the protected dependency
+     * @param <T> the type returned by the call
+     * @return the value returned by the call
+     * @throws LimitExceededException if a permit could not be obtained
+     */
+    public <T> T execute(Supplier<T> call) {
+        acquire();
+        long start = System.nanoTime();
+        boolean success = false;
+        boolean failure = true;
+        try {
+            T result = call.get();
+            success = true;
+            failure = false;
+            return result;
+        } catch (RuntimeException e) {
+            failure = isFailure.test(e);
+            throw e;
+        } finally {
+            release(success, failure, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Performs {@code call} once a permit is available, and adjusts the limit according to how the call completed.
+     *
+     * @param call the call to the protected dependency
+     * @throws LimitExceededException if a permit could not be obtained
+     */
+    public void run(Runnable call) {
+        execute(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the current concurrency limit
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    private void acquire() {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return;
+            }
+
+            if (queued >= maxQueued) {
+                rejected.increment();
+                throw new LimitExceededException("Concurrency limit for '" + name + "' reached (" + (int) limit +
+                        " in flight, " + queued + " queued)");
+            }
+
+            long start = System.nanoTime();
+            long remaining = maxWaitNanos;
+            queued++;
+            try {
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        rejected.increment();
+                        throw new LimitExceededException("Timed out waiting for a permit to call '" + name + "'");
+                    }
+                    remaining = available.awaitNanos(remaining);
+                }
+                inFlight++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejected.increment();
+                throw new LimitExceededException("Interrupted waiting for a permit to call '" + name + "'", e);
+            } finally {
+                queued--;
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param success whether the call returned normally
+     * @param failure whether the call failed in a way that counts against the dependency
+     */
+    private void release(boolean success, boolean failure, long latencyNanos) {
+        lock.lock();
+        try {
+            double previous = limit;
+            if (failure || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (success && inFlight * 2 >= (int) limit) {
+                // Only grow the limit while it is actually being used
+                limit = Math.min(maxLimit, limit + 1);
+            }
+            inFlight--;
+
+            if ((int) previous != (int) limit) {
+                LOG.debug("Concurrency limit for '{}' changed from {} to {}", name, (int) previous, (int) limit);
+            }
+
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.resilience;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reduces tail latency by issuing a second, identical call when the first has not completed within the latency
+ * observed for most calls.
+ * <p>
+ * The latencies of recent calls are sampled, and once enough samples have been observed a call that has not completed
+ * within the 95th percentile of those samples is <em>hedged</em>: the same call is issued again, and whichever
+ * completes successfully first provides the result.  The other is left to complete in the background.  Calls must
+ * therefore be idempotent.
+ * </p>
+ * <p>
+ * Hedging adds load to the dependency, so it is limited by a budget: each call earns {@code budgetPercent / 100} of
+ * a hedge, and a hedge is only issued when a whole one has been earned.  A budget of 10% means at most one call in ten
+ * is hedged, in the long run.  Unused budget accumulates up to a small cap, so that a burst of slow calls following
+ * a quiet period is not hedged without limit.
+ * </p>
+ * <p>
+ * Calls are performed on the supplied {@link Executor}, so that the caller can return as soon as either completes.
+ * If the executor refuses a call, it is performed on the calling thread, without hedging.
+ * </p>
+ * <p>
+ * Metrics, tagged with {@code name}: counters {@code pass.hedge.issued}, {@code pass.hedge.won} (hedges that
+ * completed before the original call) and {@code pass.hedge.denied} (hedges not issued for lack of budget); and gauge
+ * {@code pass.hedge.delay}, the current hedging delay in milliseconds.
+ * </p>
+ */
+public class Hedger {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Hedger.class);
+
+    static final int DEFAULT_SAMPLES = 1024;
+
+    static final int DEFAULT_MIN_SAMPLES = 20;
+
+    private static final double PERCENTILE = 0.95;
+
+    private static final double MAX_BUDGET_BALANCE = 10;
+
+    private final String name;
+
+    private final double budgetPerCall;
+
+    private final Executor executor;
+
+    private final int minSamples;
+
+    private final long[] samples;
+
+    private int sampleCount;
+
+    private int nextSample;
+
+    private int sinceRecalculated;
+
+    private volatile long delayNanos = -1;
+
+    private double budgetBalance;
+
+    private final Counter issued;
+
+    private final Counter won;
+
+    private final Counter denied;
+
+    /**
+     * Creates a hedger.
+     *
+     * @param name names the dependency being called; used in metrics and log messages
+     * @param budgetPercent the maximum number of hedges, as a percentage of calls
+     * @param executor performs calls, and hedges
+     * @param meterRegistry the registry metrics are recorded to
+     */
+    public Hedger(String name, double budgetPercent, Executor executor, MeterRegistry meterRegistry) {
+        this(name, budgetPercent, executor, DEFAULT_SAMPLES, DEFAULT_MIN_SAMPLES, meterRegistry);
+    }
+
+    Hedger(String name, double budgetPercent, Executor executor, int samples, int minSamples,
+           MeterRegistry meterRegistry) {
+        this.name = Objects.requireNonNull(name, "Name must not be null.");
+        if (budgetPercent <= 0 || budgetPercent > 100) {
+            throw new IllegalArgumentException("Hedge budget must be greater than 0 and at most 100 percent.");
+        }
+        if (minSamples < 1 || samples < minSamples) {
+            throw new IllegalArgumentException("Sample counts must satisfy 1 <= minimum <= samples.");
+        }
+        this.budgetPerCall = budgetPercent / 100;
+        this.executor = Objects.requireNonNull(executor, "Executor must not be null.");
+        this.samples = new long[samples];
+        this.minSamples = minSamples;
+
+        Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null.");
+        Tags tags = Tags.of("name", name);
+        this.issued = meterRegistry.counter("pass.hedge.issued", tags);
+        this.won = meterRegistry.counter("pass.hedge.won", tags);
+        this.denied = meterRegistry.counter("pass.hedge.denied", tags);
+        meterRegistry.gauge("pass.hedge.delay", tags, this,
+                hedger -> hedger.delayNanos < 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(hedger.delayNanos));
+    }
+
+    /**
+     * Performs {@code call}, hedging it if it does not complete within the current hedging delay.
+     *
+     * @param call the idempotent call to the dependency
+     * @param <T> the type returned by the call
+     * @return the value returned by the first attempt to complete successfully
+     */
+    public <T> T execute(Supplier<T> call) {
+        earnBudget();
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+
+        try {
+            submit(call, false, result, outstanding);
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Executor refused call to '{}', performing it without hedging", name);
+            return timed(call);
+        }
+
+        long delay = delayNanos;
+        if (delay >= 0) {
+            try {
+                return result.get(delay, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                hedge(call, result, outstanding);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted calling '" + name + "'", e);
+            } catch (ExecutionException e) {
+                throw rethrow(e.getCause());
+            }
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted calling '" + name + "'", e);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the current hedging delay in milliseconds, or -1 if too few calls have been observed to hedge
+     */
+    public long getDelayMs() {
+        long delay = delayNanos;
+        return delay < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(delay);
+    }
+
+    private <T> void hedge(Supplier<T> call, CompletableFuture<T> result, AtomicInteger outstanding) {
+        if (!spendBudget()) {
+            denied.increment();
+            return;
+        }
+
+        outstanding.incrementAndGet();
+        try {
+            submit(call, true, result, outstanding);
+        } catch (RejectedExecutionException e) {
+            outstanding.decrementAndGet();
+            LOG.debug("Executor refused hedged call to '{}'", name);
+        }
+    }
+
+    /**
+     * The result is completed by the first attempt to succeed, or by the last attempt to fail.
+     */
+    private <T> void submit(Supplier<T> call, boolean isHedge, CompletableFuture<T> result,
+                            AtomicInteger outstanding) {
+        executor.execute(() -> {
+            if (isHedge) {
+                issued.increment();
+            }
+            try {
+                T value = timed(call);
+                if (result.complete(value) && isHedge) {
+                    won.increment();
+                }
+            } catch (Throwable t) {
+                if (outstanding.decrementAndGet() == 0) {
+                    result.completeExceptionally(t);
+                }
+            }
+        });
+    }
+
+    private <T> T timed(Supplier<T> call) {
+        long start = System.nanoTime();
+        T value = call.get();
+        record(System.nanoTime() - start);
+        return value;
+    }
+
+    private synchronized void record(long latencyNanos) {
+        samples[nextSample] = latencyNanos;
+        nextSample = (nextSample + 1) % samples.length;
+        sampleCount = Math.min(sampleCount + 1, samples.length);
+
+        // Sorting the window is cheap relative to a remote call, but there is no need to do it for every sample
+        if (sampleCount >= minSamples && (delayNanos < 0 || ++sinceRecalculated >= minSamples)) {
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            delayNanos = sorted[(int) Math.ceil(PERCENTILE * sampleCount) - 1];
+            sinceRecalculated = 0;
+        }
+    }
+
+    private synchronized void earnBudget() {
+        budgetBalance = Math.min(MAX_BUDGET_BALANCE, budgetBalance + budgetPerCall);
+    }
+
+    private synchronized boolean spendBudget() {
+        if (budgetBalance < 1) {
+            return false;
+        }
+        budgetBalance -= 1;
+        return true;
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new RuntimeException(cause);
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.resilience;
+
+/**
+ * Thrown when a call to a protected dependency is refused, rather than attempted.
+ */
+public class LimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public LimitExceededException(String message) {
+        super(message);
+    }
+
+    public LimitExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Answers whether {@code t}, or any of its causes, is a {@code LimitExceededException}: that is, whether the
+     * failure was a refusal to call a dependency rather than a failure of the dependency itself.
+     *
+     * @param t the failure
+     * @return true if the failure was caused by a refusal
+     */
+    public static boolean isRefusal(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LimitExceededException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+}
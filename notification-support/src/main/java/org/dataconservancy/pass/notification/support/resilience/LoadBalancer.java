@@ -0,0 +1,378 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.resilience;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Spreads calls across equivalent instances of a dependency, such as several SMTP relays, favouring the instances
+ * that are responding quickly and reliably.
+ * <p>
+ * Members are chosen by smooth weighted round-robin.  The weight of each member is derived from an exponentially
+ * weighted moving average of its latency and of its error rate: a member that responds in half the time receives
+ * twice the calls, and a member failing half of its calls receives half the calls it otherwise would.  A member that
+ * has not yet been called is favoured until its latency is known.
+ * </p>
+ * <p>
+ * A member failing the ejection threshold of consecutive calls is ejected, and receives no calls until the ejection
+ * time has elapsed, when it is reinstated.  The ejection time is multiplied by the number of times the member has been
+ * ejected without an intervening success, up to the maximum ejection time.  If every member is ejected, calls are
+ * spread across all of them regardless, rather than refused.
+ * </p>
+ * <p>
+ * A call that fails is retried once on another member, if there is one.  As with the {@link CircuitBreaker},
+ * exceptions that do not satisfy the failure predicate are counted as successes and are not retried, and calls
+ * refused by another protection, signalled by a {@link LimitExceededException}, are retried on another member without
+ * being counted against the member that refused them.
+ * </p>
+ * <p>
+ * Metrics, tagged with {@code name} and {@code member}: gauges {@code pass.balancer.share} (the fraction of calls
+ * the member currently receives), {@code pass.balancer.latency} (the average latency in milliseconds),
+ * {@code pass.balancer.errors} (the average error rate) and {@code pass.balancer.ejected} (1 while ejected); timer
+ * {@code pass.balancer.calls}, additionally tagged with the {@code outcome} of each call; and counter
+ * {@code pass.balancer.ejections}.
+ * </p>
+ *
+ * @param <T> the type of member
+ */
+public class LoadBalancer<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadBalancer.class);
+
+    /**
+     * The weight given to each new observation by the moving averages of latency and error rate
+     */
+    static final double SMOOTHING = 0.2;
+
+    /**
+     * The smallest fraction of its latency-derived weight that errors may reduce a member to
+     */
+    private static final double MIN_HEALTH = 0.05;
+
+    /**
+     * The number of members a call is attempted on before its failure is propagated
+     */
+    private static final int MAX_ATTEMPTS = 2;
+
+    private final String name;
+
+    private final List<Member> members;
+
+    private final Predicate<Throwable> isFailure;
+
+    private final int ejectFailures;
+
+    private final long ejectMs;
+
+    private final long maxEjectMs;
+
+    private final LongSupplier clock;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Creates a balancer.
+     *
+     * @param name names the dependency whose instances are balanced; used in metrics and log messages
+     * @param members the instances of the dependency, keyed by a name used in metrics and log messages
+     * @param isFailure answers whether an exception thrown by a call indicates the member is failing
+     * @param ejectFailures the number of consecutive failures that ejects a member
+     * @param ejectMs the time, in milliseconds, a member is ejected for when first ejected
+     * @param maxEjectMs the longest time, in milliseconds, a member may be ejected for
+     * @param meterRegistry the registry metrics are recorded to
+     */
+    public LoadBalancer(String name, Map<String, T> members, Predicate<Throwable> isFailure, int ejectFailures,
+                        long ejectMs, long maxEjectMs, MeterRegistry meterRegistry) {
+        this(name, members, isFailure, ejectFailures, ejectMs, maxEjectMs, System::currentTimeMillis, meterRegistry);
+    }
+
+    LoadBalancer(String name, Map<String, T> members, Predicate<Throwable> isFailure, int ejectFailures,
+                 long ejectMs, long maxEjectMs, LongSupplier clock, MeterRegistry meterRegistry) {
+        this.name = Objects.requireNonNull(name, "Name must not be null.");
+        if (Objects.requireNonNull(members, "Members must not be null.").isEmpty()) {
+            throw new IllegalArgumentException("At least one member is required.");
+        }
+        if (ejectFailures < 1) {
+            throw new IllegalArgumentException("Ejection threshold must be a positive integer.");
+        }
+        this.isFailure = Objects.requireNonNull(isFailure, "Failure predicate must not be null.");
+        this.ejectFailures = ejectFailures;
+        this.ejectMs = ejectMs;
+        this.maxEjectMs = Math.max(ejectMs, maxEjectMs);
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null.");
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null.");
+
+        List<Member> created = new ArrayList<>(members.size());
+        members.forEach((memberName, target) -> created.add(new Member(memberName, target)));
+        this.members = Collections.unmodifiableList(created);
+    }
+
+    /**
+     * Performs {@code call} on a member chosen according to the health of each, and records its outcome.  If the call
+     * fails, it is performed once more on another member.
+     *
+     * @param call the call to a member of the dependency
+     * @param <R> the type returned by the call
+     * @return the value returned by the call
+     */
+    public <R> R execute(Function<? super T, R> call) {
+        List<Member> attempted = new ArrayList<>(MAX_ATTEMPTS);
+        while (true) {
+            Member member = choose(attempted);
+            attempted.add(member);
+            long start = clock.getAsLong();
+            try {
+                R result = call.apply(member.target);
+                onSuccess(member, elapsed(start));
+                return result;
+            } catch (RuntimeException e) {
+                long latencyMs = elapsed(start);
+                boolean refused = LimitExceededException.isRefusal(e);
+                if (refused) {
+                    member.record("refused", latencyMs);
+                } else if (isFailure.test(e)) {
+                    onFailure(member, latencyMs, e);
+                } else {
+                    onSuccess(member, latencyMs);
+                    throw e;
+                }
+
+                if (attempted.size() >= Math.min(MAX_ATTEMPTS, members.size())) {
+                    throw e;
+                }
+                LOG.debug("Call to '{}' member '{}' {}, retrying on another member: {}", name, member.name,
+                        refused ? "was refused" : "failed", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Performs {@code call} on a member chosen according to the health of each, and records its outcome.  If the call
+     * fails, it is performed once more on another member.
+     *
+     * @param call the call to a member of the dependency
+     */
+    public void run(Consumer<? super T> call) {
+        execute(target -> {
+            call.accept(target);
+            return null;
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the members being balanced, in the order they were supplied
+     */
+    public List<Member> getMembers() {
+        return members;
+    }
+
+    private long elapsed(long start) {
+        return Math.max(0, clock.getAsLong() - start);
+    }
+
+    /**
+     * Chooses the member with the greatest accumulated weight among those not ejected, and not already attempted.
+     */
+    private synchronized Member choose(List<Member> attempted) {
+        long now = clock.getAsLong();
+        boolean anyAvailable = false;
+        for (Member member : members) {
+            if (member.ejectedUntil != 0 && now >= member.ejectedUntil) {
+                member.ejectedUntil = 0;
+                member.consecutiveFailures = 0;
+                LOG.info("Reinstated '{}' member '{}'", name, member.name);
+            }
+            anyAvailable |= member.ejectedUntil == 0 && !attempted.contains(member);
+        }
+
+        double total = 0;
+        Member chosen = null;
+        for (Member member : members) {
+            if (attempted.contains(member) || (anyAvailable && member.ejectedUntil != 0)) {
+                continue;
+            }
+            double weight = member.weight();
+            member.current += weight;
+            total += weight;
+            if (chosen == null || member.current > chosen.current) {
+                chosen = member;
+            }
+        }
+
+        chosen.current -= total;
+        return chosen;
+    }
+
+    private void onSuccess(Member member, long latencyMs) {
+        synchronized (this) {
+            member.observe(latencyMs, false);
+            member.consecutiveFailures = 0;
+            member.ejections = 0;
+        }
+        member.record("success", latencyMs);
+    }
+
+    private void onFailure(Member member, long latencyMs, Throwable e) {
+        long ejectedFor = 0;
+        synchronized (this) {
+            member.observe(latencyMs, true);
+            if (member.ejectedUntil == 0 && ++member.consecutiveFailures >= ejectFailures) {
+                member.ejections++;
+                ejectedFor = Math.min(maxEjectMs, ejectMs * member.ejections);
+                member.ejectedUntil = Math.max(1, clock.getAsLong() + ejectedFor);
+                member.consecutiveFailures = 0;
+            }
+        }
+        member.record("failure", latencyMs);
+        if (ejectedFor > 0) {
+            member.ejectionCounter.increment();
+            LOG.warn("Ejected '{}' member '{}' for {} ms after failure: {}", name, member.name, ejectedFor,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * A member of the balancer, and the observed health of it.  Mutable state is guarded by the balancer.
+     */
+    public final class Member {
+
+        private final String name;
+
+        private final T target;
+
+        private final Counter ejectionCounter;
+
+        private boolean sampled;
+
+        private double latencyMs;
+
+        private double errorRate;
+
+        private double current;
+
+        private int consecutiveFailures;
+
+        private int ejections;
+
+        private long ejectedUntil;
+
+        private Member(String name, T target) {
+            this.name = Objects.requireNonNull(name, "Member name must not be null.");
+            this.target = Objects.requireNonNull(target, "Member must not be null.");
+
+            Tags tags = Tags.of("name", LoadBalancer.this.name, "member", name);
+            meterRegistry.gauge("pass.balancer.share", tags, this, Member::getShare);
+            meterRegistry.gauge("pass.balancer.latency", tags, this, Member::getLatencyMs);
+            meterRegistry.gauge("pass.balancer.errors", tags, this, Member::getErrorRate);
+            meterRegistry.gauge("pass.balancer.ejected", tags, this, member -> member.isEjected() ? 1 : 0);
+            this.ejectionCounter = meterRegistry.counter("pass.balancer.ejections", tags);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public T getTarget() {
+            return target;
+        }
+
+        public double getLatencyMs() {
+            synchronized (LoadBalancer.this) {
+                return latencyMs;
+            }
+        }
+
+        public double getErrorRate() {
+            synchronized (LoadBalancer.this) {
+                return errorRate;
+            }
+        }
+
+        public boolean isEjected() {
+            synchronized (LoadBalancer.this) {
+                return ejectedUntil != 0 && clock.getAsLong() < ejectedUntil;
+            }
+        }
+
+        /**
+         * @return the fraction of calls this member currently receives, zero while it is ejected
+         */
+        public double getShare() {
+            synchronized (LoadBalancer.this) {
+                if (isEjected()) {
+                    return 0;
+                }
+                double total = 0;
+                for (Member member : members) {
+                    total += member.isEjected() ? 0 : member.weight();
+                }
+                return total == 0 ? 0 : weight() / total;
+            }
+        }
+
+        /**
+         * Must be called while holding the lock.
+         */
+        private double weight() {
+            // Favour members not yet called, so that their latency becomes known
+            double latency = sampled ? Math.max(1, latencyMs) : 1;
+            return Math.max(MIN_HEALTH, 1 - errorRate) / latency;
+        }
+
+        /**
+         * Must be called while holding the lock.
+         */
+        private void observe(long latency, boolean failed) {
+            if (!sampled) {
+                latencyMs = latency;
+                sampled = true;
+            } else {
+                latencyMs += SMOOTHING * (latency - latencyMs);
+            }
+            errorRate += SMOOTHING * ((failed ? 1 : 0) - errorRate);
+        }
+
+        private void record(String outcome, long latency) {
+            meterRegistry.timer("pass.balancer.calls", "name", LoadBalancer.this.name, "member", name,
+                    "outcome", outcome).record(latency, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+}
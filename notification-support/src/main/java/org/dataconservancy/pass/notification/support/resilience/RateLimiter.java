@@ -0,0 +1,244 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.resilience;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Limits the rate of calls to a dependency, or to each of several keys such as the domains of email recipients, by
+ * delaying callers rather than refusing them.
+ * <p>
+ * Each key has a token bucket refilled at the configured rate and holding at most the burst size: up to the burst
+ * size of calls proceed at once, after which calls are spaced at the configured rate.  Callers are delayed until
+ * their permits are available.  A caller that would be delayed for longer than the maximum delay is instead rejected
+ * with a {@link LimitExceededException}, and its permits are not taken.  Buckets that have refilled are discarded, so
+ * that only recently used keys are tracked.
+ * </p>
+ * <p>
+ * Metrics, tagged with {@code name}: timer {@code pass.ratelimit.delay} recording the delay imposed on each caller;
+ * counter {@code pass.ratelimit.rejected}; and gauge {@code pass.ratelimit.keys}, the number of keys tracked.
+ * </p>
+ */
+public class RateLimiter {
+
+    /**
+     * The number of tracked keys above which refilled buckets are discarded
+     */
+    private static final int MAX_IDLE_KEYS = 1024;
+
+    private final String name;
+
+    private final long intervalNanos;
+
+    private final long burstNanos;
+
+    private final long maxDelayNanos;
+
+    private final LongSupplier clock;
+
+    /**
+     * The theoretical time, in clock nanoseconds, at which each bucket will next be full
+     */
+    private final ConcurrentHashMap<String, Long> buckets = new ConcurrentHashMap<>();
+
+    private final Timer delayTimer;
+
+    private final Counter rejected;
+
+    /**
+     * Creates a limiter.
+     *
+     * @param name names the dependency being protected; used in metrics and log messages
+     * @param permitsPerSecond the rate at which each key's bucket is refilled
+     * @param burst the number of permits each key's bucket holds when full, at least one
+     * @param maxDelayMs the longest time, in milliseconds, a caller may be delayed
+     * @param meterRegistry the registry metrics are recorded to
+     */
+    public RateLimiter(String name, double permitsPerSecond, int burst, long maxDelayMs, MeterRegistry meterRegistry) {
+        this(name, permitsPerSecond, burst, maxDelayMs, System::nanoTime, meterRegistry);
+    }
+
+    RateLimiter(String name, double permitsPerSecond, int burst, long maxDelayMs, LongSupplier clock,
+                MeterRegistry meterRegistry) {
+        this.name = Objects.requireNonNull(name, "Name must not be null.");
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("Rate must be greater than zero.");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst must be a positive integer.");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = intervalNanos * burst;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMs));
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null.");
+
+        Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null.");
+        Tags tags = Tags.of("name", name);
+        meterRegistry.gauge("pass.ratelimit.keys", tags, buckets, Map::size);
+        this.delayTimer = meterRegistry.timer("pass.ratelimit.delay", tags);
+        this.rejected = meterRegistry.counter("pass.ratelimit.rejected", tags);
+    }
+
+    /**
+     * Waits until {@code permits} permits are available for {@code key}, and takes them.
+     *
+     * @param key the key whose rate is limited
+     * @param permits the number of permits to take
+     * @throws LimitExceededException if the permits would not be available within the maximum delay, or the caller
+     *                                is interrupted while waiting
+     */
+    public void acquire(String key, int permits) {
+        acquire(Collections.singletonMap(key, permits));
+    }
+
+    /**
+     * Waits until the permits for every key are available, and takes them.  A caller rejected on one key takes no
+     * permits: those already reserved on the other keys are returned.
+     *
+     * @param permits the number of permits to take, by key
+     * @throws LimitExceededException if the permits for any key would not be available within the maximum delay, or
+     *                                the caller is interrupted while waiting
+     */
+    public void acquire(Map<String, Integer> permits) {
+        long delayNanos = 0;
+        Map<String, Integer> reserved = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : permits.entrySet()) {
+            try {
+                delayNanos = Math.max(delayNanos, reserve(entry.getKey(), entry.getValue()));
+            } catch (LimitExceededException e) {
+                reserved.forEach(this::unreserve);
+                throw e;
+            }
+            reserved.put(entry.getKey(), entry.getValue());
+        }
+        delayTimer.record(delayNanos, TimeUnit.NANOSECONDS);
+
+        if (delayNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LimitExceededException("Interrupted waiting for the rate limit of '" + name + "'", e);
+            }
+        }
+    }
+
+    /**
+     * Takes the permits for every key if they are all available now, without waiting.  Otherwise no permits are taken.
+     *
+     * @param permits the number of permits to take, by key
+     * @return true if the permits were taken, false if any of them were not available
+     */
+    public boolean tryAcquire(Map<String, Integer> permits) {
+        Map<String, Integer> reserved = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : permits.entrySet()) {
+            if (reserve(entry.getKey(), entry.getValue(), 0) < 0) {
+                reserved.forEach(this::unreserve);
+                return false;
+            }
+            reserved.put(entry.getKey(), entry.getValue());
+        }
+        delayTimer.record(0, TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    /**
+     * Takes {@code permits} permits for {@code key}, answering how long the caller must wait before they are
+     * available.
+     *
+     * @param key the key whose rate is limited
+     * @param permits the number of permits to take
+     * @return the time, in nanoseconds, until the permits are available
+     * @throws LimitExceededException if the permits would not be available within the maximum delay
+     */
+    long reserve(String key, int permits) {
+        long delayNanos = reserve(key, permits, maxDelayNanos);
+        if (delayNanos < 0) {
+            rejected.increment();
+            throw new LimitExceededException("Rate limit for '" + name + "' exceeded by '" + key + "'");
+        }
+        return delayNanos;
+    }
+
+    /**
+     * Takes {@code permits} permits for {@code key} if they are available within {@code maxDelayNanos}.
+     *
+     * @return the time, in nanoseconds, until the permits are available, or -1 if they were not taken
+     */
+    private long reserve(String key, int permits, long maxDelayNanos) {
+        Objects.requireNonNull(key, "Key must not be null.");
+        long now = clock.getAsLong();
+        long[] delayNanos = {-1};
+
+        buckets.compute(key, (k, full) -> {
+            long next = Math.max(full == null ? now : full, now) + intervalNanos * Math.max(0, permits);
+            long delay = Math.max(0, next - now - burstNanos);
+            if (delay > maxDelayNanos) {
+                return full;
+            }
+            delayNanos[0] = delay;
+            return next;
+        });
+
+        if (delayNanos[0] >= 0 && buckets.size() > MAX_IDLE_KEYS) {
+            discardRefilled(now);
+        }
+
+        return delayNanos[0];
+    }
+
+    /**
+     * Returns {@code permits} permits reserved for {@code key} but not used.
+     *
+     * @param key the key whose rate is limited
+     * @param permits the number of permits to return
+     */
+    void unreserve(String key, int permits) {
+        buckets.computeIfPresent(key, (k, full) -> full - intervalNanos * Math.max(0, permits));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of keys whose buckets are tracked
+     */
+    public int getKeys() {
+        return buckets.size();
+    }
+
+    private void discardRefilled(long now) {
+        for (Map.Entry<String, Long> bucket : buckets.entrySet()) {
+            if (bucket.getValue() - now <= 0) {
+                // A bucket reserved from concurrently has a new value, and is kept
+                buckets.remove(bucket.getKey(), bucket.getValue());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.jfr;
+
+import jdk.jfr.EventType;
+
+/**
+ * Begins Java Flight Recorder events, if a recording in progress has enabled them.  Loaded reflectively by
+ * {@link PipelineEvents}.
+ */
+final class JfrPipelineEventFactory implements PipelineEventFactory {
+
+    private final EventType[] types = new EventType[PipelineEvents.Kind.values().length];
+
+    JfrPipelineEventFactory() {
+        for (PipelineEvents.Kind kind : PipelineEvents.Kind.values()) {
+            types[kind.ordinal()] = EventType.getEventType(eventClass(kind));
+        }
+    }
+
+    @Override
+    public PipelineEvent begin(PipelineEvents.Kind kind) {
+        if (!types[kind.ordinal()].isEnabled()) {
+            return PipelineEvents.noop();
+        }
+        NotificationEvent event = create(kind);
+        event.begin();
+        return event;
+    }
+
+    private static Class<? extends NotificationEvent> eventClass(PipelineEvents.Kind kind) {
+        switch (kind) {
+            case RECEIVE:
+                return MessageReceiveEvent.class;
+            case FETCH:
+                return PassFetchEvent.class;
+            case COMPOSE:
+                return ComposeEvent.class;
+            case RENDER:
+                return RenderEvent.class;
+            case SEND:
+                return SmtpSendEvent.class;
+            default:
+                throw new IllegalArgumentException("Unknown event kind " + kind);
+        }
+    }
+
+    private static NotificationEvent create(PipelineEvents.Kind kind) {
+        switch (kind) {
+            case RECEIVE:
+                return new MessageReceiveEvent();
+            case FETCH:
+                return new PassFetchEvent();
+            case COMPOSE:
+                return new ComposeEvent();
+            case RENDER:
+                return new RenderEvent();
+            case SEND:
+                return new SmtpSendEvent();
+            default:
+                throw new IllegalArgumentException("Unknown event kind " + kind);
+        }
+    }
+
+}
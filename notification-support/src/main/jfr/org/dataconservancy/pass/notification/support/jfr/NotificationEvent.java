@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.jfr;
+
+import java.net.URI;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Outcome;
+
+/**
+ * The attributes common to all pipeline events.  Stack traces are not recorded: the event's thread and duration are
+ * what correlate it with other events in a recording.
+ */
+@Category({"PASS", "Notification"})
+@StackTrace(false)
+public abstract class NotificationEvent extends Event implements PipelineEvent {
+
+    @Label("Event URI")
+    String eventUri;
+
+    @Label("Resource URI")
+    String resourceUri;
+
+    @Label("Resource Type")
+    Class<?> resourceType;
+
+    @Label("Notification Type")
+    String notificationType;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Override
+    public PipelineEvent eventUri(String eventUri) {
+        this.eventUri = eventUri;
+        return this;
+    }
+
+    @Override
+    public PipelineEvent eventUri(URI eventUri) {
+        this.eventUri = eventUri == null ? null : eventUri.toString();
+        return this;
+    }
+
+    @Override
+    public PipelineEvent resourceUri(URI resourceUri) {
+        this.resourceUri = resourceUri == null ? null : resourceUri.toString();
+        return this;
+    }
+
+    @Override
+    public PipelineEvent resourceType(Class<?> resourceType) {
+        this.resourceType = resourceType;
+        return this;
+    }
+
+    @Override
+    public PipelineEvent notificationType(Notification.Type type) {
+        this.notificationType = type == null ? null : type.name();
+        return this;
+    }
+
+    @Override
+    public void end(Outcome outcome) {
+        this.outcome = outcome == null ? null : outcome.tag();
+        commit();
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.jfr;
+
+import static org.junit.Assert.assertSame;
+
+import java.net.URI;
+
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Outcome;
+import org.junit.Test;
+
+public class PipelineEventsTest {
+
+    /**
+     * Without a recording in progress, events cost nothing and may be used as if they were recorded
+     */
+    @Test
+    public void noopWithoutRecording() {
+        for (PipelineEvents.Kind kind : PipelineEvents.Kind.values()) {
+            PipelineEvent event = PipelineEvents.begin(kind);
+            assertSame(PipelineEvents.noop(), event);
+
+            event.eventUri("http://example.org/events/1")
+                    .eventUri(URI.create("http://example.org/events/1"))
+                    .resourceUri(null)
+                    .resourceType(Object.class)
+                    .notificationType(Notification.Type.SUBMISSION_APPROVAL_INVITE)
+                    .end(Outcome.SUCCESS);
+        }
+    }
+
+}
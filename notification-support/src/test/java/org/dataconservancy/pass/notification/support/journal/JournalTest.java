@@ -0,0 +1,211 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.journal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JournalTest {
+
+    private static final int SEGMENT_SIZE = 256;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path dir;
+
+    private Journal underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = folder.getRoot().toPath();
+        underTest = Journal.open(dir, "outbox", SEGMENT_SIZE, false);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        underTest.close();
+    }
+
+    @Test
+    public void appendedEntriesArePendingUntilComplete() throws Exception {
+        long first = underTest.append(bytes("one")).getSequence();
+        long second = underTest.append(bytes("two")).getSequence();
+
+        assertEquals(first + 1, second);
+        assertEquals(2, underTest.size());
+        assertEquals("one", payload(underTest.pending().get(0)));
+
+        underTest.complete(first);
+
+        assertEquals(1, underTest.size());
+        assertEquals(second, underTest.pending().get(0).getSequence());
+        assertEquals("two", payload(underTest.pending().get(0)));
+    }
+
+    @Test
+    public void completingAnEntryTwiceHasNoEffect() throws Exception {
+        long sequence = underTest.append(bytes("one")).getSequence();
+        underTest.complete(sequence);
+        underTest.complete(sequence);
+        underTest.complete(sequence + 100);
+
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void pendingEntriesAreRecoveredOnReopen() throws Exception {
+        long first = underTest.append(bytes("one")).getSequence();
+        long second = underTest.append(bytes("two")).getSequence();
+        long third = underTest.append(bytes("three")).getSequence();
+        underTest.complete(second);
+        underTest.close();
+
+        underTest = Journal.open(dir, "outbox", SEGMENT_SIZE, false);
+
+        assertEquals(2, underTest.size());
+        assertEquals(first, underTest.pending().get(0).getSequence());
+        assertEquals("one", payload(underTest.pending().get(0)));
+        assertEquals(third, underTest.pending().get(1).getSequence());
+        assertEquals("three", payload(underTest.pending().get(1)));
+
+        // Sequence numbers are not reused
+        assertTrue(underTest.append(bytes("four")).getSequence() > third);
+    }
+
+    @Test
+    public void entriesSpanSegmentsAndCompletedSegmentsAreDeleted() throws Exception {
+        List<Long> sequences = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sequences.add(underTest.append(bytes("entry " + i + " padded to fill the segment sooner")).getSequence());
+        }
+        assertTrue(underTest.segments() > 3);
+        assertEquals(underTest.segments(), segmentFiles().size());
+
+        // Completing later entries does not release the head segment
+        for (Long sequence : sequences.subList(10, 20)) {
+            underTest.complete(sequence);
+        }
+        assertTrue(segmentFiles().size() > 3);
+
+        for (Long sequence : sequences.subList(0, 10)) {
+            underTest.complete(sequence);
+        }
+        assertEquals(1, underTest.segments());
+        assertEquals(1, segmentFiles().size());
+
+        underTest.close();
+        underTest = Journal.open(dir, "outbox", SEGMENT_SIZE, false);
+        assertEquals(0, underTest.size());
+        assertTrue(underTest.append(bytes("next")).getSequence() > sequences.get(19));
+    }
+
+    @Test
+    public void entryLargerThanASegmentIsWrittenToItsOwnSegment() throws Exception {
+        byte[] large = new byte[SEGMENT_SIZE * 4];
+        large[large.length - 1] = 42;
+        long sequence = underTest.append(large).getSequence();
+        underTest.append(bytes("small"));
+        underTest.close();
+
+        underTest = Journal.open(dir, "outbox", SEGMENT_SIZE, true);
+
+        assertEquals(sequence, underTest.pending().get(0).getSequence());
+        assertArrayEquals(large, underTest.pending().get(0).getPayload());
+        assertEquals("small", payload(underTest.pending().get(1)));
+    }
+
+    @Test
+    public void tornRecordIsDiscardedAndOverwritten() throws Exception {
+        underTest.append(bytes("intact"));
+        underTest.append(bytes("torn"));
+        underTest.close();
+
+        // Corrupt the last byte of the second record's payload, as a crash part way through the write might
+        Path segment = segmentFiles().get(0);
+        int offset = Journal.HEADER + "intact".length() + Journal.HEADER + "torn".length() - 1;
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(offset);
+            file.write('x');
+        }
+
+        underTest = Journal.open(dir, "outbox", SEGMENT_SIZE, false);
+        assertEquals(1, underTest.size());
+        assertEquals("intact", payload(underTest.pending().get(0)));
+
+        underTest.append(bytes("replacement"));
+        underTest.close();
+
+        underTest = Journal.open(dir, "outbox", SEGMENT_SIZE, false);
+        assertEquals(2, underTest.size());
+        assertEquals("replacement", payload(underTest.pending().get(1)));
+    }
+
+    @Test
+    public void journalsSharingADirectoryAreIndependent() throws Exception {
+        underTest.append(bytes("one"));
+
+        try (Journal other = Journal.open(dir, "other", SEGMENT_SIZE, false)) {
+            assertEquals(0, other.size());
+            other.append(bytes("two"));
+        }
+
+        underTest.close();
+        underTest = Journal.open(dir, "outbox", SEGMENT_SIZE, false);
+        assertEquals(1, underTest.size());
+        assertEquals("one", payload(underTest.pending().get(0)));
+    }
+
+    @Test(expected = IOException.class)
+    public void appendToClosedJournalFails() throws Exception {
+        underTest.close();
+        underTest.append(bytes("one"));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "outbox-*" + Journal.SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        return files.stream().sorted().collect(Collectors.toList());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(UTF_8);
+    }
+
+    private static String payload(Journal.Entry entry) {
+        return new String(entry.getPayload(), UTF_8);
+    }
+
+}
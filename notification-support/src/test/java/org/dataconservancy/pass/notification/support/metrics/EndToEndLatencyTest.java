@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.metrics;
+
+import static org.dataconservancy.pass.notification.model.Notification.Type.SUBMISSION_APPROVAL_INVITE;
+import static org.dataconservancy.pass.notification.model.Notification.Type.SUBMISSION_CHANGES_REQUESTED;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EndToEndLatencyTest {
+
+    private MeterRegistry meterRegistry;
+
+    private AtomicLong clock;
+
+    private EndToEndLatency underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new AtomicLong(1_000_000);
+        underTest = new EndToEndLatency(5000, 5, clock::get, meterRegistry);
+    }
+
+    @Test
+    public void percentiles() {
+        for (int i = 1; i <= 1000; i++) {
+            underTest.record(SUBMISSION_APPROVAL_INVITE, i);
+        }
+
+        EndToEndLatency.Snapshot snapshot = underTest.snapshot(SUBMISSION_APPROVAL_INVITE);
+
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500, snapshot.getP50());
+        assertEquals(990, snapshot.getP99());
+        assertEquals(999, snapshot.getP999());
+        assertEquals(1000, snapshot.getMax());
+        assertEquals(0, underTest.snapshot(SUBMISSION_CHANGES_REQUESTED).getCount());
+    }
+
+    /**
+     * The origin supplied when a message is received is used to compute latency when the notification is sent
+     */
+    @Test
+    public void completeUsesOrigin() {
+        underTest.begin(clock.get() - 250);
+        underTest.complete(SUBMISSION_APPROVAL_INVITE);
+        underTest.end();
+
+        // without an origin, nothing is recorded
+        underTest.complete(SUBMISSION_APPROVAL_INVITE);
+
+        EndToEndLatency.Snapshot snapshot = underTest.snapshot(SUBMISSION_APPROVAL_INVITE);
+        assertEquals(1, snapshot.getCount());
+        assertEquals(250, snapshot.getMax());
+    }
+
+    @Test
+    public void originIsThatOfTheCurrentMessage() {
+        assertEquals(0, underTest.origin());
+
+        underTest.begin(1234);
+        assertEquals(1234, underTest.origin());
+
+        underTest.end();
+        assertEquals(0, underTest.origin());
+    }
+
+    /**
+     * A notification sent on another thread records its latency against the origin captured when it was received
+     */
+    @Test
+    public void completeWithCapturedOrigin() throws Exception {
+        underTest.begin(clock.get() - 300);
+        long originMs = underTest.origin();
+        underTest.end();
+
+        Thread sender = new Thread(() -> underTest.complete(SUBMISSION_APPROVAL_INVITE, originMs));
+        sender.start();
+        sender.join();
+        underTest.complete(SUBMISSION_APPROVAL_INVITE, 0);
+
+        EndToEndLatency.Snapshot snapshot = underTest.snapshot(SUBMISSION_APPROVAL_INVITE);
+        assertEquals(1, snapshot.getCount());
+        assertEquals(300, snapshot.getMax());
+    }
+
+    @Test
+    public void latenciesLeaveWindow() {
+        underTest.record(SUBMISSION_APPROVAL_INVITE, 100);
+        assertEquals(1, underTest.snapshot(SUBMISSION_APPROVAL_INVITE).getCount());
+
+        clock.addAndGet(3000);
+        underTest.record(SUBMISSION_APPROVAL_INVITE, 200);
+        assertEquals(2, underTest.snapshot(SUBMISSION_APPROVAL_INVITE).getCount());
+
+        clock.addAndGet(3000);
+        EndToEndLatency.Snapshot snapshot = underTest.snapshot(SUBMISSION_APPROVAL_INVITE);
+        assertEquals(1, snapshot.getCount());
+        assertEquals(200, snapshot.getMax());
+
+        clock.addAndGet(10_000);
+        assertEquals(0, underTest.snapshot(SUBMISSION_APPROVAL_INVITE).getCount());
+    }
+
+    @Test
+    public void gauges() {
+        underTest.record(SUBMISSION_APPROVAL_INVITE, 42);
+
+        assertEquals(42, meterRegistry.get("pass.notification.latency").tag("type", "SUBMISSION_APPROVAL_INVITE")
+                .tag("quantile", "max").gauge().value(), 0);
+        assertEquals(1, meterRegistry.get("pass.notification.latency.count").tag("type", "SUBMISSION_APPROVAL_INVITE")
+                .gauge().value(), 0);
+    }
+
+    @Test
+    public void negativeLatencyRecordedAsZero() {
+        underTest.record(SUBMISSION_APPROVAL_INVITE, -5);
+
+        assertEquals(0, underTest.snapshot(SUBMISSION_APPROVAL_INVITE).getMax());
+    }
+
+}
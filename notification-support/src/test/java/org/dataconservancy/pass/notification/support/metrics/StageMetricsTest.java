@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Outcome;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Stage;
+import org.dataconservancy.pass.notification.support.resilience.CircuitOpenException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StageMetricsTest {
+
+    private MeterRegistry meterRegistry;
+
+    private StageMetrics underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new StageMetrics(meterRegistry);
+    }
+
+    @Test
+    public void recordTaggedByStageTypeAndOutcome() {
+        long start = underTest.start();
+        underTest.record(Stage.RENDER, Notification.Type.SUBMISSION_APPROVAL_INVITE, Outcome.SUCCESS, start);
+        underTest.record(Stage.RENDER, Notification.Type.SUBMISSION_APPROVAL_INVITE, Outcome.SUCCESS, start);
+        underTest.record(Stage.RENDER, Notification.Type.SUBMISSION_APPROVAL_INVITE, Outcome.FAILURE, start);
+
+        Timer success = meterRegistry.get(StageMetrics.TIMER).tag("stage", "render")
+                .tag("type", "SUBMISSION_APPROVAL_INVITE").tag("outcome", "success").timer();
+        assertEquals(2, success.count());
+        assertTrue(success.totalTime(TimeUnit.NANOSECONDS) > 0);
+        assertEquals(1, meterRegistry.get(StageMetrics.TIMER).tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    public void unknownTypeTaggedNone() {
+        underTest.record(Stage.RECEIVE, null, Outcome.DISCARDED, underTest.start());
+
+        assertEquals(1, meterRegistry.get(StageMetrics.TIMER).tag("stage", "jms.receive").tag("type", "none")
+                .tag("outcome", "discarded").timer().count());
+    }
+
+    @Test
+    public void count() {
+        underTest.count(Stage.SELF_SUBMISSION_DROP, Notification.Type.SUBMISSION_SUBMISSION_SUBMITTED,
+                Outcome.DISCARDED);
+
+        assertEquals(1, meterRegistry.get(StageMetrics.COUNTER).tag("stage", "self-submission.drop")
+                .tag("type", "SUBMISSION_SUBMISSION_SUBMITTED").counter().count(), 0);
+    }
+
+    @Test
+    public void outcomeOf() {
+        assertSame(Outcome.REFUSED, StageMetrics.outcomeOf(new RuntimeException(new CircuitOpenException("Open"))));
+        assertSame(Outcome.FAILURE, StageMetrics.outcomeOf(new RuntimeException("Failed")));
+    }
+
+    @Test
+    public void noopRecordsNothing() {
+        StageMetrics noop = StageMetrics.noop();
+
+        assertEquals(0, noop.start());
+        noop.record(Stage.SEND, Notification.Type.SUBMISSION_CHANGES_REQUESTED, Outcome.SUCCESS, 0);
+        noop.count(Stage.SELF_SUBMISSION_DROP, null, Outcome.DISCARDED);
+    }
+
+}
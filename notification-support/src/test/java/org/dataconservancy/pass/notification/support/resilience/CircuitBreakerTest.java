@@ -0,0 +1,198 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    private MeterRegistry meterRegistry;
+
+    private AtomicLong clock;
+
+    private List<CircuitBreaker.State> transitions;
+
+    private CircuitBreaker underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new AtomicLong(1000);
+        transitions = new ArrayList<>();
+        underTest = new CircuitBreaker("smtp", 3, 100, e -> !(e instanceof IllegalArgumentException), null,
+                clock::get, meterRegistry);
+        underTest.addListener((breaker, from, to) -> transitions.add(to));
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        failCalls(2);
+        assertEquals(CircuitBreaker.State.CLOSED, underTest.getState());
+
+        failCalls(1);
+        assertEquals(CircuitBreaker.State.OPEN, underTest.getState());
+        assertEquals(2, meterRegistry.get("pass.breaker.state").tag("name", "smtp").gauge().value(), 0);
+
+        try {
+            underTest.execute(() -> "refused");
+            fail("Expected a CircuitOpenException");
+        } catch (CircuitOpenException e) {
+            // expected
+        }
+        assertEquals(1, meterRegistry.get("pass.breaker.rejected").tag("name", "smtp").counter().count(), 0);
+    }
+
+    @Test
+    public void successResetsFailureCount() {
+        failCalls(2);
+        underTest.execute(() -> "ok");
+        failCalls(2);
+
+        assertEquals(CircuitBreaker.State.CLOSED, underTest.getState());
+    }
+
+    /**
+     * Exceptions that do not satisfy the failure predicate show the dependency is responding
+     */
+    @Test
+    public void nonFailureExceptionCountsAsSuccess() {
+        failCalls(2);
+        try {
+            underTest.execute(() -> {
+                throw new IllegalArgumentException("Not found");
+            });
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        failCalls(2);
+
+        assertEquals(CircuitBreaker.State.CLOSED, underTest.getState());
+    }
+
+    @Test
+    public void halfOpenTrialSuccessCloses() {
+        failCalls(3);
+        clock.addAndGet(100);
+
+        assertEquals("trial", underTest.execute(() -> "trial"));
+
+        assertEquals(CircuitBreaker.State.CLOSED, underTest.getState());
+        assertEquals(3, transitions.size());
+        assertEquals(CircuitBreaker.State.OPEN, transitions.get(0));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, transitions.get(1));
+        assertEquals(CircuitBreaker.State.CLOSED, transitions.get(2));
+    }
+
+    @Test
+    public void halfOpenTrialFailureReopens() {
+        failCalls(3);
+        clock.addAndGet(100);
+
+        failCalls(1);
+
+        assertEquals(CircuitBreaker.State.OPEN, underTest.getState());
+        assertEquals(2, meterRegistry.get("pass.breaker.transitions").tag("name", "smtp").tag("state", "OPEN")
+                .counter().count(), 0);
+    }
+
+    /**
+     * Only a single trial call is permitted while half-open
+     */
+    @Test
+    public void halfOpenPermitsSingleTrial() {
+        failCalls(3);
+        clock.addAndGet(100);
+
+        underTest.run(() -> {
+            try {
+                underTest.run(() -> { });
+                fail("Expected a CircuitOpenException");
+            } catch (CircuitOpenException e) {
+                // expected
+            }
+        });
+
+        assertEquals(CircuitBreaker.State.CLOSED, underTest.getState());
+    }
+
+    /**
+     * A trial refused by another protection neither closes nor reopens the breaker, and frees the trial
+     */
+    @Test
+    public void refusalIsIgnored() {
+        failCalls(3);
+        clock.addAndGet(100);
+
+        try {
+            underTest.run(() -> {
+                throw new LimitExceededException("Queue full");
+            });
+            fail("Expected a LimitExceededException");
+        } catch (LimitExceededException e) {
+            assertFalse(e instanceof CircuitOpenException);
+        }
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, underTest.getState());
+        underTest.run(() -> { });
+        assertEquals(CircuitBreaker.State.CLOSED, underTest.getState());
+    }
+
+    @Test
+    public void scheduledHalfOpen() {
+        failCalls(3);
+
+        underTest.halfOpenIfDue();
+        assertEquals(CircuitBreaker.State.OPEN, underTest.getState());
+
+        clock.addAndGet(100);
+        underTest.halfOpenIfDue();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, underTest.getState());
+    }
+
+    @Test
+    public void isRefusal() {
+        assertTrue(LimitExceededException.isRefusal(
+                new RuntimeException(new CircuitOpenException("Circuit breaker for 'smtp' is OPEN"))));
+        assertFalse(LimitExceededException.isRefusal(new RuntimeException(new IllegalStateException())));
+    }
+
+    private void failCalls(int times) {
+        for (int i = 0; i < times; i++) {
+            try {
+                underTest.run(() -> {
+                    throw new IllegalStateException("Expected");
+                });
+                fail("Expected an IllegalStateException");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+    }
+
+}
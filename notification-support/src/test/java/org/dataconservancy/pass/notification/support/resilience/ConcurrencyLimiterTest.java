@@ -0,0 +1,233 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+
+    private MeterRegistry meterRegistry;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void initialLimitIsMidpoint() {
+        ConcurrencyLimiter underTest = new ConcurrencyLimiter("fedora", 2, 10, 1000, 0, 0, meterRegistry);
+
+        assertEquals(6, underTest.getLimit());
+        assertEquals(6, meterRegistry.get("pass.limiter.limit").tag("name", "fedora").gauge().value(), 0);
+    }
+
+    /**
+     * Failures back the limit off multiplicatively, but never below the minimum
+     */
+    @Test
+    public void failureDecreasesLimit() {
+        ConcurrencyLimiter underTest = new ConcurrencyLimiter("smtp", 1, 20, 1000, 0, 0, 0.5, e -> true, meterRegistry);
+        assertEquals(10, underTest.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            try {
+                underTest.execute(() -> {
+                    throw new RuntimeException("Expected");
+                });
+                fail("Expected a RuntimeException");
+            } catch (RuntimeException e) {
+                assertEquals("Expected", e.getMessage());
+            }
+        }
+
+        assertEquals(1, underTest.getLimit());
+        assertEquals(0, underTest.getInFlight());
+    }
+
+    /**
+     * Exceptions that are not failures, such as a missing resource, neither back the limit off nor grow it
+     */
+    @Test
+    public void fastApplicationErrorLeavesLimitUnchanged() {
+        ConcurrencyLimiter underTest = new ConcurrencyLimiter("fedora", 1, 20, 10_000, 0, 0, 0.5,
+                e -> !(e instanceof IllegalArgumentException), meterRegistry);
+        assertEquals(10, underTest.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            try {
+                underTest.execute(() -> {
+                    throw new IllegalArgumentException("Not found");
+                });
+                fail("Expected an IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                assertEquals("Not found", e.getMessage());
+            }
+        }
+
+        assertEquals(10, underTest.getLimit());
+        assertEquals(0, underTest.getInFlight());
+
+        try {
+            underTest.execute(() -> {
+                throw new IllegalStateException("Unavailable");
+            });
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals(5, underTest.getLimit());
+        }
+    }
+
+    @Test
+    public void slowCallDecreasesLimit() {
+        ConcurrencyLimiter underTest = new ConcurrencyLimiter("fedora", 1, 20, 0, 0, 0, 0.5, e -> true, meterRegistry);
+
+        underTest.run(() -> sleep(5));
+
+        assertEquals(5, underTest.getLimit());
+    }
+
+    /**
+     * Fast calls grow the limit additively while it is being used, up to the maximum
+     */
+    @Test
+    public void successIncreasesLimitWhenUtilized() throws Exception {
+        ConcurrencyLimiter underTest = new ConcurrencyLimiter("fedora", 1, 3, 10_000, 0, 0, meterRegistry);
+        assertEquals(2, underTest.getLimit());
+
+        // one call in flight is half of a limit of two: the limit is being used
+        underTest.execute(() -> "ok");
+        assertEquals(3, underTest.getLimit());
+
+        underTest.execute(() -> "ok");
+        assertEquals(3, underTest.getLimit());
+    }
+
+    @Test
+    public void rejectsWhenQueueFull() throws Exception {
+        ConcurrencyLimiter underTest = new ConcurrencyLimiter("smtp", 1, 1, 10_000, 0, 0, meterRegistry);
+        CountDownLatch inCall = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> first = executor.submit(() -> underTest.run(() -> {
+            inCall.countDown();
+            await(release);
+        }));
+        assertTrue(inCall.await(5, TimeUnit.SECONDS));
+
+        try {
+            underTest.execute(() -> "second");
+            fail("Expected a LimitExceededException");
+        } catch (LimitExceededException e) {
+            // expected
+        } finally {
+            release.countDown();
+        }
+
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals(1, meterRegistry.get("pass.limiter.rejected").tag("name", "smtp").counter().count(), 0);
+    }
+
+    @Test
+    public void queuedCallProceedsWhenPermitReleased() throws Exception {
+        ConcurrencyLimiter underTest = new ConcurrencyLimiter("smtp", 1, 1, 10_000, 1, 5000, meterRegistry);
+        CountDownLatch inCall = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> first = executor.submit(() -> underTest.run(() -> {
+            inCall.countDown();
+            await(release);
+        }));
+        assertTrue(inCall.await(5, TimeUnit.SECONDS));
+
+        Future<String> second = executor.submit(() -> underTest.execute(() -> "second"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (underTest.getQueued() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, underTest.getQueued());
+
+        release.countDown();
+
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals(0, underTest.getQueued());
+        assertEquals(1, meterRegistry.get("pass.limiter.wait").tag("name", "smtp").timer().count());
+    }
+
+    @Test
+    public void queuedCallTimesOut() throws Exception {
+        ConcurrencyLimiter underTest = new ConcurrencyLimiter("smtp", 1, 1, 10_000, 1, 10, meterRegistry);
+        CountDownLatch inCall = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> first = executor.submit(() -> underTest.run(() -> {
+            inCall.countDown();
+            await(release);
+        }));
+        assertTrue(inCall.await(5, TimeUnit.SECONDS));
+
+        try {
+            underTest.execute(() -> "second");
+            fail("Expected a LimitExceededException");
+        } catch (LimitExceededException e) {
+            // expected
+        } finally {
+            release.countDown();
+        }
+
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals(0, underTest.getQueued());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HedgerTest {
+
+    private MeterRegistry meterRegistry;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void noHedgingUntilEnoughSamples() {
+        Hedger underTest = new Hedger("fedora", 100, executor, 10, 5, meterRegistry);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("ok", underTest.execute(() -> "ok"));
+            assertEquals(-1, underTest.getDelayMs());
+        }
+
+        underTest.execute(() -> "ok");
+        assertTrue(underTest.getDelayMs() >= 0);
+        assertEquals(0, count("pass.hedge.issued"), 0);
+    }
+
+    /**
+     * A call slower than the observed latency is hedged, and the hedge wins
+     */
+    @Test
+    public void slowCallHedged() {
+        Hedger underTest = new Hedger("fedora", 100, executor, 10, 5, meterRegistry);
+        warmUp(underTest);
+
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        String result = underTest.execute(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                await(release);
+                return "original";
+            }
+            return "hedge";
+        });
+        release.countDown();
+
+        assertEquals("hedge", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1, count("pass.hedge.issued"), 0);
+        // the hedge is counted as having won after it has provided the result
+        long deadline = System.currentTimeMillis() + 5000;
+        while (count("pass.hedge.won") == 0 && System.currentTimeMillis() < deadline) {
+            sleep(1);
+        }
+        assertEquals(1, count("pass.hedge.won"), 0);
+    }
+
+    /**
+     * Without budget, a slow call is waited for rather than hedged
+     */
+    @Test
+    public void hedgeDeniedWithoutBudget() {
+        Hedger underTest = new Hedger("fedora", 10, executor, 10, 5, meterRegistry);
+        warmUp(underTest);
+        // warming up earned half a hedge, and this call earns a tenth more
+
+        AtomicInteger attempts = new AtomicInteger();
+        String result = underTest.execute(() -> {
+            attempts.incrementAndGet();
+            sleep(200);
+            return "original";
+        });
+
+        assertEquals("original", result);
+        assertEquals(1, attempts.get());
+        assertEquals(1, count("pass.hedge.denied"), 0);
+        assertEquals(0, count("pass.hedge.issued"), 0);
+    }
+
+    /**
+     * If the hedge fails, the original call still provides the result
+     */
+    @Test
+    public void failedHedgeFallsBackToOriginal() {
+        Hedger underTest = new Hedger("fedora", 100, executor, 10, 5, meterRegistry);
+        warmUp(underTest);
+
+        AtomicInteger attempts = new AtomicInteger();
+        String result = underTest.execute(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                sleep(200);
+                return "original";
+            }
+            throw new IllegalStateException("Hedge failed");
+        });
+
+        assertEquals("original", result);
+        assertEquals(0, count("pass.hedge.won"), 0);
+    }
+
+    @Test
+    public void failurePropagated() {
+        Hedger underTest = new Hedger("fedora", 100, executor, 10, 5, meterRegistry);
+
+        try {
+            underTest.execute(() -> {
+                throw new IllegalStateException("Expected");
+            });
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("Expected", e.getMessage());
+        }
+    }
+
+    /**
+     * Establishes a hedging delay long enough that the original call has always started before it is hedged
+     */
+    private static void warmUp(Hedger hedger) {
+        for (int i = 0; i < 5; i++) {
+            hedger.execute(() -> {
+                sleep(10);
+                return "fast";
+            });
+        }
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).tag("name", "fedora").counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
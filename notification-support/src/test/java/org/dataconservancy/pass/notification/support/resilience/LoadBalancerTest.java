@@ -0,0 +1,233 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoadBalancerTest {
+
+    private MeterRegistry meterRegistry;
+
+    private AtomicLong clock;
+
+    /**
+     * The latency, in milliseconds, of each member
+     */
+    private Map<String, Long> latencies;
+
+    /**
+     * Members whose calls fail
+     */
+    private List<String> failing;
+
+    private LoadBalancer<String> underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new AtomicLong(1000);
+        latencies = new HashMap<>();
+        failing = new ArrayList<>();
+
+        Map<String, String> members = new LinkedHashMap<>();
+        for (String name : new String[] {"a", "b", "c"}) {
+            members.put(name, name);
+            latencies.put(name, 1L);
+        }
+        underTest = new LoadBalancer<>("smtp", members, e -> !(e instanceof IllegalArgumentException), 3, 100,
+                250, clock::get, meterRegistry);
+    }
+
+    @Test
+    public void equalMembersShareCallsEvenly() {
+        call(30);
+        Map<String, Integer> counts = call(300);
+
+        assertEquals(100, counts.get("a"), 1);
+        assertEquals(100, counts.get("b"), 1);
+        assertEquals(100, counts.get("c"), 1);
+        assertEquals(1.0 / 3, meterRegistry.get("pass.balancer.share").tag("member", "a").gauge().value(), 0.01);
+    }
+
+    /**
+     * Calls are shared in inverse proportion to the latency of each member
+     */
+    @Test
+    public void fasterMemberReceivesMoreCalls() {
+        latencies.put("a", 10L);
+        latencies.put("b", 40L);
+        latencies.put("c", 40L);
+
+        call(100);
+        Map<String, Integer> counts = call(600);
+
+        assertEquals(400, counts.get("a"), 10);
+        assertEquals(100, counts.get("b"), 10);
+        assertEquals(100, counts.get("c"), 10);
+        assertEquals(40, underTest.getMembers().get(1).getLatencyMs(), 0.5);
+    }
+
+    /**
+     * A failing member is ejected after consecutive failures, its calls retried on another member, and is reinstated
+     * once the ejection time has elapsed
+     */
+    @Test
+    public void failingMemberEjectedAndReinstated() {
+        failing.add("b");
+
+        Map<String, Integer> counts = call(30);
+        LoadBalancer<String>.Member b = underTest.getMembers().get(1);
+
+        assertEquals(30, counts.get("a") + counts.get("c"), 0);
+        assertTrue(b.isEjected());
+        assertEquals(0, b.getShare(), 0);
+        assertEquals(1, meterRegistry.get("pass.balancer.ejections").tag("member", "b").counter().count(), 0);
+        assertEquals(1, meterRegistry.get("pass.balancer.ejected").tag("member", "b").gauge().value(), 0);
+        assertEquals(3, meterRegistry.get("pass.balancer.calls").tag("member", "b").tag("outcome", "failure")
+                .timer().count());
+
+        // reinstated once the ejection time has elapsed, and ejected for longer on failing again
+        clock.addAndGet(100);
+        assertFalse(b.isEjected());
+        call(30);
+        assertTrue(b.isEjected());
+        clock.addAndGet(100);
+        assertTrue(b.isEjected());
+        clock.addAndGet(100);
+        assertFalse(b.isEjected());
+
+        // a member that recovers is no longer penalized
+        failing.clear();
+        call(300);
+        assertFalse(b.isEjected());
+        assertTrue(b.getErrorRate() < 0.01);
+    }
+
+    /**
+     * A failed call is retried once on another member, and its failure propagated if that fails too
+     */
+    @Test
+    public void failedCallRetriedOnAnotherMember() {
+        failing.add("a");
+        assertEquals("b", underTest.execute(this::call));
+
+        failing.add("b");
+        failing.add("c");
+        try {
+            underTest.execute(this::call);
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().startsWith("Member failed"));
+        }
+    }
+
+    /**
+     * If every member is ejected, calls are still attempted rather than refused
+     */
+    @Test
+    public void callsAttemptedWhenEveryMemberEjected() {
+        failing.add("a");
+        failing.add("b");
+        failing.add("c");
+        for (int i = 0; i < 10; i++) {
+            try {
+                underTest.execute(this::call);
+            } catch (RuntimeException e) {
+                // expected
+            }
+        }
+        underTest.getMembers().forEach(member -> assertTrue(member.isEjected()));
+
+        failing.clear();
+        underTest.execute(this::call);
+    }
+
+    /**
+     * A refused call is retried on another member, without counting against the member that refused it
+     */
+    @Test
+    public void refusalNotCountedAsFailure() {
+        for (int i = 0; i < 30; i++) {
+            underTest.execute(member -> {
+                if (member.equals("a")) {
+                    throw new LimitExceededException("Concurrency limit reached");
+                }
+                return member;
+            });
+        }
+
+        LoadBalancer<String>.Member a = underTest.getMembers().get(0);
+        assertFalse(a.isEjected());
+        assertEquals(0, a.getErrorRate(), 0);
+    }
+
+    /**
+     * Exceptions that do not satisfy the failure predicate show the member is responding, and are not retried
+     */
+    @Test
+    public void nonFailureNotRetried() {
+        List<String> attempted = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            try {
+                underTest.execute(member -> {
+                    attempted.add(member);
+                    throw new IllegalArgumentException("Bad request");
+                });
+                fail("Expected an IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+
+        assertEquals(5, attempted.size());
+        underTest.getMembers().forEach(member -> assertFalse(member.isEjected()));
+    }
+
+    private Map<String, Integer> call(int calls) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < calls; i++) {
+            counts.merge(underTest.execute(this::call), 1, Integer::sum);
+        }
+        counts.putIfAbsent("a", 0);
+        counts.putIfAbsent("b", 0);
+        counts.putIfAbsent("c", 0);
+        return counts;
+    }
+
+    private String call(String member) {
+        clock.addAndGet(latencies.get(member));
+        if (failing.contains(member)) {
+            throw new RuntimeException("Member failed: " + member);
+        }
+        return member;
+    }
+
+}
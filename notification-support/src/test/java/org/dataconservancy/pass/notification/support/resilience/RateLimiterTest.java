@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.resilience;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+    private MeterRegistry meterRegistry;
+
+    /**
+     * The clock, in nanoseconds
+     */
+    private AtomicLong clock;
+
+    private RateLimiter underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new AtomicLong(1_000_000_000L);
+        // 10 permits per second, in bursts of up to 3, delaying callers for at most a second
+        underTest = new RateLimiter("smtp", 10, 3, 1000, clock::get, meterRegistry);
+    }
+
+    @Test
+    public void burstIsNotDelayed() {
+        assertEquals(0, underTest.reserve("relay", 1));
+        assertEquals(0, underTest.reserve("relay", 1));
+        assertEquals(0, underTest.reserve("relay", 1));
+    }
+
+    @Test
+    public void callsBeyondBurstAreSpacedAtRate() {
+        underTest.reserve("relay", 3);
+
+        assertEquals(MILLISECONDS.toNanos(100), underTest.reserve("relay", 1));
+        assertEquals(MILLISECONDS.toNanos(200), underTest.reserve("relay", 1));
+        assertEquals(MILLISECONDS.toNanos(400), underTest.reserve("relay", 2));
+    }
+
+    @Test
+    public void bucketRefillsOverTime() {
+        underTest.reserve("relay", 3);
+
+        clock.addAndGet(MILLISECONDS.toNanos(200));
+        assertEquals(0, underTest.reserve("relay", 2));
+        assertEquals(MILLISECONDS.toNanos(100), underTest.reserve("relay", 1));
+
+        // a bucket idle for longer than it takes to refill holds no more than the burst
+        clock.addAndGet(MILLISECONDS.toNanos(10_000));
+        assertEquals(0, underTest.reserve("relay", 3));
+        assertEquals(MILLISECONDS.toNanos(100), underTest.reserve("relay", 1));
+    }
+
+    @Test
+    public void keysAreLimitedIndependently() {
+        underTest.reserve("jhu.edu", 3);
+
+        assertEquals(0, underTest.reserve("example.org", 1));
+        assertEquals(MILLISECONDS.toNanos(100), underTest.reserve("jhu.edu", 1));
+        assertEquals(2, underTest.getKeys());
+    }
+
+    /**
+     * A caller that would be delayed beyond the maximum is rejected, and does not take its permits
+     */
+    @Test
+    public void excessiveDelayIsRejected() {
+        underTest.reserve("relay", 3);
+        underTest.reserve("relay", 9);
+
+        try {
+            underTest.reserve("relay", 2);
+            fail("Expected a LimitExceededException");
+        } catch (LimitExceededException e) {
+            assertTrue(e.getMessage().contains("relay"));
+        }
+
+        assertEquals(MILLISECONDS.toNanos(1000), underTest.reserve("relay", 1));
+        assertEquals(1, meterRegistry.get("pass.ratelimit.rejected").tag("name", "smtp").counter().count(), 0);
+    }
+
+    /**
+     * A caller rejected on one key returns the permits it reserved on the others
+     */
+    @Test
+    public void rejectedAcquireReturnsReservedPermits() {
+        underTest.reserve("example.org", 13);
+        Map<String, Integer> permits = new LinkedHashMap<>();
+        permits.put("jhu.edu", 3);
+        permits.put("example.org", 1);
+
+        try {
+            underTest.acquire(permits);
+            fail("Expected a LimitExceededException");
+        } catch (LimitExceededException e) {
+            assertTrue(e.getMessage().contains("example.org"));
+        }
+
+        assertEquals(0, underTest.reserve("jhu.edu", 3));
+        assertEquals(MILLISECONDS.toNanos(100), underTest.reserve("jhu.edu", 1));
+    }
+
+    /**
+     * Permits are taken without waiting only if every key has them available now
+     */
+    @Test
+    public void tryAcquireTakesPermitsOnlyIfAvailable() {
+        assertTrue(underTest.tryAcquire(Collections.singletonMap("relay", 3)));
+        assertFalse(underTest.tryAcquire(Collections.singletonMap("relay", 1)));
+
+        clock.addAndGet(MILLISECONDS.toNanos(100));
+        assertTrue(underTest.tryAcquire(Collections.singletonMap("relay", 1)));
+
+        underTest.reserve("example.org", 3);
+        Map<String, Integer> permits = new LinkedHashMap<>();
+        permits.put("jhu.edu", 3);
+        permits.put("example.org", 1);
+        assertFalse(underTest.tryAcquire(permits));
+        assertEquals(0, underTest.reserve("jhu.edu", 3));
+        assertEquals(0, meterRegistry.get("pass.ratelimit.rejected").tag("name", "smtp").counter().count(), 0);
+    }
+
+    @Test
+    public void acquireWaitsForEveryKey() {
+        underTest = new RateLimiter("domain", 1000, 1, 1000, meterRegistry);
+        Map<String, Integer> permits = new LinkedHashMap<>();
+        permits.put("jhu.edu", 1);
+        permits.put("example.org", 20);
+
+        long start = System.nanoTime();
+        underTest.acquire(permits);
+        long elapsedMs = NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("Waited " + elapsedMs + "ms", elapsedMs >= 19);
+        assertEquals(1, meterRegistry.get("pass.ratelimit.delay").tag("name", "domain").timer().count());
+        assertEquals(2, meterRegistry.get("pass.ratelimit.keys").tag("name", "domain").gauge().value(), 0);
+    }
+
+}
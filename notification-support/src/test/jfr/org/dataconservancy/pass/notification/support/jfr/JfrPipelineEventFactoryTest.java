@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.support.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.dataconservancy.pass.notification.model.Notification;
+import org.dataconservancy.pass.notification.support.metrics.StageMetrics.Outcome;
+import org.junit.Test;
+
+/**
+ * Compiled and run only on Java 11 or later, by the {@code jfr} build profile.
+ */
+public class JfrPipelineEventFactoryTest {
+
+    @Test
+    public void available() {
+        assertTrue(PipelineEvents.isAvailable());
+    }
+
+    @Test
+    public void recordsEventsWithAttributes() throws IOException {
+        Path file = Files.createTempFile("pipeline-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.dataconservancy.pass.notification.SmtpSend");
+            recording.enable("org.dataconservancy.pass.notification.PassFetch");
+            recording.start();
+
+            PipelineEvents.begin(PipelineEvents.Kind.SEND)
+                    .eventUri(URI.create("http://example.org/events/1"))
+                    .resourceUri(URI.create("http://example.org/submissions/1"))
+                    .notificationType(Notification.Type.SUBMISSION_APPROVAL_INVITE)
+                    .end(Outcome.SUCCESS);
+            PipelineEvents.begin(PipelineEvents.Kind.FETCH)
+                    .resourceUri(URI.create("http://example.org/users/1"))
+                    .resourceType(String.class)
+                    .end(Outcome.FAILURE);
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().startsWith("org.dataconservancy.pass.notification."))
+                    .collect(Collectors.toList());
+            assertEquals(2, events.size());
+
+            RecordedEvent send = events.stream()
+                    .filter(e -> e.getEventType().getName().endsWith("SmtpSend")).findAny().get();
+            assertEquals("http://example.org/events/1", send.getString("eventUri"));
+            assertEquals("http://example.org/submissions/1", send.getString("resourceUri"));
+            assertEquals("SUBMISSION_APPROVAL_INVITE", send.getString("notificationType"));
+            assertEquals("success", send.getString("outcome"));
+
+            RecordedEvent fetch = events.stream()
+                    .filter(e -> e.getEventType().getName().endsWith("PassFetch")).findAny().get();
+            assertEquals(String.class.getName(), fetch.getClass("resourceType").getName());
+            assertEquals("failure", fetch.getString("outcome"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Kinds not enabled by the recording are not recorded
+     */
+    @Test
+    public void disabledKindIsNoop() {
+        try (Recording recording = new Recording()) {
+            recording.enable("org.dataconservancy.pass.notification.SmtpSend");
+            recording.disable("org.dataconservancy.pass.notification.Render");
+            recording.start();
+
+            assertEquals(PipelineEvents.noop(), PipelineEvents.begin(PipelineEvents.Kind.RENDER));
+            assertTrue(PipelineEvents.begin(PipelineEvents.Kind.SEND) instanceof SmtpSendEvent);
+        }
+    }
+
+}
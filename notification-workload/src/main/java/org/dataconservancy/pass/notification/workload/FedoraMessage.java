@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.workload;
+
+import java.net.URI;
+import java.util.Objects;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dataconservancy.pass.support.messaging.constants.Constants;
+
+/**
+ * A JMS message announcing the creation of a {@code SubmissionEvent}, in the form sent by Fedora 4.7: a JSON-LD body
+ * identifying the resource, and headers carrying its types, the type of operation and its timestamp.
+ */
+public class FedoraMessage {
+
+    /**
+     * Fedora's timestamp of the operation described by a message, in milliseconds since the epoch
+     */
+    public static final String FCREPO_TIMESTAMP = "org.fcrepo.jms.timestamp";
+
+    static final String LDP_CONTAINER = "http://www.w3.org/ns/ldp#Container";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final URI resourceUri;
+
+    private final long timestamp;
+
+    /**
+     * @param resourceUri the URI of the {@code SubmissionEvent} created
+     * @param timestamp the time the {@code SubmissionEvent} was created, in milliseconds since the epoch
+     */
+    FedoraMessage(URI resourceUri, long timestamp) {
+        this.resourceUri = Objects.requireNonNull(resourceUri, "Resource URI must not be null.");
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return the URI of the {@code SubmissionEvent}
+     */
+    public URI getResourceUri() {
+        return resourceUri;
+    }
+
+    /**
+     * @return the value of the {@link Constants.JmsFcrepoHeader#FCREPO_RESOURCE_TYPE} header
+     */
+    public String getResourceType() {
+        return Constants.PassType.SUBMISSION_EVENT_RESOURCE + "," + LDP_CONTAINER;
+    }
+
+    /**
+     * @return the value of the {@link Constants.JmsFcrepoHeader#FCREPO_EVENT_TYPE} header
+     */
+    public String getEventType() {
+        return Constants.JmsFcrepoEvent.RESOURCE_CREATION;
+    }
+
+    /**
+     * @return the value of the {@link #FCREPO_TIMESTAMP} header
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the body of the message
+     */
+    public String getBody() {
+        ObjectNode body = MAPPER.createObjectNode();
+        body.put("id", resourceUri.toString());
+        body.putArray("type")
+                .add(Constants.PassType.SUBMISSION_EVENT_RESOURCE)
+                .add(LDP_CONTAINER);
+        body.putObject("wasGeneratedBy").putArray("type").add(getEventType());
+        return body.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "FedoraMessage{" + "resourceUri=" + resourceUri + ", timestamp=" + timestamp + '}';
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.workload;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.dataconservancy.pass.authz.usertoken.Key;
+import org.dataconservancy.pass.notification.model.Link;
+import org.dataconservancy.pass.notification.model.config.LinkValidationRule;
+import org.dataconservancy.pass.notification.model.config.Mode;
+import org.dataconservancy.pass.notification.model.config.NotificationConfig;
+import org.dataconservancy.pass.notification.model.config.RecipientConfig;
+import org.dataconservancy.pass.notification.model.config.UserTokenGeneratorConfig;
+
+/**
+ * Configurations of Notification Services matching the workloads of a {@link WorkloadGenerator}.
+ */
+public final class NotificationConfigs {
+
+    private NotificationConfigs() {
+        // static factory methods only
+    }
+
+    /**
+     * @return the configuration of Notification Services in {@code PRODUCTION} mode for the default
+     *         {@link WorkloadProfile}
+     */
+    public static NotificationConfig production() {
+        return production(WorkloadProfile.PASS_BASE_URI);
+    }
+
+    /**
+     * @param passBaseUri the base URI of the PASS user interface
+     * @return the configuration of Notification Services in {@code PRODUCTION} mode, with a random token key and
+     *         link validation rules requiring links to {@code passBaseUri}
+     */
+    public static NotificationConfig production(String passBaseUri) {
+        RecipientConfig recipientConfig = new RecipientConfig();
+        recipientConfig.setMode(Mode.PRODUCTION);
+        recipientConfig.setFromAddress("pass-production-noreply@jhu.edu");
+        recipientConfig.setGlobalCc(Arrays.asList("pass@jhu.edu", "pass-prod-cc@jhu.edu"));
+        recipientConfig.setGlobalBcc(Collections.singletonList("pass-prod-bcc@jhu.edu"));
+
+        UserTokenGeneratorConfig tokenConfig = new UserTokenGeneratorConfig();
+        tokenConfig.setKey(Key.generate().toString());
+
+        LinkValidationRule passLinks = new LinkValidationRule();
+        passLinks.setRels(Collections.singletonList("*"));
+        passLinks.setRequiredBaseURI(passBaseUri);
+        passLinks.setThrowExceptionWhenInvalid(false);
+
+        LinkValidationRule inviteLinks = new LinkValidationRule();
+        inviteLinks.setRels(Collections.singletonList(Link.Rels.SUBMISSION_REVIEW_INVITE));
+        inviteLinks.setRequiredBaseURI(passBaseUri + "/app");
+        inviteLinks.setThrowExceptionWhenInvalid(true);
+
+        NotificationConfig config = new NotificationConfig();
+        config.setMode(Mode.PRODUCTION);
+        config.setRecipientConfigs(Collections.singletonList(recipientConfig));
+        config.setUserTokenGeneratorConfig(tokenConfig);
+        config.setLinkValidationRules(Arrays.asList(passLinks, inviteLinks));
+        return config;
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.workload;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.Submission;
+import org.dataconservancy.pass.model.SubmissionEvent;
+import org.dataconservancy.pass.model.User;
+
+/**
+ * A {@code SubmissionEvent} generated by a {@link WorkloadGenerator}, with the {@code Submission} and {@code User}s it
+ * refers to, and the message Fedora sends when it is created.
+ */
+public class Scenario {
+
+    private final List<User> users;
+
+    private final Submission submission;
+
+    private final SubmissionEvent event;
+
+    private final FedoraMessage message;
+
+    Scenario(List<User> users, Submission submission, SubmissionEvent event) {
+        this.users = Collections.unmodifiableList(new ArrayList<>(users));
+        this.submission = submission;
+        this.event = event;
+        this.message = new FedoraMessage(event.getId(), event.getPerformedDate().getMillis());
+    }
+
+    /**
+     * @return the submitter, unless the submitter is not yet a user of PASS, followed by the preparers
+     */
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public Submission getSubmission() {
+        return submission;
+    }
+
+    public SubmissionEvent getEvent() {
+        return event;
+    }
+
+    /**
+     * @return the message announcing the creation of the event
+     */
+    public FedoraMessage getMessage() {
+        return message;
+    }
+
+    /**
+     * @return the resources of the scenario, in the order they would be created in the repository
+     */
+    public List<PassEntity> getResources() {
+        List<PassEntity> resources = new ArrayList<>(users.size() + 2);
+        resources.addAll(users);
+        resources.add(submission);
+        resources.add(event);
+        return resources;
+    }
+
+    /**
+     * @return {@code true} if the event is on a self-submission, for which no notification is sent
+     */
+    public boolean isSelfSubmission() {
+        return submission.getPreparers().isEmpty();
+    }
+
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.workload;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dataconservancy.pass.model.Submission;
+import org.dataconservancy.pass.model.SubmissionEvent;
+import org.dataconservancy.pass.model.SubmissionEvent.EventType;
+import org.dataconservancy.pass.model.SubmissionEvent.PerformerRole;
+import org.dataconservancy.pass.model.User;
+import org.dataconservancy.pass.notification.model.Link;
+import org.joda.time.DateTime;
+
+/**
+ * Generates synthetic, but realistically shaped, {@link Scenario}s: a {@link SubmissionEvent}, the {@link Submission}
+ * and {@link User}s it refers to, and the message Fedora sends when the event is created.  The shape of the workload
+ * is described by a {@link WorkloadProfile}.
+ * <p>
+ * Submissions carry metadata in the form produced by the PASS user interface.  The submitter of an
+ * {@code APPROVAL_REQUESTED_NEWUSER} event is not yet a user of PASS, so its submission has a submitter name and
+ * email rather than a submitter.  Other submitters, and all preparers, are users of PASS.
+ * </p>
+ * <p>
+ * All values are drawn from a {@link Random}, so that, for a given seed and profile, each run generates the same
+ * scenarios.  Instances are not thread-safe.
+ * </p>
+ */
+public class WorkloadGenerator {
+
+    /**
+     * The default seed, used where a workload only needs to be the same from run to run
+     */
+    public static final long SEED = 0x5EEDL;
+
+    private static final String[] WORDS = {"protein", "supplementation", "regional", "gut", "growth", "luminal",
+            "factor", "bioactivity", "treatment", "injury", "repair", "cohort", "randomized", "trial", "outcome",
+            "clinical", "analysis", "expression", "pathway", "signalling", "receptor", "model", "response", "dietary"};
+
+    private static final String[] NAMES = {"Tania", "Nikki", "Denis", "Robert", "Theo", "Raymond", "Ana", "Wei",
+            "Priya", "Kwame", "Olga", "Mateo", "Sofia", "Hiroshi", "Fatima", "Liam"};
+
+    private static final String[] SURNAMES = {"Marchbank", "Mandir", "Calnan", "Goodlad", "Podas", "Playford",
+            "Okafor", "Chen", "Sharma", "Mensah", "Ivanova", "Garcia", "Rossi", "Tanaka", "Haddad", "Murphy"};
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Random random;
+
+    private final WorkloadProfile profile;
+
+    private final List<EventType> eventTypes = new ArrayList<>();
+
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+
+    private DateTime clock;
+
+    /**
+     * @param seed the seed of the random source
+     */
+    public WorkloadGenerator(long seed) {
+        this(seed, new WorkloadProfile());
+    }
+
+    /**
+     * @param seed the seed of the random source
+     * @param profile the shape of the workload
+     */
+    public WorkloadGenerator(long seed, WorkloadProfile profile) {
+        this.random = new Random(seed);
+        this.profile = Objects.requireNonNull(profile, "Workload profile must not be null.");
+        this.clock = profile.getStartDate();
+
+        int total = 0;
+        for (Map.Entry<EventType, Integer> weight : profile.getEventTypeWeights().entrySet()) {
+            if (weight.getValue() > 0) {
+                total += weight.getValue();
+                eventTypes.add(weight.getKey());
+                cumulativeWeights.add(total);
+            }
+        }
+    }
+
+    /**
+     * @return the profile of the workload
+     */
+    public WorkloadProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Generates the next scenario of the workload: a self-submission or, in the proportion given by
+     * {@link WorkloadProfile#getProxyRatio()}, a proxy submission with an event of a type drawn from the weights of
+     * the profile.
+     *
+     * @return the scenario
+     */
+    public Scenario next() {
+        int authors = between(profile.getMinAuthors(), profile.getMaxAuthors());
+        if (random.nextDouble() < profile.getProxyRatio()) {
+            return scenario(eventType(), between(profile.getMinPreparers(), profile.getMaxPreparers()), authors);
+        }
+        return scenario(EventType.SUBMITTED, 0, authors);
+    }
+
+    /**
+     * Generates a scenario of the given shape.
+     *
+     * @param type the type of event
+     * @param preparers the number of preparers of the submission; zero for a self-submission
+     * @param authors the number of authors in the submission metadata
+     * @return the scenario
+     */
+    public Scenario scenario(EventType type, int preparers, int authors) {
+        Objects.requireNonNull(type, "Event type must not be null.");
+        if (preparers < 0 || authors < 0) {
+            throw new IllegalArgumentException("The numbers of preparers and authors must not be negative.");
+        }
+        if (preparers == 0 && type == EventType.APPROVAL_REQUESTED_NEWUSER) {
+            throw new IllegalArgumentException("Approval of a new user is requested by a preparer.");
+        }
+
+        List<User> users = new ArrayList<>(preparers + 1);
+        Submission submission = new Submission();
+        submission.setId(fedoraUri("submissions"));
+        if (type == EventType.APPROVAL_REQUESTED_NEWUSER) {
+            String name = name();
+            submission.setSubmitterName(name);
+            submission.setSubmitterEmail(URI.create("mailto:" + email(name)));
+        } else {
+            User submitter = user();
+            users.add(submitter);
+            submission.setSubmitter(submitter.getId());
+        }
+
+        List<URI> preparerUris = new ArrayList<>(preparers);
+        for (int i = 0; i < preparers; i++) {
+            User preparer = user();
+            users.add(preparer);
+            preparerUris.add(preparer.getId());
+        }
+        submission.setPreparers(preparerUris);
+        submission.setMetadata(metadata(authors));
+
+        SubmissionEvent event = event(submission, type);
+        if (type == EventType.SUBMITTED) {
+            submission.setSubmitted(true);
+            submission.setSubmittedDate(event.getPerformedDate());
+        } else {
+            submission.setSubmitted(false);
+        }
+
+        return new Scenario(users, submission, event);
+    }
+
+    /**
+     * @param count the number of links
+     * @return links with a mix of relations, all referring to the PASS user interface
+     */
+    public List<Link> links(int count) {
+        String[] rels = {Link.Rels.SUBMISSION_VIEW, Link.Rels.SUBMISSION_REVIEW, Link.Rels.SUBMISSION_REVIEW_INVITE};
+        List<Link> links = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            links.add(new Link(passLink(fedoraUri("submissions")), rels[i % rels.length]));
+        }
+        return links;
+    }
+
+    private SubmissionEvent event(Submission submission, EventType type) {
+        SubmissionEvent event = new SubmissionEvent();
+        event.setId(fedoraUri("submissionEvents"));
+        event.setSubmission(submission.getId());
+        event.setEventType(type);
+        clock = clock.plus((long) (random.nextDouble() * profile.getMaxEventIntervalMillis()));
+        event.setPerformedDate(clock);
+        event.setComment(sentence(12));
+
+        URI preparer = submission.getPreparers().isEmpty() ? null : submission.getPreparers().get(0);
+        boolean byPreparer;
+        switch (type) {
+            case APPROVAL_REQUESTED_NEWUSER:
+            case APPROVAL_REQUESTED:
+                byPreparer = preparer != null;
+                break;
+            case CANCELLED:
+                byPreparer = preparer != null && random.nextBoolean();
+                break;
+            default:
+                byPreparer = false;
+        }
+        event.setPerformedBy(byPreparer ? preparer : submission.getSubmitter());
+        event.setPerformerRole(byPreparer ? PerformerRole.PREPARER : PerformerRole.SUBMITTER);
+
+        event.setLink(passLink(submission.getId()));
+        return event;
+    }
+
+    private User user() {
+        String firstName = NAMES[random.nextInt(NAMES.length)];
+        String lastName = SURNAMES[random.nextInt(SURNAMES.length)];
+        User user = new User();
+        user.setId(fedoraUri("users"));
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setDisplayName(firstName + " " + lastName);
+        user.setEmail(email(user.getDisplayName()));
+        user.setRoles(Collections.singletonList(User.Role.SUBMITTER));
+        return user;
+    }
+
+    private EventType eventType() {
+        int value = random.nextInt(cumulativeWeights.get(cumulativeWeights.size() - 1));
+        for (int i = 0; i < cumulativeWeights.size(); i++) {
+            if (value < cumulativeWeights.get(i)) {
+                return eventTypes.get(i);
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    private String metadata(int authors) {
+        ObjectNode metadata = MAPPER.createObjectNode();
+        metadata.put("title", sentence(24));
+        metadata.put("journal-title", sentence(3));
+        metadata.put("journal-NLMTA-ID", "Food Funct");
+        metadata.put("volume", Integer.toString(1 + random.nextInt(40)));
+        metadata.put("issue", Integer.toString(1 + random.nextInt(12)));
+        metadata.put("abstract", sentence(between(profile.getMinAbstractWords(), profile.getMaxAbstractWords())));
+        metadata.put("doi", "10.1039/c7fo" + (10000 + random.nextInt(90000)) + "a");
+        metadata.put("publisher", "Royal Society of Chemistry (RSC)");
+        metadata.put("publicationDate", "2018-01-24");
+        metadata.put("agreements", "[{\"JScholarship\":\"NOTE: PLACE YOUR OWN LICENSE HERE\"}]");
+        ArrayNode authorNodes = metadata.putArray("authors");
+        for (int i = 0; i < authors; i++) {
+            ObjectNode author = authorNodes.addObject();
+            author.put("author", name());
+            if (random.nextBoolean()) {
+                author.put("orcid", String.format("http://orcid.org/0000-000%d-%04d-%04d", random.nextInt(4),
+                        random.nextInt(10000), random.nextInt(10000)));
+            }
+        }
+        metadata.put("under-embargo", "false");
+        metadata.put("Embargo-end-date", "2019-01-24");
+        return metadata.toString();
+    }
+
+    private URI fedoraUri(String container) {
+        String id = String.format("%016x", random.nextLong());
+        return URI.create(profile.getFedoraBaseUri() + "/" + container + "/" + id.substring(0, 2) + "/" +
+                id.substring(2, 4) + "/" + id.substring(4, 6) + "/" + id.substring(6, 8) + "/" + id);
+    }
+
+    private URI passLink(URI submission) {
+        return URI.create(profile.getPassBaseUri() + "/app/submissions/" +
+                submission.getPath().replace("/", "%2F"));
+    }
+
+    private String email(String name) {
+        return name.toLowerCase(Locale.ROOT).replace(' ', '.') + random.nextInt(1000) + "@" +
+                profile.getEmailDomain();
+    }
+
+    private String name() {
+        return NAMES[random.nextInt(NAMES.length)] + " " + SURNAMES[random.nextInt(SURNAMES.length)];
+    }
+
+    private String sentence(int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.append('.').toString();
+    }
+
+    private int between(int min, int max) {
+        return min + random.nextInt(max - min + 1);
+    }
+
+}
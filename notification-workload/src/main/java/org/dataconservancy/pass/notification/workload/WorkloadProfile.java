@@ -0,0 +1,250 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.workload;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.dataconservancy.pass.model.SubmissionEvent.EventType;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+/**
+ * Describes the shape of a synthetic workload: the mix of types of event, the ratio of proxy submissions to
+ * self-submissions, the number of preparers of a proxy submission, and the size of submission metadata.  The defaults
+ * approximate the traffic seen by Notification Services in production.
+ * <p>
+ * Events are only generated for proxy submissions in the proportions given by {@link #getEventTypeWeights()}.  A
+ * self-submission has no preparers, and is only ever submitted, so each of its events is {@code SUBMITTED}; it is
+ * dropped by Notification Services without sending an email.
+ * </p>
+ */
+public class WorkloadProfile {
+
+    /**
+     * The default base URI of the PASS user interface
+     */
+    public static final String PASS_BASE_URI = "https://pass.jhu.edu";
+
+    /**
+     * The default base URI of the Fedora repository
+     */
+    public static final String FEDORA_BASE_URI = "https://pass.jhu.edu/fcrepo/rest";
+
+    private String passBaseUri = PASS_BASE_URI;
+
+    private String fedoraBaseUri = FEDORA_BASE_URI;
+
+    private String emailDomain = "jhu.edu";
+
+    private Map<EventType, Integer> eventTypeWeights = new EnumMap<>(EventType.class);
+
+    private double proxyRatio = 0.3;
+
+    private int minPreparers = 1;
+
+    private int maxPreparers = 3;
+
+    private int minAuthors = 1;
+
+    private int maxAuthors = 12;
+
+    private int minAbstractWords = 100;
+
+    private int maxAbstractWords = 350;
+
+    private DateTime startDate = new DateTime(2018, 10, 1, 12, 0, DateTimeZone.UTC);
+
+    private long maxEventIntervalMillis = 60_000;
+
+    public WorkloadProfile() {
+        eventTypeWeights.put(EventType.APPROVAL_REQUESTED_NEWUSER, 10);
+        eventTypeWeights.put(EventType.APPROVAL_REQUESTED, 30);
+        eventTypeWeights.put(EventType.CHANGES_REQUESTED, 15);
+        eventTypeWeights.put(EventType.SUBMITTED, 35);
+        eventTypeWeights.put(EventType.CANCELLED, 10);
+    }
+
+    /**
+     * @return a profile of proxy submissions only, each of whose events results in exactly one email
+     */
+    public static WorkloadProfile proxied() {
+        WorkloadProfile profile = new WorkloadProfile();
+        profile.setProxyRatio(1);
+        return profile;
+    }
+
+    /**
+     * @return the base URI of the PASS user interface, which links in events refer to
+     */
+    public String getPassBaseUri() {
+        return passBaseUri;
+    }
+
+    public void setPassBaseUri(String passBaseUri) {
+        this.passBaseUri = Objects.requireNonNull(passBaseUri, "PASS base URI must not be null.");
+    }
+
+    /**
+     * @return the base URI of the Fedora repository, which resources are identified by
+     */
+    public String getFedoraBaseUri() {
+        return fedoraBaseUri;
+    }
+
+    public void setFedoraBaseUri(String fedoraBaseUri) {
+        this.fedoraBaseUri = Objects.requireNonNull(fedoraBaseUri, "Fedora base URI must not be null.");
+    }
+
+    /**
+     * @return the domain of the email addresses of users
+     */
+    public String getEmailDomain() {
+        return emailDomain;
+    }
+
+    public void setEmailDomain(String emailDomain) {
+        this.emailDomain = Objects.requireNonNull(emailDomain, "Email domain must not be null.");
+    }
+
+    /**
+     * @return the relative frequency of each type of event on proxy submissions; types without a weight, or with a
+     *         weight of zero, are not generated
+     */
+    public Map<EventType, Integer> getEventTypeWeights() {
+        return Collections.unmodifiableMap(eventTypeWeights);
+    }
+
+    public void setEventTypeWeights(Map<EventType, Integer> eventTypeWeights) {
+        Objects.requireNonNull(eventTypeWeights, "Event type weights must not be null.");
+        if (eventTypeWeights.values().stream().anyMatch(weight -> weight == null || weight < 0)) {
+            throw new IllegalArgumentException("Event type weights must not be negative.");
+        }
+        if (eventTypeWeights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("At least one event type must have a positive weight.");
+        }
+        this.eventTypeWeights = new EnumMap<>(eventTypeWeights);
+    }
+
+    /**
+     * @return the fraction of submissions, from 0 to 1, prepared by a proxy on behalf of the submitter
+     */
+    public double getProxyRatio() {
+        return proxyRatio;
+    }
+
+    public void setProxyRatio(double proxyRatio) {
+        if (proxyRatio < 0 || proxyRatio > 1) {
+            throw new IllegalArgumentException("Proxy ratio must be between 0 and 1.");
+        }
+        this.proxyRatio = proxyRatio;
+    }
+
+    /**
+     * @return the least number of preparers of a proxy submission
+     */
+    public int getMinPreparers() {
+        return minPreparers;
+    }
+
+    /**
+     * @return the greatest number of preparers of a proxy submission
+     */
+    public int getMaxPreparers() {
+        return maxPreparers;
+    }
+
+    public void setPreparers(int minPreparers, int maxPreparers) {
+        if (minPreparers < 1 || maxPreparers < minPreparers) {
+            throw new IllegalArgumentException("A proxy submission has at least one preparer.");
+        }
+        this.minPreparers = minPreparers;
+        this.maxPreparers = maxPreparers;
+    }
+
+    /**
+     * @return the least number of authors in submission metadata
+     */
+    public int getMinAuthors() {
+        return minAuthors;
+    }
+
+    /**
+     * @return the greatest number of authors in submission metadata
+     */
+    public int getMaxAuthors() {
+        return maxAuthors;
+    }
+
+    public void setAuthors(int minAuthors, int maxAuthors) {
+        if (minAuthors < 0 || maxAuthors < minAuthors) {
+            throw new IllegalArgumentException("Invalid range of authors: " + minAuthors + " to " + maxAuthors);
+        }
+        this.minAuthors = minAuthors;
+        this.maxAuthors = maxAuthors;
+    }
+
+    /**
+     * @return the least number of words in the abstract of submission metadata
+     */
+    public int getMinAbstractWords() {
+        return minAbstractWords;
+    }
+
+    /**
+     * @return the greatest number of words in the abstract of submission metadata
+     */
+    public int getMaxAbstractWords() {
+        return maxAbstractWords;
+    }
+
+    public void setAbstractWords(int minAbstractWords, int maxAbstractWords) {
+        if (minAbstractWords < 0 || maxAbstractWords < minAbstractWords) {
+            throw new IllegalArgumentException("Invalid range of abstract words: " + minAbstractWords + " to " +
+                    maxAbstractWords);
+        }
+        this.minAbstractWords = minAbstractWords;
+        this.maxAbstractWords = maxAbstractWords;
+    }
+
+    /**
+     * @return the date the first event is performed
+     */
+    public DateTime getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(DateTime startDate) {
+        this.startDate = Objects.requireNonNull(startDate, "Start date must not be null.");
+    }
+
+    /**
+     * @return the greatest time between successive events, in milliseconds
+     */
+    public long getMaxEventIntervalMillis() {
+        return maxEventIntervalMillis;
+    }
+
+    public void setMaxEventIntervalMillis(long maxEventIntervalMillis) {
+        if (maxEventIntervalMillis < 0) {
+            throw new IllegalArgumentException("Event interval must not be negative.");
+        }
+        this.maxEventIntervalMillis = maxEventIntervalMillis;
+    }
+
+}
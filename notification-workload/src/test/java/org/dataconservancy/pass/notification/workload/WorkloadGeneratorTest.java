@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.notification.workload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dataconservancy.pass.model.SubmissionEvent.EventType;
+import org.dataconservancy.pass.model.SubmissionEvent.PerformerRole;
+import org.dataconservancy.pass.model.User;
+import org.junit.Test;
+
+public class WorkloadGeneratorTest {
+
+    private static final int SCENARIOS = 2000;
+
+    @Test
+    public void sameSeedGeneratesSameScenarios() {
+        WorkloadGenerator first = new WorkloadGenerator(42);
+        WorkloadGenerator second = new WorkloadGenerator(42);
+
+        for (int i = 0; i < 100; i++) {
+            Scenario expected = first.next();
+            Scenario actual = second.next();
+            assertEquals(expected.getEvent(), actual.getEvent());
+            assertEquals(expected.getSubmission(), actual.getSubmission());
+            assertEquals(expected.getUsers(), actual.getUsers());
+            assertEquals(expected.getMessage().getBody(), actual.getMessage().getBody());
+        }
+    }
+
+    @Test
+    public void differentSeedsGenerateDifferentScenarios() {
+        assertFalse(new WorkloadGenerator(1).next().getSubmission().getId()
+                .equals(new WorkloadGenerator(2).next().getSubmission().getId()));
+    }
+
+    @Test
+    public void proxyRatio() {
+        WorkloadProfile profile = new WorkloadProfile();
+        profile.setProxyRatio(0.25);
+        WorkloadGenerator underTest = new WorkloadGenerator(WorkloadGenerator.SEED, profile);
+
+        int proxied = 0;
+        for (int i = 0; i < SCENARIOS; i++) {
+            Scenario scenario = underTest.next();
+            if (scenario.isSelfSubmission()) {
+                assertEquals(EventType.SUBMITTED, scenario.getEvent().getEventType());
+                assertEquals(PerformerRole.SUBMITTER, scenario.getEvent().getPerformerRole());
+            } else {
+                proxied++;
+            }
+        }
+
+        assertEquals(0.25, (double) proxied / SCENARIOS, 0.03);
+    }
+
+    @Test
+    public void eventTypeWeights() {
+        Map<EventType, Integer> weights = new EnumMap<>(EventType.class);
+        weights.put(EventType.APPROVAL_REQUESTED, 3);
+        weights.put(EventType.CANCELLED, 1);
+        weights.put(EventType.SUBMITTED, 0);
+        WorkloadProfile profile = WorkloadProfile.proxied();
+        profile.setEventTypeWeights(weights);
+        WorkloadGenerator underTest = new WorkloadGenerator(WorkloadGenerator.SEED, profile);
+
+        Map<EventType, Integer> counts = new EnumMap<>(EventType.class);
+        for (int i = 0; i < SCENARIOS; i++) {
+            counts.merge(underTest.next().getEvent().getEventType(), 1, Integer::sum);
+        }
+
+        assertEquals(2, counts.size());
+        assertEquals(0.75, (double) counts.get(EventType.APPROVAL_REQUESTED) / SCENARIOS, 0.03);
+        assertEquals(0.25, (double) counts.get(EventType.CANCELLED) / SCENARIOS, 0.03);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void eventTypeWeightsMustNotAllBeZero() {
+        new WorkloadProfile().setEventTypeWeights(Collections.singletonMap(EventType.SUBMITTED, 0));
+    }
+
+    @Test
+    public void preparersAndAuthorsWithinProfile() throws Exception {
+        WorkloadProfile profile = WorkloadProfile.proxied();
+        profile.setPreparers(2, 4);
+        profile.setAuthors(3, 5);
+        WorkloadGenerator underTest = new WorkloadGenerator(WorkloadGenerator.SEED, profile);
+        ObjectMapper mapper = new ObjectMapper();
+
+        for (int i = 0; i < 200; i++) {
+            Scenario scenario = underTest.next();
+            int preparers = scenario.getSubmission().getPreparers().size();
+            int authors = mapper.readTree(scenario.getSubmission().getMetadata()).get("authors").size();
+            assertTrue("Preparers: " + preparers, preparers >= 2 && preparers <= 4);
+            assertTrue("Authors: " + authors, authors >= 3 && authors <= 5);
+        }
+    }
+
+    @Test
+    public void approvalRequestedNewUser() {
+        Scenario scenario = new WorkloadGenerator(WorkloadGenerator.SEED)
+                .scenario(EventType.APPROVAL_REQUESTED_NEWUSER, 1, 6);
+
+        assertNull(scenario.getSubmission().getSubmitter());
+        assertNotNull(scenario.getSubmission().getSubmitterName());
+        assertEquals("mailto", scenario.getSubmission().getSubmitterEmail().getScheme());
+        assertEquals(1, scenario.getUsers().size());
+        assertEquals(scenario.getSubmission().getPreparers().get(0), scenario.getEvent().getPerformedBy());
+        assertEquals(PerformerRole.PREPARER, scenario.getEvent().getPerformerRole());
+    }
+
+    @Test
+    public void usersAreReferencedBySubmission() {
+        Scenario scenario = new WorkloadGenerator(WorkloadGenerator.SEED).scenario(EventType.APPROVAL_REQUESTED, 3, 6);
+
+        assertEquals(4, scenario.getUsers().size());
+        assertEquals(scenario.getSubmission().getSubmitter(), scenario.getUsers().get(0).getId());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(scenario.getSubmission().getPreparers().get(i), scenario.getUsers().get(i + 1).getId());
+        }
+        for (User user : scenario.getUsers()) {
+            assertTrue(user.getEmail().endsWith("@jhu.edu"));
+        }
+        assertEquals(6, scenario.getResources().size());
+        assertEquals(scenario.getEvent().getSubmission(), scenario.getSubmission().getId());
+        assertTrue(scenario.getEvent().getLink().toString().startsWith(WorkloadProfile.PASS_BASE_URI + "/app/"));
+    }
+
+    @Test
+    public void eventsAreOrderedInTime() {
+        WorkloadGenerator underTest = new WorkloadGenerator(WorkloadGenerator.SEED);
+        long previous = 0;
+        for (int i = 0; i < 100; i++) {
+            long performed = underTest.next().getEvent().getPerformedDate().getMillis();
+            assertTrue(performed >= previous);
+            previous = performed;
+        }
+    }
+
+    @Test
+    public void fedoraMessage() throws Exception {
+        Scenario scenario = new WorkloadGenerator(WorkloadGenerator.SEED).next();
+        FedoraMessage message = scenario.getMessage();
+
+        JsonNode body = new ObjectMapper().readTree(message.getBody());
+        assertEquals(scenario.getEvent().getId().toString(), body.get("id").asText());
+        assertEquals(scenario.getEvent().getId(), message.getResourceUri());
+        assertEquals(scenario.getEvent().getPerformedDate().getMillis(), message.getTimestamp());
+        assertTrue(message.getResourceType().contains(body.get("type").get(0).asText()));
+        assertEquals(message.getEventType(), body.get("wasGeneratedBy").get("type").get(0).asText());
+    }
+
+}